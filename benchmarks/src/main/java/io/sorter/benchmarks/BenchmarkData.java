@@ -0,0 +1,94 @@
+package io.sorter.benchmarks;
+
+import io.sorter.generator.DatasetGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Класс BenchmarkData генерирует воспроизводимые входные данные для бенчмарков:
+ * строки из столбцов в кавычках с числовыми значениями, как во входных файлах.
+ * Количество различных значений в столбце (кардинальность) управляет числом
+ * совпадений значений, а значит и размерами групп. Файлы для полной обработки
+ * генерирует {@link DatasetGenerator}, как и при запуске из командной строки.
+ */
+final class BenchmarkData {
+    private static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Метод lines генерирует корректные строки.
+     *
+     * @param count       количество строк
+     * @param columns     количество столбцов в строке
+     * @param cardinality количество различных значений в столбце
+     * @return строки без символов перевода строки
+     */
+    static String[] lines(int count, int columns, int cardinality) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        String[] lines = new String[count];
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            line.setLength(0);
+            for (int column = 0; column < columns; column++) {
+                if (column > 0) {
+                    line.append(';');
+                }
+                /* Каждая десятая ячейка пустая: пустые значения не объединяют строки */
+                if (random.nextInt(10) == 0) {
+                    line.append("\"\"");
+                } else {
+                    line.append('"').append(random.nextInt(cardinality)).append('"');
+                }
+            }
+            lines[i] = line.toString();
+        }
+        return lines;
+    }
+
+    /**
+     * Метод invalidLines генерирует строки, которые не проходят проверку формата:
+     * незакрытая кавычка, буквы в значении или кавычка внутри значения.
+     *
+     * @param count   количество строк
+     * @param columns количество столбцов в строке
+     * @return некорректные строки
+     */
+    static String[] invalidLines(int count, int columns) {
+        String[] lines = lines(count, columns, Integer.MAX_VALUE);
+        for (int i = 0; i < count; i++) {
+            String line = lines[i];
+            int middle = line.length() / 2;
+            switch (i % 3) {
+                case 0 -> lines[i] = line.substring(0, line.length() - 1);
+                case 1 -> lines[i] = line.substring(0, middle) + "x" + line.substring(middle);
+                default -> lines[i] = line + ";\"1\"2\"";
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Метод writeFile генерирует временный файл {@link DatasetGenerator}.
+     *
+     * @param count       количество строк
+     * @param columns     количество столбцов в строке
+     * @param cardinality количество различных значений в столбце
+     * @param zipf        показатель перекоса частот значений, 0 - равномерно
+     * @return путь к файлу; файл удаляется при завершении JVM
+     * @throws IOException если файл не удается записать
+     */
+    static Path writeFile(int count, int columns, int cardinality, double zipf) throws IOException {
+        Path file = Files.createTempFile("group_sorter-bench", ".txt");
+        file.toFile().deleteOnExit();
+        new DatasetGenerator().setSeed(SEED).setLineCount(count).setColumnCount(columns)
+                .setCardinality(cardinality).setZipfExponent(zipf)
+                .setDuplicateRatio(0.01).setInvalidRatio(0.01)
+                .generate(file);
+        return file;
+    }
+}
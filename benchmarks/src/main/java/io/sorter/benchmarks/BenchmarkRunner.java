@@ -0,0 +1,58 @@
+package io.sorter.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Класс BenchmarkRunner запускает бенчмарки JMH с настройками по умолчанию для поиска
+ * регрессий: профилировщик GC (скорость выделения памяти, gc.alloc.rate.norm - байты
+ * на операцию) и результаты в JSON-файле "jmh-result.json". Аргументы командной строки
+ * те же, что у JMH, и заменяют настройки по умолчанию: например, "-rf csv -rff out.csv"
+ * меняет формат результатов, а "-prof stack" - профилировщик.
+ */
+public final class BenchmarkRunner {
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Метод main запускает бенчмарки, выбранные аргументами командной строки (по умолчанию все).
+     *
+     * @param args аргументы командной строки JMH
+     * @throws RunnerException            если бенчмарки не удалось запустить
+     * @throws CommandLineOptionException если аргументы командной строки некорректны
+     * @throws IOException                если не удалось вывести справку
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(commandLine);
+        if (commandLine.getProfilers().isEmpty()) {
+            builder.addProfiler(GCProfiler.class);
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            builder.result(DEFAULT_RESULT_FILE);
+        }
+        Runner runner = new Runner(builder.build());
+        if (commandLine.shouldList()) {
+            runner.list();
+            return;
+        }
+        runner.run();
+    }
+}
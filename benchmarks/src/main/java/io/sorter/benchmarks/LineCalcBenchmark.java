@@ -0,0 +1,61 @@
+package io.sorter.benchmarks;
+
+import io.sorter.calculator.CalcOptions;
+import io.sorter.calculator.LineCalc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс LineCalcBenchmark измеряет полную обработку файла {@link LineCalc#calc()}:
+ * чтение, разбор, группировку и запись результата. Файл генерируется один раз на форк
+ * с равномерными или перекошенными по закону Ципфа значениями (параметр zipf),
+ * результат записывается в "out.txt" рабочего каталога, как и при запуске программы.
+ * Результат указывается в миллисекундах на файл.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineCalcBenchmark {
+    @Param({"500000"})
+    private int lineCount;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    @Param({"false", "true"})
+    private boolean external;
+
+    @Param({"0", "1.1"})
+    private double zipf;
+
+    private Path input;
+
+    @Setup
+    public void setUp() throws IOException {
+        input = BenchmarkData.writeFile(lineCount, 3, 100000, zipf);
+    }
+
+    @Benchmark
+    public int calc() {
+        CalcOptions options = new CalcOptions()
+                .setParallelism(parallelism)
+                .setExternal(external);
+        return new LineCalc(input.toString(), options).calc();
+    }
+}
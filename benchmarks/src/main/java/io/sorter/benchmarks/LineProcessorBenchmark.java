@@ -0,0 +1,72 @@
+package io.sorter.benchmarks;
+
+import io.sorter.parser.LineProcessor;
+import io.sorter.parser.LineTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс LineProcessorBenchmark измеряет разбор одной строки: {@link LineProcessor#parseLine(String)}
+ * с выделением строк столбцов и {@link LineTokenizer} по байтам без выделения памяти,
+ * как при чтении файла. Результат указывается в наносекундах на строку.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineProcessorBenchmark {
+    private static final int LINES = 1024;
+
+    @Param({"true", "false"})
+    private boolean valid;
+
+    @Param({"3", "10"})
+    private int columns;
+
+    private String[] lines;
+    private ByteBuffer[] buffers;
+    private LineTokenizer tokenizer;
+
+    @Setup
+    public void setUp() {
+        lines = valid ? BenchmarkData.lines(LINES, columns, 1000) : BenchmarkData.invalidLines(LINES, columns);
+        buffers = new ByteBuffer[LINES];
+        for (int i = 0; i < LINES; i++) {
+            buffers[i] = ByteBuffer.wrap(lines[i].getBytes(StandardCharsets.UTF_8));
+        }
+        tokenizer = new LineTokenizer();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void parseLine(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(LineProcessor.parseLine(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void tokenizeBytes(Blackhole blackhole) {
+        for (ByteBuffer buffer : buffers) {
+            blackhole.consume(tokenizer.tokenize(buffer, 0, buffer.limit()));
+        }
+    }
+}
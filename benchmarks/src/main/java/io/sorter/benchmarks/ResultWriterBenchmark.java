@@ -0,0 +1,82 @@
+package io.sorter.benchmarks;
+
+import io.sorter.parser.LineTokenizer;
+import io.sorter.store.LineStore;
+import io.sorter.validators.UnionFind;
+import io.sorter.validators.UniqueLineChecker;
+import io.sorter.writer.ResultWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс ResultWriterBenchmark измеряет запись результата {@link ResultWriter#writeResults(LineStore, UnionFind)}
+ * для заранее сгруппированных строк: раскладку групп, форматирование и запись файла.
+ * Результат указывается в миллисекундах на весь файл.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultWriterBenchmark {
+    @Param({"200000"})
+    private int lineCount;
+
+    @Param({"1000", "1000000"})
+    private int cardinality;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private LineStore lines;
+    private UnionFind unionFind;
+    private Path output;
+
+    @Setup
+    public void setUp() throws IOException {
+        lines = new LineStore();
+        unionFind = new UnionFind(0);
+        UniqueLineChecker checker = new UniqueLineChecker(lineCount);
+        LineTokenizer tokenizer = new LineTokenizer();
+        for (String line : BenchmarkData.lines(lineCount, 3, cardinality)) {
+            ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+            if (!tokenizer.tokenize(buffer, 0, buffer.limit())
+                    || checker.findOrAdd(buffer, 0, buffer.limit(), lines.size()) >= 0) {
+                continue;
+            }
+            lines.add(buffer, 0, buffer.limit());
+            checker.checkUnique(buffer, tokenizer, unionFind.add(), unionFind);
+        }
+        output = Files.createTempFile("group_sorter-bench", ".out");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public int writeResults() throws IOException {
+        ResultWriter resultWriter = new ResultWriter(output.toString(), parallelism);
+        resultWriter.writeResults(lines, unionFind);
+        return resultWriter.getGroupCount();
+    }
+}
@@ -0,0 +1,94 @@
+package io.sorter.benchmarks;
+
+import io.sorter.validators.UnionFind;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс UnionFindBenchmark измеряет построение системы множеств и поиск корней
+ * при разных порядках объединений:
+ * <ul>
+ *     <li>chain - каждый элемент объединяется с предыдущим (одна длинная цепочка);</li>
+ *     <li>star - все элементы объединяются с первым (одна большая группа);</li>
+ *     <li>random - случайные пары (много групп разного размера);</li>
+ *     <li>pairs - непересекающиеся пары (много групп из двух элементов).</li>
+ * </ul>
+ * Результат указывается в миллисекундах на все объединения или все поиски.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnionFindBenchmark {
+    @Param({"1000000"})
+    private int size;
+
+    @Param({"chain", "star", "random", "pairs"})
+    private String pattern;
+
+    private int[] firsts;
+    private int[] seconds;
+    private UnionFind built;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        int unions = pattern.equals("pairs") ? size / 2 : size - 1;
+        firsts = new int[unions];
+        seconds = new int[unions];
+        for (int i = 0; i < unions; i++) {
+            switch (pattern) {
+                case "chain" -> {
+                    firsts[i] = i;
+                    seconds[i] = i + 1;
+                }
+                case "star" -> {
+                    firsts[i] = 0;
+                    seconds[i] = i + 1;
+                }
+                case "random" -> {
+                    firsts[i] = random.nextInt(size);
+                    seconds[i] = random.nextInt(size);
+                }
+                case "pairs" -> {
+                    firsts[i] = i * 2;
+                    seconds[i] = i * 2 + 1;
+                }
+                default -> throw new IllegalArgumentException("Неизвестный порядок объединений: " + pattern);
+            }
+        }
+        built = union();
+    }
+
+    @Benchmark
+    public UnionFind union() {
+        UnionFind unionFind = new UnionFind(size);
+        for (int i = 0; i < firsts.length; i++) {
+            unionFind.union(firsts[i], seconds[i]);
+        }
+        return unionFind;
+    }
+
+    @Benchmark
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += built.get(i);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,81 @@
+package io.sorter.benchmarks;
+
+import io.sorter.parser.LineTokenizer;
+import io.sorter.validators.UnionFind;
+import io.sorter.validators.UniqueLineChecker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс UniqueLineCheckerBenchmark измеряет поиск повторов строк и объединение строк
+ * по значениям столбцов на свежем экземпляре {@link UniqueLineChecker}: в каждом вызове
+ * все строки набора проходят так же, как при чтении файла. Низкая кардинальность дает
+ * много повторов значений и крупные группы, высокая - почти все значения новые.
+ * Результат указывается в миллисекундах на весь набор строк.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UniqueLineCheckerBenchmark {
+    @Param({"100000"})
+    private int lineCount;
+
+    @Param({"1", "3", "10"})
+    private int columns;
+
+    @Param({"100", "100000"})
+    private int cardinality;
+
+    private String[] lines;
+    private ByteBuffer[] buffers;
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkData.lines(lineCount, columns, cardinality);
+        buffers = new ByteBuffer[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            buffers[i] = ByteBuffer.wrap(lines[i].getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Benchmark
+    public void isUnique(Blackhole blackhole) {
+        UniqueLineChecker checker = new UniqueLineChecker(lineCount);
+        for (String line : lines) {
+            blackhole.consume(checker.isUnique(line));
+        }
+    }
+
+    @Benchmark
+    public UnionFind checkUnique() {
+        UniqueLineChecker checker = new UniqueLineChecker(lineCount);
+        UnionFind unionFind = new UnionFind(0);
+        unionFind.ensureCapacity(lineCount);
+        LineTokenizer tokenizer = new LineTokenizer();
+        for (ByteBuffer buffer : buffers) {
+            if (!tokenizer.tokenize(buffer, 0, buffer.limit())
+                    || checker.findOrAdd(buffer, 0, buffer.limit(), unionFind.size()) >= 0) {
+                continue;
+            }
+            checker.checkUnique(buffer, tokenizer, unionFind.add(), unionFind);
+        }
+        return unionFind;
+    }
+}
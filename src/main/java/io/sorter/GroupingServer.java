@@ -0,0 +1,190 @@
+package io.sorter;
+
+import io.sorter.calculator.CalcOptions;
+import io.sorter.calculator.GroupingWorkspace;
+import io.sorter.calculator.LineCalc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Класс GroupingServer - режим сервера: задания на группировку выполняются одно за другим
+ * в одном долго работающем процессе. Запуск JVM, загрузка классов и JIT-компиляция
+ * оплачиваются один раз, а структуры группировки ({@link GroupingWorkspace}) очищаются
+ * между заданиями вместо выделения заново.
+ * <p>
+ * Задания принимаются из стандартного ввода или через сокет Unix, по одному в строке:
+ * флаги и входной путь в том же виде, что и в командной строке программы, с необязательным
+ * словом merge в начале и флагом {@code --output FILE} (по умолчанию out.txt). Аргументы
+ * разделяются пробелами; относительные пути отсчитываются от рабочего каталога сервера.
+ * На каждое задание отправляется строка ответа:
+ * <pre>
+ * OK &lt;количество групп&gt; &lt;время выполнения в мс&gt;
+ * ERROR &lt;сообщение&gt;
+ * </pre>
+ * Команда shutdown останавливает сервер. Задания разных подключений сокета выполняются
+ * по очереди, а параллельность внутри задания задается флагом {@code --threads}.
+ */
+final class GroupingServer {
+    /** Команда остановки сервера. */
+    static final String SHUTDOWN = "shutdown";
+
+    private final GroupingWorkspace workspace;
+    private volatile boolean stopped;
+    private volatile ServerSocketChannel server; /* Сокет ожидания подключений или null */
+
+    /**
+     * Конструктор класса GroupingServer.
+     *
+     * @param maxRetainedBytes объем памяти структур группировки, который сохраняется между заданиями,
+     *                         см. {@link GroupingWorkspace#setMaxRetainedBytes(long)}
+     */
+    GroupingServer(long maxRetainedBytes) {
+        workspace = new GroupingWorkspace().setMaxRetainedBytes(maxRetainedBytes);
+    }
+
+    /**
+     * Метод serve выполняет задания из потока до его конца или команды shutdown.
+     *
+     * @param in  поток заданий
+     * @param out поток ответов
+     * @throws IOException если возникнет ошибка чтения заданий или записи ответов
+     */
+    void serve(Reader in, Writer out) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        PrintWriter writer = new PrintWriter(out);
+        String line;
+        while (!stopped && (line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (line.trim().equals(SHUTDOWN)) {
+                stop();
+                writer.println("OK");
+            } else {
+                writer.println(execute(line));
+            }
+            writer.flush();
+        }
+    }
+
+    /**
+     * Метод serve принимает подключения к сокету Unix, пока не получит команду shutdown.
+     * Каждое подключение обслуживается в своем потоке и может отправить несколько заданий.
+     *
+     * @param socket путь к файлу сокета; оставшийся от прошлого запуска сокет заменяется
+     * @throws IOException если сокет не удается создать
+     */
+    void serve(Path socket) throws IOException {
+        if (Files.isRegularFile(socket) || Files.isDirectory(socket)) {
+            throw new IOException("Путь занят файлом или каталогом: " + socket);
+        }
+        Files.deleteIfExists(socket);
+        try (ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.bind(UnixDomainSocketAddress.of(socket));
+            server = channel;
+            while (!stopped) {
+                SocketChannel client;
+                try {
+                    client = channel.accept();
+                } catch (AsynchronousCloseException e) {
+                    break; /* Сокет закрыт командой shutdown */
+                }
+                Thread thread = new Thread(() -> handle(client), "grouping-client");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } finally {
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client) {
+            serve(Channels.newReader(client, StandardCharsets.UTF_8),
+                    Channels.newWriter(client, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            /* Клиент отключился: задания других подключений продолжают выполняться */
+        }
+    }
+
+    private void stop() throws IOException {
+        stopped = true;
+        ServerSocketChannel channel = server;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Метод execute выполняет одно задание. Задания выполняются по очереди: структуры
+     * группировки общие для всех заданий. Любая ошибка задания, включая {@link Error}
+     * (например, нехватку памяти на слишком большом файле), становится ответом ERROR
+     * и не останавливает сервер, а структуры группировки после нее выделяются заново.
+     *
+     * @param job строка задания
+     * @return строка ответа
+     */
+    synchronized String execute(String job) {
+        List<String> args = new ArrayList<>(Arrays.asList(job.trim().split("\\s+")));
+        boolean merge = args.get(0).equals("merge");
+        if (merge) {
+            args.remove(0);
+        }
+        String output = "out.txt";
+        int outputFlag = args.indexOf("--output");
+        if (outputFlag >= 0) {
+            if (outputFlag + 1 == args.size()) {
+                return "ERROR Не указано значение флага --output";
+            }
+            output = args.remove(outputFlag + 1);
+            args.remove(outputFlag);
+        }
+        long start = System.nanoTime();
+        try {
+            CalcOptions options = new CalcOptions();
+            String input = Main.parseArguments(args.toArray(new String[0]), options);
+            if (input == null) {
+                return "ERROR Не указан входной файл или указан неизвестный флаг";
+            }
+            LineCalc lineCalc = new LineCalc(input, options, workspace);
+            int groupCount = merge ? lineCalc.merge(output) : lineCalc.calc(output);
+            return "OK " + groupCount + " " + (System.nanoTime() - start) / 1_000_000;
+        } catch (RuntimeException | Error e) {
+            workspace.discard(); /* Задание могло оборваться посреди заполнения структур */
+            return "ERROR " + message(e);
+        }
+    }
+
+    /**
+     * Метод message возвращает сообщение исключения в одну строку. Исключения ввода-вывода
+     * обернуты в RuntimeException, и сообщение берется у причины вместе с ее типом:
+     * у многих из них сообщение - только путь к файлу. У ошибок {@link Error} тип тоже
+     * указывается: сообщение "Java heap space" без него непонятно.
+     */
+    private static String message(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && !(cause instanceof IOException)) {
+            cause = cause.getCause();
+        }
+        String message = cause instanceof IOException || cause instanceof Error || cause.getMessage() == null
+                ? cause.getClass().getSimpleName() + ": " + cause.getMessage()
+                : cause.getMessage();
+        return message.replace('\n', ' ');
+    }
+}
@@ -1,6 +1,16 @@
 package io.sorter;
 
+import io.sorter.calculator.CalcOptions;
+import io.sorter.calculator.GroupingWorkspace;
 import io.sorter.calculator.LineCalc;
+import io.sorter.generator.DatasetGenerator;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 /**
  * Главный класс приложения, который служит точкой входа для выполнения
@@ -9,6 +19,18 @@ import io.sorter.calculator.LineCalc;
  * на консоль.
  */
 public class Main {
+    private static final String USAGE = "Использование: java -jar имя_пакета.jar [merge]"
+            + " [--exact-count] [--threads N] [--pipeline] [--verify-duplicates]"
+            + " [--auto] [--external] [--memory-budget SIZE] [--temp-dir DIR]"
+            + " [--state DIR] [--snapshot FILE] [--top K] [--min-size N] [--metrics FILE] inputfile.txt|каталог|шаблон";
+    private static final String PARTIAL_USAGE = "Использование: java -jar имя_пакета.jar partial"
+            + " [--threads N] [--verify-duplicates] inputfile.txt|каталог|шаблон outputdir";
+    private static final String SERVE_USAGE = "Использование: java -jar имя_пакета.jar serve [--socket FILE]"
+            + " [--max-retained SIZE]";
+    private static final String GENERATE_USAGE = "Использование: java -jar имя_пакета.jar generate"
+            + " [--lines N] [--columns N] [--cardinality N[,N...]] [--empty RATIO] [--duplicates RATIO]"
+            + " [--invalid RATIO] [--zipf S] [--seed N] outputfile.txt[.gz]";
+
     /**
      * Метод main является точкой входа в программу.
      * Он ожидает один аргумент командной строки - имя входного файла.
@@ -18,24 +40,343 @@ public class Main {
      * В конце выводится время выполнения программы и количество групп,
      * содержащих более одного элемента.
      *
+     * Перед именем файла можно указать флаги:
+     * --exact-count включает предварительный точный подсчет строк
+     * отдельным проходом по файлу вместо оценки по выборке;
+     * --threads N задает количество потоков для параллельной обработки;
+     * --pipeline включает разбор конвейером стадий, где чтение идет одновременно с разбором в N потоках;
+     * --verify-duplicates включает побайтную сверку строк с совпавшими отпечатками;
+     * --auto включает планировщик: по выборке из начала файла оцениваются количество строк и значений,
+     * выбирается хранение строк в куче, вне кучи или во внешней памяти и заранее выделяются структуры;
+     * --external включает группировку во внешней памяти для файлов больше оперативной памяти;
+     * --memory-budget SIZE задает объем памяти под буферы внешней сортировки (например, 512m)
+     * и включает группировку во внешней памяти;
+     * --temp-dir DIR задает каталог для временных файлов внешней сортировки;
+     * --state DIR включает режим дописывания: состояние группировки хранится в каталоге DIR,
+     * и повторный запуск обрабатывает только строки, дописанные в конец файла;
+     * --snapshot FILE дополнительно записывает группировку в двоичный снимок FILE;
+     * --top K выводит только K самых больших групп;
+     * --min-size N выводит только группы не меньше N строк;
+     * --metrics FILE записывает в FILE отчет JSON о времени этапов, счетчиках строк и размерах индексов.
+     *
+     * Вместо имени файла можно указать каталог или шаблон glob (например, "data/*.gz"):
+     * файлы-шарды группируются параллельно и сливаются в общий результат.
+     *
+     * Команда generate вместо обработки генерирует входной файл, см. {@link #generate(String[])}.
+     * Команда partial сохраняет частичные результаты шардов, см. {@link #partial(String[])},
+     * а команда merge с теми же флагами, что и обработка, сливает их вместо разбора входного файла.
+     * Команда serve запускает сервер, выполняющий задания в одном процессе, см. {@link #serve(String[])}.
+     *
      * @param args массив строк, содержащий аргументы командной строки.
-     *             Ожидается, что будет передан один аргумент - имя входного файла.
+     *             Ожидается, что будет передан один аргумент - имя входного файла,
+     *             которому могут предшествовать флаги.
      */
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.out.println("Использование: java -jar имя_пакета.jar inputfile.txt");
+        if (args.length > 0 && args[0].equals("generate")) {
+            generate(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("partial")) {
+            partial(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("serve")) {
+            serve(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        boolean merge = args.length > 0 && args[0].equals("merge");
+        CalcOptions options = new CalcOptions();
+        String inputFile; /* Получаем имя входного файла */
+        try {
+            inputFile = parseArguments(merge ? Arrays.copyOfRange(args, 1, args.length) : args, options);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            inputFile = null;
+        }
+        if (inputFile == null) {
+            System.out.println(USAGE);
             return;
         }
 
-        String inputFile = args[0]; /* Получаем имя входного файла */
         long startTime = System.currentTimeMillis(); /* Запоминаем время начала выполнения */
 
-        LineCalc lineCalc = new LineCalc(inputFile); /* Создаем объект LineCalc для обработки файла */
-        int groupCount = lineCalc.calc(); /* Вычисляем количество групп */
+        /* Создаем объект LineCalc для обработки файла */
+        LineCalc lineCalc = new LineCalc(inputFile, options);
+        if (lineCalc.getPlan() != null) {
+            System.out.println(lineCalc.getPlan());
+        }
+        int groupCount = merge ? lineCalc.merge() : lineCalc.calc(); /* Вычисляем количество групп */
         long endTime = System.currentTimeMillis(); /* Запоминаем время окончания выполнения */
 
         /* Выводим результаты на консоль */
         System.out.println("Время выполнения программы: " + (endTime - startTime) + " мс");
         System.out.println("Количество групп с более чем одним элементом: " + groupCount);
     }
-}
\ No newline at end of file
+
+    /**
+     * Метод generate генерирует синтетический входной файл заданного размера и формы.
+     * Флаги перед именем выходного файла:
+     * --lines N - количество строк (по умолчанию 1000000);
+     * --columns N - количество столбцов (по умолчанию 3);
+     * --cardinality N[,N...] - количество различных значений в каждом столбце
+     * или по значению на столбец через запятую (по умолчанию 1000000);
+     * --empty RATIO - доля пустых значений (по умолчанию 0.1);
+     * --duplicates RATIO - доля повторов предыдущих строк;
+     * --invalid RATIO - доля некорректных строк;
+     * --zipf S - показатель перекоса частот значений по закону Ципфа (0 - равномерно);
+     * --seed N - начальное значение генератора случайных чисел.
+     * Файл с именем, оканчивающимся на ".gz", сжимается gzip.
+     *
+     * @param args аргументы командной строки после слова generate
+     */
+    private static void generate(String[] args) {
+        DatasetGenerator generator = new DatasetGenerator();
+        String outputFile = null;
+        try {
+            for (int i = 0; i < args.length && outputFile == null; i++) {
+                switch (args[i]) {
+                    case "--lines":
+                        generator.setLineCount(Long.parseLong(value(args, ++i)));
+                        break;
+                    case "--columns":
+                        generator.setColumnCount(Integer.parseInt(value(args, ++i)));
+                        break;
+                    case "--cardinality":
+                        generator.setCardinality(Arrays.stream(value(args, ++i).split(","))
+                                .mapToLong(Long::parseLong).toArray());
+                        break;
+                    case "--empty":
+                        generator.setEmptyRatio(Double.parseDouble(value(args, ++i)));
+                        break;
+                    case "--duplicates":
+                        generator.setDuplicateRatio(Double.parseDouble(value(args, ++i)));
+                        break;
+                    case "--invalid":
+                        generator.setInvalidRatio(Double.parseDouble(value(args, ++i)));
+                        break;
+                    case "--zipf":
+                        generator.setZipfExponent(Double.parseDouble(value(args, ++i)));
+                        break;
+                    case "--seed":
+                        generator.setSeed(Long.parseLong(value(args, ++i)));
+                        break;
+                    default:
+                        if (args[i].startsWith("--") || i != args.length - 1) {
+                            System.out.println(GENERATE_USAGE);
+                            return;
+                        }
+                        outputFile = args[i];
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            outputFile = null;
+        }
+        if (outputFile == null) {
+            System.out.println(GENERATE_USAGE);
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            long lines = generator.generate(Path.of(outputFile));
+            System.out.println("Время генерации: " + (System.currentTimeMillis() - startTime) + " мс");
+            System.out.println("Записано строк: " + lines);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Не удалось сгенерировать файл: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Метод partial группирует каждый входной файл (шард) отдельно и сохраняет частичные
+     * результаты в каталог, не сливая их: шарды можно обработать на разных машинах,
+     * а затем слить частичные результаты командой merge.
+     * Флаги перед входным путем и каталогом:
+     * --threads N - количество шардов, обрабатываемых параллельно;
+     * --verify-duplicates - побайтная сверка строк с совпавшими отпечатками.
+     *
+     * @param args аргументы командной строки после слова partial
+     */
+    private static void partial(String[] args) {
+        CalcOptions options = new CalcOptions();
+        String input = null;
+        String outputDirectory = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads":
+                        options.setParallelism(Integer.parseInt(value(args, ++i)));
+                        break;
+                    case "--verify-duplicates":
+                        options.setVerifyDuplicates(true);
+                        break;
+                    default:
+                        if (args[i].startsWith("--") || i < args.length - 2) {
+                            System.out.println(PARTIAL_USAGE);
+                            return;
+                        }
+                        if (input == null) {
+                            input = args[i];
+                        } else {
+                            outputDirectory = args[i];
+                        }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            outputDirectory = null;
+        }
+        if (outputDirectory == null) {
+            System.out.println(PARTIAL_USAGE);
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        int partials = new LineCalc(input, options).calcPartials(Path.of(outputDirectory));
+        System.out.println("Время выполнения программы: " + (System.currentTimeMillis() - startTime) + " мс");
+        System.out.println("Записано частичных результатов: " + partials);
+    }
+
+    /**
+     * Метод serve запускает сервер заданий ({@link GroupingServer}): без флагов задания читаются
+     * из стандартного ввода, а ответы выводятся на консоль; флаг --socket FILE включает прием
+     * заданий через сокет Unix, а --max-retained SIZE задает объем памяти структур группировки,
+     * который сохраняется между заданиями (по умолчанию 256m).
+     *
+     * @param args аргументы командной строки после слова serve
+     */
+    private static void serve(String[] args) {
+        String socket = null;
+        long maxRetainedBytes = GroupingWorkspace.DEFAULT_MAX_RETAINED_BYTES;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--socket":
+                        socket = value(args, ++i);
+                        break;
+                    case "--max-retained":
+                        maxRetainedBytes = parseSize(value(args, ++i));
+                        break;
+                    default:
+                        System.out.println(SERVE_USAGE);
+                        return;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(SERVE_USAGE);
+            return;
+        }
+        GroupingServer server = new GroupingServer(maxRetainedBytes);
+        try {
+            if (socket == null) {
+                server.serve(new InputStreamReader(System.in, StandardCharsets.UTF_8),
+                        new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            } else {
+                server.serve(Path.of(socket));
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка сервера: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Метод parseArguments разбирает флаги командной строки в настройки обработки.
+     *
+     * @param args    аргументы командной строки
+     * @param options настройки, которые заполняются по флагам
+     * @return имя входного файла или null, если оно не указано или указано несколько раз
+     * @throws IllegalArgumentException если значение флага отсутствует или некорректно
+     */
+    static String parseArguments(String[] args, CalcOptions options) {
+        String inputFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--exact-count":
+                    options.setExactLineCount(true);
+                    break;
+                case "--threads":
+                    options.setParallelism(Integer.parseInt(value(args, ++i)));
+                    break;
+                case "--pipeline":
+                    options.setPipeline(true);
+                    break;
+                case "--verify-duplicates":
+                    options.setVerifyDuplicates(true);
+                    break;
+                case "--auto":
+                    options.setAdaptive(true);
+                    break;
+                case "--external":
+                    options.setExternal(true);
+                    break;
+                case "--memory-budget":
+                    options.setExternal(true).setMemoryBudget(parseSize(value(args, ++i)));
+                    break;
+                case "--temp-dir":
+                    options.setTempDirectory(Path.of(value(args, ++i)));
+                    break;
+                case "--state":
+                    options.setStateDirectory(Path.of(value(args, ++i)));
+                    break;
+                case "--snapshot":
+                    options.setSnapshotFile(Path.of(value(args, ++i)));
+                    break;
+                case "--top":
+                    options.setMaxGroups(Integer.parseInt(value(args, ++i)));
+                    break;
+                case "--min-size":
+                    options.setMinGroupSize(Integer.parseInt(value(args, ++i)));
+                    break;
+                case "--metrics":
+                    options.setMetricsFile(Path.of(value(args, ++i)));
+                    break;
+                default:
+                    if (inputFile != null || args[i].startsWith("--")) {
+                        return null;
+                    }
+                    inputFile = args[i];
+            }
+        }
+        return inputFile;
+    }
+
+    /**
+     * Метод value возвращает значение флага, следующее за ним в командной строке.
+     */
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Не указано значение флага " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    /**
+     * Метод parseSize разбирает объем памяти в байтах с необязательным суффиксом k, m или g.
+     */
+    private static long parseSize(String size) {
+        String value = size.trim().toLowerCase();
+        int shift;
+        switch (value.isEmpty() ? ' ' : value.charAt(value.length() - 1)) {
+            case 'k':
+                shift = 10;
+                break;
+            case 'm':
+                shift = 20;
+                break;
+            case 'g':
+                shift = 30;
+                break;
+            default:
+                shift = 0;
+        }
+        if (shift > 0) {
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            return Long.parseLong(value) << shift;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный объем памяти: " + size, e);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package io.sorter.calculator;
+
+import java.nio.file.Path;
+
+/**
+ * Класс CalcOptions хранит настройки обработки файла классом {@link LineCalc}.
+ * Значения по умолчанию соответствуют однопоточной обработке за один проход.
+ */
+public class CalcOptions {
+    /** Объем памяти под буферы внешней сортировки по умолчанию. */
+    public static final long DEFAULT_MEMORY_BUDGET = 256L << 20;
+
+    private boolean exactLineCount; /* Точный подсчет строк отдельным проходом */
+    private int parallelism = 1; /* Количество потоков обработки */
+    private boolean verifyDuplicates; /* Побайтная проверка строк с совпавшими отпечатками */
+    private boolean external; /* Группировка во внешней памяти */
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET; /* Объем памяти под буферы внешней сортировки */
+    private Path tempDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+    private Path stateDirectory; /* Каталог состояния для режима дописывания или null */
+    private Path snapshotFile; /* Файл двоичного снимка группировки или null */
+    private int maxGroups = Integer.MAX_VALUE; /* Наибольшее количество выводимых групп */
+    private int minGroupSize = 2; /* Наименьший размер выводимой группы */
+    private Path metricsFile; /* Файл отчета о показателях обработки или null */
+    private boolean pipeline; /* Разбор конвейером стадий с очередями пакетов */
+    private boolean adaptive; /* Выбор режима и размеров структур планировщиком */
+
+    /**
+     * Метод isExactLineCount сообщает, нужен ли точный подсчет строк перед обработкой.
+     *
+     * @return true, если строки подсчитываются отдельным проходом по файлу
+     */
+    public boolean isExactLineCount() {
+        return exactLineCount;
+    }
+
+    /**
+     * Метод setExactLineCount включает или выключает точный подсчет строк перед обработкой.
+     *
+     * @param exactLineCount true для подсчета строк отдельным проходом по файлу
+     * @return этот же объект настроек
+     */
+    public CalcOptions setExactLineCount(boolean exactLineCount) {
+        this.exactLineCount = exactLineCount;
+        return this;
+    }
+
+    /**
+     * Метод getParallelism возвращает количество потоков обработки.
+     *
+     * @return количество потоков; 1 означает последовательную обработку
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Метод setParallelism задает количество потоков обработки.
+     *
+     * @param parallelism количество потоков, не меньше 1
+     * @return этот же объект настроек
+     */
+    public CalcOptions setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Количество потоков должно быть положительным: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Метод isVerifyDuplicates сообщает, сверяются ли побайтно строки с совпавшими отпечатками.
+     *
+     * @return true, если повторяющиеся строки проверяются по хранилищу строк
+     */
+    public boolean isVerifyDuplicates() {
+        return verifyDuplicates;
+    }
+
+    /**
+     * Метод setVerifyDuplicates включает точную проверку повторяющихся строк. Без нее строки
+     * с совпавшими 128-битными отпечатками считаются одинаковыми, что для реальных данных
+     * практически исключает ошибку, но не гарантирует ее отсутствие.
+     *
+     * @param verifyDuplicates true для побайтной сверки строк с совпавшими отпечатками
+     * @return этот же объект настроек
+     */
+    public CalcOptions setVerifyDuplicates(boolean verifyDuplicates) {
+        this.verifyDuplicates = verifyDuplicates;
+        return this;
+    }
+
+    /**
+     * Метод isExternal сообщает, выполняется ли группировка во внешней памяти.
+     *
+     * @return true, если строки и значения столбцов сортируются через временные файлы
+     */
+    public boolean isExternal() {
+        return external;
+    }
+
+    /**
+     * Метод setExternal включает группировку во внешней памяти для файлов, которые
+     * не помещаются в оперативную память. В куче остаются только массивы по номерам строк
+     * (около 12 байт на строку) и буферы сортировки объемом {@link #getMemoryBudget()}.
+     *
+     * @param external true для группировки во внешней памяти
+     * @return этот же объект настроек
+     */
+    public CalcOptions setExternal(boolean external) {
+        this.external = external;
+        return this;
+    }
+
+    /**
+     * Метод getMemoryBudget возвращает объем памяти под буферы внешней сортировки.
+     *
+     * @return объем памяти в байтах
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Метод setMemoryBudget задает объем памяти под буферы внешней сортировки: при его
+     * превышении отсортированные записи сбрасываются во временный файл.
+     *
+     * @param memoryBudget объем памяти в байтах, положительный
+     * @return этот же объект настроек
+     */
+    public CalcOptions setMemoryBudget(long memoryBudget) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("Объем памяти должен быть положительным: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    /**
+     * Метод getTempDirectory возвращает каталог для временных файлов внешней сортировки.
+     *
+     * @return каталог временных файлов
+     */
+    public Path getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * Метод setTempDirectory задает каталог для временных файлов внешней сортировки.
+     * По умолчанию используется каталог из свойства java.io.tmpdir.
+     *
+     * @param tempDirectory каталог временных файлов
+     * @return этот же объект настроек
+     */
+    public CalcOptions setTempDirectory(Path tempDirectory) {
+        this.tempDirectory = tempDirectory;
+        return this;
+    }
+
+    /**
+     * Метод getStateDirectory возвращает каталог состояния для режима дописывания.
+     *
+     * @return каталог состояния или null, если файл обрабатывается целиком
+     */
+    public Path getStateDirectory() {
+        return stateDirectory;
+    }
+
+    /**
+     * Метод setStateDirectory включает режим дописывания: состояние группировки сохраняется
+     * в каталоге, и следующий запуск разбирает только строки, дописанные в конец файла.
+     * Режим поддерживается только для несжатых файлов.
+     *
+     * @param stateDirectory каталог состояния или null для обработки файла целиком
+     * @return этот же объект настроек
+     */
+    public CalcOptions setStateDirectory(Path stateDirectory) {
+        this.stateDirectory = stateDirectory;
+        return this;
+    }
+
+    /**
+     * Метод getSnapshotFile возвращает файл, в который записывается двоичный снимок группировки.
+     *
+     * @return файл снимка или null, если снимок не записывается
+     */
+    public Path getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Метод setSnapshotFile включает запись двоичного снимка группировки
+     * ({@link io.sorter.writer.SnapshotWriter}) вместе с текстовым результатом.
+     * Снимок не поддерживается при группировке во внешней памяти.
+     *
+     * @param snapshotFile файл снимка или null, чтобы не записывать снимок
+     * @return этот же объект настроек
+     */
+    public CalcOptions setSnapshotFile(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        return this;
+    }
+
+    /**
+     * Метод getMaxGroups возвращает наибольшее количество групп в выходном файле.
+     *
+     * @return количество групп; Integer.MAX_VALUE - без ограничения
+     */
+    public int getMaxGroups() {
+        return maxGroups;
+    }
+
+    /**
+     * Метод setMaxGroups ограничивает выходной файл самыми большими группами.
+     * Группы отбираются без полной сортировки, а байты читаются только у их строк.
+     *
+     * @param maxGroups наибольшее количество выводимых групп, неотрицательное
+     * @return этот же объект настроек
+     */
+    public CalcOptions setMaxGroups(int maxGroups) {
+        if (maxGroups < 0) {
+            throw new IllegalArgumentException("Количество групп не может быть отрицательным: " + maxGroups);
+        }
+        this.maxGroups = maxGroups;
+        return this;
+    }
+
+    /**
+     * Метод getMinGroupSize возвращает наименьший размер группы в выходном файле.
+     *
+     * @return размер группы
+     */
+    public int getMinGroupSize() {
+        return minGroupSize;
+    }
+
+    /**
+     * Метод setMinGroupSize исключает из выходного файла группы меньше заданного размера.
+     *
+     * @param minGroupSize наименьший размер выводимой группы; значения меньше 2 равносильны 2
+     * @return этот же объект настроек
+     */
+    public CalcOptions setMinGroupSize(int minGroupSize) {
+        this.minGroupSize = minGroupSize;
+        return this;
+    }
+
+    /**
+     * Метод getMetricsFile возвращает файл отчета о показателях обработки.
+     *
+     * @return файл отчета или null, если показатели не собираются
+     */
+    public Path getMetricsFile() {
+        return metricsFile;
+    }
+
+    /**
+     * Метод setMetricsFile включает сбор показателей обработки ({@link io.sorter.metrics.Metrics}):
+     * времени этапов, счетчиков строк и объединений, размеров индексов. После обработки отчет
+     * записывается в файл в формате JSON.
+     *
+     * @param metricsFile файл отчета или null, чтобы не собирать показатели
+     * @return этот же объект настроек
+     */
+    public CalcOptions setMetricsFile(Path metricsFile) {
+        this.metricsFile = metricsFile;
+        return this;
+    }
+
+    /**
+     * Метод isPipeline сообщает, разбираются ли строки конвейером стадий.
+     *
+     * @return true, если чтение, разбор, поиск повторов и объединение идут в отдельных потоках
+     */
+    public boolean isPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * Метод setPipeline включает разбор строк конвейером стадий ({@link StagedPipeline}):
+     * чтение идет одновременно с разбором, а {@link #getParallelism()} задает количество потоков
+     * разбора. Конвейер заменяет параллельную обработку частей файла и подходит прежде всего
+     * для сжатых файлов и медленных дисков, где чтение и разбор иначе чередуются.
+     *
+     * @param pipeline true для разбора конвейером
+     * @return этот же объект настроек
+     */
+    public CalcOptions setPipeline(boolean pipeline) {
+        this.pipeline = pipeline;
+        return this;
+    }
+
+    /**
+     * Метод isAdaptive сообщает, выбирает ли режим обработки планировщик.
+     *
+     * @return true, если режим и размеры структур выбираются по выборке из файла и доступной памяти
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Метод setAdaptive включает планировщик ({@link Plan}): по выборке из начала файла
+     * оцениваются количество строк, столбцов, различных значений и доля повторов, а по доступной
+     * памяти кучи и вне кучи выбирается хранение строк в куче, вне кучи или группировка
+     * во внешней памяти; структуры заранее создаются нужного размера.
+     *
+     * @param adaptive true для выбора режима планировщиком
+     * @return этот же объект настроек
+     */
+    public CalcOptions setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        return this;
+    }
+
+    /**
+     * Метод copy создает независимую копию настроек.
+     *
+     * @return копия настроек
+     */
+    CalcOptions copy() {
+        CalcOptions copy = new CalcOptions();
+        copy.exactLineCount = exactLineCount;
+        copy.parallelism = parallelism;
+        copy.verifyDuplicates = verifyDuplicates;
+        copy.external = external;
+        copy.memoryBudget = memoryBudget;
+        copy.tempDirectory = tempDirectory;
+        copy.stateDirectory = stateDirectory;
+        copy.snapshotFile = snapshotFile;
+        copy.maxGroups = maxGroups;
+        copy.minGroupSize = minGroupSize;
+        copy.metricsFile = metricsFile;
+        copy.pipeline = pipeline;
+        copy.adaptive = adaptive;
+        return copy;
+    }
+}
@@ -0,0 +1,90 @@
+package io.sorter.calculator;
+
+import io.sorter.metrics.Metrics;
+import io.sorter.reader.FileChunks;
+import io.sorter.reader.LineReader;
+import io.sorter.reader.MappedLineReader;
+import io.sorter.store.LineStore;
+import io.sorter.validators.UnionFind;
+import io.sorter.validators.UniqueLineChecker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Класс ChunkProcessor реализует параллельную группировку строк файла.
+ * Файл делится на части по границам строк; каждая часть читается, проверяется
+ * и группируется в собственной нумерации на пуле ForkJoinPool. Затем части по порядку
+ * сливаются в общие структуры: повторяющиеся строки отбрасываются, позиции значений
+ * объединяются, а локальные группы переносятся в общую нумерацию.
+ * Номера строк и разбиение на группы совпадают с последовательной обработкой.
+ */
+final class ChunkProcessor {
+    private static final long MIN_CHUNK_SIZE = 1 << 16; /* Меньшие части не окупают слияние */
+    private static final int CHUNKS_PER_THREAD = 4; /* Запас частей для равномерной загрузки потоков */
+    private static final int CHUNK_BLOCK_SIZE = 1 << 20; /* Строки части временно хранятся в куче */
+
+    private ChunkProcessor() {
+    }
+
+    /**
+     * Метод process параллельно обрабатывает файл и заполняет общие структуры.
+     *
+     * @param path              путь к файлу
+     * @param options           настройки обработки: количество потоков и режим проверки повторов
+     * @param uniqueLineChecker общий объект для проверки уникальности строк и значений
+     * @param unionFind         общая структура групп
+     * @param lines             общее хранилище уникальных строк
+     * @param metrics           показатели обработки или null; время частей складывается по потокам,
+     *                          а слияние частей учитывается отдельным этапом
+     * @throws IOException если возникнет ошибка чтения
+     */
+    static void process(Path path, CalcOptions options, UniqueLineChecker uniqueLineChecker,
+                        UnionFind unionFind, LineStore lines, Metrics metrics) throws IOException {
+        int parallelism = options.getParallelism();
+        long size = path.toFile().length();
+        int chunkCount = (int) Math.max(1, Math.min((long) parallelism * CHUNKS_PER_THREAD, size / MIN_CHUNK_SIZE));
+        long[] bounds = FileChunks.split(path, chunkCount);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            /* Одновременно в работе не больше двух частей на поток, чтобы ограничить память */
+            Deque<ForkJoinTask<PartialResult>> inFlight = new ArrayDeque<>();
+            int submitted = 0;
+            for (int merged = 0; merged < chunkCount; merged++) {
+                while (submitted < chunkCount && inFlight.size() < parallelism * 2) {
+                    long from = bounds[submitted];
+                    long to = bounds[submitted + 1];
+                    inFlight.add(pool.submit(() -> readChunk(path, from, to, options.isVerifyDuplicates(), metrics)));
+                    submitted++;
+                }
+                PartialResult chunk = inFlight.poll().join();
+                long start = System.nanoTime();
+                chunk.mergeInto(uniqueLineChecker, unionFind, lines);
+                if (metrics != null) {
+                    metrics.record(Metrics.Stage.MERGE, start);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Метод readChunk группирует одну часть файла в локальной нумерации строк.
+     */
+    private static PartialResult readChunk(Path path, long from, long to, boolean verifyDuplicates, Metrics metrics) {
+        try (LineReader reader = new MappedLineReader(path, from, to)) {
+            return PartialResult.read(reader, new LineStore(CHUNK_BLOCK_SIZE, false), verifyDuplicates, metrics);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
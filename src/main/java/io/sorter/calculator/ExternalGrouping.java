@@ -0,0 +1,483 @@
+package io.sorter.calculator;
+
+import io.sorter.metrics.Metrics;
+import io.sorter.parser.LineTokenizer;
+import io.sorter.reader.LineReader;
+import io.sorter.reader.LineReaders;
+import io.sorter.store.ExternalSorter;
+import io.sorter.store.RecordCursor;
+import io.sorter.validators.Fingerprints;
+import io.sorter.validators.UnionFind;
+import io.sorter.writer.ResultWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.Stream;
+
+/**
+ * Класс ExternalGrouping реализует группировку строк во внешней памяти для файлов,
+ * которые не помещаются в оперативную память. В памяти остаются только массивы по номерам
+ * строк (система множеств, номера первых строк групп и битовая карта повторов), а строки
+ * и значения столбцов проходят через временные файлы:
+ * <ol>
+ *     <li>за один проход по файлу для каждой корректной строки формируются записи
+ *     (отпечаток строки, номер строки) и (столбец, значение, номер строки), а смещения строк
+ *     записываются в отдельный файл (строки сжатого файла копируются в распакованном виде
+ *     во временный файл, иначе их не прочитать по смещениям);</li>
+ *     <li>после внешней сортировки повторы строк оказываются рядом и отмечаются в битовой карте
+ *     (с {@link CalcOptions#isVerifyDuplicates()} байты строк с одинаковым отпечатком сверяются
+ *     чтением по смещениям), а строки с одинаковыми значениями в одном столбце - рядом
+ *     и объединяются в системе множеств;</li>
+ *     <li>строки групп сортируются на диске по размеру группы и номеру ее первой строки,
+ *     после чего выводятся с чтением байтов строк из входного файла по смещениям.</li>
+ * </ol>
+ * Номера строк, разбиение на группы и выходной файл совпадают с обработкой в памяти.
+ */
+final class ExternalGrouping {
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+    private static final int FINGERPRINT_RECORD_SIZE = Long.BYTES * 2 + Integer.BYTES;
+
+    private ExternalGrouping() {
+    }
+
+    /**
+     * Метод process группирует строки файла во внешней памяти и записывает результат.
+     *
+     * @param input          входной файл
+     * @param outputFilename имя выходного файла
+     * @param options        настройки обработки: объем памяти под сортировку и каталог временных файлов
+     * @param metrics        показатели обработки или null; время этапов измеряется целиком, вместе
+     *                       с внешней сортировкой их записей
+     * @return количество групп с более чем одним элементом
+     * @throws IOException если возникнет ошибка чтения, записи или работы с временными файлами
+     */
+    static int process(Path input, String outputFilename, CalcOptions options, Metrics metrics) throws IOException {
+        try (SortedGroups groups = group(input, options, metrics)) {
+            ResultWriter resultWriter = new ResultWriter(outputFilename)
+                    .setMaxGroups(options.getMaxGroups())
+                    .setMinGroupSize(options.getMinGroupSize())
+                    .setMetrics(metrics);
+            resultWriter.writeResults(groups.getGroupedLines(), groups.getLines(), groups.getGroupCount());
+            return resultWriter.getGroupCount();
+        }
+    }
+
+    /**
+     * Метод group группирует строки файла во внешней памяти. Байты строк несжатого файла
+     * читаются потом из него самого по смещениям, строки сжатого файла копируются.
+     *
+     * @param input   входной файл
+     * @param options настройки обработки
+     * @param metrics показатели обработки или null
+     * @return отсортированные записи строк групп; их нужно закрыть, чтобы удалить временные файлы
+     * @throws IOException если возникнет ошибка чтения или работы с временными файлами
+     */
+    static SortedGroups group(Path input, CalcOptions options, Metrics metrics) throws IOException {
+        boolean compressed = LineReaders.isCompressed(input);
+        return group(LineReaders.open(input), compressed ? null : input, options, metrics);
+    }
+
+    /**
+     * Метод group группирует во внешней памяти строки произвольного источника.
+     *
+     * @param reader  источник строк; закрывается по окончании чтения
+     * @param input   файл, смещения строк в котором совпадают с {@link LineReader#getPosition()},
+     *                или null, если строки нужно скопировать во временный файл
+     * @param options настройки обработки
+     * @param metrics показатели обработки или null
+     * @return отсортированные записи строк групп; их нужно закрыть, чтобы удалить временные файлы
+     * @throws IOException если возникнет ошибка чтения или работы с временными файлами
+     */
+    static SortedGroups group(LineReader reader, Path input, CalcOptions options, Metrics metrics)
+            throws IOException {
+        Path directory;
+        try {
+            directory = Files.createTempDirectory(options.getTempDirectory(), "group_sorter");
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+        try {
+            return group(reader, input, options, metrics, directory);
+        } catch (IOException | RuntimeException e) {
+            deleteDirectory(directory);
+            throw e;
+        }
+    }
+
+    private static SortedGroups group(LineReader reader, Path input, CalcOptions options, Metrics metrics,
+                                      Path directory) throws IOException {
+        long memoryBudget = options.getMemoryBudget();
+        Path offsets = directory.resolve("offsets.bin");
+        Path lines = input == null ? directory.resolve("lines.bin") : null;
+        int lineCount;
+        BitSet duplicates;
+        UnionFind unionFind;
+        try (ExternalSorter lineSorter = new ExternalSorter(directory, memoryBudget / 4);
+             ExternalSorter valueSorter = new ExternalSorter(directory, memoryBudget - memoryBudget / 4)) {
+            long start = System.nanoTime();
+            lineCount = scan(reader, offsets, lines, lineSorter, valueSorter, metrics);
+            start = record(metrics, Metrics.Stage.READ, start);
+            try (LineBytes lineBytes = options.isVerifyDuplicates()
+                    ? new LineBytes(offsets, lines != null ? lines : input) : null) {
+                duplicates = findDuplicates(lineSorter.sort(), lineBytes);
+            }
+            start = record(metrics, Metrics.Stage.DEDUPE, start);
+            unionFind = new UnionFind(lineCount);
+            unionValues(valueSorter.sort(), duplicates, unionFind);
+            record(metrics, Metrics.Stage.UNION, start);
+        }
+        if (metrics != null) {
+            int duplicateCount = duplicates.cardinality();
+            metrics.add(Metrics.Counter.DUPLICATE_LINES, duplicateCount);
+            metrics.add(Metrics.Counter.UNIQUE_LINES, lineCount - duplicateCount);
+            metrics.add(Metrics.Counter.UNION_CALLS, unionFind.getUnionCount());
+            metrics.add(Metrics.Counter.EFFECTIVE_UNIONS, lineCount - unionFind.getComponentCount());
+        }
+
+        ExternalSorter groupSorter = new ExternalSorter(directory, memoryBudget);
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(lines != null ? lines : input, StandardOpenOption.READ);
+            long start = System.nanoTime();
+            collectGroups(offsets, lineCount, duplicates, unionFind, options.getMinGroupSize(), groupSorter);
+            RecordCursor groupedLines = groupSorter.sort();
+            record(metrics, Metrics.Stage.GROUP, start);
+            return new SortedGroups(directory, groupSorter, channel, groupedLines, unionFind.getGroupCount());
+        } catch (IOException | RuntimeException e) {
+            try (groupSorter) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Класс SortedGroups - результат группировки во внешней памяти: записи о строках групп
+     * в порядке вывода (формат записи описан в {@link ResultWriter#GROUPED_LINE_SIZE})
+     * и файл, из которого байты строк читаются по смещениям. Записи читаются один раз.
+     * Закрытие удаляет временные файлы.
+     */
+    static final class SortedGroups implements Closeable {
+        private final Path directory;
+        private final ExternalSorter groupSorter;
+        private final FileChannel lines;
+        private final RecordCursor groupedLines;
+        private final int groupCount;
+
+        private SortedGroups(Path directory, ExternalSorter groupSorter, FileChannel lines,
+                             RecordCursor groupedLines, int groupCount) {
+            this.directory = directory;
+            this.groupSorter = groupSorter;
+            this.lines = lines;
+            this.groupedLines = groupedLines;
+            this.groupCount = groupCount;
+        }
+
+        RecordCursor getGroupedLines() {
+            return groupedLines;
+        }
+
+        FileChannel getLines() {
+            return lines;
+        }
+
+        int getGroupCount() {
+            return groupCount;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (groupSorter; lines) {
+                groupedLines.close();
+            } finally {
+                deleteDirectory(directory);
+            }
+        }
+    }
+
+    /**
+     * Метод record добавляет время этапа в показатели, если они собираются.
+     *
+     * @return время окончания этапа - начало следующего
+     */
+    private static long record(Metrics metrics, Metrics.Stage stage, long start) {
+        if (metrics != null) {
+            metrics.record(stage, start);
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Метод scan читает файл и формирует записи для сортировки. Номера получают все корректные
+     * строки, включая повторы: повторы отбрасываются позже, после сортировки отпечатков.
+     *
+     * @param reader  источник строк; закрывается по окончании чтения
+     * @param lines   файл для копии корректных строк или null, если строки читаются из входного файла
+     * @param metrics показатели обработки или null
+     * @return количество корректных строк
+     */
+    private static int scan(LineReader reader, Path offsets, Path lines, ExternalSorter lineSorter,
+                            ExternalSorter valueSorter, Metrics metrics) throws IOException {
+        LineTokenizer tokenizer = new LineTokenizer();
+        long[] fingerprint = new long[2];
+        byte[] record = new byte[256];
+        ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+        int lineNumber = 0;
+        long linesRead = 0;
+        long copied = 0; /* Объем скопированных строк */
+        try (reader;
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(offsets), IO_BUFFER_SIZE));
+             OutputStream linesOut = lines == null ? OutputStream.nullOutputStream()
+                     : new BufferedOutputStream(Files.newOutputStream(lines), IO_BUFFER_SIZE)) {
+            while (reader.next()) {
+                linesRead++;
+                ByteBuffer buffer = reader.getBuffer();
+                int start = reader.getStart();
+                int end = reader.getEnd();
+                if (!tokenizer.tokenize(buffer, start, end)) {
+                    continue; /* Некорректные строки отбрасываются */
+                }
+                if (lineNumber == Integer.MAX_VALUE) {
+                    throw new IllegalStateException("Слишком много строк во входных данных");
+                }
+                if (lines == null) {
+                    out.writeLong(reader.getPosition());
+                } else {
+                    out.writeLong(copied);
+                    copy(buffer, start, end, linesOut);
+                    copied += end - start;
+                }
+                out.writeInt(end - start);
+
+                /* Запись для поиска повторов: отпечаток строки и номер строки */
+                Fingerprints.hash128(buffer, start, end, fingerprint);
+                recordBuffer.putLong(0, fingerprint[0]).putLong(Long.BYTES, fingerprint[1])
+                        .putInt(Long.BYTES * 2, lineNumber);
+                lineSorter.add(record, 0, FINGERPRINT_RECORD_SIZE);
+
+                /* Записи значений: номер столбца, длина и байты значения, номер строки */
+                for (int i = 0; i < tokenizer.getColumnCount(); i++) {
+                    if (tokenizer.isEmpty(i)) {
+                        continue; /* Пустые значения не объединяют строки */
+                    }
+                    int from = tokenizer.getStart(i);
+                    int length = tokenizer.getEnd(i) - from;
+                    int size = Integer.BYTES * 3 + length;
+                    if (record.length < size) {
+                        record = Arrays.copyOf(record, Math.max(size, record.length * 2));
+                        recordBuffer = ByteBuffer.wrap(record);
+                    }
+                    recordBuffer.putInt(0, i).putInt(Integer.BYTES, length)
+                            .put(Integer.BYTES * 2, buffer, from, length)
+                            .putInt(Integer.BYTES * 2 + length, lineNumber);
+                    valueSorter.add(record, 0, size);
+                }
+                lineNumber++;
+            }
+        }
+        if (metrics != null) {
+            metrics.add(Metrics.Counter.LINES_READ, linesRead);
+            metrics.add(Metrics.Counter.INVALID_LINES, linesRead - lineNumber);
+        }
+        return lineNumber;
+    }
+
+    private static void copy(ByteBuffer buffer, int from, int to, OutputStream out) throws IOException {
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + from, to - from);
+        } else {
+            byte[] bytes = new byte[to - from];
+            buffer.get(from, bytes);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Метод findDuplicates отмечает повторяющиеся строки. Записи с одинаковым отпечатком идут
+     * подряд по возрастанию номеров, поэтому первая из них остается, а остальные отмечаются.
+     * Если задан lineBytes, строка отмечается, только если ее байты совпали с одной из
+     * оставленных строк серии; иначе совпадение отпечатков считается совпадением строк.
+     */
+    private static BitSet findDuplicates(RecordCursor records, LineBytes lineBytes) throws IOException {
+        BitSet duplicates = new BitSet();
+        byte[] previous = new byte[Long.BYTES * 2];
+        int[] distinct = new int[2]; /* Оставленные строки текущей серии одинаковых отпечатков */
+        int distinctCount = 0;
+        while (records.next()) {
+            byte[] array = records.array();
+            int start = records.start();
+            int keyEnd = start + Long.BYTES * 2;
+            int lineNumber = ByteBuffer.wrap(array).getInt(keyEnd);
+            if (distinctCount == 0 || !Arrays.equals(array, start, keyEnd, previous, 0, previous.length)) {
+                System.arraycopy(array, start, previous, 0, previous.length);
+                distinct[0] = lineNumber;
+                distinctCount = 1;
+                continue;
+            }
+            boolean repeated = lineBytes == null;
+            for (int i = 0; i < distinctCount && !repeated; i++) {
+                repeated = lineBytes.equal(distinct[i], lineNumber);
+            }
+            if (repeated) {
+                duplicates.set(lineNumber);
+            } else {
+                /* Совпали только отпечатки: строка остается уникальной */
+                if (distinctCount == distinct.length) {
+                    distinct = Arrays.copyOf(distinct, distinctCount * 2);
+                }
+                distinct[distinctCount++] = lineNumber;
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * Метод unionValues объединяет строки с одинаковым значением в одном столбце:
+     * каждая строка серии одинаковых ключей объединяется с первой строкой серии.
+     */
+    private static void unionValues(RecordCursor records, BitSet duplicates, UnionFind unionFind)
+            throws IOException {
+        byte[] previous = new byte[256];
+        int previousLength = -1;
+        int anchor = -1;
+        while (records.next()) {
+            byte[] array = records.array();
+            int start = records.start();
+            int keyLength = records.length() - Integer.BYTES;
+            int lineNumber = ByteBuffer.wrap(array).getInt(start + keyLength);
+            if (duplicates.get(lineNumber)) {
+                continue; /* Повтор строки не участвует в группировке */
+            }
+            if (keyLength == previousLength && Arrays.equals(array, start, start + keyLength, previous, 0, keyLength)) {
+                unionFind.union(anchor, lineNumber);
+            } else {
+                if (previous.length < keyLength) {
+                    previous = new byte[Math.max(keyLength, previous.length * 2)];
+                }
+                System.arraycopy(array, start, previous, 0, keyLength);
+                previousLength = keyLength;
+                anchor = lineNumber;
+            }
+        }
+    }
+
+    /**
+     * Метод collectGroups формирует записи о строках групп с более чем одним элементом
+     * и не меньше minGroupSize: меньшие группы не выводятся, и их не нужно сортировать.
+     * Строки перебираются по возрастанию номеров, поэтому первая встреченная строка
+     * множества - его первая строка.
+     */
+    private static void collectGroups(Path offsets, int lineCount, BitSet duplicates, UnionFind unionFind,
+                                      int minGroupSize, ExternalSorter groupSorter) throws IOException {
+        int[] firstLines = new int[lineCount];
+        Arrays.fill(firstLines, -1);
+        byte[] record = new byte[ResultWriter.GROUPED_LINE_SIZE];
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(offsets), IO_BUFFER_SIZE))) {
+            for (int i = 0; i < lineCount; i++) {
+                long offset = in.readLong();
+                int length = in.readInt();
+                if (duplicates.get(i)) {
+                    continue;
+                }
+                int root = unionFind.get(i);
+                int size = unionFind.getComponentSize(root);
+                if (size < Math.max(minGroupSize, 2)) {
+                    continue;
+                }
+                if (firstLines[root] < 0) {
+                    firstLines[root] = i;
+                }
+                ResultWriter.encodeGroupedLine(record, size, firstLines[root], i, offset, length);
+                groupSorter.add(record, 0, record.length);
+            }
+        }
+    }
+
+    /**
+     * Байты строк по номерам для побайтной сверки повторов: смещение и длина строки читаются
+     * из файла смещений, а байты - из входного файла или копии строк.
+     */
+    private static final class LineBytes implements Closeable {
+        private static final int OFFSET_RECORD_SIZE = Long.BYTES + Integer.BYTES;
+
+        private final FileChannel offsets;
+        private final FileChannel lines;
+        private final ByteBuffer offsetRecord = ByteBuffer.allocate(OFFSET_RECORD_SIZE);
+        private ByteBuffer first = ByteBuffer.allocate(256);
+        private ByteBuffer second = ByteBuffer.allocate(256);
+
+        LineBytes(Path offsets, Path lines) throws IOException {
+            this.offsets = FileChannel.open(offsets, StandardOpenOption.READ);
+            try {
+                this.lines = FileChannel.open(lines, StandardOpenOption.READ);
+            } catch (IOException | RuntimeException e) {
+                this.offsets.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Метод equal сравнивает байты двух строк.
+         */
+        boolean equal(int firstLine, int secondLine) throws IOException {
+            first = read(firstLine, first);
+            second = read(secondLine, second);
+            return first.equals(second);
+        }
+
+        private ByteBuffer read(int lineNumber, ByteBuffer buffer) throws IOException {
+            offsetRecord.clear();
+            readFully(offsets, offsetRecord, (long) lineNumber * OFFSET_RECORD_SIZE);
+            long offset = offsetRecord.getLong(0);
+            int length = offsetRecord.getInt(Long.BYTES);
+            if (buffer.capacity() < length) {
+                buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+            }
+            buffer.clear().limit(length);
+            readFully(lines, buffer, offset);
+            return buffer.flip();
+        }
+
+        private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("Неожиданный конец временного файла");
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (offsets) {
+                lines.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package io.sorter.calculator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Интерфейс Group описывает одну группу результата {@link GroupingResult}: строки группы
+ * в порядке их появления во входных данных.
+ */
+public interface Group {
+
+    /**
+     * Метод getNumber возвращает номер группы в порядке вывода, как в заголовке "Группа N".
+     *
+     * @return номер группы, начиная с 1
+     */
+    int getNumber();
+
+    /**
+     * Метод size возвращает количество строк группы.
+     *
+     * @return количество строк, не меньше 2
+     */
+    int size();
+
+    /**
+     * Метод getLine возвращает копию байтов строки группы.
+     *
+     * @param index номер строки внутри группы, от 0 до {@link #size()}
+     * @return буфер с позицией 0 и границей, равной длине строки
+     * @throws java.io.UncheckedIOException если байты строки не удается прочитать из временного файла
+     */
+    ByteBuffer getLine(int index);
+
+    /**
+     * Метод getLineString возвращает строку группы в виде текста UTF-8.
+     *
+     * @param index номер строки внутри группы
+     * @return текст строки
+     */
+    default String getLineString(int index) {
+        return StandardCharsets.UTF_8.decode(getLine(index)).toString();
+    }
+}
@@ -0,0 +1,38 @@
+package io.sorter.calculator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Интерфейс GroupSink принимает группы результата {@link GroupingResult#forEachGroup(GroupSink)}
+ * строка за строкой, без сборки групп в памяти: группы передаются в порядке вывода,
+ * а строки каждой группы - между вызовами {@link #startGroup} и {@link #endGroup}.
+ */
+public interface GroupSink {
+
+    /**
+     * Метод startGroup вызывается перед строками группы.
+     *
+     * @param number номер группы в порядке вывода, начиная с 1
+     * @param size   количество строк группы
+     * @throws IOException если приемник не может принять группу
+     */
+    void startGroup(int number, int size) throws IOException;
+
+    /**
+     * Метод line передает строку группы. Буфер используется повторно и действителен
+     * только до возврата из метода.
+     *
+     * @param line байты строки от позиции до границы буфера
+     * @throws IOException если приемник не может принять строку
+     */
+    void line(ByteBuffer line) throws IOException;
+
+    /**
+     * Метод endGroup вызывается после последней строки группы.
+     *
+     * @throws IOException если приемник не может завершить группу
+     */
+    default void endGroup() throws IOException {
+    }
+}
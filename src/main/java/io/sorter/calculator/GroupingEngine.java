@@ -0,0 +1,278 @@
+package io.sorter.calculator;
+
+import io.sorter.metrics.Metrics;
+import io.sorter.reader.ByteRangeLineReader;
+import io.sorter.reader.LineReader;
+import io.sorter.reader.LineReaders;
+import io.sorter.store.LineStore;
+import io.sorter.validators.UnionFind;
+import io.sorter.validators.UniqueLineChecker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Класс GroupingEngine - программный интерфейс группировки для встраивания в приложение.
+ * В отличие от {@link LineCalc}, он принимает данные из файла, потока, канала или готовых
+ * строк и не записывает выходной файл: результат {@link GroupingResult} перебирается
+ * как поток групп, передается в приемник {@link GroupSink} или записывается в текстовый
+ * файл или снимок по требованию.
+ * <pre>{@code
+ * GroupingEngine engine = GroupingEngine.builder().setParallelism(8).build();
+ * try (GroupingResult result = engine.group(Path.of("input.txt"))) {
+ *     result.groups().limit(10).forEach(group -> System.out.println(group.size()));
+ * }
+ * }</pre>
+ * Экземпляр неизменяем и может группировать несколько источников, в том числе одновременно.
+ */
+public final class GroupingEngine {
+    private static final int INITIAL_LINES = 1 << 16; /* Структуры дорастают по мере чтения */
+
+    private final CalcOptions options;
+    private final Metrics metrics;
+
+    private GroupingEngine(CalcOptions options, Metrics metrics) {
+        this.options = options;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Метод builder создает построитель с настройками по умолчанию: один поток,
+     * группировка в памяти, вывод всех групп.
+     *
+     * @return новый построитель
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Метод group группирует строки файла. Несжатый файл читается через отображение в память
+     * и при нескольких потоках разбирается частями параллельно; файл gzip распаковывается потоково.
+     *
+     * @param input входной файл
+     * @return результат группировки
+     * @throws IOException если файл не удается прочитать
+     */
+    public GroupingResult group(Path input) throws IOException {
+        if (options.isExternal()) {
+            return new GroupingResult(ExternalGrouping.group(input, options, metrics), options, metrics);
+        }
+        if (options.getParallelism() > 1 && !options.isPipeline() && !LineReaders.isCompressed(input)) {
+            LineStore lines = new LineStore();
+            UniqueLineChecker checker = newChecker(lines);
+            UnionFind unionFind = new UnionFind(0);
+            ChunkProcessor.process(input, options, checker, unionFind, lines, metrics);
+            return inMemory(checker, unionFind, lines);
+        }
+        return group(LineReaders.open(input), input);
+    }
+
+    /**
+     * Метод group группирует строки из потока. Сжатие gzip распознается по первым байтам.
+     *
+     * @param in входной поток; закрывается по окончании чтения
+     * @return результат группировки
+     * @throws IOException если поток не удается прочитать
+     */
+    public GroupingResult group(InputStream in) throws IOException {
+        return group(LineReaders.open(in, Runtime.getRuntime().availableProcessors()), null);
+    }
+
+    /**
+     * Метод group группирует строки из канала, см. {@link #group(InputStream)}.
+     *
+     * @param channel входной канал; закрывается по окончании чтения
+     * @return результат группировки
+     * @throws IOException если канал не удается прочитать
+     */
+    public GroupingResult group(ReadableByteChannel channel) throws IOException {
+        return group(Channels.newInputStream(channel));
+    }
+
+    /**
+     * Метод group группирует уже разделенные строки: каждая строка - байты буфера от позиции
+     * до границы, без символов конца строки. Буфер строки должен оставаться неизменным, пока
+     * итератор не перейдет к следующей строке.
+     *
+     * @param lines строки в виде буферов
+     * @return результат группировки
+     * @throws IOException если возникнет ошибка работы с временными файлами во внешней памяти
+     */
+    public GroupingResult group(Iterator<ByteBuffer> lines) throws IOException {
+        return group(new ByteRangeLineReader(lines), null);
+    }
+
+    /**
+     * Метод group разбирает источник в одном потоке.
+     *
+     * @param reader источник строк; закрывается по окончании чтения
+     * @param input  файл, из которого читает источник, или null, если это не файл
+     */
+    private GroupingResult group(LineReader reader, Path input) throws IOException {
+        if (options.isExternal()) {
+            return new GroupingResult(ExternalGrouping.group(reader, input, options, metrics), options, metrics);
+        }
+        LineStore lines = new LineStore();
+        UniqueLineChecker checker = newChecker(lines);
+        UnionFind unionFind = new UnionFind(0);
+        unionFind.ensureCapacity(INITIAL_LINES);
+        try (reader) {
+            LineCalc.ingest(reader, options, checker, unionFind, lines, metrics);
+        }
+        return inMemory(checker, unionFind, lines);
+    }
+
+    private UniqueLineChecker newChecker(LineStore lines) {
+        return new UniqueLineChecker(INITIAL_LINES, options.isVerifyDuplicates() ? lines : null);
+    }
+
+    private GroupingResult inMemory(UniqueLineChecker checker, UnionFind unionFind, LineStore lines) {
+        LineCalc.recordSizes(metrics, checker, unionFind, lines, 0, 0);
+        return new GroupingResult(checker, unionFind, lines, options, metrics);
+    }
+
+    /**
+     * Класс Builder собирает настройки {@link GroupingEngine}.
+     */
+    public static final class Builder {
+        private int parallelism = 1;
+        private boolean verifyDuplicates;
+        private boolean pipeline;
+        private long memoryBudget; /* 0 - группировка в памяти */
+        private Path tempDirectory;
+        private int maxGroups = Integer.MAX_VALUE;
+        private int minGroupSize = 2;
+        private Metrics metrics;
+
+        private Builder() {
+        }
+
+        /**
+         * Метод setParallelism задает количество потоков разбора несжатых файлов и записи результата.
+         *
+         * @param parallelism количество потоков, не меньше 1
+         * @return этот же построитель
+         */
+        public Builder setParallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("Количество потоков должно быть положительным: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Метод setVerifyDuplicates включает побайтную сверку строк с совпавшими отпечатками.
+         *
+         * @param verifyDuplicates true для точной проверки повторов
+         * @return этот же построитель
+         */
+        public Builder setVerifyDuplicates(boolean verifyDuplicates) {
+            this.verifyDuplicates = verifyDuplicates;
+            return this;
+        }
+
+        /**
+         * Метод setPipeline включает разбор конвейером стадий: чтение идет одновременно с разбором
+         * в {@link #setParallelism(int)} потоках, см. {@link CalcOptions#setPipeline(boolean)}.
+         *
+         * @param pipeline true для разбора конвейером
+         * @return этот же построитель
+         */
+        public Builder setPipeline(boolean pipeline) {
+            this.pipeline = pipeline;
+            return this;
+        }
+
+        /**
+         * Метод setMemoryBudget включает группировку во внешней памяти с заданным объемом буферов
+         * сортировки. В куче остаются только массивы по номерам строк, а строки и значения проходят
+         * через временные файлы; результат тогда перебирается один раз и не записывается в снимок.
+         *
+         * @param memoryBudget объем памяти в байтах, положительный
+         * @return этот же построитель
+         */
+        public Builder setMemoryBudget(long memoryBudget) {
+            if (memoryBudget <= 0) {
+                throw new IllegalArgumentException("Объем памяти должен быть положительным: " + memoryBudget);
+            }
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
+        /**
+         * Метод setTempDirectory задает каталог временных файлов внешней памяти.
+         *
+         * @param tempDirectory существующий каталог
+         * @return этот же построитель
+         */
+        public Builder setTempDirectory(Path tempDirectory) {
+            this.tempDirectory = tempDirectory;
+            return this;
+        }
+
+        /**
+         * Метод setMaxGroups ограничивает результат самыми большими группами.
+         *
+         * @param maxGroups наибольшее количество групп, неотрицательное
+         * @return этот же построитель
+         */
+        public Builder setMaxGroups(int maxGroups) {
+            if (maxGroups < 0) {
+                throw new IllegalArgumentException("Количество групп не может быть отрицательным: " + maxGroups);
+            }
+            this.maxGroups = maxGroups;
+            return this;
+        }
+
+        /**
+         * Метод setMinGroupSize исключает из результата группы меньше заданного размера.
+         *
+         * @param minGroupSize наименьший размер группы; значения меньше 2 равносильны 2
+         * @return этот же построитель
+         */
+        public Builder setMinGroupSize(int minGroupSize) {
+            this.minGroupSize = minGroupSize;
+            return this;
+        }
+
+        /**
+         * Метод setMetrics включает сбор показателей обработки.
+         *
+         * @param metrics показатели, в которые добавляются результаты всех группировок, или null
+         * @return этот же построитель
+         */
+        public Builder setMetrics(Metrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Метод build создает группировщик с текущими настройками. Последующие изменения
+         * построителя на него не влияют.
+         *
+         * @return новый группировщик
+         */
+        public GroupingEngine build() {
+            CalcOptions options = new CalcOptions()
+                    .setParallelism(parallelism)
+                    .setVerifyDuplicates(verifyDuplicates)
+                    .setPipeline(pipeline)
+                    .setMaxGroups(maxGroups)
+                    .setMinGroupSize(minGroupSize);
+            if (memoryBudget > 0) {
+                options.setExternal(true).setMemoryBudget(memoryBudget);
+            }
+            if (tempDirectory != null) {
+                options.setTempDirectory(tempDirectory);
+            }
+            return new GroupingEngine(options, metrics);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package io.sorter.calculator;
+
+import io.sorter.metrics.Metrics;
+import io.sorter.store.LineStore;
+import io.sorter.store.RecordCursor;
+import io.sorter.validators.UnionFind;
+import io.sorter.validators.UniqueLineChecker;
+import io.sorter.writer.GroupLayout;
+import io.sorter.writer.ResultWriter;
+import io.sorter.writer.SnapshotWriter;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Класс GroupingResult - результат группировки {@link GroupingEngine}. Группы выдаются
+ * в том же порядке и с теми же ограничениями, что и в выходном файле: по убыванию размера,
+ * группы одного размера - по первой строке, строки внутри группы - в порядке появления.
+ * <p>
+ * Результат группировки в памяти хранит строки и систему множеств; группы можно перебирать
+ * сколько угодно раз, а строки копируются только по запросу. Результат группировки во внешней
+ * памяти - отсортированные записи во временных файлах: группы перебираются один раз любым
+ * из способов, а закрытие результата удаляет временные файлы.
+ */
+public final class GroupingResult implements Closeable {
+    private final CalcOptions options;
+    private final Metrics metrics;
+    private final UniqueLineChecker checker;
+    private final UnionFind unionFind;
+    private final LineStore lines;
+    private final ExternalGrouping.SortedGroups sorted;
+    private GroupLayout layout; /* Раскладка групп в памяти, строится при первом обращении */
+    private boolean consumed; /* Записи внешней памяти уже прочитаны */
+
+    GroupingResult(UniqueLineChecker checker, UnionFind unionFind, LineStore lines, CalcOptions options,
+                   Metrics metrics) {
+        this.options = options;
+        this.metrics = metrics;
+        this.checker = checker;
+        this.unionFind = unionFind;
+        this.lines = lines;
+        this.sorted = null;
+    }
+
+    GroupingResult(ExternalGrouping.SortedGroups sorted, CalcOptions options, Metrics metrics) {
+        this.options = options;
+        this.metrics = metrics;
+        this.checker = null;
+        this.unionFind = null;
+        this.lines = null;
+        this.sorted = sorted;
+    }
+
+    /**
+     * Метод getGroupCount возвращает количество всех групп с более чем одним элементом,
+     * без учета ограничений количества и размера выводимых групп.
+     *
+     * @return количество групп
+     */
+    public int getGroupCount() {
+        return sorted != null ? sorted.getGroupCount() : unionFind.getGroupCount();
+    }
+
+    /**
+     * Метод isExternal сообщает, получен ли результат группировкой во внешней памяти.
+     *
+     * @return true, если группы перебираются один раз из временных файлов
+     */
+    public boolean isExternal() {
+        return sorted != null;
+    }
+
+    /**
+     * Метод groups возвращает ленивый поток групп. Группа в памяти не копирует строк до вызова
+     * {@link Group#getLine(int)}; группа из внешней памяти хранит смещения своих строк и читает
+     * байты из временного файла, пока результат не закрыт.
+     *
+     * @return поток групп в порядке вывода
+     * @throws IllegalStateException если группы результата во внешней памяти уже перебирались
+     */
+    public Stream<Group> groups() {
+        if (sorted == null) {
+            GroupLayout groupLayout = layout();
+            return IntStream.range(0, groupLayout.getGroupCount())
+                    .mapToObj(group -> new StoredGroup(groupLayout, group));
+        }
+        consume();
+        Iterator<Group> iterator = new Iterator<>() {
+            private final SortedReader reader = new SortedReader();
+            private Group next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done) {
+                    try {
+                        next = reader.readGroup();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    done = next == null;
+                }
+                return next != null;
+            }
+
+            @Override
+            public Group next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Group group = next;
+                next = null;
+                return group;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Метод forEachGroup передает группы в приемник строка за строкой без сборки групп в памяти.
+     *
+     * @param sink приемник групп
+     * @throws IOException           если приемник или чтение временных файлов завершились ошибкой
+     * @throws IllegalStateException если группы результата во внешней памяти уже перебирались
+     */
+    public void forEachGroup(GroupSink sink) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        if (sorted == null) {
+            GroupLayout groupLayout = layout();
+            for (int group = 0; group < groupLayout.getGroupCount(); group++) {
+                int start = groupLayout.getGroupStart(group);
+                int end = groupLayout.getGroupEnd(group);
+                sink.startGroup(group + 1, end - start);
+                for (int i = start; i < end; i++) {
+                    int line = groupLayout.getMember(i);
+                    buffer = ensureCapacity(buffer, lines.length(line));
+                    lines.copyTo(line, 0, buffer);
+                    sink.line(buffer.flip());
+                }
+                sink.endGroup();
+            }
+            return;
+        }
+        consume();
+        SortedReader reader = new SortedReader();
+        while (reader.nextGroup()) {
+            sink.startGroup(reader.number, reader.size);
+            while (reader.nextLine()) {
+                buffer = ensureCapacity(buffer, reader.length);
+                readFully(sorted.getLines(), buffer, reader.offset);
+                sink.line(buffer.flip());
+            }
+            sink.endGroup();
+        }
+    }
+
+    /**
+     * Метод writeText записывает группы в текстовый файл в формате выходного файла программы.
+     *
+     * @param output выходной файл
+     * @throws IOException           если возникнет ошибка записи
+     * @throws IllegalStateException если группы результата во внешней памяти уже перебирались
+     */
+    public void writeText(Path output) throws IOException {
+        ResultWriter resultWriter = new ResultWriter(output.toString(), options.getParallelism())
+                .setMaxGroups(options.getMaxGroups())
+                .setMinGroupSize(options.getMinGroupSize())
+                .setMetrics(metrics);
+        if (sorted == null) {
+            resultWriter.writeResults(lines, unionFind);
+        } else {
+            consume();
+            resultWriter.writeResults(sorted.getGroupedLines(), sorted.getLines(), sorted.getGroupCount());
+        }
+    }
+
+    /**
+     * Метод writeSnapshot записывает двоичный снимок группировки ({@link SnapshotWriter}).
+     *
+     * @param output файл снимка
+     * @throws IOException           если возникнет ошибка записи
+     * @throws IllegalStateException если результат получен во внешней памяти
+     */
+    public void writeSnapshot(Path output) throws IOException {
+        if (sorted != null) {
+            throw new IllegalStateException("Снимок группировки не поддерживается во внешней памяти");
+        }
+        new SnapshotWriter(output).write(lines, unionFind, checker);
+    }
+
+    /**
+     * Метод close удаляет временные файлы результата во внешней памяти.
+     *
+     * @throws IOException если временные файлы не удается удалить
+     */
+    @Override
+    public void close() throws IOException {
+        if (sorted != null) {
+            sorted.close();
+        }
+    }
+
+    private GroupLayout layout() {
+        if (layout == null) {
+            layout = GroupLayout.of(unionFind, lines.size(), options.getMaxGroups(), options.getMinGroupSize());
+        }
+        return layout;
+    }
+
+    private void consume() {
+        if (consumed) {
+            throw new IllegalStateException("Группы результата во внешней памяти перебираются один раз");
+        }
+        consumed = true;
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int length) {
+        if (buffer.capacity() < length) {
+            return ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2)).limit(length);
+        }
+        return buffer.clear().limit(length);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Временный файл строк короче ожидаемого");
+            }
+        }
+    }
+
+    /**
+     * Группа результата в памяти: номера строк берутся из раскладки, байты - из хранилища.
+     */
+    private final class StoredGroup implements Group {
+        private final GroupLayout groupLayout;
+        private final int group;
+
+        private StoredGroup(GroupLayout groupLayout, int group) {
+            this.groupLayout = groupLayout;
+            this.group = group;
+        }
+
+        @Override
+        public int getNumber() {
+            return group + 1;
+        }
+
+        @Override
+        public int size() {
+            return groupLayout.getGroupEnd(group) - groupLayout.getGroupStart(group);
+        }
+
+        @Override
+        public ByteBuffer getLine(int index) {
+            int line = groupLayout.getMember(groupLayout.getGroupStart(group) + index);
+            ByteBuffer buffer = ByteBuffer.allocate(lines.length(line));
+            lines.copyTo(line, 0, buffer);
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * Группа результата во внешней памяти: смещения и длины строк во временном файле.
+     */
+    private final class FileGroup implements Group {
+        private final int number;
+        private final long[] offsets;
+        private final int[] lengths;
+
+        private FileGroup(int number, long[] offsets, int[] lengths) {
+            this.number = number;
+            this.offsets = offsets;
+            this.lengths = lengths;
+        }
+
+        @Override
+        public int getNumber() {
+            return number;
+        }
+
+        @Override
+        public int size() {
+            return offsets.length;
+        }
+
+        @Override
+        public ByteBuffer getLine(int index) {
+            ByteBuffer buffer = ByteBuffer.allocate(lengths[index]);
+            try {
+                readFully(sorted.getLines(), buffer, offsets[index]);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * Класс SortedReader читает отсортированные записи строк групп (формат записи описан
+     * в {@link ResultWriter#GROUPED_LINE_SIZE}) по группам с учетом ограничений вывода.
+     * Группы идут по убыванию размера, поэтому после первой неподходящей группы чтение заканчивается.
+     */
+    private final class SortedReader {
+        private final RecordCursor cursor = sorted.getGroupedLines();
+        private boolean hasRecord; /* Курсор стоит на еще не выданной записи */
+        private int recordSize;
+        private int recordFirstLine;
+        private int number; /* Номер текущей группы, начиная с 1 */
+        private int size;
+        private int firstLine = -1;
+        private long offset; /* Смещение и длина последней выданной строки */
+        private int length;
+
+        private boolean advance() throws IOException {
+            hasRecord = cursor.next();
+            if (hasRecord) {
+                ByteBuffer record = ByteBuffer.wrap(cursor.array(), cursor.start(), ResultWriter.GROUPED_LINE_SIZE);
+                recordSize = Integer.MAX_VALUE - record.getInt(cursor.start());
+                recordFirstLine = record.getInt(cursor.start() + Integer.BYTES);
+                offset = record.getLong(cursor.start() + Integer.BYTES * 3);
+                length = record.getInt(cursor.start() + Integer.BYTES * 3 + Long.BYTES);
+            }
+            return hasRecord;
+        }
+
+        /**
+         * Метод nextGroup пропускает оставшиеся строки текущей группы и переходит к следующей.
+         *
+         * @return false, если выводимых групп больше нет
+         */
+        boolean nextGroup() throws IOException {
+            while (true) {
+                if (!hasRecord && !advance()) {
+                    return false;
+                }
+                if (recordFirstLine != firstLine) {
+                    break;
+                }
+                hasRecord = false;
+            }
+            if (number == options.getMaxGroups() || recordSize < Math.max(options.getMinGroupSize(), 2)) {
+                return false;
+            }
+            number++;
+            size = recordSize;
+            firstLine = recordFirstLine;
+            return true;
+        }
+
+        /**
+         * Метод nextLine переходит к следующей строке текущей группы.
+         *
+         * @return false, если строки группы закончились
+         */
+        boolean nextLine() throws IOException {
+            if (!hasRecord && !advance()) {
+                return false;
+            }
+            if (recordFirstLine != firstLine) {
+                return false;
+            }
+            hasRecord = false;
+            return true;
+        }
+
+        /**
+         * Метод readGroup читает следующую группу целиком в смещения и длины строк.
+         *
+         * @return группа или null, если выводимых групп больше нет
+         */
+        Group readGroup() throws IOException {
+            if (!nextGroup()) {
+                return null;
+            }
+            long[] offsets = new long[size];
+            int[] lengths = new int[size];
+            for (int i = 0; i < size && nextLine(); i++) {
+                offsets[i] = offset;
+                lengths[i] = length;
+            }
+            return new FileGroup(number, offsets, lengths);
+        }
+    }
+}
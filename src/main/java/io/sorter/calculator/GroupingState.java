@@ -0,0 +1,211 @@
+package io.sorter.calculator;
+
+import io.sorter.store.BinaryReader;
+import io.sorter.store.BinaryWriter;
+import io.sorter.store.LineStore;
+import io.sorter.validators.Fingerprints;
+import io.sorter.validators.UnionFind;
+import io.sorter.validators.UniqueLineChecker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Класс GroupingState хранит на диске состояние группировки между запусками в режиме
+ * дописывания: принятые строки, систему множеств, индексы значений столбцов, отпечатки строк
+ * и количество уже обработанных байтов входного файла. Следующий запуск загружает состояние
+ * и разбирает только дописанный хвост файла.
+ * <p>
+ * Файлы каталога состояния:
+ * <ul>
+ *     <li>{@code lines.bin} и {@code ends.bin} - байты и концы принятых строк; только дописываются;</li>
+ *     <li>{@code groups-N.bin} - система множеств и индексы поколения N; записываются целиком;</li>
+ *     <li>{@code meta.bin} - формат, поколение, обработанное смещение, отпечаток начала файла
+ *     и размеры сохраненных строк; записывается последним через атомарное переименование.</li>
+ * </ul>
+ * Пока {@code meta.bin} не заменен, действует предыдущее состояние: лишние байты,
+ * дописанные прерванным запуском, отбрасываются при следующем сохранении.
+ */
+final class GroupingState {
+    private static final int MAGIC = 0x47535431; /* "GST1" */
+    private static final int VERSION = 3; /* 3: словари столбцов с ключами ValueKeys */
+    private static final int HEAD_SIZE = 1 << 12; /* Начало файла, по которому узнается тот же файл */
+    private static final String META_FILE = "meta.bin";
+    private static final String LINES_FILE = "lines.bin";
+    private static final String ENDS_FILE = "ends.bin";
+
+    private final Path directory;
+    private final UniqueLineChecker checker;
+    private final UnionFind unionFind;
+    private final LineStore lines;
+    private long generation;
+    private long consumed; /* Количество обработанных байтов входного файла */
+    private long headFingerprint; /* Отпечаток первых min(consumed, HEAD_SIZE) байтов файла */
+    private int savedLines; /* Количество строк в lines.bin и ends.bin */
+    private long savedBytes; /* Объем байтов этих строк */
+
+    private GroupingState(Path directory, UniqueLineChecker checker, UnionFind unionFind, LineStore lines) {
+        this.directory = directory;
+        this.checker = checker;
+        this.unionFind = unionFind;
+        this.lines = lines;
+    }
+
+    /**
+     * Метод open загружает состояние из каталога или создает пустое, если каталог
+     * еще не содержит состояния.
+     *
+     * @param directory        каталог состояния; создается при необходимости
+     * @param expectedLines    ожидаемое количество строк после обработки
+     * @param verifyDuplicates true для побайтной проверки строк с совпавшими отпечатками
+     * @return состояние группировки
+     * @throws IOException если состояние повреждено или возникнет ошибка чтения
+     */
+    static GroupingState open(Path directory, int expectedLines, boolean verifyDuplicates) throws IOException {
+        Files.createDirectories(directory);
+        Path meta = directory.resolve(META_FILE);
+        if (!Files.exists(meta)) {
+            LineStore lines = new LineStore();
+            UnionFind unionFind = new UnionFind(0);
+            unionFind.ensureCapacity(expectedLines);
+            UniqueLineChecker checker = new UniqueLineChecker(expectedLines, verifyDuplicates ? lines : null);
+            return new GroupingState(directory, checker, unionFind, lines);
+        }
+
+        long generation;
+        long consumed;
+        long headFingerprint;
+        int lineCount;
+        try (BinaryReader in = new BinaryReader(meta)) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Неизвестный формат состояния: " + meta);
+            }
+            generation = in.readLong();
+            consumed = in.readLong();
+            headFingerprint = in.readLong();
+            lineCount = in.readInt();
+        }
+        LineStore lines;
+        try (BinaryReader data = new BinaryReader(directory.resolve(LINES_FILE));
+             BinaryReader ends = new BinaryReader(directory.resolve(ENDS_FILE))) {
+            lines = LineStore.readFrom(data, ends, lineCount);
+        }
+        UnionFind unionFind;
+        UniqueLineChecker checker;
+        try (BinaryReader in = new BinaryReader(groupsFile(directory, generation))) {
+            unionFind = UnionFind.readFrom(in, expectedLines);
+            checker = UniqueLineChecker.readFrom(in, verifyDuplicates ? lines : null);
+        }
+        GroupingState state = new GroupingState(directory, checker, unionFind, lines);
+        state.generation = generation;
+        state.consumed = consumed;
+        state.headFingerprint = headFingerprint;
+        state.savedLines = lineCount;
+        state.savedBytes = lines.sizeInBytes();
+        return state;
+    }
+
+    /**
+     * Метод resumeOffset проверяет, что входной файл - продолжение уже обработанного,
+     * и возвращает смещение, с которого нужно продолжить разбор.
+     *
+     * @param input входной файл
+     * @return количество уже обработанных байтов
+     * @throws IOException              если возникнет ошибка чтения
+     * @throws IllegalArgumentException если файл укорочен или его начало изменилось
+     */
+    long resumeOffset(FileChannel input) throws IOException {
+        if (consumed == 0) {
+            return 0;
+        }
+        if (input.size() < consumed || headFingerprint(input, consumed) != headFingerprint) {
+            throw new IllegalArgumentException("Входной файл изменен не дописыванием в конец;"
+                    + " удалите каталог состояния " + directory + " для полной обработки");
+        }
+        return consumed;
+    }
+
+    /**
+     * Метод save сохраняет состояние после обработки файла до смещения consumed.
+     * Новые строки дописываются, система множеств и индексы записываются целиком
+     * в файл нового поколения, после чего атомарно заменяется {@code meta.bin}.
+     *
+     * @param input    входной файл
+     * @param consumed количество обработанных байтов входного файла
+     * @throws IOException если возникнет ошибка чтения или записи
+     */
+    void save(FileChannel input, long consumed) throws IOException {
+        Path linesFile = directory.resolve(LINES_FILE);
+        Path endsFile = directory.resolve(ENDS_FILE);
+        /* Отбрасываем хвосты, дописанные прерванным запуском */
+        truncate(linesFile, savedBytes);
+        truncate(endsFile, (long) savedLines * Long.BYTES);
+        try (BinaryWriter data = new BinaryWriter(linesFile, true);
+             BinaryWriter ends = new BinaryWriter(endsFile, true)) {
+            lines.writeBytesTo(data, savedLines);
+            lines.writeEndsTo(ends, savedLines);
+        }
+
+        long nextGeneration = generation + 1;
+        try (BinaryWriter out = new BinaryWriter(groupsFile(directory, nextGeneration))) {
+            unionFind.writeTo(out);
+            checker.writeTo(out);
+        }
+        long nextHeadFingerprint = headFingerprint(input, consumed);
+        Path temporary = directory.resolve(META_FILE + ".tmp");
+        try (BinaryWriter out = new BinaryWriter(temporary)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(nextGeneration);
+            out.writeLong(consumed);
+            out.writeLong(nextHeadFingerprint);
+            out.writeInt(lines.size());
+        }
+        Files.move(temporary, directory.resolve(META_FILE),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(groupsFile(directory, generation));
+
+        this.generation = nextGeneration;
+        this.consumed = consumed;
+        this.headFingerprint = nextHeadFingerprint;
+        this.savedLines = lines.size();
+        this.savedBytes = lines.sizeInBytes();
+    }
+
+    UniqueLineChecker getChecker() {
+        return checker;
+    }
+
+    UnionFind getUnionFind() {
+        return unionFind;
+    }
+
+    LineStore getLines() {
+        return lines;
+    }
+
+    private static Path groupsFile(Path directory, long generation) {
+        return directory.resolve("groups-" + generation + ".bin");
+    }
+
+    private static void truncate(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static long headFingerprint(FileChannel input, long consumed) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate((int) Math.min(consumed, HEAD_SIZE));
+        while (head.hasRemaining()) {
+            if (input.read(head, head.position()) < 0) {
+                break;
+            }
+        }
+        return Fingerprints.hash64(head, 0, head.position());
+    }
+}
@@ -0,0 +1,124 @@
+package io.sorter.calculator;
+
+import io.sorter.store.LineStore;
+import io.sorter.validators.UnionFind;
+import io.sorter.validators.UniqueLineChecker;
+
+/**
+ * Класс GroupingWorkspace - структуры группировки, которые переиспользуются между обработками
+ * файлов в одном процессе: хранилище строк с блоками вне кучи, система множеств, таблица
+ * отпечатков строк и индексы столбцов. Перед каждой обработкой структуры очищаются без
+ * освобождения памяти, поэтому повторные обработки небольших файлов не выделяют заново
+ * блоки и таблицы и не ждут их обнуления сборщиком мусора.
+ * <p>
+ * Если прошлая обработка заняла больше {@link #setMaxRetainedBytes(long)} байтов (байты строк,
+ * массивы по номерам строк, таблица отпечатков и словари столбцов), структуры выделяются заново,
+ * чтобы один большой файл не удерживал память до конца работы процесса. Объект не потокобезопасен:
+ * одновременно его использует одна обработка, а результаты прошлой обработки становятся
+ * недействительны при начале следующей.
+ */
+public final class GroupingWorkspace {
+    /** Объем памяти структур, которые сохраняются между обработками, по умолчанию. */
+    public static final long DEFAULT_MAX_RETAINED_BYTES = 256L << 20;
+    private static final int LINE_ARRAY_BYTES = Long.BYTES * 2; /* Конец строки в LineStore и два int UnionFind */
+
+    private LineStore lines;
+    private UnionFind unionFind;
+    private UniqueLineChecker checker; /* Создается при первой обработке, null после выделения заново */
+    private boolean verifyDuplicates; /* Режим, в котором создан checker */
+    private int uses;
+    private long maxRetainedBytes = DEFAULT_MAX_RETAINED_BYTES;
+    private boolean discarded; /* Обработка оборвалась с ошибкой, структуры выделяются заново */
+
+    /**
+     * Конструктор класса GroupingWorkspace. Структуры выделяются по мере заполнения.
+     */
+    public GroupingWorkspace() {
+        allocate();
+    }
+
+    /**
+     * Метод setMaxRetainedBytes задает наибольший объем памяти структур, который сохраняется
+     * до следующей обработки; структуры большего объема освобождаются и выделяются заново.
+     *
+     * @param maxRetainedBytes объем памяти в байтах
+     * @return этот объект
+     */
+    public GroupingWorkspace setMaxRetainedBytes(long maxRetainedBytes) {
+        if (maxRetainedBytes < 0) {
+            throw new IllegalArgumentException("Объем памяти не может быть отрицательным: " + maxRetainedBytes);
+        }
+        this.maxRetainedBytes = maxRetainedBytes;
+        return this;
+    }
+
+    /**
+     * Метод getRetainedBytes оценивает объем памяти, занятый структурами после прошлой обработки.
+     *
+     * @return объем памяти в байтах
+     */
+    public long getRetainedBytes() {
+        return lines.sizeInBytes() + (long) lines.size() * LINE_ARRAY_BYTES
+                + (checker != null ? checker.sizeInBytes() : 0);
+    }
+
+    /**
+     * Метод discard отмечает структуры как непригодные после обработки, оборвавшейся с ошибкой:
+     * их состояние может быть несогласованным, поэтому следующая обработка выделит их заново.
+     */
+    public void discard() {
+        discarded = true;
+    }
+
+    /**
+     * Метод getUseCount возвращает количество обработок, использовавших эти структуры.
+     *
+     * @return количество обработок
+     */
+    public int getUseCount() {
+        return uses;
+    }
+
+    /**
+     * Метод acquire очищает структуры перед новой обработкой или выделяет их заново после большого файла.
+     */
+    void acquire() {
+        if (discarded || getRetainedBytes() > maxRetainedBytes) {
+            discarded = false;
+            allocate();
+        } else {
+            lines.clear();
+            unionFind.clear();
+            if (checker != null) {
+                checker.clear();
+            }
+        }
+        uses++;
+    }
+
+    LineStore getLines() {
+        return lines;
+    }
+
+    UnionFind getUnionFind() {
+        return unionFind;
+    }
+
+    /**
+     * Метод getChecker возвращает очищенный объект проверки уникальности для режима проверки повторов.
+     * Если режим сменился, объект создается заново: побайтная проверка связана с хранилищем строк.
+     */
+    UniqueLineChecker getChecker(boolean verifyDuplicates, int expectedLines) {
+        if (checker == null || this.verifyDuplicates != verifyDuplicates) {
+            checker = new UniqueLineChecker(expectedLines, verifyDuplicates ? lines : null);
+            this.verifyDuplicates = verifyDuplicates;
+        }
+        return checker;
+    }
+
+    private void allocate() {
+        lines = new LineStore();
+        unionFind = new UnionFind(0);
+        checker = null;
+    }
+}
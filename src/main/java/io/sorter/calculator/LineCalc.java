@@ -1,15 +1,22 @@
 package io.sorter.calculator;
 
-import io.sorter.parser.LineProcessor;
+import io.sorter.metrics.Metrics;
+import io.sorter.parser.LineTokenizer;
+import io.sorter.reader.LineReader;
+import io.sorter.reader.LineReaders;
+import io.sorter.reader.MappedLineReader;
+import io.sorter.store.LineStore;
 import io.sorter.validators.UnionFind;
 import io.sorter.validators.UniqueLineChecker;
 import io.sorter.writer.ResultWriter;
+import io.sorter.writer.SnapshotWriter;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.EOFException;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Класс LineCalc отвечает за обработку строк из входного файла,
@@ -17,48 +24,232 @@ import java.util.List;
  * Результаты обработки записываются в выходной файл.
  */
 public class LineCalc {
+    private static final int MIN_LINES_HINT = 10000; /* Минимальная оценка количества строк */
+    private static final int MAX_LINES_HINT = 1 << 26; /* Больше заранее не выделяем: структуры дорастут сами */
+    private static final int SAMPLE_SIZE = 1 << 16; /* Размер выборки для оценки средней длины строки */
+    private static final int TIMING_SAMPLE_MASK = 63; /* Время этапов засекается у каждой 64-й строки */
+
     private final String inputFilename;
+    private final CalcOptions options;
     private final int processorLineMax;
     private final UnionFind unionFind;
-    private final List<String> lines;
+    private final LineStore lines;
+    private final Metrics metrics; /* Показатели обработки или null, если они не собираются */
+    private final Plan plan; /* План обработки или null, если планировщик не включен */
+    private final GroupingWorkspace workspace; /* Переиспользуемые структуры или null */
 
     /**
-     * Конструктор класса LineCalc.
+     * Конструктор класса LineCalc для однопроходной обработки.
+     * Структуры группировки растут по мере чтения строк, а их начальный размер
+     * оценивается по длине файла и средней длине строки в начале файла.
      * @param inputFilename имя входного файла, содержащего строки для обработки
      */
     public LineCalc(String inputFilename) {
+        this(inputFilename, false);
+    }
+
+    /**
+     * Конструктор класса LineCalc.
+     * @param inputFilename имя входного файла, содержащего строки для обработки
+     * @param exactLineCount true, если перед обработкой нужно точно подсчитать строки
+     *                       отдельным проходом по файлу; false для оценки по выборке
+     */
+    public LineCalc(String inputFilename, boolean exactLineCount) {
+        this(inputFilename, new CalcOptions().setExactLineCount(exactLineCount));
+    }
+
+    /**
+     * Конструктор класса LineCalc с произвольными настройками обработки.
+     * @param inputFilename имя входного файла, содержащего строки для обработки
+     * @param options       настройки обработки
+     */
+    public LineCalc(String inputFilename, CalcOptions options) {
+        this(inputFilename, options, null);
+    }
+
+    /**
+     * Конструктор класса LineCalc, который группирует строки в структурах, оставшихся
+     * от прошлых обработок, вместо выделения новых. Структуры очищаются при создании объекта,
+     * а планировщик в этом случае выбирает только режим обработки, но не хранилище строк.
+     * @param inputFilename имя входного файла, содержащего строки для обработки
+     * @param options       настройки обработки
+     * @param workspace     переиспользуемые структуры или null
+     */
+    public LineCalc(String inputFilename, CalcOptions options, GroupingWorkspace workspace) {
         this.inputFilename = inputFilename;
-        this.processorLineMax = getEstimatedMaxLines(inputFilename);
-        this.unionFind = new UnionFind(processorLineMax);
-        this.lines = new ArrayList<>(processorLineMax);
+        this.workspace = workspace;
+        this.plan = options.isAdaptive() && !ShardedGrouping.isSharded(inputFilename)
+                ? plan(inputFilename, options)
+                : null;
+        this.options = plan != null ? plan.apply(options) : options;
+        if (options.isExactLineCount()) {
+            this.processorLineMax = getEstimatedMaxLines(inputFilename);
+        } else if (plan != null) {
+            this.processorLineMax = Math.max(MIN_LINES_HINT, plan.getExpectedLines());
+        } else {
+            this.processorLineMax = estimateLinesBySample(inputFilename);
+        }
+        if (workspace != null) {
+            workspace.acquire();
+            this.unionFind = workspace.getUnionFind();
+            this.lines = workspace.getLines();
+        } else {
+            this.unionFind = new UnionFind(0);
+            this.lines = plan != null ? plan.newLineStore() : new LineStore();
+        }
+        this.unionFind.ensureCapacity(processorLineMax);
+        this.metrics = options.getMetricsFile() != null ? new Metrics() : null;
+    }
+
+    /**
+     * Метод getPlan возвращает план обработки, выбранный по выборке из начала файла.
+     * @return план или null, если планировщик не включен в настройках, входной путь задает
+     *         несколько файлов или файл не удалось прочитать
+     */
+    public Plan getPlan() {
+        return plan;
+    }
+
+    /**
+     * Метод getMetrics возвращает показатели последней обработки.
+     * @return показатели или null, если в настройках не задан файл отчета
+     */
+    public Metrics getMetrics() {
+        return metrics;
     }
 
     /**
      * Метод calc осуществляет основную логику обработки строк:
      * читает строки из входного файла, определяет уникальные строки и группирует их.
-     * Результаты записываются в файл "out.txt".
+     * Несжатый файл читается через отображение в память, а файл gzip распаковывается
+     * потоково. Если настроено несколько потоков, части несжатого файла обрабатываются
+     * параллельно с тем же результатом. В режиме внешней памяти строки группируются
+     * через временные файлы, также с тем же результатом. В режиме дописывания загружается
+     * сохраненное состояние и разбираются только строки, дописанные после прошлого запуска.
+     * Если входной путь - каталог или шаблон glob, файлы-шарды группируются параллельно
+     * и сливаются по порядку путей, как если бы они были склеены в один файл.
+     * Результаты записываются в файл "out.txt", а при необходимости также в двоичный снимок.
+     * Если задан файл отчета, в него записываются показатели обработки в формате JSON.
      * @return количество групп строк, найденных в процессе обработки
      */
     public int calc() {
-        String outputFilename = "out.txt";
-        UniqueLineChecker uniqueLineChecker = new UniqueLineChecker(processorLineMax);
-        ResultWriter resultWriter = new ResultWriter(outputFilename);
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(inputFilename))) {
-            String str;
-            int lineAmount = 0;
-
-            while ((str = reader.readLine()) != null) {
-                String[] parsedLine = LineProcessor.parseLine(str);
-                if (parsedLine == null || uniqueLineChecker.isUnique(str)) {
-                    continue;
-                }
+        return calc("out.txt");
+    }
 
-                lines.add(str);
-                uniqueLineChecker.checkUnique(parsedLine, lineAmount, unionFind);
-                lineAmount++;
+    /**
+     * Метод calc обрабатывает входной файл так же, как {@link #calc()}, но записывает
+     * результаты в указанный файл.
+     * @param outputFilename имя выходного файла
+     * @return количество групп строк, найденных в процессе обработки
+     */
+    public int calc(String outputFilename) {
+        return run(outputFilename, false);
+    }
+
+    /**
+     * Метод merge сливает частичные результаты, сохраненные методом {@link #calcPartials(Path)},
+     * в общую группировку вместо разбора входного файла. Входной путь задает файл частичного
+     * результата, каталог или шаблон glob; частичные результаты сливаются по порядку путей.
+     * Результаты записываются так же, как в {@link #calc()}.
+     * @return количество групп строк
+     */
+    public int merge() {
+        return merge("out.txt");
+    }
+
+    /**
+     * Метод merge сливает частичные результаты так же, как {@link #merge()}, но записывает
+     * результаты в указанный файл.
+     * @param outputFilename имя выходного файла
+     * @return количество групп строк
+     */
+    public int merge(String outputFilename) {
+        return run(outputFilename, true);
+    }
+
+    /**
+     * Метод calcPartials группирует каждый входной файл (шард) независимо и сохраняет
+     * частичные результаты в каталог, не сливая их. Шарды обрабатываются параллельно
+     * в заданном количестве потоков.
+     * @param directory каталог частичных результатов
+     * @return количество записанных частичных результатов
+     */
+    public int calcPartials(Path directory) {
+        try {
+            return ShardedGrouping.writePartials(ShardedGrouping.resolve(inputFilename), directory, options).size();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private int run(String outputFilename, boolean partials) {
+        long start = System.nanoTime();
+        int groupCount = process(outputFilename, partials);
+        if (metrics != null) {
+            metrics.max(Metrics.Gauge.GROUPS, groupCount);
+            try {
+                metrics.writeJson(options.getMetricsFile(), System.nanoTime() - start);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return groupCount;
+    }
+
+    private int process(String outputFilename, boolean partials) {
+        boolean sharded = partials || ShardedGrouping.isSharded(inputFilename);
+        if (sharded && (options.isExternal() || options.getStateDirectory() != null)) {
+            throw new IllegalArgumentException("Внешняя память и режим дописывания не поддерживаются"
+                    + " для нескольких файлов");
+        }
+        if (options.isExternal()) {
+            if (options.getSnapshotFile() != null) {
+                throw new IllegalArgumentException("Снимок группировки не поддерживается во внешней памяти");
+            }
+            try {
+                return ExternalGrouping.process(Path.of(inputFilename), outputFilename, options, metrics);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        if (options.getStateDirectory() != null) {
+            try {
+                return calcIncremental(Path.of(inputFilename), outputFilename);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        UniqueLineChecker uniqueLineChecker = workspace != null
+                ? workspace.getChecker(options.isVerifyDuplicates(), processorLineMax)
+                : new UniqueLineChecker(processorLineMax, options.isVerifyDuplicates() ? lines : null);
+        if (plan != null) {
+            plan.presize(uniqueLineChecker);
+        }
+        ResultWriter resultWriter = newResultWriter(outputFilename);
+
+        try {
+            Path input = Path.of(inputFilename);
+            if (partials) {
+                ShardedGrouping.mergePartials(ShardedGrouping.resolve(inputFilename), options,
+                        uniqueLineChecker, unionFind, lines, metrics);
+            } else if (sharded) {
+                ShardedGrouping.group(ShardedGrouping.resolve(inputFilename), options,
+                        uniqueLineChecker, unionFind, lines, metrics);
+            } else if (options.getParallelism() > 1 && !options.isPipeline() && !LineReaders.isCompressed(input)) {
+                ChunkProcessor.process(input, options, uniqueLineChecker, unionFind, lines, metrics);
+            } else {
+                /* Сжатый файл нельзя разделить на части по смещениям: он разбирается в одном
+                 * потоке или конвейером, а распаковка идет параллельно с разбором */
+                try (LineReader reader = LineReaders.open(input)) {
+                    ingest(reader, options, uniqueLineChecker, unionFind, lines, metrics);
+                }
+            }
+            if (!partials) {
+                /* У слитых частичных результатов нет счетчиков прочитанных строк */
+                recordSizes(metrics, uniqueLineChecker, unionFind, lines, 0, 0);
             }
             resultWriter.writeResults(lines, unionFind);
+            writeSnapshot(lines, unionFind, uniqueLineChecker);
             return resultWriter.getGroupCount();
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -66,16 +257,324 @@ public class LineCalc {
     }
 
     /**
-     * Метод getEstimatedMaxLines оценивает максимальное количество строк
-     * в файле, предназначенном для обработки. Если количество строк меньше 10000,
-     * возвращается 10000.
+     * Метод calcIncremental обрабатывает только хвост файла, дописанный после прошлого
+     * запуска, и сохраняет обновленное состояние. Хвост разбирается в одном потоке до конца
+     * последней завершенной строки: недописанная строка будет обработана следующим запуском.
+     * @param input          входной файл
+     * @param outputFilename имя выходного файла
+     * @return количество групп с более чем одним элементом
+     * @throws IOException если возникнет ошибка чтения или записи
+     */
+    private int calcIncremental(Path input, String outputFilename) throws IOException {
+        if (LineReaders.isCompressed(input)) {
+            throw new IllegalArgumentException("Режим дописывания не поддерживает сжатые файлы: " + input);
+        }
+        GroupingState state = GroupingState.open(options.getStateDirectory(), processorLineMax,
+                options.isVerifyDuplicates());
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long from = state.resumeOffset(channel);
+            long to = lastLineEnd(channel, from);
+            UnionFind stateUnionFind = state.getUnionFind();
+            int linesBefore = stateUnionFind.size();
+            int componentsBefore = stateUnionFind.getComponentCount();
+            if (to > from) {
+                try (LineReader reader = new MappedLineReader(input, from, to)) {
+                    ingest(reader, options, state.getChecker(), stateUnionFind, state.getLines(), metrics);
+                }
+                state.save(channel, to);
+            }
+            recordSizes(metrics, state.getChecker(), stateUnionFind, state.getLines(), linesBefore, componentsBefore);
+        }
+        ResultWriter resultWriter = newResultWriter(outputFilename);
+        resultWriter.writeResults(state.getLines(), state.getUnionFind());
+        writeSnapshot(state.getLines(), state.getUnionFind(), state.getChecker());
+        return resultWriter.getGroupCount();
+    }
+
+    /**
+     * Метод newResultWriter создает объект записи результатов с ограничениями вывода из настроек.
+     */
+    private ResultWriter newResultWriter(String outputFilename) {
+        return new ResultWriter(outputFilename, options.getParallelism())
+                .setMaxGroups(options.getMaxGroups())
+                .setMinGroupSize(options.getMinGroupSize())
+                .setMetrics(metrics);
+    }
+
+    /**
+     * Метод recordSizes добавляет в показатели счетчики принятых строк и объединений
+     * и размеры индексов после разбора. Повторы считаются как прочитанные корректные строки,
+     * не ставшие новыми: так учитываются и повторы между частями при параллельной обработке.
+     * @param metrics          показатели обработки или null
+     * @param linesBefore      количество строк до разбора (в режиме дописывания - загруженных)
+     * @param componentsBefore количество множеств до разбора
+     */
+    static void recordSizes(Metrics metrics, UniqueLineChecker checker, UnionFind unionFind, LineStore lines,
+                            int linesBefore, int componentsBefore) {
+        if (metrics == null) {
+            return;
+        }
+        long uniqueLines = unionFind.size() - linesBefore;
+        metrics.add(Metrics.Counter.UNIQUE_LINES, uniqueLines);
+        metrics.add(Metrics.Counter.DUPLICATE_LINES, metrics.getCount(Metrics.Counter.LINES_READ)
+                - metrics.getCount(Metrics.Counter.INVALID_LINES) - uniqueLines);
+        metrics.add(Metrics.Counter.UNION_CALLS, unionFind.getUnionCount());
+        metrics.add(Metrics.Counter.EFFECTIVE_UNIONS,
+                uniqueLines - (unionFind.getComponentCount() - componentsBefore));
+        long total = 0;
+        for (int column = 0; column < checker.getColumnCount(); column++) {
+            int size = checker.getColumnIndex(column).size();
+            metrics.max(Metrics.Gauge.COLUMN_INDEX_PEAK, size);
+            total += size;
+        }
+        metrics.max(Metrics.Gauge.COLUMN_INDEX_TOTAL, total);
+        metrics.max(Metrics.Gauge.LINE_BYTES, lines.sizeInBytes());
+    }
+
+    /**
+     * Метод writeSnapshot записывает двоичный снимок группировки, если он включен в настройках.
+     */
+    private void writeSnapshot(LineStore lines, UnionFind unionFind, UniqueLineChecker checker) throws IOException {
+        if (options.getSnapshotFile() != null) {
+            long start = System.nanoTime();
+            new SnapshotWriter(options.getSnapshotFile()).write(lines, unionFind, checker);
+            if (metrics != null) {
+                metrics.record(Metrics.Stage.SNAPSHOT, start);
+            }
+        }
+    }
+
+    /**
+     * Метод lastLineEnd ищет с конца файла позицию за последним переводом строки.
+     * Символ '\r' в самом конце файла не считается концом строки: за ним может быть
+     * дописан '\n' той же строки.
+     * @param channel входной файл
+     * @param from    смещение, левее которого перевод строки не ищется
+     * @return позиция за последним переводом строки или from, если его нет
+     * @throws IOException если возникнет ошибка чтения
+     */
+    static long lastLineEnd(FileChannel channel, long from) throws IOException {
+        long size = channel.size();
+        ByteBuffer window = ByteBuffer.allocate(SAMPLE_SIZE);
+        long end = size;
+        while (end > from) {
+            int length = (int) Math.min(window.capacity(), end - from);
+            long start = end - length;
+            window.clear().limit(length);
+            while (window.hasRemaining()) {
+                if (channel.read(window, start + window.position()) < 0) {
+                    throw new EOFException("Файл укорочен во время чтения");
+                }
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                byte b = window.get(i);
+                if (b == '\n' || b == '\r' && start + i + 1 < size) {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return from;
+    }
+
+    /**
+     * Метод ingest разбирает источник в одном потоке или, если это включено в настройках,
+     * конвейером стадий ({@link StagedPipeline}) с тем же результатом.
+     * @param reader  источник строк
+     * @param options настройки обработки: режим конвейера и количество потоков разбора
+     * @param metrics показатели обработки или null, если они не собираются
+     * @throws IOException если возникнет ошибка чтения
+     */
+    static void ingest(LineReader reader, CalcOptions options, UniqueLineChecker uniqueLineChecker,
+                       UnionFind unionFind, LineStore lines, Metrics metrics) throws IOException {
+        if (options.isPipeline()) {
+            StagedPipeline.process(reader, options.getParallelism(), uniqueLineChecker, unionFind, lines, metrics);
+        } else {
+            ingest(reader, uniqueLineChecker, unionFind, lines, metrics);
+        }
+    }
+
+    /**
+     * Метод ingest читает строки из источника, отбрасывает некорректные и повторяющиеся
+     * строки, а остальные добавляет в хранилище и группирует.
+     * Строки проверяются как диапазоны байтов, поэтому объекты String не создаются вовсе:
+     * повторы распознаются по отпечаткам, а принятые строки копируются в хранилище.
+     * @param reader            источник строк
+     * @param uniqueLineChecker объект для проверки уникальности строк и значений
+     * @param unionFind         структура, в которую добавляются строки
+     * @param lines             хранилище, в которое добавляются уникальные строки
+     * @param metrics           показатели обработки или null, если они не собираются
+     * @throws IOException если возникнет ошибка чтения
+     */
+    static void ingest(LineReader reader, UniqueLineChecker uniqueLineChecker, UnionFind unionFind,
+                       LineStore lines, Metrics metrics) throws IOException {
+        if (metrics != null) {
+            ingestMeasured(reader, uniqueLineChecker, unionFind, lines, metrics);
+            return;
+        }
+        LineTokenizer tokenizer = new LineTokenizer();
+
+        while (reader.next()) {
+            ByteBuffer buffer = reader.getBuffer();
+            int start = reader.getStart();
+            int end = reader.getEnd();
+            if (!tokenizer.tokenize(buffer, start, end)) {
+                continue; /* Некорректные строки отбрасываются */
+            }
+            if (uniqueLineChecker.findOrAdd(buffer, start, end, lines.size()) >= 0) {
+                continue; /* Повторяющаяся строка */
+            }
+
+            lines.add(buffer, start, end); /* Байты строки копируются вне кучи */
+            int lineNumber = unionFind.add(); /* Структура растет вместе с количеством строк */
+            uniqueLineChecker.checkUnique(buffer, tokenizer, lineNumber, unionFind);
+        }
+    }
+
+    /**
+     * Метод ingestMeasured выполняет то же, что {@link #ingest}, и собирает показатели:
+     * строки считаются все, а время этапов засекается только у каждой 64-й строки.
+     * У такой строки значения сначала ищутся в индексах столбцов, а затем объединяются,
+     * чтобы разделить время этих этапов. Точно измеренное время всего цикла делится между
+     * этапами пропорционально замерам.
+     */
+    private static void ingestMeasured(LineReader reader, UniqueLineChecker uniqueLineChecker, UnionFind unionFind,
+                                       LineStore lines, Metrics metrics) throws IOException {
+        LineTokenizer tokenizer = new LineTokenizer();
+        int[] matches = new int[16];
+        long[] sampled = new long[Metrics.Stage.values().length];
+        long linesRead = 0;
+        long invalid = 0;
+        long start = System.nanoTime();
+        while (true) {
+            boolean sample = (linesRead & TIMING_SAMPLE_MASK) == 0;
+            long readStart = sample ? System.nanoTime() : 0;
+            if (!reader.next()) {
+                break;
+            }
+            linesRead++;
+            ByteBuffer buffer = reader.getBuffer();
+            int from = reader.getStart();
+            int to = reader.getEnd();
+            long parseStart = sample ? System.nanoTime() : 0;
+            boolean valid = tokenizer.tokenize(buffer, from, to);
+            long dedupeStart = sample ? System.nanoTime() : 0;
+            if (sample) {
+                sampled[Metrics.Stage.READ.ordinal()] += parseStart - readStart;
+                sampled[Metrics.Stage.PARSE.ordinal()] += dedupeStart - parseStart;
+            }
+            if (!valid) {
+                invalid++;
+                continue;
+            }
+            boolean duplicate = uniqueLineChecker.findOrAdd(buffer, from, to, lines.size()) >= 0;
+            if (!duplicate) {
+                lines.add(buffer, from, to);
+            }
+            if (!sample) {
+                if (!duplicate) {
+                    uniqueLineChecker.checkUnique(buffer, tokenizer, unionFind.add(), unionFind);
+                }
+                continue;
+            }
+            long indexStart = System.nanoTime();
+            sampled[Metrics.Stage.DEDUPE.ordinal()] += indexStart - dedupeStart;
+            if (duplicate) {
+                continue;
+            }
+            int lineNumber = unionFind.add();
+            if (matches.length < tokenizer.getColumnCount()) {
+                matches = new int[tokenizer.getColumnCount()];
+            }
+            int matchCount = uniqueLineChecker.indexValues(buffer, tokenizer, lineNumber, matches);
+            long unionStart = System.nanoTime();
+            for (int i = 0; i < matchCount; i++) {
+                unionFind.union(matches[i], lineNumber);
+            }
+            sampled[Metrics.Stage.COLUMN_INDEX.ordinal()] += unionStart - indexStart;
+            sampled[Metrics.Stage.UNION.ordinal()] += System.nanoTime() - unionStart;
+        }
+        long total = System.nanoTime() - start;
+        metrics.add(Metrics.Counter.LINES_READ, linesRead);
+        metrics.add(Metrics.Counter.INVALID_LINES, invalid);
+
+        long sampledTotal = 0;
+        for (long nanos : sampled) {
+            sampledTotal += nanos;
+        }
+        if (sampledTotal == 0) {
+            metrics.addTime(Metrics.Stage.READ, total, false);
+            return;
+        }
+        for (Metrics.Stage stage : Metrics.Stage.values()) {
+            if (sampled[stage.ordinal()] > 0) {
+                metrics.addTime(stage, Math.round((double) total * sampled[stage.ordinal()] / sampledTotal), true);
+            }
+        }
+    }
+
+    /**
+     * Метод plan выбирает план обработки. Если файл недоступен, план не выбирается,
+     * а ошибка будет выброшена при чтении.
+     */
+    private static Plan plan(String filename, CalcOptions options) {
+        try {
+            return Planner.plan(Path.of(filename), options);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Метод estimateLinesBySample дешево оценивает количество строк в файле без его
+     * полного чтения: длина файла делится на среднюю длину строки в начале файла.
+     * Оценка используется только как начальный размер структур, поэтому ошибка
+     * в любую сторону не влияет на результат. Если файл недоступен, возвращается
+     * минимальная оценка, а ошибка будет выброшена при чтении. Для сжатого файла тоже
+     * возвращается минимальная оценка: байты '\n' в сжатых данных не связаны со строками,
+     * а структуры расширяются по мере заполнения (оценку по распакованной выборке дает {@link Planner}).
+     * @param filename имя файла, количество строк в котором необходимо оценить
+     * @return оценка количества строк, не меньше 10000
+     */
+    int estimateLinesBySample(String filename) {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            if (LineReaders.isCompressed(Path.of(filename))) {
+                return MIN_LINES_HINT;
+            }
+            long fileSize = channel.size();
+            ByteBuffer sample = ByteBuffer.allocate((int) Math.min(fileSize, SAMPLE_SIZE));
+            int read = 0;
+            while (sample.hasRemaining() && read >= 0) {
+                read = channel.read(sample); /* Дочитываем выборку целиком */
+            }
+            int newLines = 0;
+            for (int i = 0; i < sample.position(); i++) {
+                if (sample.get(i) == '\n') {
+                    newLines++;
+                }
+            }
+            if (newLines == 0) {
+                return MIN_LINES_HINT;
+            }
+            double averageLineLength = (double) sample.position() / newLines;
+            long estimate = (long) (fileSize / averageLineLength);
+            return (int) Math.max(MIN_LINES_HINT, Math.min(estimate, MAX_LINES_HINT));
+        } catch (IOException e) {
+            return MIN_LINES_HINT;
+        }
+    }
+
+    /**
+     * Метод getEstimatedMaxLines точно подсчитывает количество строк
+     * в файле, предназначенном для обработки, отдельным проходом по файлу.
+     * Если количество строк меньше 10000, возвращается 10000.
      * @param filename имя файла, количество строк в котором необходимо оценить
      * @return оцененное максимальное количество строк
      */
     int getEstimatedMaxLines(String filename) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+        try (LineReader reader = LineReaders.open(Path.of(filename))) {
             int linesCount = 0;
-            while (reader.readLine() != null) {
+            while (reader.next()) {
                 linesCount++;
             }
 
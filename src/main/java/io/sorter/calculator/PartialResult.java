@@ -0,0 +1,131 @@
+package io.sorter.calculator;
+
+import io.sorter.metrics.Metrics;
+import io.sorter.reader.LineReader;
+import io.sorter.store.BinaryReader;
+import io.sorter.store.BinaryWriter;
+import io.sorter.store.LineStore;
+import io.sorter.validators.UnionFind;
+import io.sorter.validators.UniqueLineChecker;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Класс PartialResult - группировка части входных данных (части файла или отдельного файла)
+ * в локальной нумерации строк: принятые строки, индексы столбцов "значение - первая строка"
+ * и система множеств. Частичные результаты сливаются по порядку в общий результат,
+ * который совпадает с обработкой всех данных подряд.
+ * <p>
+ * Частичный результат можно сохранить в файл и слить позже, в том числе на другой машине.
+ * Формат файла: сигнатура "GSPR", версия, количество строк, концы и байты строк
+ * ({@link LineStore}), система множеств ({@link UnionFind}) и отпечатки строк с индексами
+ * столбцов ({@link UniqueLineChecker}).
+ */
+final class PartialResult {
+    private static final int MAGIC = 0x47535052; /* "GSPR" */
+    private static final int VERSION = 3; /* 3: словари столбцов с ключами ValueKeys */
+
+    private final LineStore lines;
+    private final UniqueLineChecker checker;
+    private final UnionFind unionFind;
+    private long[] fingerprints; /* Отпечатки строк по порядку номеров, вычисляются до слияния */
+
+    private PartialResult(LineStore lines, UniqueLineChecker checker, UnionFind unionFind) {
+        this.lines = lines;
+        this.checker = checker;
+        this.unionFind = unionFind;
+    }
+
+    /**
+     * Метод read группирует строки источника в новый частичный результат.
+     *
+     * @param reader           источник строк; закрывает его вызывающий
+     * @param lines            пустое хранилище строк части
+     * @param verifyDuplicates true для побайтной проверки строк с совпавшими отпечатками
+     * @param metrics          показатели обработки или null
+     * @return частичный результат
+     * @throws IOException если возникнет ошибка чтения
+     */
+    static PartialResult read(LineReader reader, LineStore lines, boolean verifyDuplicates, Metrics metrics)
+            throws IOException {
+        PartialResult partial = new PartialResult(lines,
+                new UniqueLineChecker(16, verifyDuplicates ? lines : null), new UnionFind(0));
+        LineCalc.ingest(reader, partial.checker, partial.unionFind, partial.lines, metrics);
+        if (metrics != null) {
+            /* Объединения слияния учитываются в общей структуре, а здесь - объединения части */
+            metrics.add(Metrics.Counter.UNION_CALLS, partial.unionFind.getUnionCount());
+        }
+        /* Отпечатки считаются в потоке части: при слиянии строки повторно не хешируются */
+        partial.fingerprints = partial.checker.fingerprintsByLine();
+        return partial;
+    }
+
+    /**
+     * Метод load загружает частичный результат, сохраненный методом {@link #save(Path)}.
+     *
+     * @param path файл частичного результата
+     * @return частичный результат
+     * @throws IOException если файл не является частичным результатом или его не удается прочитать
+     */
+    static PartialResult load(Path path) throws IOException {
+        try (BinaryReader in = new BinaryReader(path)) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Файл не является частичным результатом группировки: " + path);
+            }
+            int lineCount = in.readInt();
+            LineStore lines = LineStore.readFrom(in, in, lineCount); /* Концы строк записаны перед байтами */
+            UnionFind unionFind = UnionFind.readFrom(in, lineCount);
+            PartialResult partial = new PartialResult(lines, UniqueLineChecker.readFrom(in, null), unionFind);
+            partial.fingerprints = partial.checker.fingerprintsByLine();
+            return partial;
+        }
+    }
+
+    /**
+     * Метод save записывает частичный результат в файл.
+     *
+     * @param path файл частичного результата; существующий файл перезаписывается
+     * @throws IOException если возникнет ошибка записи
+     */
+    void save(Path path) throws IOException {
+        try (BinaryWriter out = new BinaryWriter(path)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(lines.size());
+            lines.writeEndsTo(out, 0);
+            lines.writeBytesTo(out, 0);
+            unionFind.writeTo(out);
+            checker.writeTo(out);
+        }
+    }
+
+    /**
+     * Метод mergeInto переводит строки части в общую нумерацию и сливает группы.
+     *
+     * @param globalChecker   общий объект проверки уникальности строк и значений
+     * @param globalUnionFind общая система множеств
+     * @param globalLines     общее хранилище строк
+     */
+    void mergeInto(UniqueLineChecker globalChecker, UnionFind globalUnionFind, LineStore globalLines) {
+        int[] toGlobal = new int[lines.size()];
+        for (int i = 0; i < toGlobal.length; i++) {
+            int existing = globalChecker.findOrAdd(fingerprints[i * 2], fingerprints[i * 2 + 1],
+                    lines, i, globalLines.size());
+            if (existing >= 0) {
+                /* Строка уже встречалась: у нее те же значения, поэтому связи переносятся на оригинал */
+                toGlobal[i] = existing;
+            } else {
+                toGlobal[i] = globalUnionFind.add();
+                globalLines.add(lines, i);
+            }
+        }
+        globalChecker.merge(checker, toGlobal, globalUnionFind);
+        for (int i = 0; i < toGlobal.length; i++) {
+            int root = unionFind.get(i);
+            if (root != i) {
+                globalUnionFind.union(toGlobal[root], toGlobal[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package io.sorter.calculator;
+
+import io.sorter.store.LineStore;
+import io.sorter.validators.UniqueLineChecker;
+
+import java.util.Arrays;
+
+/**
+ * Класс Plan - план обработки, выбранный планировщиком ({@link CalcOptions#setAdaptive(boolean)}):
+ * оценки формы входных данных по выборке из начала файла, доступная память и выбранный режим.
+ * Размеры структур плана рассчитаны с запасом, чтобы таблицы не перестраивались при заполнении.
+ */
+public final class Plan {
+    private static final double SIZE_MARGIN = 1.1; /* Запас к оценкам при выделении структур */
+    private static final int MAX_PRESIZED = 1 << 28; /* Больше заранее не выделяем: структуры дорастут сами */
+
+    /**
+     * Способ хранения данных.
+     */
+    public enum Strategy {
+        /** Строки хранятся в куче: памяти вне кучи для них недостаточно. */
+        HEAP("строки в куче"),
+        /** Строки хранятся вне кучи, а в куче остаются только массивы и таблицы. */
+        OFF_HEAP("строки вне кучи"),
+        /** Строки и значения сортируются через временные файлы. */
+        EXTERNAL("группировка во внешней памяти");
+
+        private final String description;
+
+        Strategy(String description) {
+            this.description = description;
+        }
+
+        /**
+         * Метод getDescription возвращает описание способа для журнала.
+         *
+         * @return описание способа хранения
+         */
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final Strategy strategy;
+    private final long estimatedLines;
+    private final long estimatedUniqueLines;
+    private final double averageLineLength;
+    private final double duplicateRate;
+    private final double invalidRate;
+    private final long[] columnCardinalities;
+    private final boolean exact; /* Выборка охватила весь файл */
+    private final long heapAvailable;
+    private final long directAvailable;
+    private final long heapRequired;
+    private final long lineBytes;
+    private final long memoryBudget; /* Объем буферов сортировки для внешней памяти */
+    private final String note; /* Пояснение выбора или null */
+
+    Plan(Strategy strategy, long estimatedLines, long estimatedUniqueLines, double averageLineLength,
+         double duplicateRate, double invalidRate, long[] columnCardinalities, boolean exact,
+         long heapAvailable, long directAvailable, long heapRequired, long lineBytes, long memoryBudget,
+         String note) {
+        this.strategy = strategy;
+        this.estimatedLines = estimatedLines;
+        this.estimatedUniqueLines = estimatedUniqueLines;
+        this.averageLineLength = averageLineLength;
+        this.duplicateRate = duplicateRate;
+        this.invalidRate = invalidRate;
+        this.columnCardinalities = columnCardinalities;
+        this.exact = exact;
+        this.heapAvailable = heapAvailable;
+        this.directAvailable = directAvailable;
+        this.heapRequired = heapRequired;
+        this.lineBytes = lineBytes;
+        this.memoryBudget = memoryBudget;
+        this.note = note;
+    }
+
+    /**
+     * Метод getStrategy возвращает выбранный способ хранения данных.
+     *
+     * @return способ хранения
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Метод getEstimatedLines возвращает оценку количества строк во входном файле.
+     *
+     * @return количество строк
+     */
+    public long getEstimatedLines() {
+        return estimatedLines;
+    }
+
+    /**
+     * Метод getEstimatedUniqueLines возвращает оценку количества корректных уникальных строк.
+     *
+     * @return количество уникальных строк
+     */
+    public long getEstimatedUniqueLines() {
+        return estimatedUniqueLines;
+    }
+
+    /**
+     * Метод getColumnCardinalities возвращает оценки количества различных значений по столбцам.
+     *
+     * @return копия массива оценок
+     */
+    public long[] getColumnCardinalities() {
+        return columnCardinalities.clone();
+    }
+
+    /**
+     * Метод getDuplicateRate возвращает долю повторяющихся строк в выборке.
+     *
+     * @return доля от 0 до 1
+     */
+    public double getDuplicateRate() {
+        return duplicateRate;
+    }
+
+    /**
+     * Метод getMemoryBudget возвращает объем буферов сортировки для группировки во внешней памяти.
+     *
+     * @return объем в байтах; для других способов не используется
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Метод apply возвращает настройки обработки с выбранным режимом, не изменяя исходные.
+     */
+    CalcOptions apply(CalcOptions options) {
+        CalcOptions planned = options.copy();
+        if (strategy == Strategy.EXTERNAL) {
+            planned.setExternal(true).setMemoryBudget(memoryBudget);
+        }
+        return planned;
+    }
+
+    /**
+     * Метод getExpectedLines возвращает количество строк, под которое заранее выделяются структуры.
+     * Во внешней памяти структуры по строкам в куче не нужны, и возвращается 0.
+     */
+    int getExpectedLines() {
+        return strategy == Strategy.EXTERNAL ? 0 : presized(estimatedUniqueLines);
+    }
+
+    /**
+     * Метод newLineStore создает хранилище строк выбранного способа с массивом концов строк
+     * ожидаемого размера.
+     */
+    LineStore newLineStore() {
+        LineStore lines = strategy == Strategy.HEAP
+                ? new LineStore(LineStore.DEFAULT_BLOCK_SIZE, false)
+                : new LineStore();
+        lines.ensureCapacity(getExpectedLines());
+        return lines;
+    }
+
+    /**
+     * Метод presize заранее расширяет индексы столбцов под оценки количества значений.
+     */
+    void presize(UniqueLineChecker checker) {
+        for (int column = 0; column < columnCardinalities.length; column++) {
+            if (columnCardinalities[column] > 0) {
+                checker.ensureColumnCapacity(column, presized(columnCardinalities[column]));
+            }
+        }
+    }
+
+    private static int presized(long estimate) {
+        return (int) Math.min(Math.round(estimate * SIZE_MARGIN), MAX_PRESIZED);
+    }
+
+    /**
+     * Метод toString описывает план для журнала.
+     *
+     * @return описание плана в несколько строк
+     */
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder()
+                .append("План обработки: ").append(strategy.getDescription()).append('\n')
+                .append("  строк: ").append(exact ? "" : "~").append(estimatedLines)
+                .append(", уникальных: ").append(exact ? "" : "~").append(estimatedUniqueLines)
+                .append(String.format(", средняя длина %.1f байт, повторов %.1f%%, некорректных %.1f%%",
+                        averageLineLength, duplicateRate * 100, invalidRate * 100)).append('\n')
+                .append("  различных значений по столбцам: ").append(Arrays.toString(columnCardinalities))
+                .append('\n')
+                .append("  память: нужно в куче ").append(megabytes(heapRequired))
+                .append(", строкам ").append(megabytes(lineBytes))
+                .append("; доступно в куче ").append(megabytes(heapAvailable))
+                .append(", вне кучи ").append(megabytes(directAvailable));
+        if (strategy == Strategy.EXTERNAL) {
+            description.append("; буферы сортировки ").append(megabytes(memoryBudget));
+        }
+        if (note != null) {
+            description.append('\n').append("  ").append(note);
+        }
+        return description.toString();
+    }
+
+    private static String megabytes(long bytes) {
+        return (bytes >> 20) + " МБ";
+    }
+}
@@ -0,0 +1,309 @@
+package io.sorter.calculator;
+
+import io.sorter.parser.LineTokenizer;
+import io.sorter.reader.LineReader;
+import io.sorter.reader.LineReaders;
+import io.sorter.validators.Fingerprints;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Класс Planner выбирает план обработки ({@link Plan}) до чтения файла.
+ * <p>
+ * Из начала файла читается выборка строк: по ней оцениваются средняя длина строки и количество
+ * строк, доли некорректных и повторяющихся строк, количество столбцов и рост количества
+ * различных значений в каждом столбце. Количество значений экстраполируется по скорости
+ * появления новых значений во второй половине выборки: у столбцов с насыщенным словарем
+ * оценка почти не растет, а у столбцов с уникальными значениями растет вместе со строками.
+ * <p>
+ * По оценкам рассчитывается память структур и сравнивается с доступной памятью кучи
+ * и вне кучи: если все помещается, строки хранятся вне кучи; если вне кучи места для строк
+ * нет, а в куче есть - в куче; иначе выбирается группировка во внешней памяти с буферами
+ * сортировки по остатку кучи.
+ */
+final class Planner {
+    private static final int SAMPLE_LINES = 1 << 17; /* Наибольшая выборка строк */
+    private static final long SAMPLE_BYTES = 16L << 20; /* Наибольший объем выборки */
+    /* Память в куче на уникальную строку: система множеств (8), концы строк (8), таблица
+     * отпечатков строк с запасом заполнения (около 40) и раскладка групп при записи (около 12) */
+    private static final int HEAP_BYTES_PER_LINE = 72;
+    private static final int VALUE_SLOT_BYTES = 32; /* Ячейки индекса столбца с запасом заполнения */
+    private static final int EXTERNAL_BYTES_PER_LINE = 12; /* Массивы по номерам строк во внешней памяти */
+    private static final double MEMORY_USAGE = 0.8; /* Доля доступной памяти, которую занимает план */
+    private static final long MIN_MEMORY_BUDGET = 16L << 20;
+
+    private Planner() {
+    }
+
+    /**
+     * Метод plan читает выборку из начала файла и выбирает план обработки.
+     *
+     * @param input   входной файл
+     * @param options настройки обработки: режим внешней памяти, заданный явно, выбирается всегда,
+     *                а со снимком и режимом дописывания внешняя память не выбирается
+     * @return план обработки
+     * @throws IOException если файл не удается прочитать
+     */
+    static Plan plan(Path input, CalcOptions options) throws IOException {
+        Sample sample = Sample.read(input);
+        long fileSize = Files.size(input);
+
+        long lines;
+        long uniqueLines;
+        double invalidRate = sample.lines == 0 ? 0 : (double) sample.invalid / sample.lines;
+        double duplicateRate = sample.lines == 0 ? 0 : (double) sample.duplicates / sample.lines;
+        if (sample.complete) {
+            lines = sample.lines;
+            uniqueLines = sample.lines - sample.invalid - sample.duplicates;
+        } else {
+            long uncompressedSize = sample.compressed ? Math.round(fileSize * sample.compressionRatio()) : fileSize;
+            lines = Math.max(sample.lines, Math.round(uncompressedSize / ((double) sample.bytes / sample.lines)));
+            uniqueLines = Math.round(lines * (1 - invalidRate - duplicateRate));
+        }
+        long[] cardinalities = new long[sample.columns.size()];
+        long heapRequired = uniqueLines * HEAP_BYTES_PER_LINE;
+        double valueLength = sample.values == 0 ? 0 : (double) sample.valueBytes / sample.values;
+        for (int column = 0; column < cardinalities.length; column++) {
+            cardinalities[column] = sample.cardinality(column, lines, uniqueLines);
+            heapRequired += Math.round(cardinalities[column] * (VALUE_SLOT_BYTES + valueLength + 1));
+        }
+        double averageLineLength = sample.lines == 0 ? 0 : (double) sample.bytes / sample.lines - 1;
+        long lineBytes = Math.round(uniqueLines * averageLineLength);
+
+        Runtime runtime = Runtime.getRuntime();
+        long heapAvailable = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        long directAvailable = maxDirectMemory() - usedDirectMemory();
+        long heapLimit = (long) (heapAvailable * MEMORY_USAGE);
+        long directLimit = (long) (directAvailable * MEMORY_USAGE);
+        boolean externalAllowed = options.getSnapshotFile() == null && options.getStateDirectory() == null;
+
+        Plan.Strategy strategy;
+        String note = null;
+        if (options.isExternal()) {
+            strategy = Plan.Strategy.EXTERNAL;
+            note = "Группировка во внешней памяти задана в настройках";
+        } else if (heapRequired <= heapLimit && lineBytes <= directLimit) {
+            strategy = Plan.Strategy.OFF_HEAP;
+        } else if (heapRequired + lineBytes <= heapLimit) {
+            strategy = Plan.Strategy.HEAP;
+            note = "Вне кучи недостаточно памяти для строк";
+        } else if (externalAllowed) {
+            strategy = Plan.Strategy.EXTERNAL;
+            note = "Структуры не помещаются в память";
+        } else {
+            strategy = Plan.Strategy.OFF_HEAP;
+            note = "Данные могут не поместиться в память, но внешняя память несовместима"
+                    + " со снимком и режимом дописывания";
+        }
+        long memoryBudget = options.getMemoryBudget();
+        if (strategy == Plan.Strategy.EXTERNAL && !options.isExternal()) {
+            memoryBudget = Math.max(MIN_MEMORY_BUDGET,
+                    Math.min(heapLimit / 4, heapLimit - uniqueLines * EXTERNAL_BYTES_PER_LINE));
+        }
+        if (sample.compressed && !sample.complete) {
+            String estimate = String.format("Размер сжатого файла пересчитан по степени сжатия выборки %.1f",
+                    sample.compressionRatio());
+            note = note == null ? estimate : note + "; " + estimate;
+        }
+        return new Plan(strategy, lines, uniqueLines, averageLineLength, duplicateRate, invalidRate, cardinalities,
+                sample.complete, heapAvailable, directAvailable, heapRequired, lineBytes, memoryBudget, note);
+    }
+
+    /**
+     * Метод maxDirectMemory возвращает предел памяти вне кучи: значение -XX:MaxDirectMemorySize
+     * или, если оно не задано, наибольший размер кучи, как принято в JVM.
+     */
+    private static long maxDirectMemory() {
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-XX:MaxDirectMemorySize=")) {
+                String value = argument.substring(argument.indexOf('=') + 1).trim().toLowerCase();
+                int shift = 0;
+                switch (value.isEmpty() ? ' ' : value.charAt(value.length() - 1)) {
+                    case 'k':
+                        shift = 10;
+                        break;
+                    case 'm':
+                        shift = 20;
+                        break;
+                    case 'g':
+                        shift = 30;
+                        break;
+                    case 't':
+                        shift = 40;
+                        break;
+                    default:
+                        break;
+                }
+                try {
+                    return Long.parseLong(shift == 0 ? value : value.substring(0, value.length() - 1)) << shift;
+                } catch (NumberFormatException e) {
+                    break;
+                }
+            }
+        }
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    private static long usedDirectMemory() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Класс Sample - статистика выборки из начала файла. Повторы строк и различные значения
+     * столбцов распознаются по 64-битным отпечаткам.
+     */
+    private static final class Sample {
+        private long lines;
+        private long bytes; /* Вместе с переводами строк */
+        private long invalid;
+        private long duplicates;
+        private long values;
+        private long valueBytes;
+        private boolean complete; /* Выборка охватила весь файл */
+        private boolean compressed;
+        /* Для сжатого файла: байт прочитано из файла и получено после распаковки. Источник строк
+         * читает с опережением, поэтому степень сжатия считается по обоим счетчикам, а не по выборке */
+        private CountingInputStream file;
+        private CountingInputStream unpacked;
+        private final List<Set<Long>> columns = new ArrayList<>();
+        /* Количество значений по столбцам в двух последних контрольных точках (степени двойки строк) */
+        private long checkpointLines;
+        private long[] checkpoint = new long[0];
+        private long previousCheckpointLines;
+        private long[] previousCheckpoint = new long[0];
+
+        static Sample read(Path input) throws IOException {
+            Sample sample = new Sample();
+            LineTokenizer tokenizer = new LineTokenizer();
+            Set<Long> lineFingerprints = new HashSet<>();
+            sample.compressed = LineReaders.isCompressed(input);
+            sample.file = new CountingInputStream(Files.newInputStream(input));
+            sample.unpacked = sample.compressed
+                    ? new CountingInputStream(new GZIPInputStream(sample.file, 1 << 16))
+                    : sample.file;
+            try (LineReader reader = LineReaders.open(sample.unpacked, 1)) {
+                while (sample.lines < SAMPLE_LINES && sample.bytes < SAMPLE_BYTES) {
+                    if (!reader.next()) {
+                        sample.complete = true;
+                        break;
+                    }
+                    ByteBuffer buffer = reader.getBuffer();
+                    int from = reader.getStart();
+                    int to = reader.getEnd();
+                    sample.lines++;
+                    sample.bytes += to - from + 1;
+                    if (!tokenizer.tokenize(buffer, from, to)) {
+                        sample.invalid++;
+                    } else if (!lineFingerprints.add(Fingerprints.hash64(buffer, from, to))) {
+                        sample.duplicates++;
+                    } else {
+                        sample.addValues(buffer, tokenizer);
+                    }
+                    if (Long.bitCount(sample.lines) == 1) {
+                        sample.checkpoint();
+                    }
+                }
+            }
+            return sample;
+        }
+
+        double compressionRatio() {
+            return (double) unpacked.count / Math.max(file.count, 1);
+        }
+
+        private void addValues(ByteBuffer buffer, LineTokenizer tokenizer) {
+            for (int column = 0; column < tokenizer.getColumnCount(); column++) {
+                if (tokenizer.isEmpty(column)) {
+                    continue;
+                }
+                while (columns.size() <= column) {
+                    columns.add(new HashSet<>());
+                }
+                int start = tokenizer.getStart(column);
+                int end = tokenizer.getEnd(column);
+                columns.get(column).add(Fingerprints.hash64(buffer, start, end));
+                values++;
+                valueBytes += end - start;
+            }
+        }
+
+        private void checkpoint() {
+            previousCheckpointLines = checkpointLines;
+            previousCheckpoint = checkpoint;
+            checkpointLines = lines;
+            checkpoint = new long[columns.size()];
+            for (int column = 0; column < checkpoint.length; column++) {
+                checkpoint[column] = columns.get(column).size();
+            }
+        }
+
+        /**
+         * Метод cardinality оценивает количество различных значений столбца во всем файле
+         * по скорости появления новых значений после последней контрольной точки выборки.
+         */
+        long cardinality(int column, long totalLines, long uniqueLines) {
+            long distinct = columns.get(column).size();
+            if (complete) {
+                return distinct;
+            }
+            long fromLines = checkpointLines < lines ? checkpointLines : previousCheckpointLines;
+            long[] from = checkpointLines < lines ? checkpoint : previousCheckpoint;
+            long fromDistinct = column < from.length ? from[column] : 0;
+            double rate = (double) (distinct - fromDistinct) / Math.max(lines - fromLines, 1);
+            return Math.min(uniqueLines, distinct + Math.round(rate * (totalLines - lines)));
+        }
+    }
+
+    /**
+     * Класс CountingInputStream считает байты, прочитанные из файла.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
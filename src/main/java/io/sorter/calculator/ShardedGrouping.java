@@ -0,0 +1,241 @@
+package io.sorter.calculator;
+
+import io.sorter.metrics.Metrics;
+import io.sorter.reader.LineReader;
+import io.sorter.reader.LineReaders;
+import io.sorter.store.LineStore;
+import io.sorter.validators.UnionFind;
+import io.sorter.validators.UniqueLineChecker;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Класс ShardedGrouping группирует данные, разделенные на несколько файлов (шардов).
+ * Каждый шард группируется независимо в собственной нумерации строк ({@link PartialResult}),
+ * шарды обрабатываются параллельно, а затем частичные результаты по порядку имен шардов
+ * сливаются в общий. Результат совпадает с обработкой шардов, склеенных в один файл в том же порядке.
+ * <p>
+ * Частичные результаты можно сохранить в файлы и слить позже: шарды одного набора
+ * можно обработать на разных машинах, а затем слить их частичные результаты в одном месте.
+ */
+final class ShardedGrouping {
+    /** Расширение файлов частичных результатов. */
+    static final String PARTIAL_SUFFIX = ".partial";
+    private static final String GLOB_CHARS = "*?[{";
+
+    private ShardedGrouping() {
+    }
+
+    /**
+     * Метод isSharded проверяет, задает ли входной путь несколько файлов: каталог или шаблон.
+     *
+     * @param input входной путь из командной строки
+     * @return true для каталога или шаблона с символами {@code * ? [ {}
+     */
+    static boolean isSharded(String input) {
+        return isGlob(input) || Files.isDirectory(Path.of(input));
+    }
+
+    /**
+     * Метод resolve находит файлы, заданные входным путем: отдельный файл, все файлы каталога
+     * (без вложенных каталогов и скрытых файлов) или файлы по шаблону glob, например
+     * {@code data/2024-*.txt.gz} или {@code data/**.gz}.
+     *
+     * @param input входной путь
+     * @return файлы, упорядоченные по пути
+     * @throws IOException              если каталог не удается прочитать
+     * @throws IllegalArgumentException если путь не задает ни одного файла
+     */
+    static List<Path> resolve(String input) throws IOException {
+        List<Path> files;
+        if (isGlob(input)) {
+            /* Поиск начинается с самой длинной части пути без символов шаблона; пути
+             * относительно текущего каталога сравниваются с шаблоном без префикса "./" */
+            int separator = input.lastIndexOf('/', firstGlobChar(input));
+            Path base = Path.of(separator < 0 ? "." : separator == 0 ? "/" : input.substring(0, separator));
+            Path current = Path.of(".");
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+            try (Stream<Path> walk = Files.walk(base)) {
+                files = walk.filter(Files::isRegularFile)
+                        .filter(path -> matcher.matches(separator < 0 ? current.relativize(path) : path))
+                        .sorted().collect(Collectors.toList());
+            }
+        } else if (Files.isDirectory(Path.of(input))) {
+            try (Stream<Path> list = Files.list(Path.of(input))) {
+                files = list.filter(Files::isRegularFile)
+                        .filter(path -> !path.getFileName().toString().startsWith("."))
+                        .sorted().collect(Collectors.toList());
+            }
+        } else {
+            files = List.of(Path.of(input));
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("Не найдено ни одного файла: " + input);
+        }
+        return files;
+    }
+
+    /**
+     * Метод group параллельно группирует шарды и сливает их в общие структуры. Одновременно
+     * в работе не больше двух шардов на поток, чтобы ограничить память.
+     *
+     * @param shards            файлы шардов по порядку; сжатые gzip файлы распаковываются потоково
+     * @param options           настройки обработки: количество потоков и режим проверки повторов
+     * @param uniqueLineChecker общий объект для проверки уникальности строк и значений
+     * @param unionFind         общая структура групп
+     * @param lines             общее хранилище уникальных строк
+     * @param metrics           показатели обработки или null
+     * @throws IOException если возникнет ошибка чтения
+     */
+    static void group(List<Path> shards, CalcOptions options, UniqueLineChecker uniqueLineChecker,
+                      UnionFind unionFind, LineStore lines, Metrics metrics) throws IOException {
+        List<Callable<PartialResult>> tasks = new ArrayList<>();
+        for (Path shard : shards) {
+            tasks.add(() -> readShard(shard, options.isVerifyDuplicates(), metrics));
+        }
+        mergeAll(tasks, options.getParallelism(), uniqueLineChecker, unionFind, lines, metrics);
+    }
+
+    /**
+     * Метод writePartials параллельно группирует шарды и сохраняет частичный результат каждого
+     * шарда в файл с именем шарда и расширением {@value #PARTIAL_SUFFIX}.
+     *
+     * @param shards    файлы шардов
+     * @param directory каталог частичных результатов; создается при необходимости
+     * @param options   настройки обработки: количество потоков и режим проверки повторов
+     * @return записанные файлы частичных результатов
+     * @throws IOException              если возникнет ошибка чтения или записи
+     * @throws IllegalArgumentException если имена шардов повторяются
+     */
+    static List<Path> writePartials(List<Path> shards, Path directory, CalcOptions options) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> partials = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (Path shard : shards) {
+            String name = shard.getFileName() + PARTIAL_SUFFIX;
+            if (!names.add(name)) {
+                throw new IllegalArgumentException("Шарды с одинаковым именем: " + shard.getFileName());
+            }
+            partials.add(directory.resolve(name));
+        }
+        ForkJoinPool pool = new ForkJoinPool(options.getParallelism());
+        try {
+            List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < shards.size(); i++) {
+                Path shard = shards.get(i);
+                Path partial = partials.get(i);
+                tasks.add(pool.submit(() -> {
+                    readShard(shard, options.isVerifyDuplicates(), null).save(partial);
+                    return null;
+                }));
+            }
+            for (ForkJoinTask<Void> task : tasks) {
+                task.join();
+            }
+        } catch (RuntimeException e) {
+            throw ioCause(e);
+        } finally {
+            pool.shutdownNow();
+        }
+        return partials;
+    }
+
+    /**
+     * Метод mergePartials загружает сохраненные частичные результаты и сливает их по порядку.
+     * Файлы загружаются параллельно, а сливаются по одному.
+     *
+     * @param partials          файлы частичных результатов по порядку
+     * @param options           настройки: количество потоков загрузки
+     * @param uniqueLineChecker общий объект для проверки уникальности строк и значений
+     * @param unionFind         общая структура групп
+     * @param lines             общее хранилище уникальных строк
+     * @param metrics           показатели обработки или null
+     * @throws IOException если файл не является частичным результатом или его не удается прочитать
+     */
+    static void mergePartials(List<Path> partials, CalcOptions options, UniqueLineChecker uniqueLineChecker,
+                              UnionFind unionFind, LineStore lines, Metrics metrics) throws IOException {
+        List<Callable<PartialResult>> tasks = new ArrayList<>();
+        for (Path partial : partials) {
+            tasks.add(() -> PartialResult.load(partial));
+        }
+        mergeAll(tasks, options.getParallelism(), uniqueLineChecker, unionFind, lines, metrics);
+    }
+
+    /**
+     * Метод mergeAll выполняет задачи на пуле потоков и сливает их результаты в порядке задач.
+     */
+    private static void mergeAll(List<Callable<PartialResult>> tasks, int parallelism,
+                                 UniqueLineChecker uniqueLineChecker, UnionFind unionFind, LineStore lines,
+                                 Metrics metrics) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Deque<ForkJoinTask<PartialResult>> inFlight = new ArrayDeque<>();
+            int submitted = 0;
+            for (int merged = 0; merged < tasks.size(); merged++) {
+                while (submitted < tasks.size() && inFlight.size() < parallelism * 2) {
+                    inFlight.add(pool.submit(tasks.get(submitted++)));
+                }
+                PartialResult partial = inFlight.poll().join();
+                long start = System.nanoTime();
+                partial.mergeInto(uniqueLineChecker, unionFind, lines);
+                if (metrics != null) {
+                    metrics.record(Metrics.Stage.MERGE, start);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw ioCause(e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static PartialResult readShard(Path shard, boolean verifyDuplicates, Metrics metrics)
+            throws IOException {
+        try (LineReader reader = LineReaders.open(shard)) {
+            return PartialResult.read(reader, new LineStore(), verifyDuplicates, metrics);
+        }
+    }
+
+    /**
+     * Метод ioCause находит ошибку ввода-вывода задачи: join() возвращает проверяемое
+     * исключение задачи обернутым, иногда в несколько слоев.
+     *
+     * @return ошибка ввода-вывода из цепочки причин
+     * @throws RuntimeException исходное исключение, если в цепочке нет ошибки ввода-вывода
+     */
+    private static IOException ioCause(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return (IOException) cause;
+            }
+        }
+        throw e;
+    }
+
+    private static boolean isGlob(String input) {
+        return firstGlobChar(input) < input.length();
+    }
+
+    private static int firstGlobChar(String input) {
+        int index = 0;
+        while (index < input.length() && GLOB_CHARS.indexOf(input.charAt(index)) < 0) {
+            index++;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,519 @@
+package io.sorter.calculator;
+
+import io.sorter.metrics.Metrics;
+import io.sorter.parser.LineTokenizer;
+import io.sorter.reader.LineReader;
+import io.sorter.store.LineStore;
+import io.sorter.validators.ColumnIndex;
+import io.sorter.validators.ConcurrentUnionFind;
+import io.sorter.validators.Fingerprints;
+import io.sorter.validators.UnionFind;
+import io.sorter.validators.UniqueLineChecker;
+import io.sorter.validators.ValueKeys;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Класс StagedPipeline разбирает строки конвейером стадий, работающих одновременно:
+ * <ol>
+ *     <li>чтение копирует строки источника в пакеты;</li>
+ *     <li>несколько потоков разбора проверяют формат строк, находят границы значений
+ *     и вычисляют отпечатки строк и ключи значений;</li>
+ *     <li>поиск повторов по порядку пакетов отбрасывает повторы и нумерует новые строки;</li>
+ *     <li>несколько потоков индексов столбцов добавляют значения в индексы и сразу объединяют
+ *     строки с совпавшими значениями в общей {@link ConcurrentUnionFind} без блокировок.
+ *     Столбцы разделены между потоками по остатку от деления номера столбца, поэтому каждый
+ *     индекс столбца заполняет один поток, и пакеты он получает по порядку: первая строка
+ *     каждого значения та же, что и при последовательной обработке.</li>
+ * </ol>
+ * После завершения стадий разбиение переносится в {@link UnionFind}.
+ * Стадии связаны ограниченными очередями, а пакеты берутся из пула фиксированного размера:
+ * чтение останавливается, пока более медленные стадии не вернут пакет, поэтому память
+ * конвейера не зависит от размера входных данных. Номера строк и разбиение на группы
+ * совпадают с последовательной обработкой.
+ * <p>
+ * Стадии выполняются в виртуальных потоках, если они доступны (JDK 21 и выше),
+ * и в обычных потоках-демонах на JDK 17.
+ */
+final class StagedPipeline {
+    private static final int BATCH_LINES = 4096; /* Строк в пакете */
+    private static final int BATCH_BYTES = 1 << 20; /* Начальный размер байтов пакета */
+    private static final Batch END = new Batch(0, 0); /* Признак конца пакетов */
+    private static final ThreadFactory THREADS = stageThreads();
+
+    private final LineReader reader;
+    private final UniqueLineChecker checker;
+    private final UnionFind unionFind;
+    private final LineStore lines;
+    private final Metrics metrics;
+    private final int parsers;
+    private final int poolSize;
+    private final BlockingQueue<Batch> free; /* Пул пакетов: его размер ограничивает память конвейера */
+    private final BlockingQueue<Batch> parseQueue;
+    private final BlockingQueue<Batch> dedupeQueue;
+    private final List<BlockingQueue<Batch>> indexQueues = new ArrayList<>(); /* Очередь каждого потока индексов */
+    private final ConcurrentUnionFind groups; /* Общая система множеств потоков индексов */
+    private final AtomicLong unionCalls = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private Thread[] threads;
+
+    private StagedPipeline(LineReader reader, int parsers, int indexers, UniqueLineChecker checker,
+                           UnionFind unionFind, LineStore lines, Metrics metrics) {
+        this.reader = reader;
+        this.checker = checker;
+        this.unionFind = unionFind;
+        this.lines = lines;
+        this.metrics = metrics;
+        this.parsers = parsers;
+        this.poolSize = parsers * 2 + 2;
+        this.free = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            free.add(new Batch(BATCH_LINES, BATCH_BYTES));
+        }
+        this.parseQueue = new ArrayBlockingQueue<>(poolSize + parsers);
+        this.dedupeQueue = new ArrayBlockingQueue<>(poolSize + parsers);
+        for (int i = 0; i < indexers; i++) {
+            indexQueues.add(new ArrayBlockingQueue<>(poolSize + 1));
+        }
+        /* Строки, добавленные до разбора (в режиме дописывания), уже сгруппированы */
+        this.groups = new ConcurrentUnionFind(unionFind.size());
+        for (int i = 0; i < unionFind.size(); i++) {
+            int root = unionFind.get(i);
+            if (root != i) {
+                groups.union(root, i);
+            }
+        }
+    }
+
+    /**
+     * Метод process разбирает источник конвейером и заполняет структуры так же,
+     * как {@link LineCalc#ingest(LineReader, UniqueLineChecker, UnionFind, LineStore, Metrics)}.
+     * Количество строк в unionFind должно совпадать с количеством строк в хранилище.
+     *
+     * @param reader            источник строк; закрывает его вызывающий
+     * @param parsers           количество потоков разбора и потоков индексов столбцов
+     * @param uniqueLineChecker объект для проверки уникальности строк и значений
+     * @param unionFind         структура, в которую добавляются строки
+     * @param lines             хранилище, в которое добавляются уникальные строки
+     * @param metrics           показатели обработки или null; время стадии - время обработки
+     *                          пакетов без ожидания в очередях, у разбора и индексов столбцов
+     *                          (вместе с объединениями) оно складывается по потокам, а объединение -
+     *                          это перенос разбиения в unionFind
+     * @throws IOException если возникнет ошибка чтения
+     */
+    static void process(LineReader reader, int parsers, UniqueLineChecker uniqueLineChecker, UnionFind unionFind,
+                        LineStore lines, Metrics metrics) throws IOException {
+        int threads = Math.max(parsers, 1);
+        StagedPipeline pipeline = new StagedPipeline(reader, threads, threads, uniqueLineChecker, unionFind,
+                lines, metrics);
+        pipeline.run();
+        long start = System.nanoTime();
+        unionFind.addFrom(pipeline.groups, pipeline.unionCalls.get());
+        if (metrics != null) {
+            metrics.record(Metrics.Stage.UNION, start);
+        }
+    }
+
+    private void run() throws IOException {
+        int indexers = indexQueues.size();
+        threads = new Thread[parsers + indexers + 2];
+        threads[0] = newThread("pipeline-read", this::read);
+        for (int i = 0; i < parsers; i++) {
+            threads[i + 1] = newThread("pipeline-parse-" + i, this::parse);
+        }
+        threads[parsers + 1] = newThread("pipeline-dedupe", this::dedupe);
+        for (int i = 0; i < indexers; i++) {
+            int part = i;
+            threads[parsers + 2 + i] = newThread("pipeline-index-" + i, () -> index(part));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            fail(e);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Разбор конвейером прерван");
+        }
+        Throwable error = failure.get();
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        if (error != null) {
+            throw new IOException(error);
+        }
+    }
+
+    /**
+     * Стадия чтения: строки копируются в пакеты из пула.
+     */
+    private void read() throws IOException, InterruptedException {
+        long sequence = 0;
+        long linesRead = 0;
+        long busy = 0;
+        Batch batch = null;
+        while (true) {
+            if (batch == null) {
+                batch = free.take();
+                batch.reset(sequence++);
+            }
+            long start = System.nanoTime();
+            boolean more = reader.next();
+            while (more && batch.add(reader.getBuffer(), reader.getStart(), reader.getEnd())) {
+                linesRead++;
+                more = reader.next();
+            }
+            busy += System.nanoTime() - start;
+            if (!more) {
+                break;
+            }
+            /* Строка не поместилась в заполненный пакет и переходит в следующий */
+            parseQueue.put(batch);
+            batch = free.take();
+            batch.reset(sequence++);
+            batch.add(reader.getBuffer(), reader.getStart(), reader.getEnd());
+            linesRead++;
+        }
+        if (batch.lineCount > 0) {
+            parseQueue.put(batch);
+        } else {
+            free.put(batch);
+        }
+        for (int i = 0; i < parsers; i++) {
+            parseQueue.put(END);
+        }
+        if (metrics != null) {
+            metrics.add(Metrics.Counter.LINES_READ, linesRead);
+            metrics.addTime(Metrics.Stage.READ, busy, false);
+        }
+    }
+
+    /**
+     * Стадия разбора: проверка формата, границы значений, отпечатки строк и ключи значений.
+     * Пакеты обрабатываются несколькими потоками и передаются дальше в порядке готовности.
+     */
+    private void parse() throws InterruptedException {
+        LineTokenizer tokenizer = new LineTokenizer();
+        long[] fingerprint = new long[2];
+        long busy = 0;
+        while (true) {
+            Batch batch = parseQueue.take();
+            if (batch == END) {
+                break;
+            }
+            long start = System.nanoTime();
+            batch.parse(tokenizer, fingerprint);
+            busy += System.nanoTime() - start;
+            dedupeQueue.put(batch);
+        }
+        dedupeQueue.put(END);
+        if (metrics != null) {
+            metrics.addTime(Metrics.Stage.PARSE, busy, false);
+        }
+    }
+
+    /**
+     * Стадия поиска повторов. Пакеты обрабатываются строго по порядку чтения, чтобы номера
+     * строк совпадали с последовательной обработкой. Пакеты, пришедшие раньше очереди, ждут
+     * в массиве по номеру пакета: в работе не больше poolSize пакетов подряд идущих номеров,
+     * поэтому ячейки не пересекаются. Новые строки добавляются в общую систему множеств,
+     * индексы столбцов пакета заводятся заранее, и пакет передается всем потокам индексов.
+     */
+    private void dedupe() throws InterruptedException {
+        Batch[] pending = new Batch[poolSize];
+        long next = 0;
+        int finished = 0;
+        long invalid = 0;
+        long busy = 0;
+        while (finished < parsers) {
+            Batch batch = dedupeQueue.take();
+            if (batch == END) {
+                finished++;
+                continue;
+            }
+            pending[(int) (batch.sequence % poolSize)] = batch;
+            int slot = (int) (next % poolSize);
+            while (pending[slot] != null) {
+                Batch ready = pending[slot];
+                pending[slot] = null;
+                long start = System.nanoTime();
+                invalid += ready.dedupe(checker, lines);
+                groups.grow(lines.size());
+                ready.bindColumns(checker);
+                busy += System.nanoTime() - start;
+                ready.remaining.set(indexQueues.size());
+                for (BlockingQueue<Batch> queue : indexQueues) {
+                    queue.put(ready);
+                }
+                next++;
+                slot = (int) (next % poolSize);
+            }
+        }
+        for (BlockingQueue<Batch> queue : indexQueues) {
+            queue.put(END);
+        }
+        if (metrics != null) {
+            metrics.add(Metrics.Counter.INVALID_LINES, invalid);
+            metrics.addTime(Metrics.Stage.DEDUPE, busy, false);
+        }
+    }
+
+    /**
+     * Стадия индексов столбцов: поток part заполняет индексы столбцов с остатком part от деления
+     * на количество потоков и объединяет строки с совпавшими значениями. Пакет возвращается
+     * в пул последним из потоков, которые его обработали.
+     */
+    private void index(int part) throws InterruptedException {
+        BlockingQueue<Batch> queue = indexQueues.get(part);
+        long calls = 0;
+        long busy = 0;
+        while (true) {
+            Batch batch = queue.take();
+            if (batch == END) {
+                break;
+            }
+            long start = System.nanoTime();
+            calls += batch.index(part, indexQueues.size(), groups);
+            busy += System.nanoTime() - start;
+            if (batch.remaining.decrementAndGet() == 0) {
+                free.put(batch);
+            }
+        }
+        unionCalls.addAndGet(calls);
+        if (metrics != null) {
+            metrics.addTime(Metrics.Stage.COLUMN_INDEX, busy, false);
+        }
+    }
+
+    private Thread newThread(String name, Stage stage) {
+        Thread thread = THREADS.newThread(() -> {
+            try {
+                stage.run();
+            } catch (Throwable e) {
+                fail(e);
+            }
+        });
+        thread.setName(name);
+        return thread;
+    }
+
+    /**
+     * Метод fail запоминает первую ошибку и прерывает все стадии: стадии, ожидающие очередей,
+     * завершаются с InterruptedException, которое уже не считается ошибкой.
+     */
+    private void fail(Throwable error) {
+        if (failure.compareAndSet(null, error)) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Метод stageThreads возвращает фабрику виртуальных потоков, если JDK их поддерживает.
+     * Проект собирается для Java 17, поэтому фабрика находится через отражение.
+     */
+    private static ThreadFactory stageThreads() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    /**
+     * Интерфейс Stage описывает тело стадии конвейера.
+     */
+    private interface Stage {
+        void run() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Класс Batch - пакет подряд идущих строк и результаты их разбора. Байты строк лежат
+     * подряд без разделителей, границы задаются концами строк.
+     */
+    private static final class Batch {
+        private long sequence; /* Номер пакета в порядке чтения */
+        private byte[] data;
+        private int byteCount;
+        private final int[] lineEnds;
+        private int lineCount;
+        private final long[] fingerprints; /* Отпечаток строки i - элементы 2 * i и 2 * i + 1 */
+        private final int[] lineNumbers; /* Номер новой строки; -1 - некорректная строка или повтор */
+        private final int[] valueEnds; /* Конец значений строки i в values */
+        private int[] values = new int[0]; /* Тройки (столбец, начало, конец) непустых значений */
+        private long[] valueKeys = new long[0];
+        private int columnCount; /* Наибольшее количество столбцов среди корректных строк */
+        private ColumnIndex[] columns = new ColumnIndex[0]; /* Индексы столбцов для потоков индексов */
+        private final AtomicInteger remaining = new AtomicInteger(); /* Потоки индексов, не обработавшие пакет */
+
+        private Batch(int lineCapacity, int byteCapacity) {
+            this.data = new byte[byteCapacity];
+            this.lineEnds = new int[lineCapacity];
+            this.fingerprints = new long[lineCapacity * 2];
+            this.lineNumbers = new int[lineCapacity];
+            this.valueEnds = new int[lineCapacity];
+        }
+
+        private void reset(long sequence) {
+            this.sequence = sequence;
+            this.byteCount = 0;
+            this.lineCount = 0;
+        }
+
+        /**
+         * Метод add копирует строку в пакет.
+         *
+         * @return false, если пакет заполнен; строка длиннее пустого пакета расширяет его
+         */
+        private boolean add(ByteBuffer buffer, int from, int to) {
+            int length = to - from;
+            if (lineCount == lineEnds.length || lineCount > 0 && byteCount + length > data.length) {
+                return false;
+            }
+            if (length > data.length) {
+                data = new byte[length];
+            }
+            buffer.get(from, data, byteCount, length);
+            byteCount += length;
+            lineEnds[lineCount++] = byteCount;
+            return true;
+        }
+
+        private int lineStart(int line) {
+            return line == 0 ? 0 : lineEnds[line - 1];
+        }
+
+        private void parse(LineTokenizer tokenizer, long[] fingerprint) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            int valueCount = 0;
+            columnCount = 0;
+            for (int i = 0; i < lineCount; i++) {
+                int from = lineStart(i);
+                int to = lineEnds[i];
+                lineNumbers[i] = tokenizer.tokenize(buffer, from, to) ? 0 : -1;
+                if (lineNumbers[i] == 0) {
+                    columnCount = Math.max(columnCount, tokenizer.getColumnCount());
+                    Fingerprints.hash128(buffer, from, to, fingerprint);
+                    fingerprints[i * 2] = fingerprint[0];
+                    fingerprints[i * 2 + 1] = fingerprint[1];
+                    for (int column = 0; column < tokenizer.getColumnCount(); column++) {
+                        if (tokenizer.isEmpty(column)) {
+                            continue;
+                        }
+                        if (valueKeys.length == valueCount) {
+                            valueKeys = Arrays.copyOf(valueKeys, Math.max(valueCount * 2, 1024));
+                            values = Arrays.copyOf(values, valueKeys.length * 3);
+                        }
+                        int start = tokenizer.getStart(column);
+                        int end = tokenizer.getEnd(column);
+                        values[valueCount * 3] = column;
+                        values[valueCount * 3 + 1] = start;
+                        values[valueCount * 3 + 2] = end;
+                        valueKeys[valueCount++] = ValueKeys.keyOf(buffer, start, end);
+                    }
+                }
+                valueEnds[i] = valueCount;
+            }
+        }
+
+        /**
+         * Метод dedupe отбрасывает повторы и добавляет новые строки в хранилище.
+         *
+         * @return количество некорректных строк пакета
+         */
+        private int dedupe(UniqueLineChecker checker, LineStore lines) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            int invalid = 0;
+            for (int i = 0; i < lineCount; i++) {
+                if (lineNumbers[i] < 0) {
+                    invalid++;
+                    continue;
+                }
+                int from = lineStart(i);
+                int to = lineEnds[i];
+                int lineNumber = lines.size();
+                if (checker.findOrAdd(fingerprints[i * 2], fingerprints[i * 2 + 1], buffer, from, to,
+                        lineNumber) >= 0) {
+                    lineNumbers[i] = -1; /* Повторяющаяся строка */
+                    continue;
+                }
+                lines.add(buffer, from, to);
+                lineNumbers[i] = lineNumber;
+            }
+            return invalid;
+        }
+
+        /**
+         * Метод bindColumns заводит индексы столбцов пакета и запоминает их: потоки индексов
+         * не обращаются к списку индексов, который в это время может расти.
+         */
+        private void bindColumns(UniqueLineChecker checker) {
+            checker.ensureColumnCount(columnCount);
+            if (columns.length < columnCount) {
+                columns = new ColumnIndex[columnCount];
+            }
+            for (int column = 0; column < columnCount; column++) {
+                columns[column] = checker.getColumnIndex(column);
+            }
+        }
+
+        /**
+         * Метод index добавляет значения новых строк в индексы столбцов с остатком part
+         * от деления на parts и объединяет строки с совпавшими значениями.
+         *
+         * @return количество вызовов объединения
+         */
+        private long index(int part, int parts, ConcurrentUnionFind unionFind) {
+            if (part >= columnCount) {
+                return 0; /* Столбцов этого потока в пакете нет */
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            long calls = 0;
+            for (int i = 0; i < lineCount; i++) {
+                int lineNumber = lineNumbers[i];
+                if (lineNumber < 0) {
+                    continue;
+                }
+                for (int value = i == 0 ? 0 : valueEnds[i - 1]; value < valueEnds[i]; value++) {
+                    int column = values[value * 3];
+                    if (column % parts != part) {
+                        continue;
+                    }
+                    int match = columns[column].putIfAbsent(valueKeys[value], buffer,
+                            values[value * 3 + 1], values[value * 3 + 2], lineNumber);
+                    if (match >= 0) {
+                        unionFind.union(match, lineNumber);
+                        calls++;
+                    }
+                }
+            }
+            return calls;
+        }
+    }
+}
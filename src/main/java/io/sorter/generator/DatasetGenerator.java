@@ -0,0 +1,314 @@
+package io.sorter.generator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Класс DatasetGenerator генерирует входные файлы в формате, который принимает
+ * {@link io.sorter.parser.LineProcessor}: столбцы в кавычках через ";" со значениями вида
+ * "123", "12.3" или пустыми "". Настраиваются количество строк и столбцов, количество различных
+ * значений в каждом столбце, доли пустых значений, повторов строк и некорректных строк,
+ * а также перекос частот значений по закону Ципфа, от которого зависят размеры групп.
+ * <p>
+ * Генерация детерминирована: строка с номером i определяется только начальным значением
+ * генератора и номером i, поэтому тот же набор настроек дает побайтно тот же файл.
+ * Повтор строки воспроизводит одну из предыдущих строк по ее номеру, так что для повторов
+ * не нужно хранить уже выведенные строки, и память не зависит от размера файла.
+ * Строки записываются потоково, в файл с расширением ".gz" - со сжатием gzip.
+ */
+public class DatasetGenerator {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long seed = 1;
+    private long lineCount = 1_000_000;
+    private int columnCount = 3;
+    private long[] cardinalities = {1_000_000};
+    private double emptyRatio = 0.1;
+    private double duplicateRatio;
+    private double invalidRatio;
+    private double zipfExponent;
+
+    /**
+     * Метод setSeed задает начальное значение генератора случайных чисел.
+     *
+     * @param seed начальное значение
+     * @return этот же генератор
+     */
+    public DatasetGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Метод setLineCount задает количество строк в файле, включая повторы и некорректные строки.
+     *
+     * @param lineCount количество строк, не меньше 0
+     * @return этот же генератор
+     */
+    public DatasetGenerator setLineCount(long lineCount) {
+        if (lineCount < 0) {
+            throw new IllegalArgumentException("Количество строк не может быть отрицательным: " + lineCount);
+        }
+        this.lineCount = lineCount;
+        return this;
+    }
+
+    /**
+     * Метод setColumnCount задает количество столбцов в строке.
+     *
+     * @param columnCount количество столбцов, не меньше 1
+     * @return этот же генератор
+     */
+    public DatasetGenerator setColumnCount(int columnCount) {
+        if (columnCount < 1) {
+            throw new IllegalArgumentException("Количество столбцов должно быть положительным: " + columnCount);
+        }
+        this.columnCount = columnCount;
+        return this;
+    }
+
+    /**
+     * Метод setCardinality задает количество различных значений в столбцах. Чем оно меньше,
+     * тем чаще строки совпадают значениями и тем крупнее группы.
+     *
+     * @param cardinalities одно значение для всех столбцов или по значению на каждый столбец
+     * @return этот же генератор
+     */
+    public DatasetGenerator setCardinality(long... cardinalities) {
+        if (cardinalities.length == 0 || Arrays.stream(cardinalities).anyMatch(value -> value < 1)) {
+            throw new IllegalArgumentException("Количество значений в столбце должно быть положительным: "
+                    + Arrays.toString(cardinalities));
+        }
+        this.cardinalities = cardinalities.clone();
+        return this;
+    }
+
+    /**
+     * Метод setEmptyRatio задает долю пустых значений среди всех значений корректных строк.
+     *
+     * @param emptyRatio доля от 0 до 1
+     * @return этот же генератор
+     */
+    public DatasetGenerator setEmptyRatio(double emptyRatio) {
+        this.emptyRatio = ratio(emptyRatio);
+        return this;
+    }
+
+    /**
+     * Метод setDuplicateRatio задает долю строк, повторяющих одну из предыдущих строк.
+     *
+     * @param duplicateRatio доля от 0 до 1
+     * @return этот же генератор
+     */
+    public DatasetGenerator setDuplicateRatio(double duplicateRatio) {
+        this.duplicateRatio = ratio(duplicateRatio);
+        return this;
+    }
+
+    /**
+     * Метод setInvalidRatio задает долю строк, которые не проходят проверку формата.
+     *
+     * @param invalidRatio доля от 0 до 1
+     * @return этот же генератор
+     */
+    public DatasetGenerator setInvalidRatio(double invalidRatio) {
+        this.invalidRatio = ratio(invalidRatio);
+        return this;
+    }
+
+    /**
+     * Метод setZipfExponent задает перекос частот значений: значение с рангом k встречается
+     * с частотой, пропорциональной 1 / k^s. При 0 значения распределены равномерно,
+     * при s около 1 и больше немногие значения встречаются очень часто и образуют крупные группы.
+     *
+     * @param zipfExponent показатель s, не меньше 0
+     * @return этот же генератор
+     */
+    public DatasetGenerator setZipfExponent(double zipfExponent) {
+        if (!(zipfExponent >= 0) || Double.isInfinite(zipfExponent)) {
+            throw new IllegalArgumentException("Некорректный показатель распределения Ципфа: " + zipfExponent);
+        }
+        this.zipfExponent = zipfExponent;
+        return this;
+    }
+
+    private static double ratio(double ratio) {
+        if (!(ratio >= 0 && ratio <= 1)) {
+            throw new IllegalArgumentException("Доля должна быть от 0 до 1: " + ratio);
+        }
+        return ratio;
+    }
+
+    /**
+     * Метод generate записывает строки в файл. Файл с именем, оканчивающимся на ".gz",
+     * сжимается gzip с быстрым уровнем сжатия.
+     *
+     * @param output выходной файл; существующий файл перезаписывается
+     * @return количество записанных строк
+     * @throws IOException если возникнет ошибка записи
+     */
+    public long generate(Path output) throws IOException {
+        boolean gzip = output.getFileName().toString().endsWith(".gz");
+        try (OutputStream out = gzip ? new FastGzipOutputStream(Files.newOutputStream(output))
+                : Files.newOutputStream(output)) {
+            return generate(out);
+        }
+    }
+
+    /**
+     * Метод generate записывает строки в поток, каждую с завершающим переводом строки.
+     * Поток не закрывается.
+     *
+     * @param out выходной поток
+     * @return количество записанных строк
+     * @throws IOException если возникнет ошибка записи
+     */
+    public long generate(OutputStream out) throws IOException {
+        if (cardinalities.length != 1 && cardinalities.length != columnCount) {
+            throw new IllegalArgumentException("Количество значений задано для " + cardinalities.length
+                    + " столбцов, а столбцов " + columnCount);
+        }
+        if (duplicateRatio + invalidRatio > 1) {
+            throw new IllegalArgumentException("Сумма долей повторов и некорректных строк больше 1");
+        }
+        ZipfSampler[] samplers = new ZipfSampler[columnCount];
+        for (int column = 0; column < columnCount && zipfExponent > 0; column++) {
+            samplers[column] = new ZipfSampler(cardinality(column), zipfExponent);
+        }
+        /* Самая длинная строка: столбцы по 19 цифр, точка, кавычки и разделитель, а также порча */
+        int maxLineLength = columnCount * 24 + 16;
+        byte[] buffer = new byte[Math.max(BUFFER_SIZE, maxLineLength * 2)];
+        int position = 0;
+        for (long line = 0; line < lineCount; line++) {
+            if (buffer.length - position < maxLineLength) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+            position = writeLine(line, samplers, buffer, position);
+            buffer[position++] = '\n';
+        }
+        out.write(buffer, 0, position);
+        out.flush();
+        return lineCount;
+    }
+
+    /**
+     * Метод writeLine записывает строку с номером line без перевода строки. Повтор заменяется
+     * строкой, которую он повторяет, с переходом по цепочке повторов до исходной строки.
+     *
+     * @return позиция после строки
+     */
+    private int writeLine(long line, ZipfSampler[] samplers, byte[] buffer, int position) {
+        long source = line;
+        while (true) {
+            SplittableRandom random = new SplittableRandom(mix(seed + source * GOLDEN_GAMMA));
+            double kind = random.nextDouble();
+            if (source > 0 && kind < duplicateRatio) {
+                source = random.nextLong(source); /* Повтор одной из предыдущих строк */
+                continue;
+            }
+            if (kind < duplicateRatio + invalidRatio) {
+                return writeInvalid(random, samplers, buffer, position);
+            }
+            return writeValues(random, samplers, buffer, position, -1, -1);
+        }
+    }
+
+    /**
+     * Метод writeInvalid записывает строку, нарушающую формат одним из способов: буква
+     * в значении, две точки в значении, незакрытая кавычка или пропущенный разделитель.
+     */
+    private int writeInvalid(SplittableRandom random, ZipfSampler[] samplers, byte[] buffer, int position) {
+        int variant = random.nextInt(columnCount > 1 ? 4 : 3);
+        int column = random.nextInt(columnCount);
+        if (variant == 2) {
+            /* Без закрывающей кавычки: каждая строка оканчивается кавычкой, которая отбрасывается */
+            return writeValues(random, samplers, buffer, position, -1, -1) - 1;
+        }
+        if (variant == 3) {
+            column = 1 + random.nextInt(columnCount - 1);
+        }
+        return writeValues(random, samplers, buffer, position, column, variant);
+    }
+
+    /**
+     * Метод writeValues записывает столбцы строки. Если задан испорченный столбец, его значение
+     * содержит букву (вариант 0) или две точки (вариант 1), либо перед ним нет разделителя (вариант 3).
+     */
+    private int writeValues(SplittableRandom random, ZipfSampler[] samplers, byte[] buffer, int position,
+                            int brokenColumn, int variant) {
+        for (int column = 0; column < columnCount; column++) {
+            boolean broken = column == brokenColumn;
+            if (column > 0 && !(broken && variant == 3)) {
+                buffer[position++] = ';';
+            }
+            buffer[position++] = '"';
+            if (broken && variant == 1) {
+                buffer[position++] = '1';
+                buffer[position++] = '.';
+                buffer[position++] = '2';
+                buffer[position++] = '.';
+                buffer[position++] = '3';
+            } else if (broken || random.nextDouble() >= emptyRatio) {
+                long rank = samplers[column] != null ? samplers[column].sample(random) - 1
+                        : random.nextLong(cardinality(column));
+                /* Значения нечетных столбцов дробные: номер значения записывается с одной цифрой после точки */
+                if (column % 2 == 1) {
+                    position = writeDigits(rank / 10, buffer, position);
+                    buffer[position++] = '.';
+                    buffer[position++] = (byte) ('0' + rank % 10);
+                } else {
+                    position = writeDigits(rank, buffer, position);
+                }
+                if (broken && variant == 0) {
+                    buffer[position++] = 'x';
+                }
+            }
+            buffer[position++] = '"';
+        }
+        return position;
+    }
+
+    private long cardinality(int column) {
+        return cardinalities[cardinalities.length == 1 ? 0 : column];
+    }
+
+    private static int writeDigits(long value, byte[] buffer, int position) {
+        int length = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            length++;
+        }
+        long rest = value;
+        for (int i = position + length - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        }
+        return position + length;
+    }
+
+    /* Перемешивание битов из MurmurHash3: начальные значения соседних строк не связаны между собой */
+    private static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * Класс FastGzipOutputStream сжимает gzip с быстрым уровнем сжатия: при генерации
+     * больших файлов сжатие по умолчанию медленнее самой генерации в несколько раз.
+     */
+    private static final class FastGzipOutputStream extends GZIPOutputStream {
+        private FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package io.sorter.generator;
+
+import java.util.SplittableRandom;
+
+/**
+ * Класс ZipfSampler выбирает ранги от 1 до n по закону Ципфа: вероятность ранга k
+ * пропорциональна 1 / k^s. Используется метод отбора с инверсией (Hörmann, Derflinger,
+ * "Rejection-inversion to generate variates from monotone discrete distributions"):
+ * выборка занимает O(1) в среднем и не требует таблиц, поэтому n может быть сколь угодно
+ * большим. Экземпляр неизменяем; случайные числа берутся из переданного генератора.
+ */
+final class ZipfSampler {
+    private final long n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double threshold;
+
+    /**
+     * Конструктор класса ZipfSampler.
+     *
+     * @param n        количество рангов, не меньше 1
+     * @param exponent показатель s, больше 0
+     */
+    ZipfSampler(long n, double exponent) {
+        if (n < 1 || !(exponent > 0)) {
+            throw new IllegalArgumentException("Некорректные параметры распределения Ципфа: n="
+                    + n + ", s=" + exponent);
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.threshold = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * Метод sample выбирает ранг.
+     *
+     * @param random генератор случайных чисел
+     * @return ранг от 1 до n; ранг 1 самый частый
+     */
+    long sample(SplittableRandom random) {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            long k = (long) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= threshold || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    /* H(x) - первообразная h(x) = x^-s, записанная без потери точности при s, близком к 1 */
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1 - exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1 - exponent);
+        if (t < -1) {
+            t = -1; /* Защита от ошибки округления в области определения log1p */
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    /* log(1 + x) / x с пределом 1 при x -> 0 */
+    private static double helper1(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.log1p(x) / x;
+        }
+        return 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    /* (exp(x) - 1) / x с пределом 1 при x -> 0 */
+    private static double helper2(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.expm1(x) / x;
+        }
+        return 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
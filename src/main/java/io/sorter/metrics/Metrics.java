@@ -0,0 +1,269 @@
+package io.sorter.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Класс Metrics собирает показатели обработки: время этапов, счетчики строк и объединений
+ * и наибольшие размеры индексов. Экземпляр потокобезопасен: при параллельной обработке
+ * части файла добавляют свои показатели по завершении, и время этапов складывается
+ * по всем потокам. Каждое добавление времени этапа записывает событие JFR {@link StageEvent}.
+ * <p>
+ * Этапы разбора строк (чтение, проверка формата, поиск повторов, индексы столбцов
+ * и объединение) выполняются в одном цикле по строкам, и засекать каждую строку слишком
+ * дорого. Поэтому время замеряется по этапам только у каждой 64-й строки, а общее время
+ * цикла, измеренное точно, делится между этапами пропорционально замерам. Такие этапы
+ * отмечены в отчете как оценка.
+ */
+public final class Metrics {
+    /**
+     * Этапы обработки.
+     */
+    public enum Stage {
+        READ("read"),
+        PARSE("parse"),
+        DEDUPE("dedupe"),
+        COLUMN_INDEX("columnIndex"),
+        UNION("union"),
+        MERGE("merge"),
+        GROUP("group"),
+        WRITE("write"),
+        SNAPSHOT("snapshot");
+
+        private final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Метод getKey возвращает имя этапа в отчете.
+         *
+         * @return имя этапа
+         */
+        public String getKey() {
+            return key;
+        }
+    }
+
+    /**
+     * Счетчики, которые складываются по всем частям обработки.
+     */
+    public enum Counter {
+        LINES_READ("linesRead"),
+        INVALID_LINES("invalidLines"),
+        DUPLICATE_LINES("duplicateLines"),
+        UNIQUE_LINES("uniqueLines"),
+        UNION_CALLS("unionCalls"),
+        EFFECTIVE_UNIONS("effectiveUnions");
+
+        private final String key;
+
+        Counter(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Метод getKey возвращает имя счетчика в отчете.
+         *
+         * @return имя счетчика
+         */
+        public String getKey() {
+            return key;
+        }
+    }
+
+    /**
+     * Показатели, для которых запоминается наибольшее значение.
+     */
+    public enum Gauge {
+        COLUMN_INDEX_PEAK("columnIndexPeakSize"),
+        COLUMN_INDEX_TOTAL("columnIndexTotalSize"),
+        LINE_BYTES("lineBytes"),
+        GROUPS("groups");
+
+        private final String key;
+
+        Gauge(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Метод getKey возвращает имя показателя в отчете.
+         *
+         * @return имя показателя
+         */
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private final AtomicLongArray stageNanos = new AtomicLongArray(Stage.values().length);
+    private final AtomicIntegerArray estimated = new AtomicIntegerArray(Stage.values().length);
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+    private final AtomicLongArray gauges = new AtomicLongArray(Gauge.values().length);
+
+    /**
+     * Метод record добавляет время этапа, начатого в момент start.
+     *
+     * @param stage этап
+     * @param start значение {@link System#nanoTime()} в начале этапа
+     */
+    public void record(Stage stage, long start) {
+        addTime(stage, System.nanoTime() - start, false);
+    }
+
+    /**
+     * Метод addTime добавляет время этапа и записывает событие JFR.
+     *
+     * @param stage       этап
+     * @param nanos       время в наносекундах
+     * @param isEstimated true, если время оценено по выборке строк
+     */
+    public void addTime(Stage stage, long nanos, boolean isEstimated) {
+        stageNanos.addAndGet(stage.ordinal(), nanos);
+        if (isEstimated) {
+            estimated.set(stage.ordinal(), 1);
+        }
+        StageEvent event = new StageEvent();
+        if (event.isEnabled()) {
+            event.stage = stage.getKey();
+            event.nanos = nanos;
+            event.estimated = isEstimated;
+            event.commit();
+        }
+    }
+
+    /**
+     * Метод add увеличивает счетчик.
+     *
+     * @param counter счетчик
+     * @param value   прибавляемое значение
+     */
+    public void add(Counter counter, long value) {
+        counters.addAndGet(counter.ordinal(), value);
+    }
+
+    /**
+     * Метод max запоминает значение показателя, если оно больше запомненного.
+     *
+     * @param gauge показатель
+     * @param value текущее значение
+     */
+    public void max(Gauge gauge, long value) {
+        gauges.accumulateAndGet(gauge.ordinal(), value, Math::max);
+    }
+
+    /**
+     * Метод getTime возвращает суммарное время этапа.
+     *
+     * @param stage этап
+     * @return время в наносекундах
+     */
+    public long getTime(Stage stage) {
+        return stageNanos.get(stage.ordinal());
+    }
+
+    /**
+     * Метод isEstimated сообщает, оценено ли время этапа по выборке строк.
+     *
+     * @param stage этап
+     * @return true, если время этапа - оценка
+     */
+    public boolean isEstimated(Stage stage) {
+        return estimated.get(stage.ordinal()) != 0;
+    }
+
+    /**
+     * Метод getCount возвращает значение счетчика.
+     *
+     * @param counter счетчик
+     * @return значение
+     */
+    public long getCount(Counter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    /**
+     * Метод getGauge возвращает наибольшее значение показателя.
+     *
+     * @param gauge показатель
+     * @return значение
+     */
+    public long getGauge(Gauge gauge) {
+        return gauges.get(gauge.ordinal());
+    }
+
+    /**
+     * Метод writeJson записывает отчет в формате JSON: общее время, время этапов, счетчики,
+     * показатели и сведения о памяти JVM (пиковое заполнение кучи, память буферов вне кучи,
+     * количество и время сборок мусора).
+     *
+     * @param path       файл отчета
+     * @param totalNanos общее время обработки в наносекундах
+     * @throws IOException если файл не удается записать
+     */
+    public void writeJson(Path path, long totalNanos) throws IOException {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write(toJson(totalNanos));
+        }
+    }
+
+    /**
+     * Метод toJson формирует отчет в формате JSON, см. {@link #writeJson(Path, long)}.
+     *
+     * @param totalNanos общее время обработки в наносекундах
+     * @return текст отчета
+     */
+    public String toJson(long totalNanos) {
+        StringBuilder json = new StringBuilder("{\n  \"totalNanos\": ").append(totalNanos).append(",\n");
+        json.append("  \"stages\": {");
+        for (Stage stage : Stage.values()) {
+            json.append(stage.ordinal() == 0 ? "\n" : ",\n")
+                    .append("    \"").append(stage.getKey()).append("\": {\"nanos\": ").append(getTime(stage))
+                    .append(", \"estimated\": ").append(isEstimated(stage)).append('}');
+        }
+        json.append("\n  },\n  \"counters\": {");
+        for (Counter counter : Counter.values()) {
+            json.append(counter.ordinal() == 0 ? "\n" : ",\n")
+                    .append("    \"").append(counter.getKey()).append("\": ").append(getCount(counter));
+        }
+        json.append("\n  },\n  \"gauges\": {");
+        for (Gauge gauge : Gauge.values()) {
+            json.append(gauge.ordinal() == 0 ? "\n" : ",\n")
+                    .append("    \"").append(gauge.getKey()).append("\": ").append(getGauge(gauge));
+        }
+        long heapPeak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                heapPeak += pool.getPeakUsage().getUsed();
+            }
+        }
+        long directBytes = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            directBytes += pool.getMemoryUsed();
+        }
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(collector.getCollectionCount(), 0);
+            gcMillis += Math.max(collector.getCollectionTime(), 0);
+        }
+        json.append("\n  },\n  \"memory\": {\n")
+                .append("    \"heapPeakBytes\": ").append(heapPeak).append(",\n")
+                .append("    \"bufferPoolBytes\": ").append(directBytes).append(",\n")
+                .append("    \"gcCount\": ").append(gcCount).append(",\n")
+                .append("    \"gcTimeMillis\": ").append(gcMillis).append("\n  }\n}\n");
+        return json.toString();
+    }
+}
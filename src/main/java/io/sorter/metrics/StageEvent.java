@@ -0,0 +1,31 @@
+package io.sorter.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Класс StageEvent - событие JFR о завершении этапа обработки. Событие записывается
+ * в конце этапа и содержит его время отдельным полем: время этапов разбора строк оценивается
+ * по выборке уже после чтения файла, поэтому длительность самого события не используется.
+ * Запись включается стандартными средствами JFR, например
+ * {@code -XX:StartFlightRecording:filename=rec.jfr}.
+ */
+@Name("io.sorter.Stage")
+@Label("Этап обработки")
+@Category("Group Sorter")
+@Description("Время этапа обработки файла")
+final class StageEvent extends Event {
+    @Label("Этап")
+    String stage;
+
+    @Label("Время этапа")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+
+    @Label("Оценка по выборке строк")
+    boolean estimated;
+}
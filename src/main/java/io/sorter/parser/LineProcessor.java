@@ -4,8 +4,10 @@ package io.sorter.parser;
  * Класс LineProcessor содержит методы для обработки строк.
  * В частности, он предоставляет функциональность для парсинга
  * строк, разделенных символом ";" и валидации их формата.
+ * Сам разбор выполняет {@link LineTokenizer}, отдельный для каждого потока.
  */
 public class LineProcessor {
+    private static final ThreadLocal<LineTokenizer> TOKENIZER = ThreadLocal.withInitial(LineTokenizer::new);
 
     /**
      * Метод parseLine парсит переданную строку, проверяет ее на корректность
@@ -16,22 +18,14 @@ public class LineProcessor {
      * если строка не прошла валидацию
      */
     public static String[] parseLine(String line) {
-        if (!validateLine(line)) {
+        LineTokenizer tokenizer = TOKENIZER.get();
+        if (!tokenizer.tokenize(line)) {
             return null;
         }
-        return line.split(";");
-    }
-
-    /**
-     * Метод validateLine проверяет, соответствует ли строка
-     * заданному формату. Формат включает в себя проверку на
-     * наличие чисел в виде строк, которые могут быть отделены
-     * символом ";".
-     *
-     * @param line строка, подлежащая валидации
-     * @return true, если строка соответствует формату; иначе false
-     */
-    private static boolean validateLine(String line) {
-        return line.matches("(\"\\d*(\\.\\d)?\")(;(\"\\d*(\\.\\d)?\")?)*");
+        String[] columns = new String[tokenizer.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = line.substring(tokenizer.getStart(i), tokenizer.getEnd(i));
+        }
+        return columns;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,214 @@
+package io.sorter.parser;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Класс LineTokenizer за один проход проверяет строку и разбивает ее на столбцы
+ * без регулярных выражений и без создания подстрок.
+ * Строка должна соответствовать грамматике {@code "\d*(\.\d)?"(;("\d*(\.\d)?")?)*}:
+ * первый столбец обязателен, остальные могут быть пустыми.
+ * Границы столбцов (начало и конец, включая кавычки) записываются в переиспользуемый
+ * буфер, поэтому один экземпляр может обрабатывать сколько угодно строк без выделения памяти.
+ * Экземпляр не потокобезопасен.
+ */
+public class LineTokenizer {
+    /* Состояния автомата */
+    private static final int FIRST = 0; /* Начало строки: ожидается открывающая кавычка */
+    private static final int COLUMN = 1; /* После ';': кавычка, следующий ';' или конец строки */
+    private static final int DIGITS = 2; /* Целая часть: цифры, точка или закрывающая кавычка */
+    private static final int DOT = 3; /* После точки: ровно одна цифра */
+    private static final int FRACTION = 4; /* После дробной цифры: закрывающая кавычка */
+    private static final int CLOSED = 5; /* После закрывающей кавычки: ';' или конец строки */
+    private static final int FAIL = 6; /* Строка не соответствует формату */
+
+    /* Классы символов */
+    private static final int QUOTE = 0;
+    private static final int DIGIT = 1;
+    private static final int POINT = 2;
+    private static final int SEMICOLON = 3;
+    private static final int OTHER = 4;
+    private static final int CLASS_COUNT = 5;
+
+    private static final byte[] CHAR_CLASSES = new byte[128];
+    /* Таблица переходов: [состояние * CLASS_COUNT + класс символа] */
+    private static final byte[] TRANSITIONS = {
+            /*            QUOTE     DIGIT     POINT  SEMICOLON  OTHER */
+            /* FIRST */   DIGITS,   FAIL,     FAIL,  FAIL,      FAIL,
+            /* COLUMN */  DIGITS,   FAIL,     FAIL,  COLUMN,    FAIL,
+            /* DIGITS */  CLOSED,   DIGITS,   DOT,   FAIL,      FAIL,
+            /* DOT */     FAIL,     FRACTION, FAIL,  FAIL,      FAIL,
+            /* FRACTION */ CLOSED,  FAIL,     FAIL,  FAIL,      FAIL,
+            /* CLOSED */  FAIL,     FAIL,     FAIL,  COLUMN,    FAIL,
+            /* FAIL */    FAIL,     FAIL,     FAIL,  FAIL,      FAIL
+    };
+
+    static {
+        Arrays.fill(CHAR_CLASSES, (byte) OTHER);
+        CHAR_CLASSES['"'] = QUOTE;
+        CHAR_CLASSES['.'] = POINT;
+        CHAR_CLASSES[';'] = SEMICOLON;
+        for (char c = '0'; c <= '9'; c++) {
+            CHAR_CLASSES[c] = DIGIT;
+        }
+    }
+
+    private int[] bounds = new int[32]; /* Пары (начало, конец) для каждого столбца */
+    private int columnCount; /* Количество столбцов в последней разобранной строке */
+
+    /**
+     * Метод tokenize проверяет строку целиком и разбивает ее на столбцы.
+     *
+     * @param line строка для разбора
+     * @return true, если строка соответствует формату; иначе false
+     */
+    public boolean tokenize(CharSequence line) {
+        return tokenize(line, 0, line.length());
+    }
+
+    /**
+     * Метод tokenize проверяет диапазон символов и разбивает его на столбцы.
+     * Границы столбцов задаются индексами в переданной последовательности.
+     *
+     * @param chars последовательность символов, например строка или {@code CharBuffer.wrap(char[])}
+     * @param from  индекс первого символа строки
+     * @param to    индекс, следующий за последним символом строки
+     * @return true, если строка соответствует формату; иначе false
+     */
+    public boolean tokenize(CharSequence chars, int from, int to) {
+        columnCount = 0;
+        int state = FIRST;
+        int columnStart = from;
+        for (int i = from; i < to; i++) {
+            state = TRANSITIONS[state * CLASS_COUNT + classOf(chars.charAt(i))];
+            if (state == COLUMN) {
+                addColumn(columnStart, i);
+                columnStart = i + 1;
+            } else if (state == FAIL) {
+                return fail();
+            }
+        }
+        return finish(state, columnStart, to);
+    }
+
+    /**
+     * Метод tokenize проверяет диапазон байтов в кодировке ASCII и разбивает его на столбцы.
+     * Границы столбцов задаются индексами в переданном массиве.
+     *
+     * @param bytes массив байтов
+     * @param from  индекс первого байта строки
+     * @param to    индекс, следующий за последним байтом строки
+     * @return true, если строка соответствует формату; иначе false
+     */
+    public boolean tokenize(byte[] bytes, int from, int to) {
+        columnCount = 0;
+        int state = FIRST;
+        int columnStart = from;
+        for (int i = from; i < to; i++) {
+            state = TRANSITIONS[state * CLASS_COUNT + classOf(bytes[i] & 0xFF)];
+            if (state == COLUMN) {
+                addColumn(columnStart, i);
+                columnStart = i + 1;
+            } else if (state == FAIL) {
+                return fail();
+            }
+        }
+        return finish(state, columnStart, to);
+    }
+
+    /**
+     * Метод tokenize проверяет диапазон байтов буфера в кодировке ASCII и разбивает его на столбцы.
+     * Используется абсолютная адресация: позиция и граница буфера не меняются.
+     *
+     * @param buffer буфер, например отображенное в память окно файла
+     * @param from   индекс первого байта строки
+     * @param to     индекс, следующий за последним байтом строки
+     * @return true, если строка соответствует формату; иначе false
+     */
+    public boolean tokenize(ByteBuffer buffer, int from, int to) {
+        columnCount = 0;
+        int state = FIRST;
+        int columnStart = from;
+        for (int i = from; i < to; i++) {
+            state = TRANSITIONS[state * CLASS_COUNT + classOf(buffer.get(i) & 0xFF)];
+            if (state == COLUMN) {
+                addColumn(columnStart, i);
+                columnStart = i + 1;
+            } else if (state == FAIL) {
+                return fail();
+            }
+        }
+        return finish(state, columnStart, to);
+    }
+
+    /**
+     * Метод getColumnCount возвращает количество столбцов в последней успешно разобранной строке.
+     * Как и {@code String.split(";")}, пустые столбцы в конце строки не учитываются.
+     *
+     * @return количество столбцов
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Метод getStart возвращает индекс начала столбца (открывающей кавычки).
+     *
+     * @param column номер столбца
+     * @return индекс первого символа столбца
+     */
+    public int getStart(int column) {
+        return bounds[column * 2];
+    }
+
+    /**
+     * Метод getEnd возвращает индекс, следующий за концом столбца (закрывающей кавычкой).
+     *
+     * @param column номер столбца
+     * @return индекс, следующий за последним символом столбца
+     */
+    public int getEnd(int column) {
+        return bounds[column * 2 + 1];
+    }
+
+    /**
+     * Метод isEmpty проверяет, является ли столбец пустым: отсутствует вовсе
+     * или содержит только кавычки ("").
+     *
+     * @param column номер столбца
+     * @return true, если значение столбца пустое
+     */
+    public boolean isEmpty(int column) {
+        return getEnd(column) - getStart(column) <= 2;
+    }
+
+    private static int classOf(int c) {
+        return c < CHAR_CLASSES.length ? CHAR_CLASSES[c] : OTHER;
+    }
+
+    private void addColumn(int start, int end) {
+        if (columnCount * 2 == bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[columnCount * 2] = start;
+        bounds[columnCount * 2 + 1] = end;
+        columnCount++;
+    }
+
+    private boolean finish(int state, int columnStart, int to) {
+        if (state != CLOSED && state != COLUMN) {
+            return fail();
+        }
+        addColumn(columnStart, to);
+        /* Отбрасываем пустые столбцы в конце строки, как это делает String.split */
+        while (columnCount > 1 && getEnd(columnCount - 1) == getStart(columnCount - 1)) {
+            columnCount--;
+        }
+        return true;
+    }
+
+    private boolean fail() {
+        columnCount = 0;
+        return false;
+    }
+}
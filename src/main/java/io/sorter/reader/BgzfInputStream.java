@@ -0,0 +1,195 @@
+package io.sorter.reader;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Класс BgzfInputStream распаковывает файл в формате BGZF (bgzip) на нескольких ядрах.
+ * BGZF - это последовательность независимых членов gzip размером до 64 КБ, в заголовке каждого
+ * из которых (дополнительное поле "BC") записан его сжатый размер. Поэтому границы членов
+ * известны без распаковки: члены читаются пачками, пачки распаковываются параллельно,
+ * а результат отдается строго по порядку.
+ */
+final class BgzfInputStream extends InputStream {
+    private static final int HEADER_SIZE = 12; /* Заголовок gzip до дополнительного поля включая XLEN */
+    private static final int FLAG_EXTRA = 4; /* Флаг FEXTRA в байте FLG */
+    private static final int BLOCKS_PER_TASK = 64; /* Членов в одной пачке: около 4 МБ сжатых данных */
+
+    private final InputStream in;
+    private final ExecutorService pool;
+    private final int maxPending;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final byte[] header = new byte[HEADER_SIZE];
+    private byte[] current = new byte[0];
+    private int pos;
+    private boolean eof;
+
+    /**
+     * Конструктор класса BgzfInputStream.
+     *
+     * @param in          поток со сжатыми данными; закрывается вместе с объектом
+     * @param parallelism количество потоков распаковки
+     */
+    BgzfInputStream(InputStream in, int parallelism) {
+        this.in = in;
+        this.maxPending = parallelism * 2;
+        this.pool = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "bgzf-inflater");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Метод isBgzf проверяет, начинается ли массив с заголовка члена BGZF.
+     *
+     * @param bytes  начало файла
+     * @param length количество прочитанных байтов
+     * @return true, если это заголовок gzip с полем "BC"
+     */
+    static boolean isBgzf(byte[] bytes, int length) {
+        if (length < HEADER_SIZE || (bytes[0] & 0xFF) != 0x1F || (bytes[1] & 0xFF) != 0x8B
+                || (bytes[3] & FLAG_EXTRA) == 0) {
+            return false;
+        }
+        int extraLength = unsignedShort(bytes, 10);
+        return HEADER_SIZE + extraLength <= length && blockSize(bytes, HEADER_SIZE, extraLength) > 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (pos == current.length) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+        int count = Math.min(len, current.length - pos);
+        System.arraycopy(current, pos, b, off, count);
+        pos += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdownNow();
+        in.close();
+    }
+
+    /**
+     * Метод fill ставит в очередь распаковки следующие пачки и забирает результат самой ранней.
+     */
+    private boolean fill() throws IOException {
+        while (!eof && pending.size() < maxPending) {
+            byte[] batch = readBatch();
+            if (batch.length == 0) {
+                eof = true;
+            } else {
+                pending.add(pool.submit(() -> inflate(batch)));
+            }
+        }
+        Future<byte[]> next = pending.poll();
+        if (next == null) {
+            return false;
+        }
+        try {
+            current = next.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Распаковка прервана", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Ошибка распаковки BGZF", e.getCause());
+        }
+        pos = 0;
+        return true;
+    }
+
+    /**
+     * Метод readBatch читает подряд до {@link #BLOCKS_PER_TASK} членов без распаковки.
+     *
+     * @return сжатые байты членов или пустой массив в конце файла
+     */
+    private byte[] readBatch() throws IOException {
+        byte[] batch = new byte[1 << 16];
+        int size = 0;
+        for (int block = 0; block < BLOCKS_PER_TASK; block++) {
+            int read = in.readNBytes(header, 0, HEADER_SIZE);
+            if (read == 0) {
+                break;
+            }
+            if (read < HEADER_SIZE || (header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B
+                    || (header[3] & FLAG_EXTRA) == 0) {
+                throw new IOException("Файл не в формате BGZF: член gzip без поля BC");
+            }
+            int extraLength = unsignedShort(header, 10);
+            if (batch.length < size + HEADER_SIZE + extraLength) {
+                batch = Arrays.copyOf(batch, Math.max(batch.length * 2, size + HEADER_SIZE + extraLength));
+            }
+            System.arraycopy(header, 0, batch, size, HEADER_SIZE);
+            readFully(batch, size + HEADER_SIZE, extraLength);
+            int blockSize = blockSize(batch, size + HEADER_SIZE, extraLength);
+            if (blockSize < HEADER_SIZE + extraLength) {
+                throw new IOException("Файл не в формате BGZF: член gzip без поля BC");
+            }
+            if (batch.length < size + blockSize) {
+                batch = Arrays.copyOf(batch, Math.max(batch.length * 2, size + blockSize));
+            }
+            readFully(batch, size + HEADER_SIZE + extraLength, blockSize - HEADER_SIZE - extraLength);
+            size += blockSize;
+        }
+        return Arrays.copyOf(batch, size);
+    }
+
+    private void readFully(byte[] bytes, int from, int length) throws IOException {
+        if (in.readNBytes(bytes, from, length) < length) {
+            throw new EOFException("Файл BGZF обрезан");
+        }
+    }
+
+    private static byte[] inflate(byte[] batch) throws IOException {
+        /* GZIPInputStream последовательно распаковывает все члены пачки и проверяет их CRC */
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(batch), batch.length)) {
+            return gzip.readAllBytes();
+        }
+    }
+
+    /**
+     * Метод blockSize ищет в дополнительном поле заголовка подполе "BC" с размером члена.
+     *
+     * @return полный сжатый размер члена или -1, если подполя нет
+     */
+    private static int blockSize(byte[] bytes, int from, int extraLength) {
+        int i = from;
+        int end = from + extraLength;
+        while (i + 4 <= end) {
+            int fieldLength = unsignedShort(bytes, i + 2);
+            if (bytes[i] == 'B' && bytes[i + 1] == 'C' && fieldLength == 2 && i + 6 <= end) {
+                return unsignedShort(bytes, i + 4) + 1;
+            }
+            i += 4 + fieldLength;
+        }
+        return -1;
+    }
+
+    private static int unsignedShort(byte[] bytes, int index) {
+        return (bytes[index] & 0xFF) | (bytes[index + 1] & 0xFF) << 8;
+    }
+}
@@ -0,0 +1,65 @@
+package io.sorter.reader;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+/**
+ * Класс ByteRangeLineReader отдает строки, уже разделенные вызывающим кодом: каждая строка -
+ * байты буфера от его позиции до границы, без символов конца строки. Буферы не копируются,
+ * поэтому буфер строки должен оставаться неизменным до следующего вызова {@link #next()}.
+ * Смещения строк считаются так, как если бы строки были записаны подряд через '\n'.
+ */
+public class ByteRangeLineReader implements LineReader {
+    private final Iterator<ByteBuffer> lines;
+    private ByteBuffer buffer;
+    private int start;
+    private int end;
+    private long position;
+    private long nextPosition;
+
+    /**
+     * Конструктор класса ByteRangeLineReader.
+     *
+     * @param lines строки в виде буферов
+     */
+    public ByteRangeLineReader(Iterator<ByteBuffer> lines) {
+        this.lines = lines;
+    }
+
+    @Override
+    public boolean next() {
+        if (!lines.hasNext()) {
+            return false;
+        }
+        buffer = lines.next();
+        start = buffer.position();
+        end = buffer.limit();
+        position = nextPosition;
+        nextPosition += end - start + 1;
+        return true;
+    }
+
+    @Override
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public int getStart() {
+        return start;
+    }
+
+    @Override
+    public int getEnd() {
+        return end;
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,71 @@
+package io.sorter.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Класс FileChunks делит файл на части для параллельной обработки.
+ * Границы частей выравниваются по концам строк, поэтому каждую часть можно
+ * читать отдельным {@link MappedLineReader} независимо от остальных.
+ */
+public final class FileChunks {
+    private static final int SCAN_BUFFER_SIZE = 1 << 16;
+
+    private FileChunks() {
+    }
+
+    /**
+     * Метод split делит файл примерно на равные части.
+     * Часть i занимает диапазон [bounds[i], bounds[i + 1]); части могут быть пустыми,
+     * если строка длиннее части.
+     *
+     * @param path       путь к файлу
+     * @param chunkCount желаемое количество частей
+     * @return массив из chunkCount + 1 неубывающих границ, от 0 до размера файла
+     * @throws IOException если файл не удается прочитать
+     */
+    public static long[] split(Path path, int chunkCount) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = new long[chunkCount + 1];
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            for (int i = 1; i < chunkCount; i++) {
+                long target = Math.max(size / chunkCount * i, bounds[i - 1]);
+                bounds[i] = nextLineStart(channel, target, size, buffer);
+            }
+            bounds[chunkCount] = size;
+            return bounds;
+        }
+    }
+
+    /**
+     * Метод nextLineStart находит начало первой строки, которая начинается после
+     * перевода строки на позиции position или дальше.
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer buffer)
+            throws IOException {
+        boolean afterCarriageReturn = false;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (afterCarriageReturn) {
+                    return position + i + (b == '\n' ? 1 : 0);
+                }
+                if (b == '\n') {
+                    return position + i + 1;
+                }
+                afterCarriageReturn = b == '\r';
+            }
+            position += read;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,51 @@
+package io.sorter.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Интерфейс LineReader описывает источник строк, которые передаются дальше
+ * в виде диапазонов байтов без декодирования в String.
+ * Диапазон текущей строки действителен только до следующего вызова {@link #next()}.
+ */
+public interface LineReader extends Closeable {
+
+    /**
+     * Метод next переходит к следующей строке.
+     * Символы конца строки ("\n", "\r" или "\r\n") в диапазон не входят.
+     *
+     * @return true, если строка прочитана; false, если строки закончились
+     * @throws IOException если возникнет ошибка чтения
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Метод getBuffer возвращает буфер, в котором находится текущая строка.
+     * Индексы строки в буфере абсолютные, позиция и граница буфера не используются.
+     *
+     * @return буфер с байтами текущей строки
+     */
+    ByteBuffer getBuffer();
+
+    /**
+     * Метод getStart возвращает индекс первого байта текущей строки в буфере.
+     *
+     * @return индекс начала строки
+     */
+    int getStart();
+
+    /**
+     * Метод getEnd возвращает индекс, следующий за последним байтом текущей строки в буфере.
+     *
+     * @return индекс конца строки
+     */
+    int getEnd();
+
+    /**
+     * Метод getPosition возвращает смещение начала текущей строки от начала источника.
+     *
+     * @return смещение строки в байтах
+     */
+    long getPosition();
+}
@@ -0,0 +1,109 @@
+package io.sorter.reader;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Класс LineReaders выбирает способ чтения файла по его содержимому, а не по расширению.
+ * Несжатый файл читается через отображение в память ({@link MappedLineReader}).
+ * Файл gzip (сигнатура 1F 8B) распаковывается потоково ({@link StreamLineReader}):
+ * файл в формате BGZF (bgzip) распаковывается параллельно на нескольких ядрах,
+ * остальные файлы gzip, в том числе из нескольких склеенных членов, - последовательно.
+ */
+public final class LineReaders {
+    private static final int PROBE_SIZE = 18; /* Заголовок члена BGZF с полем "BC" */
+    private static final int INPUT_BUFFER_SIZE = 1 << 16;
+
+    private LineReaders() {
+    }
+
+    /**
+     * Метод isCompressed проверяет по первым байтам, сжат ли файл в формате gzip.
+     *
+     * @param path путь к файлу
+     * @return true, если файл начинается с сигнатуры gzip
+     * @throws IOException если файл не удается прочитать
+     */
+    public static boolean isCompressed(Path path) throws IOException {
+        return isGzip(probe(path));
+    }
+
+    /**
+     * Метод open открывает файл для чтения строк. Файлы BGZF распаковываются
+     * во столько потоков, сколько доступно процессоров.
+     *
+     * @param path путь к файлу
+     * @return источник строк
+     * @throws IOException если файл не удается открыть
+     */
+    public static LineReader open(Path path) throws IOException {
+        return open(path, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Метод open открывает файл для чтения строк с заданным количеством потоков распаковки.
+     *
+     * @param path        путь к файлу
+     * @param parallelism количество потоков распаковки файлов BGZF
+     * @return источник строк
+     * @throws IOException если файл не удается открыть
+     */
+    public static LineReader open(Path path, int parallelism) throws IOException {
+        byte[] probe = probe(path);
+        if (!isGzip(probe)) {
+            return new MappedLineReader(path);
+        }
+        InputStream in = new BufferedInputStream(Files.newInputStream(path), INPUT_BUFFER_SIZE);
+        try {
+            if (parallelism > 1 && BgzfInputStream.isBgzf(probe, probe.length)) {
+                return new StreamLineReader(new BgzfInputStream(in, parallelism));
+            }
+            return new StreamLineReader(new GZIPInputStream(in, INPUT_BUFFER_SIZE));
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Метод open открывает поток для чтения строк. Сжатие gzip распознается по первым байтам
+     * потока так же, как у файла; поток BGZF распаковывается параллельно.
+     *
+     * @param in          входной поток; закрывается вместе с источником строк
+     * @param parallelism количество потоков распаковки потока BGZF
+     * @return источник строк
+     * @throws IOException если первые байты потока не удается прочитать
+     */
+    public static LineReader open(InputStream in, int parallelism) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, INPUT_BUFFER_SIZE);
+        try {
+            buffered.mark(PROBE_SIZE);
+            byte[] probe = buffered.readNBytes(PROBE_SIZE);
+            buffered.reset();
+            if (!isGzip(probe)) {
+                return new StreamLineReader(buffered);
+            }
+            if (parallelism > 1 && BgzfInputStream.isBgzf(probe, probe.length)) {
+                return new StreamLineReader(new BgzfInputStream(buffered, parallelism));
+            }
+            return new StreamLineReader(new GZIPInputStream(buffered, INPUT_BUFFER_SIZE));
+        } catch (IOException e) {
+            buffered.close();
+            throw e;
+        }
+    }
+
+    private static boolean isGzip(byte[] probe) {
+        return probe.length >= 2 && (probe[0] & 0xFF) == 0x1F && (probe[1] & 0xFF) == 0x8B;
+    }
+
+    private static byte[] probe(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.readNBytes(PROBE_SIZE);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.sorter.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Класс MappedLineReader читает строки файла через отображение файла в память
+ * ({@link FileChannel#map}). Границы строк ищутся прямо в отображенном окне,
+ * а строки отдаются как диапазоны байтов без декодирования.
+ * Файлы больше 2 ГБ читаются скользящим окном: когда строка не помещается
+ * в текущее окно, файл отображается заново начиная с этой строки.
+ */
+public class MappedLineReader implements LineReader {
+    private static final int DEFAULT_WINDOW_SIZE = 1 << 30; /* Размер окна отображения по умолчанию */
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8; /* Предел размера ByteBuffer */
+
+    private final FileChannel channel;
+    private final long end; /* Смещение, на котором чтение заканчивается */
+    private int windowSize;
+    private MappedByteBuffer window; /* Текущее окно отображения */
+    private long windowStart; /* Смещение начала окна в файле */
+    private int pos; /* Позиция следующей непрочитанной строки в окне */
+    private int lineStart;
+    private int lineEnd;
+
+    /**
+     * Конструктор класса MappedLineReader для чтения файла целиком.
+     *
+     * @param path путь к файлу
+     * @throws IOException если файл не удается открыть
+     */
+    public MappedLineReader(Path path) throws IOException {
+        this(path, 0, Long.MAX_VALUE, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Конструктор класса MappedLineReader для чтения части файла.
+     * Начало диапазона должно совпадать с началом строки.
+     *
+     * @param path путь к файлу
+     * @param from смещение начала диапазона
+     * @param to   смещение конца диапазона (обрезается по размеру файла)
+     * @throws IOException если файл не удается открыть
+     */
+    public MappedLineReader(Path path, long from, long to) throws IOException {
+        this(path, from, to, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Конструктор класса MappedLineReader для чтения части файла с заданным размером окна.
+     * Начало диапазона должно совпадать с началом строки.
+     *
+     * @param path       путь к файлу
+     * @param from       смещение начала диапазона
+     * @param to         смещение конца диапазона (обрезается по размеру файла)
+     * @param windowSize начальный размер окна отображения в байтах
+     * @throws IOException если файл не удается открыть или отобразить
+     */
+    public MappedLineReader(Path path, long from, long to, int windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.end = Math.min(to, channel.size());
+            this.windowSize = windowSize;
+            map(Math.min(from, end));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            int limit = window.limit();
+            boolean lastWindow = windowStart + limit >= end;
+            for (int i = pos; i < limit; i++) {
+                byte b = window.get(i);
+                if (b == '\n' || b == '\r') {
+                    int next = i + 1;
+                    if (b == '\r') {
+                        if (next < limit) {
+                            next += window.get(next) == '\n' ? 1 : 0;
+                        } else if (!lastWindow) {
+                            break; /* Не видно, следует ли за '\r' символ '\n': перечитаем строку в новом окне */
+                        }
+                    }
+                    lineStart = pos;
+                    lineEnd = i;
+                    pos = next;
+                    return true;
+                }
+            }
+
+            if (lastWindow) {
+                if (pos == limit) {
+                    return false;
+                }
+                lineStart = pos; /* Последняя строка без перевода строки */
+                lineEnd = limit;
+                pos = limit;
+                return true;
+            }
+            if (pos == 0) {
+                growWindow(); /* Строка не помещается в окно целиком */
+            }
+            map(windowStart + pos);
+        }
+    }
+
+    @Override
+    public ByteBuffer getBuffer() {
+        return window;
+    }
+
+    @Override
+    public int getStart() {
+        return lineStart;
+    }
+
+    @Override
+    public int getEnd() {
+        return lineEnd;
+    }
+
+    @Override
+    public long getPosition() {
+        return windowStart + lineStart;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, end - start));
+        pos = 0;
+    }
+
+    private void growWindow() throws IOException {
+        if (windowSize == MAX_WINDOW_SIZE) {
+            throw new IOException("Строка на смещении " + windowStart + " длиннее " + MAX_WINDOW_SIZE + " байт");
+        }
+        windowSize = (int) Math.min((long) windowSize * 2, MAX_WINDOW_SIZE);
+    }
+}
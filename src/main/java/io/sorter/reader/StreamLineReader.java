@@ -0,0 +1,253 @@
+package io.sorter.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Класс StreamLineReader читает строки из произвольного потока, например распаковываемого
+ * {@link java.util.zip.GZIPInputStream}. Поток читается отдельным потоком выполнения в два
+ * буфера по очереди: пока разбираются строки одного буфера, второй заполняется следующими
+ * данными, поэтому чтение и распаковка идут параллельно с разбором.
+ * Строки, целиком лежащие в буфере, отдаются прямо из него; строка на границе буферов
+ * собирается в отдельном массиве.
+ */
+public class StreamLineReader implements LineReader {
+    /** Размер буфера чтения по умолчанию. */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final Chunk END = new Chunk(null, 0, 0, null); /* Признак конца потока */
+
+    private final InputStream in;
+    private final Thread readerThread;
+    private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(1); /* Заполненный буфер */
+    private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(2); /* Свободные буферы */
+    private Chunk chunk; /* Буфер, строки которого сейчас разбираются */
+    private ByteBuffer chunkBuffer;
+    private int pos; /* Позиция следующей непрочитанной строки в буфере */
+    private boolean finished;
+    private boolean skipLineFeed; /* Предыдущий буфер закончился символом '\r' */
+    private byte[] carry = new byte[256]; /* Строка, начавшаяся в предыдущем буфере */
+    private ByteBuffer carryBuffer = ByteBuffer.wrap(carry);
+    private ByteBuffer lineBuffer;
+    private int lineStart;
+    private int lineEnd;
+    private long linePosition;
+
+    /**
+     * Конструктор класса StreamLineReader с буферами размера по умолчанию.
+     *
+     * @param in поток с данными; закрывается вместе с объектом
+     */
+    public StreamLineReader(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Конструктор класса StreamLineReader.
+     *
+     * @param in         поток с данными; закрывается вместе с объектом
+     * @param bufferSize размер каждого из двух буферов чтения
+     */
+    public StreamLineReader(InputStream in, int bufferSize) {
+        this.in = in;
+        free.add(new byte[bufferSize]);
+        free.add(new byte[bufferSize]);
+        this.readerThread = new Thread(this::readLoop, "line-reader");
+        this.readerThread.setDaemon(true);
+        this.readerThread.start();
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        int carryLength = 0;
+        long carryPosition = -1; /* Смещение собираемой строки или -1, если строка не собирается */
+        while (true) {
+            if (chunk == null || pos == chunk.length) {
+                if (!advance()) {
+                    if (carryPosition < 0) {
+                        return false;
+                    }
+                    return line(carryBuffer, 0, carryLength, carryPosition); /* Последняя строка без перевода строки */
+                }
+                continue;
+            }
+
+            byte[] data = chunk.data;
+            for (int i = pos; i < chunk.length; i++) {
+                byte b = data[i];
+                if (b == '\n' || b == '\r') {
+                    int next = i + 1;
+                    if (b == '\r') {
+                        if (next < chunk.length) {
+                            next += data[next] == '\n' ? 1 : 0;
+                        } else {
+                            skipLineFeed = true; /* '\n' может оказаться в начале следующего буфера */
+                        }
+                    }
+                    int start = pos;
+                    pos = next;
+                    if (carryPosition < 0) {
+                        return line(chunkBuffer, start, i, chunk.position + start);
+                    }
+                    carryLength = append(carryLength, data, start, i);
+                    return line(carryBuffer, 0, carryLength, carryPosition);
+                }
+            }
+            /* Строка продолжается в следующем буфере */
+            if (carryPosition < 0) {
+                carryPosition = chunk.position + pos;
+            }
+            carryLength = append(carryLength, data, pos, chunk.length);
+            pos = chunk.length;
+        }
+    }
+
+    @Override
+    public ByteBuffer getBuffer() {
+        return lineBuffer;
+    }
+
+    @Override
+    public int getStart() {
+        return lineStart;
+    }
+
+    @Override
+    public int getEnd() {
+        return lineEnd;
+    }
+
+    @Override
+    public long getPosition() {
+        return linePosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        readerThread.interrupt();
+        in.close();
+    }
+
+    private boolean line(ByteBuffer buffer, int start, int end, long position) {
+        lineBuffer = buffer;
+        lineStart = start;
+        lineEnd = end;
+        linePosition = position;
+        return true;
+    }
+
+    private int append(int carryLength, byte[] data, int from, int to) {
+        int length = carryLength + to - from;
+        if (carry.length < length) {
+            carry = Arrays.copyOf(carry, Math.max(length, carry.length * 2));
+            carryBuffer = ByteBuffer.wrap(carry);
+        }
+        System.arraycopy(data, from, carry, carryLength, to - from);
+        return length;
+    }
+
+    /**
+     * Метод advance возвращает разобранный буфер потоку чтения и получает следующий.
+     *
+     * @return false, если данные закончились
+     */
+    private boolean advance() throws IOException {
+        if (finished) {
+            return false;
+        }
+        if (chunk != null) {
+            free.add(chunk.data);
+            chunk = null;
+        }
+        Chunk next;
+        try {
+            next = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Чтение строк прервано");
+        }
+        if (next.error != null) {
+            finished = true;
+            throw rethrow(next.error);
+        }
+        if (next == END) {
+            finished = true;
+            return false;
+        }
+        chunk = next;
+        chunkBuffer = ByteBuffer.wrap(next.data);
+        pos = 0;
+        if (skipLineFeed) {
+            skipLineFeed = false;
+            pos = next.data[0] == '\n' ? 1 : 0; /* Вторая половина "\r\n" */
+        }
+        return true;
+    }
+
+    /**
+     * Метод readLoop выполняется в отдельном потоке: заполняет свободные буферы
+     * данными из потока и передает их на разбор.
+     */
+    private void readLoop() {
+        try {
+            long position = 0;
+            int length;
+            do {
+                byte[] data = free.take();
+                length = in.readNBytes(data, 0, data.length);
+                if (length > 0) {
+                    filled.put(new Chunk(data, length, position, null));
+                    position += length;
+                }
+            } while (length > 0);
+            filled.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); /* Чтение закрыто */
+        } catch (Throwable e) {
+            /* Любая ошибка передается на разбор: иначе разбор ждал бы следующий буфер бесконечно */
+            try {
+                filled.put(new Chunk(null, 0, 0, e));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt(); /* Чтение закрыто, ошибку передавать некому */
+            }
+        }
+    }
+
+    /**
+     * Метод rethrow выбрасывает ошибку потока чтения в потоке разбора без обертки.
+     */
+    private static IOException rethrow(Throwable error) throws IOException {
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        return new IOException("Ошибка чтения потока", error);
+    }
+
+    /**
+     * Заполненный буфер, признак конца потока или ошибка чтения.
+     */
+    private static final class Chunk {
+        private final byte[] data;
+        private final int length;
+        private final long position; /* Смещение начала буфера от начала потока */
+        private final Throwable error;
+
+        Chunk(byte[] data, int length, long position, Throwable error) {
+            this.data = data;
+            this.length = length;
+            this.position = position;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package io.sorter.store;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Класс BinaryReader читает числа и массивы примитивов, записанные классом {@link BinaryWriter}.
+ * Массивы копируются из буфера вне кучи целиком, через представления {@code asIntBuffer}
+ * и {@code asLongBuffer}.
+ */
+public class BinaryReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).limit(0);
+
+    /**
+     * Конструктор класса BinaryReader.
+     *
+     * @param path путь к файлу
+     * @throws IOException если файл не удается открыть
+     */
+    public BinaryReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    /**
+     * Метод readInt читает число int.
+     *
+     * @return число
+     * @throws IOException если файл закончился или возникнет ошибка чтения
+     */
+    public int readInt() throws IOException {
+        ensureAvailable(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    /**
+     * Метод readLong читает число long.
+     *
+     * @return число
+     * @throws IOException если файл закончился или возникнет ошибка чтения
+     */
+    public long readLong() throws IOException {
+        ensureAvailable(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    /**
+     * Метод readInts заполняет диапазон массива int.
+     *
+     * @param values массив
+     * @param from   индекс первого элемента
+     * @param to     индекс, следующий за последним элементом
+     * @throws IOException если файл закончился или возникнет ошибка чтения
+     */
+    public void readInts(int[] values, int from, int to) throws IOException {
+        while (from < to) {
+            ensureAvailable(Integer.BYTES);
+            int count = Math.min(to - from, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().get(values, from, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            from += count;
+        }
+    }
+
+    /**
+     * Метод readLongs заполняет диапазон массива long.
+     *
+     * @param values массив
+     * @param from   индекс первого элемента
+     * @param to     индекс, следующий за последним элементом
+     * @throws IOException если файл закончился или возникнет ошибка чтения
+     */
+    public void readLongs(long[] values, int from, int to) throws IOException {
+        while (from < to) {
+            ensureAvailable(Long.BYTES);
+            int count = Math.min(to - from, buffer.remaining() / Long.BYTES);
+            buffer.asLongBuffer().get(values, from, count);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            from += count;
+        }
+    }
+
+    /**
+     * Метод readBytes заполняет диапазон массива байтов.
+     *
+     * @param values массив
+     * @param from   индекс первого байта
+     * @param to     индекс, следующий за последним байтом
+     * @throws IOException если файл закончился или возникнет ошибка чтения
+     */
+    public void readBytes(byte[] values, int from, int to) throws IOException {
+        while (from < to) {
+            ensureAvailable(1);
+            int count = Math.min(to - from, buffer.remaining());
+            buffer.get(values, from, count);
+            from += count;
+        }
+    }
+
+    /**
+     * Метод readBytes заполняет диапазон буфера (абсолютная адресация).
+     *
+     * @param target буфер-приемник
+     * @param from   индекс первого байта
+     * @param to     индекс, следующий за последним байтом
+     * @throws IOException если файл закончился или возникнет ошибка чтения
+     */
+    public void readBytes(ByteBuffer target, int from, int to) throws IOException {
+        while (from < to) {
+            ensureAvailable(1);
+            int count = Math.min(to - from, buffer.remaining());
+            target.put(from, buffer, buffer.position(), count);
+            buffer.position(buffer.position() + count);
+            from += count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Метод ensureAvailable дочитывает файл, пока в буфере не окажется нужное количество байтов.
+     */
+    private void ensureAvailable(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Файл закончился раньше ожидаемого");
+            }
+        }
+        buffer.flip();
+    }
+}
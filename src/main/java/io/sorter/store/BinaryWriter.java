@@ -0,0 +1,164 @@
+package io.sorter.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Класс BinaryWriter записывает числа и массивы примитивов в файл через FileChannel.
+ * Массивы копируются в буфер вне кучи целиком, через представления {@code asIntBuffer}
+ * и {@code asLongBuffer}, без поэлементной записи. Числа записываются в порядке big-endian
+ * и читаются классом {@link BinaryReader}.
+ */
+public class BinaryWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Конструктор класса BinaryWriter создает или перезаписывает файл.
+     *
+     * @param path путь к файлу
+     * @throws IOException если файл не удается открыть
+     */
+    public BinaryWriter(Path path) throws IOException {
+        this(path, false);
+    }
+
+    /**
+     * Конструктор класса BinaryWriter.
+     *
+     * @param path   путь к файлу
+     * @param append true для записи в конец существующего файла, false для перезаписи
+     * @throws IOException если файл не удается открыть
+     */
+    public BinaryWriter(Path path, boolean append) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Метод writeInt записывает число int.
+     *
+     * @param value число
+     * @throws IOException если возникнет ошибка записи
+     */
+    public void writeInt(int value) throws IOException {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    /**
+     * Метод writeLong записывает число long.
+     *
+     * @param value число
+     * @throws IOException если возникнет ошибка записи
+     */
+    public void writeLong(long value) throws IOException {
+        ensureRemaining(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    /**
+     * Метод writeInts записывает диапазон массива int.
+     *
+     * @param values массив
+     * @param from   индекс первого элемента
+     * @param to     индекс, следующий за последним элементом
+     * @throws IOException если возникнет ошибка записи
+     */
+    public void writeInts(int[] values, int from, int to) throws IOException {
+        while (from < to) {
+            ensureRemaining(Integer.BYTES);
+            int count = Math.min(to - from, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, from, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            from += count;
+        }
+    }
+
+    /**
+     * Метод writeLongs записывает диапазон массива long.
+     *
+     * @param values массив
+     * @param from   индекс первого элемента
+     * @param to     индекс, следующий за последним элементом
+     * @throws IOException если возникнет ошибка записи
+     */
+    public void writeLongs(long[] values, int from, int to) throws IOException {
+        while (from < to) {
+            ensureRemaining(Long.BYTES);
+            int count = Math.min(to - from, buffer.remaining() / Long.BYTES);
+            buffer.asLongBuffer().put(values, from, count);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            from += count;
+        }
+    }
+
+    /**
+     * Метод writeBytes записывает диапазон массива байтов.
+     *
+     * @param values массив
+     * @param from   индекс первого байта
+     * @param to     индекс, следующий за последним байтом
+     * @throws IOException если возникнет ошибка записи
+     */
+    public void writeBytes(byte[] values, int from, int to) throws IOException {
+        while (from < to) {
+            ensureRemaining(1);
+            int count = Math.min(to - from, buffer.remaining());
+            buffer.put(values, from, count);
+            from += count;
+        }
+    }
+
+    /**
+     * Метод writeBytes записывает диапазон байтов буфера (абсолютная адресация).
+     *
+     * @param source буфер-источник
+     * @param from   индекс первого байта
+     * @param to     индекс, следующий за последним байтом
+     * @throws IOException если возникнет ошибка записи
+     */
+    public void writeBytes(ByteBuffer source, int from, int to) throws IOException {
+        while (from < to) {
+            ensureRemaining(1);
+            int count = Math.min(to - from, buffer.remaining());
+            buffer.put(buffer.position(), source, from, count);
+            buffer.position(buffer.position() + count);
+            from += count;
+        }
+    }
+
+    /**
+     * Метод close дописывает буфер и закрывает файл. Данные принудительно сбрасываются
+     * на диск, чтобы файл пережил сбой после переименования.
+     *
+     * @throws IOException если возникнет ошибка записи
+     */
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            flush();
+            channel.force(false);
+        }
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
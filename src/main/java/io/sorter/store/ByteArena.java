@@ -0,0 +1,174 @@
+package io.sorter.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Класс ByteArena хранит последовательности байтов подряд в одном растущем массиве.
+ * Каждая запись состоит из длины в формате varint и самих байтов; ссылкой на запись
+ * служит ее смещение в массиве. В отличие от набора объектов String, у записей нет
+ * заголовков объектов, поэтому на короткие значения уходит на порядок меньше памяти.
+ * Объем арены ограничен 2 ГБ.
+ */
+public class ByteArena {
+    private byte[] bytes;
+    private int size; /* Количество занятых байтов */
+    private ByteBuffer view; /* Представление массива в виде буфера для сравнения и копирования */
+
+    /**
+     * Конструктор класса ByteArena.
+     *
+     * @param initialCapacity начальный размер массива в байтах
+     */
+    public ByteArena(int initialCapacity) {
+        this.bytes = new byte[Math.max(initialCapacity, 16)];
+        this.view = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Метод append добавляет копию диапазона байтов в арену.
+     *
+     * @param source буфер-источник
+     * @param from   индекс первого байта
+     * @param to     индекс, следующий за последним байтом
+     * @return ссылка на добавленную запись
+     */
+    public int append(ByteBuffer source, int from, int to) {
+        int length = to - from;
+        ensureCapacity((long) size + 5 + length);
+        int ref = size;
+        int position = writeLength(length);
+        source.get(from, bytes, position, length);
+        size = position + length;
+        return ref;
+    }
+
+    /**
+     * Метод start возвращает индекс первого байта записи в буфере {@link #buffer()}.
+     *
+     * @param ref ссылка на запись
+     * @return индекс начала записи
+     */
+    public int start(int ref) {
+        int position = ref;
+        while (bytes[position] < 0) {
+            position++;
+        }
+        return position + 1;
+    }
+
+    /**
+     * Метод length возвращает длину записи в байтах.
+     *
+     * @param ref ссылка на запись
+     * @return длина записи
+     */
+    public int length(int ref) {
+        int length = 0;
+        int shift = 0;
+        int position = ref;
+        byte b;
+        do {
+            b = bytes[position++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return length;
+    }
+
+    /**
+     * Метод matches сравнивает запись с диапазоном байтов.
+     *
+     * @param ref    ссылка на запись
+     * @param other  буфер для сравнения
+     * @param from   индекс первого байта диапазона
+     * @param to     индекс, следующий за последним байтом диапазона
+     * @return true, если байты записи совпадают с диапазоном
+     */
+    public boolean matches(int ref, ByteBuffer other, int from, int to) {
+        if (length(ref) != to - from) {
+            return false;
+        }
+        int position = start(ref);
+        for (int i = from; i < to; i++) {
+            if (bytes[position++] != other.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Метод clear удаляет все записи, сохраняя выделенный массив.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Метод buffer возвращает буфер, через который доступны байты записей.
+     * После добавления новых записей буфер может смениться.
+     *
+     * @return буфер над содержимым арены
+     */
+    public ByteBuffer buffer() {
+        return view;
+    }
+
+    /**
+     * Метод size возвращает количество занятых байтов.
+     *
+     * @return размер содержимого арены
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Метод writeTo сохраняет содержимое арены; ссылки на записи после загрузки не меняются.
+     *
+     * @param out файл для записи
+     * @throws IOException если возникнет ошибка записи
+     */
+    public void writeTo(BinaryWriter out) throws IOException {
+        out.writeInt(size);
+        out.writeBytes(bytes, 0, size);
+    }
+
+    /**
+     * Метод readFrom загружает арену, сохраненную методом {@link #writeTo(BinaryWriter)}.
+     *
+     * @param in файл для чтения
+     * @return загруженная арена
+     * @throws IOException если возникнет ошибка чтения
+     */
+    public static ByteArena readFrom(BinaryReader in) throws IOException {
+        int size = in.readInt();
+        ByteArena arena = new ByteArena(size);
+        in.readBytes(arena.bytes, 0, size);
+        arena.size = size;
+        return arena;
+    }
+
+    private int writeLength(int length) {
+        int position = size;
+        while (length >= 0x80) {
+            bytes[position++] = (byte) (length | 0x80);
+            length >>>= 7;
+        }
+        bytes[position++] = (byte) length;
+        return position;
+    }
+
+    private void ensureCapacity(long capacity) {
+        if (capacity <= bytes.length) {
+            return;
+        }
+        if (capacity > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Превышен максимальный размер ByteArena: " + capacity);
+        }
+        bytes = Arrays.copyOf(bytes, (int) Math.min(Math.max((long) bytes.length * 2, capacity), Integer.MAX_VALUE - 8));
+        view = ByteBuffer.wrap(bytes);
+    }
+}
@@ -0,0 +1,379 @@
+package io.sorter.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Класс ExternalSorter сортирует записи произвольной длины, которые не обязаны помещаться в память.
+ * Записи сравниваются как беззнаковые последовательности байтов (лексикографически), поэтому
+ * числа, записанные в порядке big-endian, упорядочиваются по значению.
+ * Записи накапливаются в буфере; когда буфер превышает заданный объем памяти, он сортируется
+ * и сбрасывается во временный файл (серию). По окончании серии сливаются k-путевым слиянием,
+ * при большом количестве серий - в несколько уровней. Если все записи поместились в память,
+ * временные файлы не создаются.
+ */
+public class ExternalSorter implements Closeable {
+    private static final int MAX_FAN_IN = 64; /* Наибольшее количество серий, сливаемых за один раз */
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final Path directory; /* Каталог для временных файлов */
+    private final long memoryLimit; /* Объем памяти под буфер записей */
+    private final List<Path> runs = new ArrayList<>();
+    private final List<Closeable> openCursors = new ArrayList<>();
+    private byte[] data = new byte[1 << 16]; /* Записи буфера подряд */
+    private int[] starts = new int[1024]; /* starts[i] - начало записи i, starts[count] - конец данных */
+    private int[] order = new int[0]; /* Номера записей буфера в порядке сортировки */
+    private int count;
+    private long size;
+    private boolean sorted;
+
+    /**
+     * Конструктор класса ExternalSorter.
+     *
+     * @param directory   каталог для временных файлов серий
+     * @param memoryLimit объем памяти в байтах, после которого буфер сбрасывается на диск
+     */
+    public ExternalSorter(Path directory, long memoryLimit) {
+        this.directory = directory;
+        this.memoryLimit = Math.max(memoryLimit, 1 << 16);
+    }
+
+    /**
+     * Метод add добавляет запись.
+     *
+     * @param record массив с записью
+     * @param from   индекс первого байта записи
+     * @param length длина записи
+     * @throws IOException если не удалось записать серию на диск
+     */
+    public void add(byte[] record, int from, int length) throws IOException {
+        if (sorted) {
+            throw new IllegalStateException("Записи уже отсортированы");
+        }
+        int end = starts[count];
+        if (count > 0 && (memoryUsage(end + length, count + 1) > memoryLimit || end + length > MAX_ARRAY_SIZE)) {
+            spill();
+            end = 0;
+        }
+        if (end + length > data.length) {
+            long grown = Math.min(Math.max((long) data.length * 2, (long) end + length), memoryLimit);
+            data = Arrays.copyOf(data, (int) Math.min(Math.max(grown, (long) end + length), MAX_ARRAY_SIZE));
+        }
+        if (count + 1 == starts.length) {
+            starts = Arrays.copyOf(starts, starts.length * 2);
+        }
+        System.arraycopy(record, from, data, end, length);
+        starts[++count] = end + length;
+        size++;
+    }
+
+    /**
+     * Метод size возвращает количество добавленных записей.
+     *
+     * @return количество записей
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Метод sort завершает добавление записей и возвращает их в порядке возрастания.
+     * Курсор закрывается вместе с сортировщиком.
+     *
+     * @return курсор по отсортированным записям
+     * @throws IOException если возникнет ошибка работы с временными файлами
+     */
+    public RecordCursor sort() throws IOException {
+        sorted = true;
+        if (runs.isEmpty()) {
+            sortBuffer();
+            return new BufferCursor();
+        }
+        if (count > 0) {
+            spill();
+        }
+        while (runs.size() > MAX_FAN_IN) {
+            /* Сливаем первые серии в одну, пока их количество не станет допустимым */
+            List<Path> batch = new ArrayList<>(runs.subList(0, MAX_FAN_IN));
+            runs.subList(0, MAX_FAN_IN).clear();
+            Path merged = newRun();
+            try (MergeCursor cursor = new MergeCursor(batch);
+                 DataOutputStream out = openRun(merged)) {
+                while (cursor.next()) {
+                    writeRecord(out, cursor.array(), cursor.start(), cursor.length());
+                }
+            }
+            for (Path run : batch) {
+                Files.deleteIfExists(run);
+            }
+        }
+        data = new byte[0]; /* Буфер больше не нужен: память уходит на буферы чтения серий */
+        starts = new int[1];
+        order = new int[0];
+        MergeCursor cursor = new MergeCursor(runs);
+        openCursors.add(cursor);
+        return cursor;
+    }
+
+    /**
+     * Метод close удаляет временные файлы серий.
+     *
+     * @throws IOException если не удалось удалить файл
+     */
+    @Override
+    public void close() throws IOException {
+        for (Closeable cursor : openCursors) {
+            cursor.close();
+        }
+        openCursors.clear();
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+    }
+
+    private static long memoryUsage(long dataSize, int records) {
+        return dataSize + (long) records * Integer.BYTES * 2; /* Начала записей и порядок сортировки */
+    }
+
+    private void spill() throws IOException {
+        sortBuffer();
+        Path run = newRun();
+        try (DataOutputStream out = openRun(run)) {
+            for (int i = 0; i < count; i++) {
+                int record = order[i];
+                writeRecord(out, data, starts[record], starts[record + 1] - starts[record]);
+            }
+        }
+        count = 0;
+    }
+
+    private Path newRun() throws IOException {
+        Path run = Files.createTempFile(directory, "run", ".bin");
+        runs.add(run);
+        return run;
+    }
+
+    private static DataOutputStream openRun(Path run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER_SIZE));
+    }
+
+    private static void writeRecord(DataOutputStream out, byte[] array, int from, int length) throws IOException {
+        out.writeInt(length);
+        out.write(array, from, length);
+    }
+
+    private int compare(int first, int second) {
+        return Arrays.compareUnsigned(data, starts[first], starts[first + 1], data, starts[second], starts[second + 1]);
+    }
+
+    /**
+     * Метод sortBuffer упорядочивает номера записей буфера быстрой сортировкой
+     * без упаковки номеров в объекты.
+     */
+    private void sortBuffer() {
+        if (order.length < count) {
+            order = new int[Math.max(count, starts.length)];
+        }
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        quickSort(0, count - 1);
+    }
+
+    private void quickSort(int low, int high) {
+        while (high - low > INSERTION_SORT_THRESHOLD) {
+            int middle = (low + high) >>> 1;
+            /* Опорный элемент - медиана трех */
+            if (compare(order[middle], order[low]) < 0) {
+                swap(middle, low);
+            }
+            if (compare(order[high], order[low]) < 0) {
+                swap(high, low);
+            }
+            if (compare(order[high], order[middle]) < 0) {
+                swap(high, middle);
+            }
+            int pivot = order[middle];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(order[i], pivot) < 0) {
+                    i++;
+                }
+                while (compare(order[j], pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            /* Рекурсия по меньшей части ограничивает глубину стека */
+            if (j - low < high - i) {
+                quickSort(low, j);
+                low = i;
+            } else {
+                quickSort(i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            int record = order[i];
+            int j = i - 1;
+            while (j >= low && compare(order[j], record) > 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = record;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int tmp = order[i];
+        order[i] = order[j];
+        order[j] = tmp;
+    }
+
+    /**
+     * Курсор по отсортированному буферу, если записи не сбрасывались на диск.
+     */
+    private final class BufferCursor implements RecordCursor {
+        private int position = -1;
+
+        @Override
+        public boolean next() {
+            return ++position < count;
+        }
+
+        @Override
+        public byte[] array() {
+            return data;
+        }
+
+        @Override
+        public int start() {
+            return starts[order[position]];
+        }
+
+        @Override
+        public int length() {
+            int record = order[position];
+            return starts[record + 1] - starts[record];
+        }
+
+        @Override
+        public void close() {
+            position = count;
+        }
+    }
+
+    /**
+     * Последовательное чтение одной серии.
+     */
+    private static final class RunReader implements Closeable {
+        private final DataInputStream in;
+        private byte[] record = new byte[64];
+        private int length;
+
+        RunReader(Path run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER_SIZE));
+        }
+
+        boolean next() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                return false;
+            }
+            length = (b << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+            if (length < 0) {
+                throw new EOFException("Поврежден временный файл сортировки");
+            }
+            if (record.length < length) {
+                record = new byte[Math.max(length, record.length * 2)];
+            }
+            in.readFully(record, 0, length);
+            return true;
+        }
+
+        int compareTo(RunReader other) {
+            return Arrays.compareUnsigned(record, 0, length, other.record, 0, other.length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * K-путевое слияние серий через очередь с приоритетом по текущим записям серий.
+     */
+    private static final class MergeCursor implements RecordCursor {
+        private final PriorityQueue<RunReader> queue = new PriorityQueue<>(RunReader::compareTo);
+        private final List<RunReader> readers = new ArrayList<>();
+        private RunReader current;
+
+        MergeCursor(List<Path> runs) throws IOException {
+            try {
+                for (Path run : runs) {
+                    RunReader reader = new RunReader(run);
+                    readers.add(reader);
+                    if (reader.next()) {
+                        queue.add(reader);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (current != null && current.next()) {
+                queue.add(current);
+            }
+            current = queue.poll();
+            return current != null;
+        }
+
+        @Override
+        public byte[] array() {
+            return current.record;
+        }
+
+        @Override
+        public int start() {
+            return 0;
+        }
+
+        @Override
+        public int length() {
+            return current.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+            readers.clear();
+            queue.clear();
+        }
+    }
+}
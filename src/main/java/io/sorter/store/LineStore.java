@@ -0,0 +1,297 @@
+package io.sorter.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Класс LineStore хранит байты принятых строк вне кучи Java: строки дописываются подряд
+ * в крупные блоки, выделенные через {@link ByteBuffer#allocateDirect(int)}, а для каждой строки
+ * хранится только смещение в компактном массиве long[]. Номер строки в хранилище совпадает
+ * с номером строки в {@code UnionFind}. Блоки образуют единое адресное пространство,
+ * поэтому строка может начинаться в одном блоке и заканчиваться в следующем.
+ * Объем прямой памяти ограничен параметром JVM -XX:MaxDirectMemorySize.
+ */
+public class LineStore {
+    /** Размер блока по умолчанию. */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 24;
+
+    private final boolean direct; /* Выделять блоки вне кучи */
+    private final int blockBits;
+    private final int blockMask;
+    private final List<ByteBuffer> blocks = new ArrayList<>();
+    private long[] offsets = new long[1024]; /* offsets[i] - начало строки i, offsets[size] - конец данных */
+    private int size;
+
+    /**
+     * Конструктор класса LineStore с блоками вне кучи размера по умолчанию.
+     */
+    public LineStore() {
+        this(DEFAULT_BLOCK_SIZE, true);
+    }
+
+    /**
+     * Конструктор класса LineStore.
+     *
+     * @param blockSize размер блока в байтах, округляется вверх до степени двойки
+     * @param direct    true для блоков вне кучи, false для блоков в куче
+     */
+    public LineStore(int blockSize, boolean direct) {
+        this.direct = direct;
+        this.blockBits = 32 - Integer.numberOfLeadingZeros(Math.max(blockSize, 2) - 1);
+        this.blockMask = (1 << blockBits) - 1;
+    }
+
+    /**
+     * Метод ensureCapacity заранее расширяет массив концов строк под ожидаемое количество строк.
+     *
+     * @param lineCount ожидаемое количество строк
+     */
+    public void ensureCapacity(int lineCount) {
+        if (lineCount + 1 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, lineCount + 1);
+        }
+    }
+
+    /**
+     * Метод add дописывает строку в хранилище.
+     *
+     * @param source буфер, в котором находится строка
+     * @param from   индекс первого байта строки
+     * @param to     индекс, следующий за последним байтом строки
+     * @return номер добавленной строки
+     */
+    public int add(ByteBuffer source, int from, int to) {
+        return append(write(offsets[size], source, from, to - from));
+    }
+
+    /**
+     * Метод add копирует строку из другого хранилища.
+     *
+     * @param other хранилище-источник
+     * @param line  номер строки в хранилище-источнике
+     * @return номер добавленной строки
+     */
+    public int add(LineStore other, int line) {
+        long address = other.offsets[line];
+        long end = other.offsets[line + 1];
+        long target = offsets[size];
+        while (address < end) {
+            ByteBuffer block = other.blocks.get((int) (address >>> other.blockBits));
+            int position = (int) (address & other.blockMask);
+            int chunk = (int) Math.min(end - address, block.capacity() - position);
+            target = write(target, block, position, chunk);
+            address += chunk;
+        }
+        return append(target);
+    }
+
+    /**
+     * Метод clear удаляет все строки, сохраняя выделенные блоки и массив концов строк:
+     * новые строки записываются поверх прежних без повторного выделения памяти.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Метод length возвращает длину строки в байтах.
+     *
+     * @param line номер строки
+     * @return длина строки
+     */
+    public int length(int line) {
+        return (int) (offsets[line + 1] - offsets[line]);
+    }
+
+    /**
+     * Метод copyTo копирует байты строки, начиная с указанного смещения, в буфер-приемник
+     * (с его текущей позиции), сколько поместится.
+     *
+     * @param line        номер строки
+     * @param offset      смещение внутри строки, с которого начинается копирование
+     * @param destination буфер-приемник
+     * @return количество скопированных байтов
+     */
+    public int copyTo(int line, int offset, ByteBuffer destination) {
+        long address = offsets[line] + offset;
+        long end = offsets[line + 1];
+        int copied = 0;
+        while (address < end && destination.hasRemaining()) {
+            ByteBuffer block = blocks.get((int) (address >>> blockBits));
+            int position = (int) (address & blockMask);
+            int chunk = (int) Math.min(Math.min(end - address, block.capacity() - position), destination.remaining());
+            destination.put(destination.position(), block, position, chunk);
+            destination.position(destination.position() + chunk);
+            address += chunk;
+            copied += chunk;
+        }
+        return copied;
+    }
+
+    /**
+     * Метод matches сравнивает строку хранилища с диапазоном байтов.
+     *
+     * @param line  номер строки
+     * @param other буфер для сравнения
+     * @param from  индекс первого байта диапазона
+     * @param to    индекс, следующий за последним байтом диапазона
+     * @return true, если байты совпадают
+     */
+    public boolean matches(int line, ByteBuffer other, int from, int to) {
+        return length(line) == to - from && matchesAt(offsets[line], other, from, to);
+    }
+
+    /**
+     * Метод matches сравнивает строку хранилища со строкой другого хранилища.
+     *
+     * @param line      номер строки в этом хранилище
+     * @param other     другое хранилище
+     * @param otherLine номер строки в другом хранилище
+     * @return true, если байты совпадают
+     */
+    public boolean matches(int line, LineStore other, int otherLine) {
+        if (length(line) != other.length(otherLine)) {
+            return false;
+        }
+        long address = offsets[line];
+        long otherAddress = other.offsets[otherLine];
+        long otherEnd = other.offsets[otherLine + 1];
+        while (otherAddress < otherEnd) {
+            ByteBuffer otherBlock = other.blocks.get((int) (otherAddress >>> other.blockBits));
+            int position = (int) (otherAddress & other.blockMask);
+            int chunk = (int) Math.min(otherEnd - otherAddress, otherBlock.capacity() - position);
+            if (!matchesAt(address, otherBlock, position, position + chunk)) {
+                return false;
+            }
+            address += chunk;
+            otherAddress += chunk;
+        }
+        return true;
+    }
+
+    /**
+     * Метод size возвращает количество строк в хранилище.
+     *
+     * @return количество строк
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Метод sizeInBytes возвращает суммарный объем байтов строк.
+     *
+     * @return объем данных в байтах
+     */
+    public long sizeInBytes() {
+        return offsets[size];
+    }
+
+    /**
+     * Метод writeBytesTo дописывает в файл байты строк, начиная со строки fromLine, подряд
+     * без разделителей.
+     *
+     * @param data     файл байтов строк
+     * @param fromLine номер первой дописываемой строки
+     * @throws IOException если возникнет ошибка записи
+     */
+    public void writeBytesTo(BinaryWriter data, int fromLine) throws IOException {
+        long address = offsets[fromLine];
+        long end = offsets[size];
+        while (address < end) {
+            ByteBuffer block = blocks.get((int) (address >>> blockBits));
+            int position = (int) (address & blockMask);
+            int chunk = (int) Math.min(end - address, block.capacity() - position);
+            data.writeBytes(block, position, position + chunk);
+            address += chunk;
+        }
+    }
+
+    /**
+     * Метод writeEndsTo дописывает в файл концы строк, начиная со строки fromLine, - по одному
+     * числу long на строку. Начало первой строки всегда равно нулю и не записывается, поэтому
+     * концы строк, дописанные по частям, образуют тот же файл, что и записанные разом.
+     *
+     * @param ends     файл концов строк
+     * @param fromLine номер первой дописываемой строки
+     * @throws IOException если возникнет ошибка записи
+     */
+    public void writeEndsTo(BinaryWriter ends, int fromLine) throws IOException {
+        ends.writeLongs(offsets, fromLine + 1, size + 1);
+    }
+
+    /**
+     * Метод readFrom загружает первые lineCount строк, сохраненных методами
+     * {@link #writeBytesTo(BinaryWriter, int)} и {@link #writeEndsTo(BinaryWriter, int)},
+     * в новое хранилище вне кучи.
+     * Байты после последней загруженной строки не читаются.
+     *
+     * @param data      файл байтов строк
+     * @param ends      файл концов строк
+     * @param lineCount количество загружаемых строк
+     * @return загруженное хранилище
+     * @throws IOException если файлы короче ожидаемого или возникнет ошибка чтения
+     */
+    public static LineStore readFrom(BinaryReader data, BinaryReader ends, int lineCount) throws IOException {
+        LineStore store = new LineStore();
+        store.offsets = new long[Math.max(store.offsets.length, lineCount + 1)];
+        ends.readLongs(store.offsets, 1, lineCount + 1);
+        long end = store.offsets[lineCount];
+        long address = 0;
+        while (address < end) {
+            ByteBuffer block = store.blockFor(address);
+            int position = (int) (address & store.blockMask);
+            int chunk = (int) Math.min(end - address, block.capacity() - position);
+            data.readBytes(block, position, position + chunk);
+            address += chunk;
+        }
+        store.size = lineCount;
+        return store;
+    }
+
+    private boolean matchesAt(long address, ByteBuffer other, int from, int to) {
+        while (from < to) {
+            ByteBuffer block = blocks.get((int) (address >>> blockBits));
+            int position = (int) (address & blockMask);
+            int chunk = Math.min(to - from, block.capacity() - position);
+            if (block.slice(position, chunk).mismatch(other.slice(from, chunk)) >= 0) {
+                return false;
+            }
+            from += chunk;
+            address += chunk;
+        }
+        return true;
+    }
+
+    private long write(long address, ByteBuffer source, int from, int length) {
+        int end = from + length;
+        while (from < end) {
+            ByteBuffer block = blockFor(address);
+            int position = (int) (address & blockMask);
+            int chunk = Math.min(end - from, block.capacity() - position);
+            block.put(position, source, from, chunk);
+            from += chunk;
+            address += chunk;
+        }
+        return address;
+    }
+
+    private ByteBuffer blockFor(long address) {
+        int index = (int) (address >>> blockBits);
+        while (blocks.size() <= index) {
+            blocks.add(direct ? ByteBuffer.allocateDirect(1 << blockBits) : ByteBuffer.allocate(1 << blockBits));
+        }
+        return blocks.get(index);
+    }
+
+    private int append(long end) {
+        if (size + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[++size] = end;
+        return size - 1;
+    }
+}
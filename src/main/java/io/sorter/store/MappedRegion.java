@@ -0,0 +1,112 @@
+package io.sorter.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Класс MappedRegion отображает в память участок файла произвольной длины. Один
+ * {@link java.nio.MappedByteBuffer} ограничен 2 ГБ, поэтому участок отображается сегментами
+ * по 1 ГБ, и каждый сегмент захватывает еще {@code overlap} байтов следующего. Благодаря
+ * перекрытию любое значение длиной не больше {@code overlap} целиком лежит в сегменте,
+ * в котором оно начинается, и читается одним обращением без склейки.
+ * Отображение остается действительным после закрытия канала.
+ */
+public final class MappedRegion {
+    private static final int SEGMENT_BITS = 30;
+
+    private final ByteBuffer[] segments;
+    private final int segmentBits;
+    private final long segmentMask;
+    private final long size;
+
+    private MappedRegion(ByteBuffer[] segments, int segmentBits, long size) {
+        this.segments = segments;
+        this.segmentBits = segmentBits;
+        this.segmentMask = (1L << segmentBits) - 1;
+        this.size = size;
+    }
+
+    /**
+     * Метод map отображает участок файла только для чтения.
+     *
+     * @param channel  файл
+     * @param position смещение начала участка в файле
+     * @param size     длина участка в байтах
+     * @param overlap  наибольшая длина значения, которое читается одним обращением;
+     *                 не меньше 8 байт, чтобы числа long не разрезались сегментами
+     * @return отображенный участок
+     * @throws IOException если участок не удается отобразить
+     */
+    public static MappedRegion map(FileChannel channel, long position, long size, int overlap) throws IOException {
+        return map(channel, position, size, overlap, SEGMENT_BITS);
+    }
+
+    static MappedRegion map(FileChannel channel, long position, long size, int overlap, int segmentBits)
+            throws IOException {
+        long segmentSize = 1L << segmentBits;
+        long margin = Math.max(overlap, Long.BYTES);
+        if (segmentSize + margin > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Слишком большое перекрытие сегментов: " + overlap);
+        }
+        int count = (int) ((size + segmentSize - 1) >>> segmentBits);
+        ByteBuffer[] segments = new ByteBuffer[Math.max(count, 1)];
+        segments[0] = ByteBuffer.allocate(0);
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << segmentBits;
+            long length = Math.min(size - start, segmentSize + margin);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + start, length);
+        }
+        return new MappedRegion(segments, segmentBits, size);
+    }
+
+    /**
+     * Метод getByte читает байт.
+     *
+     * @param index смещение от начала участка
+     * @return байт
+     */
+    public byte getByte(long index) {
+        return segments[(int) (index >>> segmentBits)].get((int) (index & segmentMask));
+    }
+
+    /**
+     * Метод getInt читает число int в порядке big-endian.
+     *
+     * @param index смещение от начала участка
+     * @return число
+     */
+    public int getInt(long index) {
+        return segments[(int) (index >>> segmentBits)].getInt((int) (index & segmentMask));
+    }
+
+    /**
+     * Метод getLong читает число long в порядке big-endian.
+     *
+     * @param index смещение от начала участка
+     * @return число
+     */
+    public long getLong(long index) {
+        return segments[(int) (index >>> segmentBits)].getLong((int) (index & segmentMask));
+    }
+
+    /**
+     * Метод slice возвращает представление диапазона байтов без копирования.
+     *
+     * @param index  смещение начала диапазона от начала участка
+     * @param length длина диапазона, не больше перекрытия сегментов
+     * @return буфер только для чтения с позицией 0 и пределом length
+     */
+    public ByteBuffer slice(long index, int length) {
+        return segments[(int) (index >>> segmentBits)].slice((int) (index & segmentMask), length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Метод size возвращает длину участка.
+     *
+     * @return длина в байтах
+     */
+    public long size() {
+        return size;
+    }
+}
@@ -0,0 +1,41 @@
+package io.sorter.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Интерфейс RecordCursor описывает последовательный обход записей, упорядоченных
+ * классом {@link ExternalSorter}. Байты текущей записи действительны только
+ * до следующего вызова {@link #next()}.
+ */
+public interface RecordCursor extends Closeable {
+
+    /**
+     * Метод next переходит к следующей записи.
+     *
+     * @return true, если запись прочитана; false, если записи закончились
+     * @throws IOException если возникнет ошибка чтения временных файлов
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Метод array возвращает массив, в котором находится текущая запись.
+     *
+     * @return массив с байтами текущей записи
+     */
+    byte[] array();
+
+    /**
+     * Метод start возвращает индекс первого байта текущей записи в массиве.
+     *
+     * @return индекс начала записи
+     */
+    int start();
+
+    /**
+     * Метод length возвращает длину текущей записи в байтах.
+     *
+     * @return длина записи
+     */
+    int length();
+}
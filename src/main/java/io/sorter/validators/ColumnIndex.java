@@ -0,0 +1,378 @@
+package io.sorter.validators;
+
+import io.sorter.store.BinaryReader;
+import io.sorter.store.BinaryWriter;
+import io.sorter.store.ByteArena;
+import io.sorter.store.MappedRegion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Класс ColumnIndex - словарь значений одного столбца: каждое различное значение получает
+ * плотный номер (по порядку первого появления), а по номеру в массивах хранятся 64-битный
+ * ключ значения ({@link ValueKeys}), номер первой строки, в которой оно встретилось, и ссылка
+ * на байты значения в {@link ByteArena}. Поиск идет по хеш-таблице с открытой адресацией
+ * и линейным пробированием, в ячейке которой упакованы старшая половина перемешанного ключа
+ * и номер значения: несовпадающие значения отсеиваются без обращения к массивам значений.
+ * Десятичные числа до 18 цифр сравниваются только по упакованному ключу, без байтов; у остальных
+ * значений ключ - отпечаток, и при совпадении значение сверяется побайтно, поэтому коллизии
+ * отпечатков не приводят к ложным объединениям.
+ * В отличие от HashMap&lt;String, Integer&gt;, словарь не создает объектов на каждое значение.
+ */
+public class ColumnIndex {
+    private static final int MIN_CAPACITY = 16;
+    private static final int EMPTY = -1; /* Результат поиска отсутствующего значения */
+    private static final long EMPTY_SLOT = -1L; /* Свободная ячейка: номер значения не бывает равен -1 */
+
+    private final ByteArena values; /* Байты различных значений столбца */
+    private long[] slots; /* Старшая половина перемешанного ключа в старших 32 битах, номер значения - в младших */
+    private long[] keys; /* Массивы по номерам значений */
+    private int[] firstLines;
+    private int[] valueRefs;
+    private int mask;
+    private int size;
+    private int threshold; /* Количество значений, после которого таблица расширяется */
+
+    /**
+     * Конструктор класса ColumnIndex.
+     *
+     * @param expectedSize ожидаемое количество различных значений
+     */
+    public ColumnIndex(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        this.values = new ByteArena(capacity * 8);
+        allocateSlots(capacity);
+        allocateValues(Math.max(expectedSize, MIN_CAPACITY));
+    }
+
+    private ColumnIndex(ByteArena values, int capacity, int valueCapacity) {
+        this.values = values;
+        allocateSlots(capacity);
+        allocateValues(Math.max(valueCapacity, MIN_CAPACITY));
+    }
+
+    /**
+     * Метод putIfAbsent ищет значение в столбце и, если его нет, запоминает строку, в которой оно встретилось.
+     *
+     * @param buffer     буфер со значением
+     * @param from       индекс первого байта значения
+     * @param to         индекс, следующий за последним байтом значения
+     * @param lineNumber номер текущей строки
+     * @return номер строки, в которой значение встретилось раньше, или -1, если значение новое
+     */
+    public int putIfAbsent(ByteBuffer buffer, int from, int to, int lineNumber) {
+        return putIfAbsent(ValueKeys.keyOf(buffer, from, to), buffer, from, to, lineNumber);
+    }
+
+    /**
+     * Метод putIfAbsent с заранее вычисленным ключом значения {@link ValueKeys#keyOf(ByteBuffer, int, int)},
+     * например в другом потоке.
+     *
+     * @param key        ключ значения
+     * @param buffer     буфер со значением
+     * @param from       индекс первого байта значения
+     * @param to         индекс, следующий за последним байтом значения
+     * @param lineNumber номер текущей строки
+     * @return номер строки, в которой значение встретилось раньше, или -1, если значение новое
+     */
+    public int putIfAbsent(long key, ByteBuffer buffer, int from, int to, int lineNumber) {
+        int slot = findSlot(key, buffer, from, to);
+        if (slots[slot] != EMPTY_SLOT) {
+            return firstLines[(int) slots[slot]];
+        }
+        add(slot, key, values.append(buffer, from, to), lineNumber);
+        return EMPTY;
+    }
+
+    /**
+     * Метод getValueId ищет значение в словаре.
+     *
+     * @param buffer буфер со значением
+     * @param from   индекс первого байта значения
+     * @param to     индекс, следующий за последним байтом значения
+     * @return номер значения (от 0 до {@link #size()} - 1 по порядку первого появления)
+     *         или -1, если значения нет
+     */
+    public int getValueId(ByteBuffer buffer, int from, int to) {
+        int slot = findSlot(ValueKeys.keyOf(buffer, from, to), buffer, from, to);
+        return slots[slot] == EMPTY_SLOT ? EMPTY : (int) slots[slot];
+    }
+
+    /**
+     * Метод getFirstLine возвращает номер первой строки, в которой встретилось значение.
+     *
+     * @param valueId номер значения
+     * @return номер строки
+     */
+    public int getFirstLine(int valueId) {
+        return firstLines[valueId];
+    }
+
+    /**
+     * Метод merge переносит значения другого индекса того же столбца в этот индекс.
+     * Если значение уже есть, строки объединяются, иначе значение запоминается
+     * с номером строки в общей нумерации. Значения частичного индекса перебираются
+     * по порядку номеров с уже вычисленными ключами: числа сливаются без сверки байтов.
+     *
+     * @param partial   индекс, заполненный по части данных
+     * @param toGlobal  номера строк частичного индекса в общей нумерации
+     * @param unionFind система множеств с общей нумерацией строк
+     */
+    public void merge(ColumnIndex partial, int[] toGlobal, DisjointSet unionFind) {
+        ByteBuffer partialValues = partial.values.buffer();
+        for (int valueId = 0; valueId < partial.size; valueId++) {
+            int ref = partial.valueRefs[valueId];
+            int start = partial.values.start(ref);
+            long key = partial.keys[valueId];
+            int lineNumber = toGlobal[partial.firstLines[valueId]];
+            int slot = findSlot(key, partialValues, start, start + partial.values.length(ref));
+            if (slots[slot] != EMPTY_SLOT) {
+                /* Значение встречалось в предыдущих частях */
+                unionFind.union(firstLines[(int) slots[slot]], lineNumber);
+            } else {
+                add(slot, key, values.append(partialValues, start, start + partial.values.length(ref)),
+                        lineNumber);
+            }
+        }
+    }
+
+    /**
+     * Метод ensureCapacity заранее расширяет словарь под ожидаемое количество значений,
+     * чтобы при заполнении не было повторных перестроений.
+     *
+     * @param expectedSize ожидаемое количество различных значений
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        if (capacity > slots.length) {
+            rehash(capacity);
+        }
+        if (expectedSize > firstLines.length) {
+            growValues(expectedSize);
+        }
+    }
+
+    /**
+     * Метод clear удаляет все значения, сохраняя размер таблицы, массивы по номерам значений и арену.
+     */
+    public void clear() {
+        Arrays.fill(slots, EMPTY_SLOT);
+        values.clear();
+        size = 0;
+    }
+
+    /**
+     * Метод sizeInBytes возвращает объем памяти словаря: байты значений в арене,
+     * хеш-таблицу и массивы по номерам значений с учетом их запаса.
+     *
+     * @return объем памяти в байтах
+     */
+    public long sizeInBytes() {
+        return values.size() + (long) (slots.length + keys.length) * Long.BYTES
+                + (long) (firstLines.length + valueRefs.length) * Integer.BYTES;
+    }
+
+    /**
+     * Метод size возвращает количество различных значений в столбце.
+     *
+     * @return количество значений
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Метод writeTo сохраняет индекс вместе с байтами значений.
+     *
+     * @param out файл для записи
+     * @throws IOException если возникнет ошибка записи
+     */
+    public void writeTo(BinaryWriter out) throws IOException {
+        values.writeTo(out);
+        out.writeInt(slots.length);
+        out.writeInt(size);
+        out.writeLongs(slots, 0, slots.length);
+        out.writeLongs(keys, 0, size);
+        out.writeInts(firstLines, 0, size);
+        out.writeInts(valueRefs, 0, size);
+    }
+
+    /**
+     * Метод readFrom загружает индекс, сохраненный методом {@link #writeTo(BinaryWriter)}.
+     * Таблица загружается как есть, без повторного хеширования значений.
+     *
+     * @param in файл для чтения
+     * @return загруженный индекс
+     * @throws IOException если возникнет ошибка чтения
+     */
+    public static ColumnIndex readFrom(BinaryReader in) throws IOException {
+        ByteArena values = ByteArena.readFrom(in);
+        int capacity = in.readInt();
+        int size = in.readInt();
+        ColumnIndex index = new ColumnIndex(values, capacity, size);
+        index.size = size;
+        in.readLongs(index.slots, 0, capacity);
+        in.readLongs(index.keys, 0, size);
+        in.readInts(index.firstLines, 0, size);
+        in.readInts(index.valueRefs, 0, size);
+        return index;
+    }
+
+    /**
+     * Метод find ищет значение в индексе, сохраненном методом {@link #writeTo(BinaryWriter)},
+     * прямо в отображенном в память файле, не загружая таблицу в кучу.
+     *
+     * @param region   отображенный файл
+     * @param position смещение сохраненного индекса в region
+     * @param value    буфер со значением
+     * @param from     индекс первого байта значения
+     * @param to       индекс, следующий за последним байтом значения
+     * @return номер первой строки со значением или -1, если значения нет
+     */
+    public static int find(MappedRegion region, long position, ByteBuffer value, int from, int to) {
+        long arena = position + Integer.BYTES;
+        long table = arena + region.getInt(position);
+        int capacity = region.getInt(table);
+        int size = region.getInt(table + Integer.BYTES);
+        long slots = table + Integer.BYTES * 2;
+        long keys = slots + (long) capacity * Long.BYTES;
+        long firstLines = keys + (long) size * Long.BYTES;
+        long valueRefs = firstLines + (long) size * Integer.BYTES;
+        long key = ValueKeys.keyOf(value, from, to);
+        long mixed = Fingerprints.mix(key);
+        int mask = capacity - 1;
+        int slot = (int) (mixed ^ (mixed >>> 32)) & mask;
+        while (true) {
+            long entry = region.getLong(slots + (long) slot * Long.BYTES);
+            if (entry == EMPTY_SLOT) {
+                return EMPTY;
+            }
+            long valueId = (int) entry;
+            if ((entry ^ mixed) >>> 32 == 0
+                    && region.getLong(keys + valueId * Long.BYTES) == key
+                    && (ValueKeys.isExact(key)
+                    || matches(region, arena + region.getInt(valueRefs + valueId * Integer.BYTES), value, from, to))) {
+                return region.getInt(firstLines + valueId * Integer.BYTES);
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Метод mappedLength возвращает длину индекса, сохраненного методом {@link #writeTo(BinaryWriter)}.
+     *
+     * @param region   отображенный файл
+     * @param position смещение сохраненного индекса в region
+     * @return длина сохраненного индекса в байтах
+     */
+    public static long mappedLength(MappedRegion region, long position) {
+        long table = position + Integer.BYTES + region.getInt(position);
+        int capacity = region.getInt(table);
+        int size = region.getInt(table + Integer.BYTES);
+        return table - position + Integer.BYTES * 2 + (long) capacity * Long.BYTES
+                + (long) size * (Long.BYTES + Integer.BYTES * 2);
+    }
+
+    /**
+     * Метод matches сравнивает запись {@link ByteArena} (длина varint и байты) в отображенном
+     * файле с диапазоном байтов.
+     */
+    private static boolean matches(MappedRegion region, long entry, ByteBuffer value, int from, int to) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = region.getByte(entry++);
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        if (length != to - from) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (region.getByte(entry++) != value.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Метод findSlot находит ячейку со значением или свободную ячейку, в которую его можно добавить.
+     */
+    private int findSlot(long key, ByteBuffer buffer, int from, int to) {
+        long mixed = Fingerprints.mix(key);
+        int slot = slotOf(mixed);
+        long entry;
+        while ((entry = slots[slot]) != EMPTY_SLOT) {
+            int valueId = (int) entry;
+            if ((entry ^ mixed) >>> 32 == 0 && keys[valueId] == key
+                    && (ValueKeys.isExact(key) || values.matches(valueRefs[valueId], buffer, from, to))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void add(int slot, long key, int valueRef, int lineNumber) {
+        if (size == firstLines.length) {
+            growValues(size + (size >> 1));
+        }
+        keys[size] = key;
+        firstLines[size] = lineNumber;
+        valueRefs[size] = valueRef;
+        slots[slot] = (Fingerprints.mix(key) & 0xFFFFFFFF00000000L) | size;
+        if (++size > threshold) {
+            rehash(slots.length * 2);
+        }
+    }
+
+    private int slotOf(long mixed) {
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+
+    private void allocateSlots(int capacity) {
+        slots = new long[capacity];
+        Arrays.fill(slots, EMPTY_SLOT);
+        mask = capacity - 1;
+        threshold = capacity / 4 * 3;
+    }
+
+    private void allocateValues(int capacity) {
+        keys = new long[capacity];
+        firstLines = new int[capacity];
+        valueRefs = new int[capacity];
+    }
+
+    private void growValues(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+        firstLines = Arrays.copyOf(firstLines, capacity);
+        valueRefs = Arrays.copyOf(valueRefs, capacity);
+    }
+
+    /**
+     * Метод rehash перестраивает только таблицу ячеек: ключи берутся из массива по номерам значений.
+     */
+    private void rehash(int capacity) {
+        allocateSlots(capacity);
+        for (int valueId = 0; valueId < size; valueId++) {
+            long mixed = Fingerprints.mix(keys[valueId]);
+            int slot = slotOf(mixed);
+            while (slots[slot] != EMPTY_SLOT) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = (mixed & 0xFFFFFFFF00000000L) | valueId;
+        }
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 4 / 3 + 1);
+        if (needed > 1 << 30) {
+            return 1 << 30;
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+}
@@ -0,0 +1,124 @@
+package io.sorter.validators;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Класс ConcurrentUnionFind - потокобезопасная система непересекающихся множеств без блокировок.
+ * Родители хранятся в сегментах {@link AtomicIntegerArray}, все изменения выполняются через CAS.
+ * Корень с большим индексом всегда подвешивается к корню с меньшим индексом, поэтому
+ * циклы невозможны при любом чередовании потоков, а корнем множества всегда
+ * оказывается его наименьший элемент. Путь при поиске корня сокращается делением пополам,
+ * неудачный CAS при сокращении просто пропускается: он лишь ускоряет последующие поиски.
+ * <p>
+ * Структура растет методом {@link #grow(int)} из одного потока, пока другие потоки объединяют
+ * уже добавленные элементы: сегменты не перемещаются при росте, а родитель элемента всегда
+ * меньше самого элемента, поэтому поиск корня не выходит за элементы, которые поток уже видит.
+ * Так конвейер стадий ({@code StagedPipeline}) объединяет строки из нескольких потоков индексов
+ * столбцов, пока стадия поиска повторов нумерует следующие строки.
+ */
+public class ConcurrentUnionFind implements DisjointSet {
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private volatile AtomicIntegerArray[] segments = new AtomicIntegerArray[0]; /* Родители элементов */
+    private volatile int size;
+
+    /**
+     * Конструктор класса ConcurrentUnionFind создает указанное количество одноэлементных множеств.
+     *
+     * @param size количество элементов
+     */
+    public ConcurrentUnionFind(int size) {
+        grow(size);
+    }
+
+    /**
+     * Метод grow добавляет одноэлементные множества, пока элементов не станет size.
+     * Вызывается из одного потока; другие потоки могут в это время объединять уже добавленные
+     * элементы, а новые элементы им нужно передать через безопасную публикацию, например очередь.
+     *
+     * @param size новое количество элементов; если элементов уже не меньше, ничего не меняется
+     */
+    public void grow(int size) {
+        int count = this.size;
+        if (size <= count) {
+            return;
+        }
+        AtomicIntegerArray[] current = segments;
+        int segmentCount = (int) (((long) size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        if (segmentCount > current.length) {
+            current = Arrays.copyOf(current, Math.max(segmentCount, current.length * 2));
+        }
+        for (int i = count >>> SEGMENT_SHIFT; i < segmentCount; i++) {
+            if (current[i] == null) {
+                current[i] = new AtomicIntegerArray(SEGMENT_SIZE);
+            }
+        }
+        for (int i = count; i < size; i++) {
+            current[i >>> SEGMENT_SHIFT].set(i & SEGMENT_MASK, i);
+        }
+        segments = current;
+        this.size = size;
+    }
+
+    /**
+     * Метод get возвращает корневой элемент множества, сокращая путь вдвое.
+     * Может вызываться одновременно с {@link #union(int, int)} из других потоков;
+     * в этом случае возвращается корень на момент одного из шагов поиска.
+     *
+     * @param i индекс элемента
+     * @return индекс корневого (наименьшего) элемента множества
+     */
+    @Override
+    public int get(int i) {
+        AtomicIntegerArray[] segments = this.segments;
+        while (true) {
+            AtomicIntegerArray segment = segments[i >>> SEGMENT_SHIFT];
+            int parent = segment.get(i & SEGMENT_MASK);
+            if (parent == i) {
+                return i;
+            }
+            int grandParent = segments[parent >>> SEGMENT_SHIFT].get(parent & SEGMENT_MASK);
+            if (grandParent != parent) {
+                segment.compareAndSet(i & SEGMENT_MASK, parent, grandParent); /* Деление пути пополам */
+            }
+            i = grandParent;
+        }
+    }
+
+    /**
+     * Метод union объединяет множества двух элементов без блокировок.
+     * Если другой поток успел изменить один из корней, поиск корней повторяется.
+     *
+     * @param firstElement  первый элемент
+     * @param secondElement второй элемент
+     * @return true, если множества были объединены этим вызовом; false, если они уже совпадали
+     */
+    @Override
+    public boolean union(int firstElement, int secondElement) {
+        while (true) {
+            int first = get(firstElement);
+            int second = get(secondElement);
+            if (first == second) {
+                return false;
+            }
+            /* Подвешиваем корень с большим индексом к корню с меньшим */
+            int child = Math.max(first, second);
+            int parent = Math.min(first, second);
+            if (segments[child >>> SEGMENT_SHIFT].compareAndSet(child & SEGMENT_MASK, child, parent)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Метод size возвращает количество элементов в структуре.
+     *
+     * @return количество элементов
+     */
+    public int size() {
+        return size;
+    }
+}
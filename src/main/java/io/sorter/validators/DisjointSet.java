@@ -0,0 +1,26 @@
+package io.sorter.validators;
+
+/**
+ * Интерфейс DisjointSet описывает систему непересекающихся множеств,
+ * в которую {@link UniqueLineChecker} объединяет строки с совпадающими значениями.
+ * Реализации: последовательная {@link UnionFind} и потокобезопасная {@link ConcurrentUnionFind}.
+ */
+public interface DisjointSet {
+
+    /**
+     * Метод get возвращает корневой элемент множества, к которому принадлежит элемент.
+     *
+     * @param i индекс элемента
+     * @return индекс корневого элемента множества
+     */
+    int get(int i);
+
+    /**
+     * Метод union объединяет множества, к которым принадлежат два элемента.
+     *
+     * @param firstElement  первый элемент
+     * @param secondElement второй элемент
+     * @return true, если множества были объединены этим вызовом; false, если они уже совпадали
+     */
+    boolean union(int firstElement, int secondElement);
+}
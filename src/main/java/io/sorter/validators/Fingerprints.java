@@ -0,0 +1,90 @@
+package io.sorter.validators;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Класс Fingerprints вычисляет отпечатки (хеши) диапазонов байтов для хеш-таблиц
+ * с открытой адресацией. Байты читаются по восемь за раз, результат перемешивается
+ * финализатором из MurmurHash3, поэтому младшие биты пригодны для выбора ячейки таблицы.
+ * Совпадение 64-битных отпечатков не гарантирует совпадения значений: таблицы значений
+ * проверяют байты отдельно.
+ */
+public final class Fingerprints {
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+
+    private Fingerprints() {
+    }
+
+    /**
+     * Метод hash64 вычисляет 64-битный отпечаток диапазона байтов.
+     *
+     * @param buffer буфер
+     * @param from   индекс первого байта
+     * @param to     индекс, следующий за последним байтом
+     * @return отпечаток
+     */
+    public static long hash64(ByteBuffer buffer, int from, int to) {
+        long hash = PRIME_2 ^ ((to - from) * PRIME_1);
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            hash = Long.rotateLeft(hash ^ (buffer.getLong(i) * PRIME_1), 31) * PRIME_2;
+        }
+        long tail = 0;
+        for (; i < to; i++) {
+            tail = (tail << 8) | (buffer.get(i) & 0xFF);
+        }
+        hash = Long.rotateLeft(hash ^ (tail * PRIME_1), 31) * PRIME_2;
+        return mix(hash);
+    }
+
+    /**
+     * Метод hash128 вычисляет 128-битный отпечаток диапазона байтов за один проход:
+     * две независимые 64-битные половины считаются по одним и тем же словам с разными
+     * множителями и в конце перемешиваются друг с другом.
+     * Вероятность совпадения отпечатков у двух разных строк настолько мала, что
+     * отпечаток можно использовать вместо самой строки.
+     *
+     * @param buffer буфер
+     * @param from   индекс первого байта
+     * @param to     индекс, следующий за последним байтом
+     * @param result массив из двух элементов: младшая и старшая половины отпечатка
+     */
+    public static void hash128(ByteBuffer buffer, int from, int to, long[] result) {
+        long low = PRIME_2 ^ ((to - from) * PRIME_1);
+        long high = PRIME_4 ^ ((to - from) * PRIME_3);
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = buffer.getLong(i);
+            low = Long.rotateLeft(low ^ (word * PRIME_1), 31) * PRIME_2;
+            high = Long.rotateLeft(high ^ (word * PRIME_3), 27) * PRIME_4;
+        }
+        long tail = 0;
+        for (; i < to; i++) {
+            tail = (tail << 8) | (buffer.get(i) & 0xFF);
+        }
+        low = Long.rotateLeft(low ^ (tail * PRIME_1), 31) * PRIME_2;
+        high = Long.rotateLeft(high ^ (tail * PRIME_3), 27) * PRIME_4;
+        low = mix(low + high);
+        high = mix(high + low);
+        result[0] = low;
+        result[1] = high;
+    }
+
+    /**
+     * Метод mix перемешивает биты значения (финализатор fmix64 из MurmurHash3).
+     *
+     * @param value исходное значение
+     * @return перемешанное значение
+     */
+    public static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,236 @@
+package io.sorter.validators;
+
+import io.sorter.store.BinaryReader;
+import io.sorter.store.BinaryWriter;
+import io.sorter.store.LineStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Класс LineFingerprints отбрасывает повторяющиеся строки, не храня их текст.
+ * Это хеш-таблица с открытой адресацией и линейным пробированием: в ячейке хранятся
+ * две половины 128-битного отпечатка строки ({@link Fingerprints#hash128}) и ее номер,
+ * то есть около 20 байт на строку независимо от ее длины.
+ * По умолчанию совпадение отпечатков считается совпадением строк. В режиме точной
+ * проверки при совпадении отпечатков байты строки дополнительно сверяются с хранилищем
+ * строк, а при расхождении поиск продолжается, как при обычной коллизии.
+ * Экземпляр не потокобезопасен.
+ */
+public class LineFingerprints {
+    private static final int MIN_CAPACITY = 16;
+    private static final int EMPTY = -1; /* Номер строки в свободной ячейке */
+
+    private final LineStore verifyStore; /* Хранилище для точной проверки или null */
+    private final long[] fingerprint = new long[2]; /* Переиспользуемый результат hash128 */
+    private long[] lows;
+    private long[] highs;
+    private int[] lineNumbers;
+    private int mask;
+    private int size;
+    private int threshold; /* Количество строк, после которого таблица расширяется */
+
+    /**
+     * Конструктор класса LineFingerprints.
+     *
+     * @param expectedSize ожидаемое количество различных строк
+     * @param verifyStore  хранилище строк с теми же номерами для точной проверки
+     *                     совпадений или null, если достаточно совпадения отпечатков
+     */
+    public LineFingerprints(int expectedSize, LineStore verifyStore) {
+        this.verifyStore = verifyStore;
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Метод findOrAdd ищет строку среди уже встреченных и, если ее нет, запоминает ее отпечаток.
+     * В режиме точной проверки новая строка должна быть добавлена в хранилище под номером
+     * lineNumber до следующего вызова.
+     *
+     * @param buffer     буфер со строкой
+     * @param from       индекс первого байта строки
+     * @param to         индекс, следующий за последним байтом строки
+     * @param lineNumber номер, под которым запоминается новая строка
+     * @return номер ранее встреченной такой же строки или -1, если строка новая
+     */
+    public int findOrAdd(ByteBuffer buffer, int from, int to, int lineNumber) {
+        Fingerprints.hash128(buffer, from, to, fingerprint);
+        return findOrAdd(fingerprint[0], fingerprint[1], buffer, from, to, lineNumber);
+    }
+
+    /**
+     * Метод findOrAdd с заранее вычисленным отпечатком строки.
+     *
+     * @param low        младшая половина отпечатка
+     * @param high       старшая половина отпечатка
+     * @param buffer     буфер со строкой, используется только для точной проверки
+     * @param from       индекс первого байта строки
+     * @param to         индекс, следующий за последним байтом строки
+     * @param lineNumber номер, под которым запоминается новая строка
+     * @return номер ранее встреченной такой же строки или -1, если строка новая
+     */
+    public int findOrAdd(long low, long high, ByteBuffer buffer, int from, int to, int lineNumber) {
+        int slot = slotOf(low);
+        while (lineNumbers[slot] != EMPTY) {
+            if (lows[slot] == low && highs[slot] == high
+                    && (verifyStore == null || verifyStore.matches(lineNumbers[slot], buffer, from, to))) {
+                return lineNumbers[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, low, high, lineNumber);
+        return EMPTY;
+    }
+
+    /**
+     * Метод findOrAdd с заранее вычисленным отпечатком строки, байты которой
+     * находятся в другом хранилище (например, в хранилище части файла).
+     *
+     * @param low        младшая половина отпечатка
+     * @param high       старшая половина отпечатка
+     * @param source     хранилище со строкой, используется только для точной проверки
+     * @param sourceLine номер строки в хранилище source
+     * @param lineNumber номер, под которым запоминается новая строка
+     * @return номер ранее встреченной такой же строки или -1, если строка новая
+     */
+    public int findOrAdd(long low, long high, LineStore source, int sourceLine, int lineNumber) {
+        int slot = slotOf(low);
+        while (lineNumbers[slot] != EMPTY) {
+            if (lows[slot] == low && highs[slot] == high
+                    && (verifyStore == null || verifyStore.matches(lineNumbers[slot], source, sourceLine))) {
+                return lineNumbers[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, low, high, lineNumber);
+        return EMPTY;
+    }
+
+    /**
+     * Метод fingerprintsByLine возвращает отпечатки всех строк, упорядоченные по номерам строк:
+     * элементы 2 * i и 2 * i + 1 - младшая и старшая половины отпечатка строки i.
+     * Номера строк должны идти подряд от нуля, как при добавлении строк в хранилище.
+     *
+     * @return массив отпечатков длиной 2 * size()
+     */
+    public long[] fingerprintsByLine() {
+        long[] result = new long[size * 2];
+        for (int slot = 0; slot < lineNumbers.length; slot++) {
+            int line = lineNumbers[slot];
+            if (line != EMPTY) {
+                result[line * 2] = lows[slot];
+                result[line * 2 + 1] = highs[slot];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Метод clear удаляет все отпечатки, сохраняя размер таблицы.
+     */
+    public void clear() {
+        Arrays.fill(lineNumbers, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Метод sizeInBytes возвращает объем памяти таблицы отпечатков вместе со свободными ячейками.
+     *
+     * @return объем памяти в байтах
+     */
+    public long sizeInBytes() {
+        return (long) (lows.length + highs.length) * Long.BYTES + (long) lineNumbers.length * Integer.BYTES;
+    }
+
+    /**
+     * Метод size возвращает количество различных строк.
+     *
+     * @return количество строк
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Метод writeTo сохраняет таблицу отпечатков.
+     *
+     * @param out файл для записи
+     * @throws IOException если возникнет ошибка записи
+     */
+    public void writeTo(BinaryWriter out) throws IOException {
+        out.writeInt(lineNumbers.length);
+        out.writeInt(size);
+        out.writeLongs(lows, 0, lows.length);
+        out.writeLongs(highs, 0, highs.length);
+        out.writeInts(lineNumbers, 0, lineNumbers.length);
+    }
+
+    /**
+     * Метод readFrom загружает таблицу, сохраненную методом {@link #writeTo(BinaryWriter)}.
+     *
+     * @param in          файл для чтения
+     * @param verifyStore хранилище строк для точной проверки или null
+     * @return загруженная таблица
+     * @throws IOException если возникнет ошибка чтения
+     */
+    public static LineFingerprints readFrom(BinaryReader in, LineStore verifyStore) throws IOException {
+        int capacity = in.readInt();
+        LineFingerprints table = new LineFingerprints(0, verifyStore);
+        table.allocate(capacity);
+        table.size = in.readInt();
+        in.readLongs(table.lows, 0, capacity);
+        in.readLongs(table.highs, 0, capacity);
+        in.readInts(table.lineNumbers, 0, capacity);
+        return table;
+    }
+
+    private void insert(int slot, long low, long high, int lineNumber) {
+        lows[slot] = low;
+        highs[slot] = high;
+        lineNumbers[slot] = lineNumber;
+        if (++size > threshold) {
+            rehash();
+        }
+    }
+
+    private int slotOf(long low) {
+        return (int) (low ^ (low >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        lows = new long[capacity];
+        highs = new long[capacity];
+        lineNumbers = new int[capacity];
+        Arrays.fill(lineNumbers, EMPTY);
+        mask = capacity - 1;
+        threshold = capacity / 4 * 3;
+    }
+
+    private void rehash() {
+        long[] oldLows = lows;
+        long[] oldHighs = highs;
+        int[] oldLineNumbers = lineNumbers;
+        allocate(oldLineNumbers.length * 2);
+        for (int i = 0; i < oldLineNumbers.length; i++) {
+            if (oldLineNumbers[i] == EMPTY) {
+                continue;
+            }
+            int slot = slotOf(oldLows[i]);
+            while (lineNumbers[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            lows[slot] = oldLows[i];
+            highs[slot] = oldHighs[i];
+            lineNumbers[slot] = oldLineNumbers[i];
+        }
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 4 / 3 + 1);
+        if (needed > 1 << 30) {
+            return 1 << 30;
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+}
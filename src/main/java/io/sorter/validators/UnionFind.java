@@ -1,68 +1,252 @@
 package io.sorter.validators;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import io.sorter.store.BinaryReader;
+import io.sorter.store.BinaryWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Класс UnionFind предоставляет реализацию структуры данных "система непересекающихся множеств"
- * (Union-Find) с использованием подхода путевого сжатия и рангов для эффективного объединения
- * множеств и поиска их корневых элементов.
+ * (Union-Find) на примитивных массивах. Для объединения используется эвристика по размеру множеств,
+ * для поиска корня - итеративное деление пути пополам (path halving), поэтому длинные цепочки
+ * не приводят к переполнению стека.
+ * Структура умеет расти по мере поступления новых элементов и в любой момент
+ * за O(1) сообщает количество множеств и размер множества по его корню.
  */
-public class UnionFind {
-    private final List<Integer> ranks;  /* Список, хранящий ранги наборов */
-    private final List<Integer> parents; /* Список, хранящий родительские элементы для каждого элемента */
+public class UnionFind implements DisjointSet {
+    private int[] parents; /* Массив, хранящий родительские элементы для каждого элемента */
+    private int[] sizes; /* Массив, хранящий размеры множеств (актуален только для корней) */
+    private int count; /* Количество элементов в структуре */
+    private int componentCount; /* Количество множеств */
+    private int groupCount; /* Количество множеств с более чем одним элементом */
+    private long unionCount; /* Количество вызовов union */
 
     /**
      * Конструктор класса UnionFind инициализирует структуру данных для указанного размера.
-     * Каждый элемент инициализируется как собственный родитель, а ранг каждого элемента равен 0.
+     * Каждый элемент инициализируется как собственный родитель, а размер каждого множества равен 1.
      *
      * @param size размер множества, количество элементов в Union-Find
      */
     public UnionFind(int size) {
-        ranks = new ArrayList<>(Collections.nCopies(size, 0));
-        parents = new ArrayList<>(size);
+        parents = new int[Math.max(size, 1)];
+        sizes = new int[parents.length];
         for (int i = 0; i < size; i++) {
-            parents.add(i);
+            parents[i] = i;
+            sizes[i] = 1;
+        }
+        count = size;
+        componentCount = size;
+    }
+
+    /**
+     * Метод add добавляет новый элемент, образующий собственное множество.
+     * При необходимости внутренние массивы расширяются.
+     *
+     * @return индекс добавленного элемента
+     */
+    public int add() {
+        if (count == parents.length) {
+            ensureCapacity(count + 1);
         }
+        int element = count++;
+        parents[element] = element;
+        sizes[element] = 1;
+        componentCount++;
+        return element;
     }
 
     /**
-     * Метод get возвращает корневого родителя для элемента, выполняя путь сжатия.
+     * Метод ensureCapacity гарантирует, что структура вместит указанное количество
+     * элементов без повторного выделения памяти.
+     *
+     * @param capacity требуемая вместимость
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= parents.length) {
+            return;
+        }
+        int newCapacity = (int) Math.min(Math.max((long) parents.length * 2, capacity), Integer.MAX_VALUE - 8);
+        if (newCapacity < capacity) {
+            throw new IllegalStateException("Превышена максимальная вместимость UnionFind: " + capacity);
+        }
+        parents = Arrays.copyOf(parents, newCapacity);
+        sizes = Arrays.copyOf(sizes, newCapacity);
+    }
+
+    /**
+     * Метод clear удаляет все элементы, сохраняя выделенные массивы для повторного заполнения.
+     */
+    public void clear() {
+        count = 0;
+        componentCount = 0;
+        groupCount = 0;
+        unionCount = 0;
+    }
+
+    /**
+     * Метод get возвращает корневого родителя для элемента, сокращая путь вдвое
+     * на каждом шаге (каждый элемент пути перенаправляется на своего "деда").
      *
      * @param i индекс элемента, для которого нужно получить корневого родителя
      * @return индекс корневого элемента множества, к которому принадлежит элемент i
      */
+    @Override
     public int get(int i) {
-        if (parents.get(i) != i) {
-            parents.set(i, get(parents.get(i))); /* Путь сжатия */
+        int[] parents = this.parents;
+        while (parents[i] != i) {
+            int grandParent = parents[parents[i]];
+            parents[i] = grandParent; /* Деление пути пополам */
+            i = grandParent;
         }
-        return parents.get(i);
+        return i;
     }
 
     /**
      * Метод union объединяет два элемента в одно множество.
      * Если элементы принадлежат одному множеству, то операция игнорируется.
-     * Иначе объединяются множества, к которым принадлежат указанные элементы,
-     * с учетом их рангов для поддержания сбалансированности структуры.
+     * Иначе меньшее множество подвешивается к большему; при равных размерах
+     * корнем остается множество первого элемента.
      *
      * @param firstElement  первый элемент, который необходимо объединить
      * @param secondElement второй элемент, который необходимо объединить
+     * @return true, если множества были объединены; false, если элементы уже были в одном множестве
      */
-    public void union(int firstElement, int secondElement) {
+    @Override
+    public boolean union(int firstElement, int secondElement) {
+        unionCount++;
         firstElement = get(firstElement); /* Получаем корень первого элемента */
         secondElement = get(secondElement); /* Получаем корень второго элемента */
         if (firstElement == secondElement) {
-            return; /* Если уже в одном множестве, ничего не делаем */
+            return false; /* Если уже в одном множестве, ничего не делаем */
         }
-        if (ranks.get(firstElement).equals(ranks.get(secondElement))) {
-            ranks.set(firstElement, ranks.get(firstElement) + 1); /* Увеличиваем ранг */
+        if (sizes[firstElement] < sizes[secondElement]) {
+            int tmp = firstElement;
+            firstElement = secondElement;
+            secondElement = tmp;
         }
-        /* Объединяем множества согласно рангу */
-        if (ranks.get(firstElement) < ranks.get(secondElement)) {
-            parents.set(firstElement, secondElement);
-        } else {
-            parents.set(secondElement, firstElement);
+        /* Поддерживаем счетчик множеств с более чем одним элементом */
+        if (sizes[firstElement] > 1) {
+            groupCount--;
         }
+        if (sizes[secondElement] > 1) {
+            groupCount--;
+        }
+        groupCount++;
+
+        parents[secondElement] = firstElement;
+        sizes[firstElement] += sizes[secondElement];
+        componentCount--;
+        return true;
+    }
+
+    /**
+     * Метод addFrom заменяет разбиение разбиением потокобезопасной структуры с той же нумерацией,
+     * в которой разбиение этой структуры уже учтено; недостающие элементы добавляются. В source
+     * корень множества - его наименьший элемент, поэтому структура строится за один проход
+     * сразу плоской: каждый элемент подвешивается прямо к корню. Вызовы объединения в source
+     * добавляются к {@link #getUnionCount()}.
+     *
+     * @param source     структура, изменения в которой завершены; элементов в ней не меньше, чем в этой
+     * @param unionCalls количество вызовов объединения, выполненных в source
+     */
+    public void addFrom(ConcurrentUnionFind source, long unionCalls) {
+        int size = source.size();
+        ensureCapacity(size);
+        componentCount = 0;
+        groupCount = 0;
+        for (int i = 0; i < size; i++) {
+            int root = source.get(i);
+            parents[i] = root;
+            if (root == i) {
+                sizes[i] = 1;
+                componentCount++;
+            } else if (++sizes[root] == 2) {
+                groupCount++;
+            }
+        }
+        count = size;
+        unionCount += unionCalls;
+    }
+
+    /**
+     * Метод getUnionCount возвращает количество вызовов {@link #union(int, int)},
+     * включая вызовы для элементов одного множества. Счетчик не сохраняется в {@link #writeTo}.
+     *
+     * @return количество вызовов объединения с момента создания или загрузки
+     */
+    public long getUnionCount() {
+        return unionCount;
+    }
+
+    /**
+     * Метод size возвращает количество элементов в структуре.
+     *
+     * @return количество элементов
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Метод getComponentSize возвращает размер множества по его корню за O(1).
+     *
+     * @param root корень множества, полученный методом {@link #get(int)}
+     * @return количество элементов в множестве
+     */
+    public int getComponentSize(int root) {
+        return sizes[root];
+    }
+
+    /**
+     * Метод getComponentCount возвращает количество множеств за O(1).
+     *
+     * @return количество множеств, включая одноэлементные
+     */
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    /**
+     * Метод writeTo сохраняет массивы родителей и размеров вместе со счетчиками.
+     *
+     * @param out файл для записи
+     * @throws IOException если возникнет ошибка записи
+     */
+    public void writeTo(BinaryWriter out) throws IOException {
+        out.writeInt(count);
+        out.writeInt(componentCount);
+        out.writeInt(groupCount);
+        out.writeInts(parents, 0, count);
+        out.writeInts(sizes, 0, count);
+    }
+
+    /**
+     * Метод readFrom загружает структуру, сохраненную методом {@link #writeTo(BinaryWriter)}.
+     *
+     * @param in       файл для чтения
+     * @param capacity ожидаемая вместимость после загрузки
+     * @return загруженная структура
+     * @throws IOException если возникнет ошибка чтения
+     */
+    public static UnionFind readFrom(BinaryReader in, int capacity) throws IOException {
+        int count = in.readInt();
+        UnionFind unionFind = new UnionFind(0);
+        unionFind.ensureCapacity(Math.max(count, capacity));
+        unionFind.componentCount = in.readInt();
+        unionFind.groupCount = in.readInt();
+        in.readInts(unionFind.parents, 0, count);
+        in.readInts(unionFind.sizes, 0, count);
+        unionFind.count = count;
+        return unionFind;
+    }
+
+    /**
+     * Метод getGroupCount возвращает количество множеств с более чем одним элементом за O(1).
+     *
+     * @return количество групп
+     */
+    public int getGroupCount() {
+        return groupCount;
     }
-}
\ No newline at end of file
+}
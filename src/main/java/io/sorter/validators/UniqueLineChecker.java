@@ -1,26 +1,57 @@
 package io.sorter.validators;
 
-import java.util.*;
+import io.sorter.parser.LineTokenizer;
+import io.sorter.store.BinaryReader;
+import io.sorter.store.BinaryWriter;
+import io.sorter.store.LineStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Класс UniqueLineChecker предназначен для проверки уникальности строк и
  * объединения строк, которые представляют собой одинаковые или эквивалентные значения.
- * Он использует множество для хранения уникальных строк и список для отслеживания
- * позиций строк, которые были проверены.
+ * Повторяющиеся строки распознаются по 128-битным отпечаткам ({@link LineFingerprints}),
+ * поэтому текст строк для этого не хранится; позиции значений отслеживаются индексами столбцов.
+ * Объект не потокобезопасен: параллельные части заполняют собственные объекты, которые затем
+ * по очереди сливаются методом {@link #merge(UniqueLineChecker, int[], DisjointSet)}, либо
+ * индексы столбцов, заведенные методом {@link #ensureColumnCount(int)}, заполняются каждый
+ * в своем потоке, а строки объединяются в {@link ConcurrentUnionFind}.
  */
 public class UniqueLineChecker {
-    private final Set<String> uniqueLines; // Множество для хранения уникальных строк
-    private final List<Map<String, Integer>> places; // Список, хранящий карты строк и их позиций
+    private final LineFingerprints uniqueLines; // Отпечатки уникальных строк и их номера
+    private final List<ColumnIndex> places; // Индексы столбцов: значение - номер первой строки с ним
+    private final List<ColumnIndex> spare = new ArrayList<>(); // Очищенные индексы для повторного использования
 
     /**
      * Конструктор класса UniqueLineChecker инициализирует структуру данных
      * для указанного максимального количества строк.
+     * Совпадение отпечатков строк считается совпадением самих строк.
      *
      * @param maxLines максимальное количество уникальных строк, которое может быть хранится
      */
     public UniqueLineChecker(int maxLines) {
-        this.uniqueLines = new HashSet<>(maxLines);
-        this.places = new ArrayList<>();
+        this(maxLines, null);
+    }
+
+    /**
+     * Конструктор класса UniqueLineChecker с точной проверкой повторяющихся строк:
+     * при совпадении отпечатков байты строки сверяются с хранилищем.
+     *
+     * @param maxLines    максимальное количество уникальных строк, которое может быть хранится
+     * @param verifyStore хранилище принятых строк с теми же номерами или null,
+     *                    если достаточно совпадения отпечатков
+     */
+    public UniqueLineChecker(int maxLines, LineStore verifyStore) {
+        this(new LineFingerprints(maxLines, verifyStore), new ArrayList<>());
+    }
+
+    private UniqueLineChecker(LineFingerprints uniqueLines, List<ColumnIndex> places) {
+        this.uniqueLines = uniqueLines;
+        this.places = places;
     }
 
     /**
@@ -32,11 +63,75 @@ public class UniqueLineChecker {
      * @return true, если строка уже существует; false, если строка уникальна
      */
     public boolean isUnique(String line) {
-        if (uniqueLines.contains(line)) {
-            return true; /* Строка уже существует */
-        }
-        uniqueLines.add(line); /* Добавляем новую строку */
-        return false; /* Строка уникальна */
+        return findOrAdd(line) >= 0;
+    }
+
+    /**
+     * Метод findOrAdd ищет строку среди уже встреченных.
+     * Новая строка добавляется и получает следующий по порядку номер, равный
+     * количеству ранее добавленных уникальных строк.
+     *
+     * @param line строка, которая должна быть проверена на уникальность
+     * @return номер ранее добавленной такой же строки или -1, если строка новая
+     */
+    public int findOrAdd(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return uniqueLines.findOrAdd(ByteBuffer.wrap(bytes), 0, bytes.length, uniqueLines.size());
+    }
+
+    /**
+     * Метод findOrAdd ищет строку, заданную диапазоном байтов, среди уже встреченных.
+     * Новая строка запоминается под указанным номером; при точной проверке она должна
+     * быть добавлена в хранилище под этим номером до следующего вызова.
+     *
+     * @param buffer     буфер со строкой
+     * @param from       индекс первого байта строки
+     * @param to         индекс, следующий за последним байтом строки
+     * @param lineNumber номер, под которым запоминается новая строка
+     * @return номер ранее добавленной такой же строки или -1, если строка новая
+     */
+    public int findOrAdd(ByteBuffer buffer, int from, int to, int lineNumber) {
+        return uniqueLines.findOrAdd(buffer, from, to, lineNumber);
+    }
+
+    /**
+     * Метод findOrAdd ищет строку по отпечатку, вычисленному заранее, например в другом потоке.
+     *
+     * @param low        младшая половина отпечатка
+     * @param high       старшая половина отпечатка
+     * @param buffer     буфер со строкой, используется только для точной проверки
+     * @param from       индекс первого байта строки
+     * @param to         индекс, следующий за последним байтом строки
+     * @param lineNumber номер, под которым запоминается новая строка
+     * @return номер ранее добавленной такой же строки или -1, если строка новая
+     */
+    public int findOrAdd(long low, long high, ByteBuffer buffer, int from, int to, int lineNumber) {
+        return uniqueLines.findOrAdd(low, high, buffer, from, to, lineNumber);
+    }
+
+    /**
+     * Метод findOrAdd ищет строку по заранее вычисленному отпечатку, например при слиянии
+     * результатов частей файла. Байты строки из хранилища source нужны только для точной проверки.
+     *
+     * @param low        младшая половина отпечатка
+     * @param high       старшая половина отпечатка
+     * @param source     хранилище со строкой
+     * @param sourceLine номер строки в хранилище source
+     * @param lineNumber номер, под которым запоминается новая строка
+     * @return номер ранее добавленной такой же строки или -1, если строка новая
+     */
+    public int findOrAdd(long low, long high, LineStore source, int sourceLine, int lineNumber) {
+        return uniqueLines.findOrAdd(low, high, source, sourceLine, lineNumber);
+    }
+
+    /**
+     * Метод fingerprintsByLine возвращает отпечатки уникальных строк по порядку их номеров.
+     *
+     * @return массив, в котором элементы 2 * i и 2 * i + 1 - половины отпечатка строки i
+     * @see LineFingerprints#fingerprintsByLine()
+     */
+    public long[] fingerprintsByLine() {
+        return uniqueLines.fingerprintsByLine();
     }
 
     /**
@@ -46,22 +141,198 @@ public class UniqueLineChecker {
      *
      * @param lineStrings массив строк для проверки
      * @param lineNumber  номер текущей строки
-     * @param unionFind   объект класcа UnionFind для объединения строк
+     * @param unionFind   система множеств для объединения строк. Метод изменяет индексы столбцов,
+     *                    поэтому один объект нельзя вызывать из нескольких потоков одновременно
      */
-    public void checkUnique(String[] lineStrings, int lineNumber, UnionFind unionFind) {
+    public void checkUnique(String[] lineStrings, int lineNumber, DisjointSet unionFind) {
         for (int i = 0; i < lineStrings.length; i++) {
             String cur = lineStrings[i];
-            if (i >= places.size()) {
-                Map<String, Integer> map = new HashMap<>();
-                map.put(cur, lineNumber);
-                places.add(map); /* Добавляем новую карту, если это новая позиция */
-            } else if (!checkEmptyString(cur) && places.get(i).containsKey(cur)) {
-                int match = places.get(i).get(cur);
-                unionFind.union(match, lineNumber); /* Объединяем строки */
-            } else {
-                places.get(i).put(cur, lineNumber); /* Добавляем строку и её номер */
+            if (checkEmptyString(cur)) {
+                continue; /* Пустые значения не объединяют строки */
             }
+            byte[] bytes = cur.getBytes(StandardCharsets.UTF_8);
+            checkValue(i, ByteBuffer.wrap(bytes), 0, bytes.length, lineNumber, unionFind);
+        }
+    }
+
+    /**
+     * Метод checkUnique проверяет значения строки, разобранной токенизатором,
+     * прямо в буфере чтения, не создавая строк для значений.
+     *
+     * @param buffer     буфер, в котором находится строка
+     * @param tokenizer  токенизатор, разобравший строку в этом буфере
+     * @param lineNumber номер текущей строки
+     * @param unionFind  система множеств для объединения строк
+     */
+    public void checkUnique(ByteBuffer buffer, LineTokenizer tokenizer, int lineNumber, DisjointSet unionFind) {
+        for (int i = 0; i < tokenizer.getColumnCount(); i++) {
+            if (tokenizer.isEmpty(i)) {
+                continue;
+            }
+            checkValue(i, buffer, tokenizer.getStart(i), tokenizer.getEnd(i), lineNumber, unionFind);
+        }
+    }
+
+    /**
+     * Метод indexValues добавляет значения строки в индексы столбцов, но не объединяет строки:
+     * номера строк, с которыми нужно объединить текущую, записываются в matches.
+     * Вместе с объединением по этим номерам дает тот же результат, что
+     * {@link #checkUnique(ByteBuffer, LineTokenizer, int, DisjointSet)}, и позволяет
+     * измерить время индексов и объединения по отдельности.
+     *
+     * @param buffer     буфер, в котором находится строка
+     * @param tokenizer  токенизатор, разобравший строку в этом буфере
+     * @param lineNumber номер текущей строки
+     * @param matches    массив не короче количества столбцов строки
+     * @return количество записанных номеров строк
+     */
+    public int indexValues(ByteBuffer buffer, LineTokenizer tokenizer, int lineNumber, int[] matches) {
+        int matchCount = 0;
+        for (int i = 0; i < tokenizer.getColumnCount(); i++) {
+            if (tokenizer.isEmpty(i)) {
+                continue;
+            }
+            int match = column(i).putIfAbsent(buffer, tokenizer.getStart(i), tokenizer.getEnd(i), lineNumber);
+            if (match >= 0) {
+                matches[matchCount++] = match;
+            }
+        }
+        return matchCount;
+    }
+
+    private void checkValue(int column, ByteBuffer buffer, int from, int to, int lineNumber, DisjointSet unionFind) {
+        int match = column(column).putIfAbsent(buffer, from, to, lineNumber);
+        if (match >= 0) {
+            unionFind.union(match, lineNumber); /* Объединяем строки */
+        }
+    }
+
+    private ColumnIndex column(int column) {
+        while (column >= places.size()) {
+            /* Добавляем индекс, если это новая позиция: очищенный после прошлого файла или новый */
+            places.add(places.size() < spare.size() ? spare.get(places.size()) : new ColumnIndex(0));
+        }
+        return places.get(column);
+    }
+
+    /**
+     * Метод merge переносит в этот объект позиции значений, собранные другим объектом
+     * по отдельной части входных данных, и объединяет строки с совпадающими значениями.
+     * Строки частичного объекта должны быть уже добавлены в этот объект, а их номера
+     * переведены в общую нумерацию.
+     *
+     * @param partial   объект, заполненный по части данных
+     * @param toGlobal  номера строк частичного объекта в общей нумерации
+     * @param unionFind система множеств с общей нумерацией строк
+     */
+    public void merge(UniqueLineChecker partial, int[] toGlobal, DisjointSet unionFind) {
+        for (int i = 0; i < partial.places.size(); i++) {
+            column(i).merge(partial.places.get(i), toGlobal, unionFind);
+        }
+    }
+
+    /**
+     * Метод ensureColumnCapacity заранее расширяет индекс столбца под ожидаемое количество значений.
+     *
+     * @param column         номер столбца
+     * @param expectedValues ожидаемое количество различных значений в столбце
+     */
+    public void ensureColumnCapacity(int column, int expectedValues) {
+        column(column).ensureCapacity(expectedValues);
+    }
+
+    /**
+     * Метод clear удаляет все строки и значения, сохраняя выделенные таблицы
+     * для обработки следующего файла. Индексы столбцов очищаются и откладываются:
+     * количество столбцов снова считается по новым строкам.
+     */
+    public void clear() {
+        uniqueLines.clear();
+        for (int i = 0; i < places.size(); i++) {
+            places.get(i).clear();
+            if (i == spare.size()) {
+                spare.add(places.get(i));
+            }
+        }
+        places.clear();
+    }
+
+    /**
+     * Метод sizeInBytes возвращает объем памяти таблицы отпечатков строк и словарей столбцов,
+     * включая очищенные словари, отложенные для повторного использования.
+     *
+     * @return объем памяти в байтах
+     */
+    public long sizeInBytes() {
+        long bytes = uniqueLines.sizeInBytes();
+        for (int i = 0; i < Math.max(places.size(), spare.size()); i++) {
+            bytes += (i < places.size() ? places.get(i) : spare.get(i)).sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Метод ensureColumnCount заводит индексы столбцов, чтобы их было не меньше columnCount.
+     * После этого индексы можно получить методом {@link #getColumnIndex(int)} и заполнять
+     * в разных потоках, если каждый столбец заполняет один поток.
+     *
+     * @param columnCount количество столбцов
+     */
+    public void ensureColumnCount(int columnCount) {
+        if (columnCount > 0) {
+            column(columnCount - 1);
+        }
+    }
+
+    /**
+     * Метод getColumnCount возвращает количество столбцов, для которых ведутся индексы значений.
+     *
+     * @return количество столбцов
+     */
+    public int getColumnCount() {
+        return places.size();
+    }
+
+    /**
+     * Метод getColumnIndex возвращает индекс значений столбца.
+     *
+     * @param column номер столбца, меньше {@link #getColumnCount()}
+     * @return индекс "значение - номер первой строки с ним"
+     */
+    public ColumnIndex getColumnIndex(int column) {
+        return places.get(column);
+    }
+
+    /**
+     * Метод writeTo сохраняет отпечатки строк и индексы всех столбцов.
+     *
+     * @param out файл для записи
+     * @throws IOException если возникнет ошибка записи
+     */
+    public void writeTo(BinaryWriter out) throws IOException {
+        uniqueLines.writeTo(out);
+        out.writeInt(places.size());
+        for (ColumnIndex place : places) {
+            place.writeTo(out);
+        }
+    }
+
+    /**
+     * Метод readFrom загружает состояние, сохраненное методом {@link #writeTo(BinaryWriter)}.
+     *
+     * @param in          файл для чтения
+     * @param verifyStore хранилище принятых строк для точной проверки повторов или null
+     * @return загруженный объект
+     * @throws IOException если возникнет ошибка чтения
+     */
+    public static UniqueLineChecker readFrom(BinaryReader in, LineStore verifyStore) throws IOException {
+        LineFingerprints uniqueLines = LineFingerprints.readFrom(in, verifyStore);
+        int columnCount = in.readInt();
+        List<ColumnIndex> places = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            places.add(ColumnIndex.readFrom(in));
         }
+        return new UniqueLineChecker(uniqueLines, places);
     }
 
     /**
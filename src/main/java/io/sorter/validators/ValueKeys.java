@@ -0,0 +1,90 @@
+package io.sorter.validators;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Класс ValueKeys вычисляет 64-битные ключи значений столбцов для {@link ColumnIndex}.
+ * <p>
+ * Значения формата {@code "\d*(\.\d)?"} длиной до 18 цифр упаковываются в неотрицательный
+ * ключ без хеширования: цифры читаются как десятичное число с приписанной слева единицей
+ * (она сохраняет количество цифр, поэтому {@code "01"} и {@code "1"} различаются), а отдельный
+ * бит отмечает дробную часть. Такой ключ взаимно однозначен со значением, и совпадение ключей
+ * означает совпадение значений без сверки байтов. Остальные значения получают отрицательный
+ * ключ - 63 бита отпечатка {@link Fingerprints#hash64(ByteBuffer, int, int)}, и при совпадении
+ * таких ключей значения сверяются побайтно.
+ */
+public final class ValueKeys {
+    /** Результат {@link #packDecimal(ByteBuffer, int, int)} для значения не числового формата. */
+    public static final long NOT_DECIMAL = -1L;
+    private static final int MAX_DIGITS = 18; /* 10^18 + (10^18 - 1) < 2^61 */
+    private static final long FRACTION_FLAG = 1L << 62;
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private ValueKeys() {
+    }
+
+    /**
+     * Метод keyOf вычисляет ключ значения.
+     *
+     * @param buffer буфер со значением
+     * @param from   индекс первого байта значения (открывающей кавычки)
+     * @param to     индекс, следующий за последним байтом значения
+     * @return неотрицательный упакованный ключ числа или отрицательный ключ-отпечаток
+     */
+    public static long keyOf(ByteBuffer buffer, int from, int to) {
+        long key = packDecimal(buffer, from, to);
+        return key != NOT_DECIMAL ? key : Fingerprints.hash64(buffer, from, to) | Long.MIN_VALUE;
+    }
+
+    /**
+     * Метод isExact проверяет, однозначно ли ключ задает значение, то есть можно ли
+     * не сверять байты значений с совпавшими ключами.
+     *
+     * @param key ключ значения
+     * @return true для упакованного числа
+     */
+    public static boolean isExact(long key) {
+        return key >= 0;
+    }
+
+    /**
+     * Метод packDecimal упаковывает значение в кавычках из не более чем 18 цифр
+     * с необязательной дробной частью из одной цифры.
+     *
+     * @param buffer буфер со значением
+     * @param from   индекс открывающей кавычки
+     * @param to     индекс, следующий за закрывающей кавычкой
+     * @return неотрицательный ключ или {@link #NOT_DECIMAL}, если значение другого формата или длиннее
+     */
+    public static long packDecimal(ByteBuffer buffer, int from, int to) {
+        int end = to - 1; /* Закрывающая кавычка */
+        if (to - from < 2 || buffer.get(from) != '"' || buffer.get(end) != '"') {
+            return NOT_DECIMAL;
+        }
+        long flags = 0;
+        long value = 0;
+        int digits = 0;
+        for (int i = from + 1; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                if (i != end - 2 || buffer.get(i) != '.') {
+                    return NOT_DECIMAL;
+                }
+                flags = FRACTION_FLAG; /* Точка допустима только перед последней цифрой */
+                continue;
+            }
+            if (++digits > MAX_DIGITS) {
+                return NOT_DECIMAL;
+            }
+            value = value * 10 + digit;
+        }
+        return flags | (POWERS_OF_TEN[digits] + value);
+    }
+}
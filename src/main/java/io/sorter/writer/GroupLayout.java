@@ -0,0 +1,278 @@
+package io.sorter.writer;
+
+import io.sorter.validators.UnionFind;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Класс GroupLayout раскладывает группы из более чем одной строки в сжатые строки
+ * (формат CSR): строки групп лежат подряд в одном массиве int[], а границы групп задаются
+ * массивом префиксных сумм их размеров. Группы упорядочены так, как они выводятся:
+ * по убыванию размера, а группы одного размера - по номеру первой строки; строки внутри
+ * группы - по возрастанию номеров.
+ * <p>
+ * Раскладка строится за линейное время без объектов на каждую группу: корень каждой строки
+ * вычисляется один раз, размеры групп подсчитываются отдельным проходом, а порядок групп
+ * задается сортировкой подсчетом по размерам. Если нужны только самые большие группы,
+ * они отбираются ограниченной кучей, и память раскладки пропорциональна отобранным строкам.
+ */
+public final class GroupLayout {
+    private final int[] starts; /* starts[k] - начало группы k в members, starts[groupCount] - конец */
+    private final int[] members; /* Номера строк групп подряд */
+
+    private GroupLayout(int[] starts, int[] members) {
+        this.starts = starts;
+        this.members = members;
+    }
+
+    /**
+     * Метод of строит раскладку групп системы множеств.
+     *
+     * @param unionFind система множеств строк
+     * @param lineCount количество строк
+     * @return раскладка групп с более чем одним элементом
+     */
+    public static GroupLayout of(UnionFind unionFind, int lineCount) {
+        return of(unionFind, lineCount, Integer.MAX_VALUE, 2);
+    }
+
+    /**
+     * Метод of строит раскладку только самых больших групп. Если групп больше, чем maxGroups,
+     * они отбираются за один проход ограниченной кучей из maxGroups элементов, и в раскладку
+     * попадают строки только отобранных групп.
+     *
+     * @param unionFind    система множеств строк
+     * @param lineCount    количество строк
+     * @param maxGroups    наибольшее количество групп в раскладке
+     * @param minGroupSize наименьший размер группы в раскладке; группы из одной строки не попадают
+     *                     в раскладку никогда
+     * @return раскладка отобранных групп в порядке вывода
+     */
+    public static GroupLayout of(UnionFind unionFind, int lineCount, int maxGroups, int minGroupSize) {
+        int minSize = Math.max(minGroupSize, 2);
+        if (maxGroups < unionFind.getGroupCount()) {
+            return top(unionFind, lineCount, maxGroups, minSize);
+        }
+        return all(unionFind, lineCount, minSize);
+    }
+
+    /**
+     * Метод all раскладывает все группы размера не меньше minSize.
+     */
+    private static GroupLayout all(UnionFind unionFind, int lineCount, int minSize) {
+        /* Корень каждой строки и размеры множеств подсчетом */
+        int[] lineGroups = new int[lineCount];
+        int[] counts = new int[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            lineGroups[i] = unionFind.get(i);
+            counts[lineGroups[i]]++;
+        }
+
+        /* Плотные номера групп в порядке появления их первых строк; counts превращается
+         * в отображение "корень - номер группы" (отрицательное значение - одиночная строка) */
+        int groupCount = 0;
+        int memberCount = 0;
+        int maxSize = 0;
+        int[] sizes = new int[Math.max(lineCount / 2, 1)];
+        for (int i = 0; i < lineCount; i++) {
+            int root = lineGroups[i];
+            int count = counts[root];
+            if (count >= minSize) {
+                sizes[groupCount] = count;
+                memberCount += count;
+                maxSize = Math.max(maxSize, count);
+                counts[root] = -(groupCount + 2); /* Номер группы закодирован значением меньше -1 */
+                groupCount++;
+            }
+            lineGroups[i] = counts[root] < -1 ? -counts[root] - 2 : -1;
+        }
+
+        /* Сортировка подсчетом: группы размера s начинаются после всех групп большего размера,
+         * а внутри размера идут по возрастанию номера, то есть первой строки */
+        int[] bucketStarts = new int[maxSize + 2];
+        for (int group = 0; group < groupCount; group++) {
+            bucketStarts[sizes[group]]++;
+        }
+        int position = 0;
+        for (int size = maxSize; size > 1; size--) {
+            int count = bucketStarts[size];
+            bucketStarts[size] = position;
+            position += count;
+        }
+        int[] ranks = new int[groupCount];
+        for (int group = 0; group < groupCount; group++) {
+            ranks[group] = bucketStarts[sizes[group]]++;
+        }
+
+        /* Префиксные суммы размеров в порядке вывода и раскладка строк */
+        int[] starts = new int[groupCount + 1];
+        for (int group = 0; group < groupCount; group++) {
+            starts[ranks[group] + 1] = sizes[group];
+        }
+        for (int rank = 0; rank < groupCount; rank++) {
+            starts[rank + 1] += starts[rank];
+        }
+        int[] cursors = new int[groupCount];
+        for (int group = 0; group < groupCount; group++) {
+            cursors[group] = starts[ranks[group]];
+        }
+        int[] members = new int[memberCount];
+        for (int i = 0; i < lineCount; i++) {
+            int group = lineGroups[i];
+            if (group >= 0) {
+                members[cursors[group]++] = i;
+            }
+        }
+        return new GroupLayout(starts, members);
+    }
+
+    /**
+     * Метод top отбирает maxGroups самых больших групп размера не меньше minSize.
+     * Ключ группы - размер в старших 32 битах и дополнение номера первой строки в младших:
+     * больший ключ означает более раннюю позицию в выводе. В куче хранятся ключи лучших
+     * групп, а на ее вершине - худшая из них.
+     */
+    private static GroupLayout top(UnionFind unionFind, int lineCount, int maxGroups, int minSize) {
+        long[] heap = new long[maxGroups];
+        int heapSize = 0;
+        BitSet seen = new BitSet(lineCount); /* Корни групп, первая строка которых уже встречена */
+        for (int i = 0; i < lineCount; i++) {
+            int root = unionFind.get(i);
+            int size = unionFind.getComponentSize(root);
+            if (size < minSize || seen.get(root)) {
+                continue;
+            }
+            seen.set(root);
+            long key = (long) size << 32 | (Integer.MAX_VALUE - i);
+            if (heapSize < maxGroups) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else if (maxGroups > 0 && key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, heapSize);
+            }
+        }
+
+        /* Порядок вывода - по убыванию ключа; отобранные корни ищутся двоичным поиском
+         * по массиву пар (корень, номер группы) */
+        Arrays.sort(heap, 0, heapSize);
+        int[] starts = new int[heapSize + 1];
+        long[] rootGroups = new long[heapSize];
+        for (int group = 0; group < heapSize; group++) {
+            long key = heap[heapSize - 1 - group];
+            int firstLine = Integer.MAX_VALUE - (int) key;
+            starts[group + 1] = starts[group] + (int) (key >>> 32);
+            rootGroups[group] = (long) unionFind.get(firstLine) << 32 | group;
+        }
+        Arrays.sort(rootGroups);
+
+        int[] cursors = Arrays.copyOf(starts, heapSize);
+        int[] members = new int[starts[heapSize]];
+        for (int i = 0; i < lineCount && heapSize > 0; i++) {
+            int root = unionFind.get(i);
+            if (unionFind.getComponentSize(root) < minSize) {
+                continue;
+            }
+            int found = Arrays.binarySearch(rootGroups, (long) root << 32);
+            int index = found >= 0 ? found : -found - 1;
+            if (index < heapSize && (int) (rootGroups[index] >>> 32) == root) {
+                members[cursors[(int) rootGroups[index]]++] = i;
+            }
+        }
+        return new GroupLayout(starts, members);
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        long key = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= key) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        long key = heap[0];
+        int index = 0;
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= key) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+
+    /**
+     * Метод getGroupCount возвращает количество групп.
+     *
+     * @return количество групп с более чем одним элементом
+     */
+    public int getGroupCount() {
+        return starts.length - 1;
+    }
+
+    /**
+     * Метод getMemberCount возвращает количество строк во всех группах.
+     *
+     * @return длина раскладки
+     */
+    public int getMemberCount() {
+        return members.length;
+    }
+
+    /**
+     * Метод getGroupStart возвращает индекс первой строки группы в {@link #getMember(int)}.
+     *
+     * @param group номер группы в порядке вывода
+     * @return индекс начала группы
+     */
+    public int getGroupStart(int group) {
+        return starts[group];
+    }
+
+    /**
+     * Метод getGroupEnd возвращает индекс, следующий за последней строкой группы.
+     *
+     * @param group номер группы в порядке вывода
+     * @return индекс конца группы
+     */
+    public int getGroupEnd(int group) {
+        return starts[group + 1];
+    }
+
+    /**
+     * Метод findGroup находит группу, в которую попадает индекс раскладки, двоичным поиском.
+     *
+     * @param index индекс строки в раскладке, меньше {@link #getMemberCount()}
+     * @return номер группы в порядке вывода
+     */
+    public int findGroup(int index) {
+        /* Начала групп строго возрастают, так как пустых групп нет */
+        int found = Arrays.binarySearch(starts, index);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    /**
+     * Метод getMember возвращает номер строки по ее индексу в раскладке.
+     *
+     * @param index индекс от {@link #getGroupStart(int)} до {@link #getGroupEnd(int)}
+     * @return номер строки
+     */
+    public int getMember(int index) {
+        return members[index];
+    }
+}
@@ -1,16 +1,24 @@
 package io.sorter.writer;
 
+import io.sorter.metrics.Metrics;
+import io.sorter.store.LineStore;
+import io.sorter.store.RecordCursor;
 import io.sorter.validators.UnionFind;
 
-import java.io.BufferedWriter;
-import java.io.FileOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Класс ResultWriter предназначен для записи результатов группировки строк в
@@ -18,8 +26,26 @@ import java.util.Map;
  * и объединяет строки, которые принадлежат одной группе.
  */
 public class ResultWriter {
+    private static final int BUFFER_SIZE = 1 << 20; /* Размер буфера записи */
+    private static final int BATCH_LINES = 1 << 16; /* Строк в одной пачке параллельного форматирования */
+    private static final byte[] GROUP_TITLE = "Группа ".getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_TITLE_SIZE = GROUP_TITLE.length + 11; /* Заголовок с номером int и '\n' */
+
+    /**
+     * Размер записи о строке группы для {@link #writeResults(RecordCursor, FileChannel, int)}:
+     * {@code Integer.MAX_VALUE - размер группы}, номер первой строки группы, номер строки
+     * (по 4 байта), смещение строки во входном файле (8 байт) и ее длина (4 байта), все в порядке
+     * big-endian. При побайтовой сортировке таких записей группы упорядочиваются так же,
+     * как в {@link #writeResults(LineStore, UnionFind)}.
+     */
+    public static final int GROUPED_LINE_SIZE = 24;
+
     private final String outputFilename; /* Имя файла для записи результатов */
+    private final int parallelism; /* Количество потоков форматирования */
+    private int maxGroups = Integer.MAX_VALUE; /* Наибольшее количество выводимых групп */
+    private int minGroupSize = 2; /* Наименьший размер выводимой группы */
     private int groupCount; /* Счетчик групп */
+    private Metrics metrics; /* Показатели обработки или null */
 
     /**
      * Конструктор класса ResultWriter инициализирует имя выходного файла.
@@ -27,58 +53,344 @@ public class ResultWriter {
      * @param outputFilename имя файла, в который будут записаны результаты
      */
     public ResultWriter(String outputFilename) {
+        this(outputFilename, 1);
+    }
+
+    /**
+     * Конструктор класса ResultWriter с параллельным форматированием групп.
+     *
+     * @param outputFilename имя файла, в который будут записаны результаты
+     * @param parallelism    количество потоков, форматирующих группы; 1 - в вызывающем потоке
+     */
+    public ResultWriter(String outputFilename, int parallelism) {
         this.outputFilename = outputFilename;
+        this.parallelism = parallelism;
         this.groupCount = 0; /* Изначально групп нет */
     }
 
     /**
-     * Метод writeResults записывает группированные строки в файл.
-     * Он использует Union-Find для определения корня каждой строки
-     * и группирует их по этому корню.
-     * Перед выводом группирует и сортирует группы по размеру в порядке убывания.
-     * Также в начале выводит количество групп с более чем одним элементом.
+     * Метод setMaxGroups ограничивает вывод самыми большими группами. Заголовок файла
+     * по-прежнему содержит общее количество групп с более чем одним элементом.
+     *
+     * @param maxGroups наибольшее количество выводимых групп, неотрицательное
+     * @return этот же объект
+     */
+    public ResultWriter setMaxGroups(int maxGroups) {
+        if (maxGroups < 0) {
+            throw new IllegalArgumentException("Количество групп не может быть отрицательным: " + maxGroups);
+        }
+        this.maxGroups = maxGroups;
+        return this;
+    }
+
+    /**
+     * Метод setMinGroupSize исключает из вывода группы меньше заданного размера.
+     *
+     * @param minGroupSize наименьший размер выводимой группы; группы из одной строки
+     *                     не выводятся при любом значении
+     * @return этот же объект
+     */
+    public ResultWriter setMinGroupSize(int minGroupSize) {
+        this.minGroupSize = minGroupSize;
+        return this;
+    }
+
+    /**
+     * Метод writeResults записывает группированные строки из списка в файл.
+     * Строки копируются в хранилище в куче в кодировке UTF-8, после чего
+     * запись выполняется так же, как для {@link #writeResults(LineStore, UnionFind)}.
      *
      * @param lines     список строк, которые будут записаны в файл
      * @param unionFind объект класса UnionFind, который управляет группами строк
      * @throws IOException если возникнет ошибка при записи в файл
      */
     public void writeResults(List<String> lines, UnionFind unionFind) throws IOException {
-        /* Используем BufferedWriter с OutputStreamWriter и явно указываем кодировку UTF-8 */
-        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
-                new FileOutputStream(outputFilename), StandardCharsets.UTF_8))) {
-
-            Map<Integer, List<Integer>> groupElements = new HashMap<>();
-            for (int i = 0; i < lines.size(); i++) {
-                int root = unionFind.get(i); /* Получаем корень для текущей строки */
-                groupElements.computeIfAbsent(root, k -> new ArrayList<>()).add(i);
+        LineStore store = new LineStore(1 << 16, false);
+        for (String line : lines) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            store.add(ByteBuffer.wrap(bytes), 0, bytes.length);
+        }
+        writeResults(store, unionFind);
+    }
+
+    /**
+     * Метод setMetrics включает учет времени раскладки групп и записи в показателях обработки.
+     *
+     * @param metrics показатели обработки или null
+     * @return этот же объект
+     */
+    public ResultWriter setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Метод writeResults записывает группированные строки в файл.
+     * Группы раскладываются в массивы {@link GroupLayout}: по убыванию размера,
+     * а группы одного размера - по порядку появления их первых строк. Если задано
+     * ограничение количества или размера групп, байты читаются только у строк выводимых групп.
+     * Также в начале выводит количество групп с более чем одним элементом.
+     * Группы форматируются пачками в отдельные буферы, при нескольких потоках - параллельно,
+     * и буферы записываются в файл через FileChannel строго по порядку.
+     *
+     * @param lines     хранилище строк, номера которых совпадают с номерами в unionFind
+     * @param unionFind объект класса UnionFind, который управляет группами строк
+     * @throws IOException если возникнет ошибка при записи в файл
+     */
+    public void writeResults(LineStore lines, UnionFind unionFind) throws IOException {
+        long start = System.nanoTime();
+        GroupLayout layout = GroupLayout.of(unionFind, lines.size(), maxGroups, minGroupSize);
+        if (metrics != null) {
+            metrics.record(Metrics.Stage.GROUP, start);
+            start = System.nanoTime();
+        }
+        try (FileChannel channel = FileChannel.open(Path.of(outputFilename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+            /* Записываем количество групп с более чем одним элементом */
+            groupCount = unionFind.getGroupCount();
+            writeHeader(channel, buffer, groupCount);
+            flush(channel, buffer);
+
+            /* Выводим группы с наибольшим числом элементов сверху */
+            int memberCount = layout.getMemberCount();
+            if (parallelism == 1) {
+                for (int from = 0; from < memberCount; from += BATCH_LINES) {
+                    writeFully(channel, formatBatch(lines, layout, from, Math.min(memberCount, from + BATCH_LINES)));
+                }
+            } else {
+                writeBatchesInParallel(channel, lines, layout, memberCount);
             }
+        }
+        if (metrics != null) {
+            metrics.record(Metrics.Stage.WRITE, start);
+        }
+    }
 
-            /* Собираем группы с более чем одним элементом */
-            List<List<Integer>> groupsWithMoreThanOneElement = new ArrayList<>();
-            for (List<Integer> group : groupElements.values()) {
-                if (group.size() > 1) {
-                    groupsWithMoreThanOneElement.add(group);
+    /**
+     * Метод writeBatchesInParallel форматирует пачки строк в пуле потоков и записывает их
+     * по порядку. Впереди записи находится не больше двух пачек на поток, поэтому
+     * память под буферы ограничена независимо от количества групп.
+     */
+    private void writeBatchesInParallel(FileChannel channel, LineStore lines, GroupLayout layout, int memberCount)
+            throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "result-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+            int next = 0;
+            while (next < memberCount || !pending.isEmpty()) {
+                while (next < memberCount && pending.size() < parallelism * 2) {
+                    int from = next;
+                    int to = Math.min(memberCount, from + BATCH_LINES);
+                    pending.add(pool.submit(() -> formatBatch(lines, layout, from, to)));
+                    next = to;
                 }
+                writeFully(channel, pending.poll().get());
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Запись результатов прервана", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Ошибка форматирования групп", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
 
-            /* Сортируем группы по количеству элементов в порядке убывания */
-            groupsWithMoreThanOneElement.sort((g1, g2) -> Integer.compare(g2.size(), g1.size()));
+    /**
+     * Метод formatBatch форматирует строки раскладки с индексами от from до to в буфер точного
+     * размера. Пачка может начинаться и заканчиваться посреди группы: заголовок выводится
+     * перед первой строкой группы, а пустая строка - после последней.
+     *
+     * @return буфер, готовый к записи
+     */
+    private static ByteBuffer formatBatch(LineStore lines, GroupLayout layout, int from, int to) {
+        int firstGroup = layout.findGroup(from);
+        long size = 0;
+        int group = firstGroup;
+        for (int i = from; i < to; i++) {
+            if (i == layout.getGroupStart(group)) {
+                size += GROUP_TITLE.length + digits(group + 1) + 1;
+            }
+            size += lines.length(layout.getMember(i)) + 1;
+            if (i + 1 == layout.getGroupEnd(group)) {
+                size++;
+                group++;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        group = firstGroup;
+        for (int i = from; i < to; i++) {
+            if (i == layout.getGroupStart(group)) {
+                putGroupTitle(buffer, group + 1);
+            }
+            lines.copyTo(layout.getMember(i), 0, buffer);
+            buffer.put((byte) '\n');
+            if (i + 1 == layout.getGroupEnd(group)) {
+                buffer.put((byte) '\n'); /* Переход на новую строку после группы */
+                group++;
+            }
+        }
+        return buffer.flip();
+    }
 
-            /* Записываем количество групп с более чем одним элементом */
-            groupCount = groupsWithMoreThanOneElement.size();
-            writer.write("Количество групп с более чем одним элементом: " + groupCount + "\n\n");
+    /**
+     * Метод encodeGroupedLine заполняет запись о строке группы в формате {@link #GROUPED_LINE_SIZE}.
+     *
+     * @param record    массив для записи длиной не меньше {@link #GROUPED_LINE_SIZE}
+     * @param groupSize размер группы
+     * @param firstLine номер первой строки группы
+     * @param line      номер строки
+     * @param offset    смещение строки во входном файле
+     * @param length    длина строки в байтах
+     */
+    public static void encodeGroupedLine(byte[] record, int groupSize, int firstLine, int line,
+                                         long offset, int length) {
+        ByteBuffer.wrap(record)
+                .putInt(Integer.MAX_VALUE - groupSize)
+                .putInt(firstLine)
+                .putInt(line)
+                .putLong(offset)
+                .putInt(length);
+    }
 
-            /* Выводим группы с наибольшим числом элементов сверху */
-            int groupNumber = 1;
-            for (List<Integer> group : groupsWithMoreThanOneElement) {
-                writer.write(String.format("Группа %d\n", groupNumber));
-                for (int index : group) {
-                    writer.write(lines.get(index) + "\n");
+    /**
+     * Метод writeResults записывает группы, строки которых уже упорядочены внешней сортировкой
+     * записей формата {@link #GROUPED_LINE_SIZE}. Байты строк читаются из входного файла
+     * по смещениям, поэтому в памяти не хранятся. Результат совпадает с
+     * {@link #writeResults(LineStore, UnionFind)} для тех же групп.
+     *
+     * @param groupedLines записи о строках групп в порядке возрастания
+     * @param input        входной файл, из которого читаются строки
+     * @param groupCount   количество групп с более чем одним элементом
+     * @throws IOException если возникнет ошибка чтения или записи
+     */
+    public void writeResults(RecordCursor groupedLines, FileChannel input, int groupCount) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(Path.of(outputFilename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            this.groupCount = groupCount;
+            writeHeader(channel, buffer, groupCount);
+
+            int groupNumber = 0;
+            int previousFirstLine = -1;
+            while (groupedLines.next()) {
+                ByteBuffer record = ByteBuffer.wrap(groupedLines.array(), groupedLines.start(), GROUPED_LINE_SIZE);
+                int firstLine = record.getInt(groupedLines.start() + Integer.BYTES);
+                if (firstLine != previousFirstLine) {
+                    /* Номер первой строки однозначно определяет группу; группы идут по убыванию
+                     * размера, поэтому после первой неподходящей группы выводить больше нечего */
+                    int groupSize = Integer.MAX_VALUE - record.getInt(groupedLines.start());
+                    if (groupNumber == maxGroups || groupSize < minGroupSize) {
+                        break;
+                    }
+                    if (groupNumber > 0) {
+                        write(channel, buffer, "\n");
+                    }
+                    groupNumber++;
+                    if (buffer.remaining() < MAX_TITLE_SIZE) {
+                        flush(channel, buffer);
+                    }
+                    putGroupTitle(buffer, groupNumber);
+                    previousFirstLine = firstLine;
                 }
-                writer.write("\n"); /* Переход на новую строку после группы */
-                groupNumber++;
+                long offset = record.getLong(groupedLines.start() + Integer.BYTES * 3);
+                int length = record.getInt(groupedLines.start() + Integer.BYTES * 3 + Long.BYTES);
+                writeLine(channel, buffer, input, offset, length);
+            }
+            if (groupNumber > 0) {
+                write(channel, buffer, "\n");
             }
+            flush(channel, buffer);
+        }
+        if (metrics != null) {
+            metrics.record(Metrics.Stage.WRITE, start);
+        }
+    }
+
+    private static void writeHeader(FileChannel channel, ByteBuffer buffer, int groupCount) throws IOException {
+        write(channel, buffer, "Количество групп с более чем одним элементом: " + groupCount + "\n\n");
+    }
+
+    /**
+     * Метод writeLine читает строку из входного файла прямо в буфер записи,
+     * при необходимости сбрасывая буфер в файл, и завершает ее переводом строки.
+     */
+    private static void writeLine(FileChannel channel, ByteBuffer buffer, FileChannel input, long offset, int length)
+            throws IOException {
+        long position = offset;
+        long end = offset + length;
+        while (position < end) {
+            if (!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            int limit = buffer.limit();
+            buffer.limit((int) Math.min(limit, buffer.position() + (end - position)));
+            int read = input.read(buffer, position);
+            buffer.limit(limit);
+            if (read < 0) {
+                throw new EOFException("Входной файл изменился во время обработки");
+            }
+            position += read;
+        }
+        if (!buffer.hasRemaining()) {
+            flush(channel, buffer);
+        }
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Метод putGroupTitle записывает заголовок группы "Группа N" с переводом строки,
+     * формируя десятичные цифры номера прямо в буфере.
+     */
+    private static void putGroupTitle(ByteBuffer buffer, int groupNumber) {
+        buffer.put(GROUP_TITLE);
+        int end = buffer.position() + digits(groupNumber);
+        int position = end;
+        int value = groupNumber;
+        do {
+            buffer.put(--position, (byte) ('0' + value % 10));
+            value /= 10;
+        } while (value > 0);
+        buffer.position(end);
+        buffer.put((byte) '\n');
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (buffer.remaining() < bytes.length) {
+            flush(channel, buffer);
+        }
+        buffer.put(bytes);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
         }
+        buffer.clear();
     }
 
     /**
@@ -0,0 +1,165 @@
+package io.sorter.writer;
+
+import io.sorter.store.MappedRegion;
+import io.sorter.validators.ColumnIndex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Класс Snapshot открывает снимок группировки, записанный классом {@link SnapshotWriter}.
+ * Файл целиком отображается в память, и все обращения читают его напрямую: при открытии
+ * разбирается только заголовок, поэтому снимок из сотен миллионов строк открывается
+ * за миллисекунды, а в память подгружаются лишь те страницы, к которым было обращение.
+ * Экземпляр неизменяем и может читаться из нескольких потоков.
+ */
+public final class Snapshot {
+    private final MappedRegion region;
+    private final int lineCount;
+    private final int groupCount;
+    private final int histogramLength;
+    private final long endsOffset;
+    private final long dataOffset;
+    private final long rootsOffset;
+    private final long histogramOffset;
+    private final long[] columnOffsets; /* Смещения словарей столбцов */
+
+    private Snapshot(MappedRegion region) {
+        this.region = region;
+        this.lineCount = region.getInt(8);
+        this.groupCount = region.getInt(12);
+        this.histogramLength = region.getInt(20);
+        this.endsOffset = region.getLong(32);
+        this.dataOffset = region.getLong(40);
+        this.rootsOffset = region.getLong(48);
+        this.histogramOffset = region.getLong(56);
+        this.columnOffsets = new long[region.getInt(24)];
+        long position = region.getLong(64);
+        for (int column = 0; column < columnOffsets.length; column++) {
+            columnOffsets[column] = position;
+            position += ColumnIndex.mappedLength(region, position);
+        }
+    }
+
+    /**
+     * Метод open отображает снимок в память.
+     *
+     * @param path путь к файлу снимка
+     * @return открытый снимок
+     * @throws IOException если файл не является снимком поддерживаемой версии
+     *                     или его не удается прочитать
+     */
+    public static Snapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SnapshotWriter.HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Файл слишком короткий для снимка группировки: " + path);
+                }
+            }
+            if (header.getInt(0) != SnapshotWriter.MAGIC) {
+                throw new IOException("Файл не является снимком группировки: " + path);
+            }
+            if (header.getInt(4) != SnapshotWriter.VERSION) {
+                throw new IOException("Неподдерживаемая версия снимка " + header.getInt(4) + ": " + path);
+            }
+            /* Перекрытие сегментов не меньше самой длинной строки: строка всегда читается одним срезом */
+            return new Snapshot(MappedRegion.map(channel, 0, channel.size(), header.getInt(16)));
+        }
+    }
+
+    /**
+     * Метод getLineCount возвращает количество строк.
+     *
+     * @return количество строк
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Метод getGroupCount возвращает количество групп с более чем одним элементом.
+     *
+     * @return количество групп
+     */
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    /**
+     * Метод getLine возвращает байты строки без копирования.
+     *
+     * @param line номер строки
+     * @return буфер только для чтения с позицией 0 и пределом, равным длине строки
+     */
+    public ByteBuffer getLine(int line) {
+        long start = line == 0 ? 0 : region.getLong(endsOffset + (long) (line - 1) * Long.BYTES);
+        long end = region.getLong(endsOffset + (long) line * Long.BYTES);
+        return region.slice(dataOffset + start, (int) (end - start));
+    }
+
+    /**
+     * Метод getGroup возвращает номер группы строки - номер первой строки этой группы.
+     * Строки одной группы имеют один номер группы.
+     *
+     * @param line номер строки
+     * @return номер первой строки группы
+     */
+    public int getGroup(int line) {
+        return region.getInt(rootsOffset + (long) line * Integer.BYTES);
+    }
+
+    /**
+     * Метод getHistogramLength возвращает количество различных размеров групп.
+     *
+     * @return длина гистограммы размеров групп
+     */
+    public int getHistogramLength() {
+        return histogramLength;
+    }
+
+    /**
+     * Метод getHistogramSize возвращает размер групп в строке гистограммы.
+     *
+     * @param index номер строки гистограммы; размеры идут по возрастанию
+     * @return размер группы
+     */
+    public int getHistogramSize(int index) {
+        return region.getInt(histogramOffset + (long) index * Integer.BYTES * 2);
+    }
+
+    /**
+     * Метод getHistogramCount возвращает количество групп размера {@link #getHistogramSize(int)}.
+     *
+     * @param index номер строки гистограммы
+     * @return количество групп
+     */
+    public int getHistogramCount(int index) {
+        return region.getInt(histogramOffset + (long) index * Integer.BYTES * 2 + Integer.BYTES);
+    }
+
+    /**
+     * Метод getColumnCount возвращает количество столбцов со словарями значений.
+     *
+     * @return количество столбцов
+     */
+    public int getColumnCount() {
+        return columnOffsets.length;
+    }
+
+    /**
+     * Метод findFirstLine ищет значение в словаре столбца.
+     *
+     * @param column номер столбца
+     * @param value  буфер со значением (вместе с кавычками, как во входном файле)
+     * @param from   индекс первого байта значения
+     * @param to     индекс, следующий за последним байтом значения
+     * @return номер первой строки, в которой столбец имеет это значение, или -1
+     */
+    public int findFirstLine(int column, ByteBuffer value, int from, int to) {
+        return ColumnIndex.find(region, columnOffsets[column], value, from, to);
+    }
+}
@@ -0,0 +1,142 @@
+package io.sorter.writer;
+
+import io.sorter.store.BinaryWriter;
+import io.sorter.store.LineStore;
+import io.sorter.validators.ColumnIndex;
+import io.sorter.validators.UnionFind;
+import io.sorter.validators.UniqueLineChecker;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Класс SnapshotWriter записывает готовую группировку в двоичный снимок, который читается
+ * классом {@link Snapshot} через отображение в память без разбора в объекты кучи.
+ * <p>
+ * Формат версии {@link #VERSION}. Все числа записаны в порядке big-endian, смещения отсчитываются
+ * от начала файла, n - количество строк.
+ * <pre>
+ * Заголовок, 72 байта:
+ *   0  int   сигнатура 0x47534E50 ("GSNP")
+ *   4  int   версия формата ({@link #VERSION})
+ *   8  int   n - количество строк
+ *  12  int   количество групп с более чем одним элементом
+ *  16  int   длина самой длинной строки в байтах
+ *  20  int   h - количество различных размеров групп
+ *  24  int   c - количество столбцов
+ *  28  int   зарезервировано (0)
+ *  32  long  смещение концов строк
+ *  40  long  смещение байтов строк
+ *  48  long  смещение номеров групп
+ *  56  long  смещение гистограммы размеров групп
+ *  64  long  смещение словарей столбцов
+ * Концы строк:      long[n], конец строки i в байтах строк; строка i начинается
+ *                   в конце строки i - 1 (строка 0 - с нуля)
+ * Байты строк:      строки подряд без разделителей, затем выравнивание до 8 байт
+ * Номера групп:     int[n], номер первой строки группы, в которую входит строка i
+ *                   (не зависит от порядка объединений), затем выравнивание до 8 байт
+ * Гистограмма:      h пар (int размер группы, int количество групп) по возрастанию размера,
+ *                   включая группы из одной строки
+ * Словари столбцов: c словарей "значение - номер первой строки" подряд, каждый в формате
+ *                   {@link ColumnIndex#writeTo(BinaryWriter)}
+ * </pre>
+ * Номера строк совпадают с порядком строк в хранилище, то есть с порядком первого
+ * появления строк во входном файле.
+ */
+public class SnapshotWriter {
+    /** Сигнатура снимка "GSNP". */
+    public static final int MAGIC = 0x47534E50;
+    /** Версия формата снимка. */
+    public static final int VERSION = 3;
+    /** Размер заголовка снимка в байтах. */
+    public static final int HEADER_SIZE = 72;
+
+    private final Path path;
+
+    /**
+     * Конструктор класса SnapshotWriter.
+     *
+     * @param path путь к файлу снимка; существующий файл перезаписывается
+     */
+    public SnapshotWriter(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Метод write записывает снимок группировки.
+     *
+     * @param lines     хранилище строк, номера которых совпадают с номерами в unionFind
+     * @param unionFind система множеств строк
+     * @param checker   объект проверки уникальности с индексами значений столбцов
+     * @throws IOException если возникнет ошибка записи
+     */
+    public void write(LineStore lines, UnionFind unionFind, UniqueLineChecker checker) throws IOException {
+        int lineCount = lines.size();
+
+        /* Первый проход: первая строка каждой группы, гистограмма размеров и длина самой длинной строки */
+        int[] firstLines = new int[lineCount]; /* По корню множества */
+        Arrays.fill(firstLines, -1);
+        int[] sizeCounts = new int[lineCount + 1];
+        int maxLineLength = 0;
+        for (int i = 0; i < lineCount; i++) {
+            int root = unionFind.get(i);
+            if (firstLines[root] < 0) {
+                firstLines[root] = i;
+                sizeCounts[unionFind.getComponentSize(root)]++;
+            }
+            maxLineLength = Math.max(maxLineLength, lines.length(i));
+        }
+        int histogramLength = 0;
+        for (int count : sizeCounts) {
+            histogramLength += count > 0 ? 1 : 0;
+        }
+
+        long endsOffset = HEADER_SIZE;
+        long dataOffset = endsOffset + (long) lineCount * Long.BYTES;
+        long rootsOffset = align(dataOffset + lines.sizeInBytes());
+        long histogramOffset = align(rootsOffset + (long) lineCount * Integer.BYTES);
+        long columnsOffset = histogramOffset + (long) histogramLength * Integer.BYTES * 2;
+
+        try (BinaryWriter out = new BinaryWriter(path)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(lineCount);
+            out.writeInt(unionFind.getGroupCount());
+            out.writeInt(maxLineLength);
+            out.writeInt(histogramLength);
+            out.writeInt(checker.getColumnCount());
+            out.writeInt(0);
+            out.writeLong(endsOffset);
+            out.writeLong(dataOffset);
+            out.writeLong(rootsOffset);
+            out.writeLong(histogramOffset);
+            out.writeLong(columnsOffset);
+
+            lines.writeEndsTo(out, 0);
+            lines.writeBytesTo(out, 0);
+            pad(out, rootsOffset - dataOffset - lines.sizeInBytes());
+            for (int i = 0; i < lineCount; i++) {
+                out.writeInt(firstLines[unionFind.get(i)]);
+            }
+            pad(out, histogramOffset - rootsOffset - (long) lineCount * Integer.BYTES);
+            for (int size = 1; size < sizeCounts.length; size++) {
+                if (sizeCounts[size] > 0) {
+                    out.writeInt(size);
+                    out.writeInt(sizeCounts[size]);
+                }
+            }
+            for (int column = 0; column < checker.getColumnCount(); column++) {
+                checker.getColumnIndex(column).writeTo(out);
+            }
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    private static void pad(BinaryWriter out, long bytes) throws IOException {
+        out.writeBytes(new byte[(int) bytes], 0, (int) bytes);
+    }
+}
@@ -0,0 +1,89 @@
+package io.sorter;
+
+import io.sorter.calculator.GroupingWorkspace;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GroupingServerTest {
+
+    @Test
+    @DisplayName("**Сервер отвечает на каждое задание и останавливается по команде shutdown**")
+    void testServeJobs() throws IOException {
+        Path input = Path.of("test_server_input.txt");
+        Path output = Path.of("test_server_out.txt");
+        Files.writeString(input, "\"1\";\"2\"\n\"1\";\"3\"\n\"4\";\"5\"\n");
+        try {
+            String jobs = input + " --output " + output + "\n"
+                    + "\n"
+                    + "--threads 2 " + input + " --output " + output + "\n"
+                    + "--unknown " + input + "\n"
+                    + "test_server_missing.txt\n"
+                    + GroupingServer.SHUTDOWN + "\n"
+                    + input + "\n";
+            StringWriter responses = new StringWriter();
+            new GroupingServer(GroupingWorkspace.DEFAULT_MAX_RETAINED_BYTES).serve(new StringReader(jobs), responses);
+
+            String[] lines = responses.toString().split("\\R");
+            assertEquals(5, lines.length);
+            assertTrue(lines[0].startsWith("OK 1 "), lines[0]);
+            assertTrue(lines[1].startsWith("OK 1 "), lines[1]);
+            assertTrue(lines[2].startsWith("ERROR "), lines[2]);
+            assertTrue(lines[3].startsWith("ERROR "), lines[3]);
+            assertEquals("OK", lines[4]);
+            assertTrue(Files.readString(output).contains("Группа 1"));
+        } finally {
+            Files.delete(input);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    @Test
+    @DisplayName("**Задание, оборвавшееся посреди чтения, не мешает следующим заданиям**")
+    void testFailedJob() throws IOException {
+        Path input = Path.of("test_server_input.txt");
+        Path broken = Path.of("test_server_broken.txt.gz");
+        Path output = Path.of("test_server_out.txt");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            content.append('"').append(i % 1000).append("\";\"").append(i).append("\"\n");
+        }
+        Files.writeString(input, content.toString());
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(content.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+        /* Обрезанный архив: строки начала файла успевают попасть в структуры до ошибки */
+        Files.write(broken, Arrays.copyOf(compressed.toByteArray(), compressed.size() / 2));
+        try {
+            GroupingServer server = new GroupingServer(GroupingWorkspace.DEFAULT_MAX_RETAINED_BYTES);
+            String expected = server.execute(input + " --output " + output);
+            String expectedOutput = Files.readString(output);
+            assertTrue(expected.startsWith("OK 1000 "), expected);
+
+            String failed = server.execute(broken + " --output " + output);
+            assertTrue(failed.startsWith("ERROR "), failed);
+
+            String next = server.execute(input + " --output " + output);
+            assertTrue(next.startsWith("OK 1000 "), next);
+            assertEquals(expectedOutput, Files.readString(output));
+        } finally {
+            Files.delete(input);
+            Files.delete(broken);
+            Files.deleteIfExists(output);
+        }
+    }
+}
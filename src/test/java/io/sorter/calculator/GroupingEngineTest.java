@@ -0,0 +1,120 @@
+package io.sorter.calculator;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GroupingEngineTest {
+
+    @Test
+    @DisplayName("**Все источники строк дают одни и те же группы**")
+    void testSourcesMatch() throws IOException {
+        String content = randomContent(3, 20_000);
+        Path input = Path.of("test_engine_input.txt");
+        Files.writeString(input, content);
+        try {
+            GroupingEngine engine = GroupingEngine.builder().build();
+            List<List<String>> expected = collect(engine.group(input));
+            assertTrue(expected.size() > 1);
+
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            assertEquals(expected, collect(engine.group(new ByteArrayInputStream(bytes))));
+            assertEquals(expected, collect(engine.group(Channels.newChannel(new ByteArrayInputStream(bytes)))));
+            List<ByteBuffer> lines = content.lines()
+                    .map(line -> ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)))
+                    .collect(Collectors.toList());
+            assertEquals(expected, collect(engine.group(lines.iterator())));
+            assertEquals(expected, collect(GroupingEngine.builder().setParallelism(4).build().group(input)));
+
+            /* Во внешней памяти группы те же, но перебрать их можно только один раз */
+            try (GroupingResult result = GroupingEngine.builder().setMemoryBudget(1 << 18).build().group(input)) {
+                assertTrue(result.isExternal());
+                assertEquals(expected, collect(result));
+                assertThrows(IllegalStateException.class, result::groups);
+            }
+        } finally {
+            Files.deleteIfExists(input);
+        }
+    }
+
+    @Test
+    @DisplayName("**Текстовый вывод и приемник групп совпадают с выходным файлом программы**")
+    void testWriteTextAndSink() throws IOException {
+        Path input = Path.of("test_engine_output_input.txt");
+        Path output = Files.createTempFile("group_sorter_engine", ".txt");
+        Files.writeString(input, randomContent(4, 10_000));
+        try {
+            new LineCalc(input.toString(), new CalcOptions().setMaxGroups(50).setMinGroupSize(3)).calc();
+            String expected = Files.readString(Path.of("out.txt"));
+
+            for (GroupingEngine engine : new GroupingEngine[]{
+                    GroupingEngine.builder().setMaxGroups(50).setMinGroupSize(3).build(),
+                    GroupingEngine.builder().setMaxGroups(50).setMinGroupSize(3).setMemoryBudget(1 << 18).build()}) {
+                try (GroupingResult result = engine.group(input)) {
+                    result.writeText(output);
+                }
+                assertEquals(expected, Files.readString(output));
+
+                /* Приемник получает те же группы, что и поток групп */
+                List<List<String>> sunk = new ArrayList<>();
+                try (GroupingResult result = engine.group(input)) {
+                    result.forEachGroup(new GroupSink() {
+                        @Override
+                        public void startGroup(int number, int size) {
+                            assertEquals(sunk.size() + 1, number);
+                            sunk.add(new ArrayList<>(size));
+                        }
+
+                        @Override
+                        public void line(ByteBuffer line) {
+                            sunk.get(sunk.size() - 1).add(StandardCharsets.UTF_8.decode(line).toString());
+                        }
+                    });
+                }
+                try (GroupingResult result = engine.group(input)) {
+                    assertEquals(collect(result), sunk);
+                }
+                assertEquals(50, sunk.size());
+            }
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    private static List<List<String>> collect(GroupingResult result) {
+        return result.groups()
+                .map(group -> IntStream.range(0, group.size()).mapToObj(group::getLineString)
+                        .collect(Collectors.toList()))
+                .collect(Collectors.toList());
+    }
+
+    private static String randomContent(long seed, int count) {
+        Random random = new Random(seed);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            content.append('"').append(random.nextInt(count * 2)).append("\";\"")
+                    .append(random.nextInt(count * 2)).append("\";\"").append(random.nextInt(count * 2)).append("\"\n");
+            if (random.nextInt(50) == 0) {
+                content.append("некорректная строка\n");
+            }
+        }
+        return content.toString();
+    }
+}
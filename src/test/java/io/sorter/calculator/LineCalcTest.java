@@ -1,5 +1,6 @@
 package io.sorter.calculator;
 
+import io.sorter.metrics.Metrics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -7,9 +8,19 @@ import org.junit.jupiter.api.Test;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class LineCalcTest {
 
@@ -72,4 +83,280 @@ public class LineCalcTest {
         /* Проверка, что возвращаемое значение равно не менее 10000 */
         assertEquals(10000, estimatedMaxLines);
     }
+
+    @Test
+    @DisplayName("**Проверка оценки количества строк по выборке**")
+    void testEstimateLinesBySample() throws IOException {
+        /* Файл из трех строк меньше минимальной оценки */
+        assertEquals(10000, lineCalc.estimateLinesBySample(testInputFilename));
+
+        /* Перевод строки в сжатых данных не означает конец строки: дается минимальная оценка */
+        Path plain = Path.of("test_estimate_input.txt");
+        Path compressed = Path.of("test_estimate_input.txt.gz");
+        try {
+            Files.writeString(plain, "\"1\"\n".repeat(200_000));
+            assertTrue(lineCalc.estimateLinesBySample(plain.toString()) > 100_000);
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+                for (int i = 0; i < 400_000; i++) {
+                    out.write(("\"" + i * 7919L % 1_000_003 + "\"\n").getBytes(StandardCharsets.US_ASCII));
+                }
+            }
+            assertEquals(10000, lineCalc.estimateLinesBySample(compressed.toString()));
+        } finally {
+            Files.deleteIfExists(plain);
+            Files.deleteIfExists(compressed);
+        }
+
+        /* Для отсутствующего файла возвращается минимальная оценка без исключения */
+        assertEquals(10000, lineCalc.estimateLinesBySample("nonexistent.txt"));
+    }
+
+    @Test
+    @DisplayName("**Проверка режима с точным предварительным подсчетом строк**")
+    void testCalcWithExactLineCount() {
+        assertEquals(0, new LineCalc(testInputFilename, true).calc());
+    }
+
+    @Test
+    @DisplayName("**Параллельная обработка дает тот же результат, что и последовательная**")
+    void testParallelMatchesSequential() throws IOException {
+        String inputFilename = "test_parallel_input.txt";
+        Random random = new Random(1);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(inputFilename))) {
+            for (int i = 0; i < 60_000; i++) {
+                writer.write("\"" + random.nextInt(50_000) + "\";\"" + random.nextInt(50_000) + "\";;\""
+                        + random.nextInt(100) + "." + random.nextInt(10) + "\"\n");
+                if (random.nextInt(20) == 0) {
+                    writer.write("некорректная строка\n");
+                }
+            }
+        }
+
+        int sequentialGroups = new LineCalc(inputFilename).calc();
+        String sequentialOutput = Files.readString(Path.of("out.txt"));
+        int parallelGroups = new LineCalc(inputFilename, new CalcOptions().setParallelism(4)).calc();
+        String parallelOutput = Files.readString(Path.of("out.txt"));
+
+        /* Побайтная сверка повторов не меняет результат */
+        new LineCalc(inputFilename, new CalcOptions().setParallelism(4).setVerifyDuplicates(true)).calc();
+        String verifiedOutput = Files.readString(Path.of("out.txt"));
+
+        assertEquals(sequentialGroups, parallelGroups);
+        assertEquals(sequentialOutput, parallelOutput);
+        assertEquals(sequentialOutput, verifiedOutput);
+
+        /* Конвейер стадий обрабатывает пакеты в нескольких потоках разбора, но нумерует строки по порядку,
+           а потоки индексов столбцов объединяют строки одновременно, в том числе при столбцах, общих
+           для потока (3 потока на 4 столбца), и при потоках без столбцов (8 потоков) */
+        for (int parsers : new int[]{1, 3, 4, 8}) {
+            int pipelineGroups = new LineCalc(inputFilename,
+                    new CalcOptions().setPipeline(true).setParallelism(parsers)).calc();
+            assertEquals(sequentialGroups, pipelineGroups);
+            assertEquals(sequentialOutput, Files.readString(Path.of("out.txt")));
+        }
+        new LineCalc(inputFilename, new CalcOptions().setPipeline(true).setParallelism(3)
+                .setVerifyDuplicates(true)).calc();
+        assertEquals(sequentialOutput, Files.readString(Path.of("out.txt")));
+
+        /* Внешняя сортировка с маленьким буфером сбрасывает записи на диск и дает тот же файл */
+        int externalGroups = new LineCalc(inputFilename,
+                new CalcOptions().setExternal(true).setMemoryBudget(1 << 18)).calc();
+        assertEquals(sequentialGroups, externalGroups);
+        assertEquals(sequentialOutput, Files.readString(Path.of("out.txt")));
+        new LineCalc(inputFilename, new CalcOptions().setExternal(true).setMemoryBudget(1 << 18)
+                .setVerifyDuplicates(true)).calc();
+        assertEquals(sequentialOutput, Files.readString(Path.of("out.txt")));
+    }
+
+    @Test
+    @DisplayName("**Планировщик оценивает файл по выборке и не меняет результат**")
+    void testAdaptivePlan() throws IOException {
+        String inputFilename = "test_adaptive_input.txt";
+        Random random = new Random(3);
+        /* Выборка меньше файла: количество строк и значений экстраполируется */
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(inputFilename))) {
+            for (int i = 0; i < 200_000; i++) {
+                writer.write("\"" + random.nextInt(100_000) + "\";\"" + random.nextInt(10) + "\"\n");
+            }
+        }
+
+        int groups = new LineCalc(inputFilename).calc();
+        String output = Files.readString(Path.of("out.txt"));
+        LineCalc adaptive = new LineCalc(inputFilename, new CalcOptions().setAdaptive(true));
+        assertEquals(groups, adaptive.calc());
+        assertEquals(output, Files.readString(Path.of("out.txt")));
+
+        Plan plan = adaptive.getPlan();
+        assertNotNull(plan);
+        assertTrue(Math.abs(plan.getEstimatedLines() - 200_000) < 20_000);
+        long[] cardinalities = plan.getColumnCardinalities();
+        assertEquals(2, cardinalities.length);
+        /* Около 86 500 различных значений из 100 000 при 200 000 строках */
+        assertTrue(cardinalities[0] > 70_000 && cardinalities[0] < 120_000);
+        assertEquals(10, cardinalities[1]);
+        assertNull(new LineCalc(inputFilename).getPlan());
+    }
+
+    @Test
+    @DisplayName("**Обработки с общими структурами группировки дают тот же результат, что и отдельные**")
+    void testWorkspaceReuse() throws IOException {
+        Random random = new Random(3);
+        Path wide = Path.of("test_workspace_wide.txt");
+        Path narrow = Path.of("test_workspace_narrow.txt");
+        StringBuilder wideContent = new StringBuilder();
+        StringBuilder narrowContent = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            wideContent.append('"').append(random.nextInt(8_000)).append("\";\"")
+                    .append(random.nextInt(8_000)).append("\";\"x").append(random.nextInt(40)).append("\"\n");
+            narrowContent.append('"').append(random.nextInt(3_000)).append("\"\n");
+        }
+        Files.writeString(wide, wideContent.toString());
+        Files.writeString(narrow, narrowContent.toString());
+        try {
+            GroupingWorkspace workspace = new GroupingWorkspace();
+            CalcOptions verify = new CalcOptions().setVerifyDuplicates(true);
+            for (CalcOptions options : new CalcOptions[]{new CalcOptions(), verify, new CalcOptions()}) {
+                for (Path input : new Path[]{wide, narrow, wide}) {
+                    int expectedGroups = new LineCalc(input.toString(), options).calc();
+                    String expectedOutput = Files.readString(Path.of("out.txt"));
+                    assertEquals(expectedGroups, new LineCalc(input.toString(), options, workspace).calc());
+                    assertEquals(expectedOutput, Files.readString(Path.of("out.txt")));
+                }
+            }
+            assertEquals(9, workspace.getUseCount());
+
+            /* Очищенные структуры сохраняют память, пока ее объем не превышает заданный */
+            assertTrue(workspace.getRetainedBytes() > 0);
+            workspace.acquire();
+            assertTrue(workspace.getRetainedBytes() > 0);
+            workspace.setMaxRetainedBytes(0);
+            new LineCalc(wide.toString(), new CalcOptions(), workspace).calc();
+            workspace.acquire();
+            assertEquals(0, workspace.getRetainedBytes());
+
+            /* После обработки, оборвавшейся с ошибкой, структуры выделяются заново */
+            workspace.setMaxRetainedBytes(GroupingWorkspace.DEFAULT_MAX_RETAINED_BYTES);
+            new LineCalc(wide.toString(), new CalcOptions(), workspace).calc();
+            workspace.discard();
+            workspace.acquire();
+            assertEquals(0, workspace.getRetainedBytes());
+        } finally {
+            Files.delete(wide);
+            Files.delete(narrow);
+        }
+    }
+
+    @Test
+    @DisplayName("**Режим дописывания дает тот же результат, что и обработка файла целиком**")
+    void testIncrementalMatchesFull() throws IOException {
+        Random random = new Random(2);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            content.append('"').append(random.nextInt(15_000)).append("\";\"")
+                    .append(random.nextInt(15_000)).append("\";\"").append(random.nextInt(50)).append("\"\n");
+        }
+        Path input = Path.of("test_incremental_input.txt");
+        Path state = Files.createTempDirectory("group_sorter_state");
+        CalcOptions options = new CalcOptions().setStateDirectory(state);
+        try {
+            /* Первый запуск видит файл, оборванный посреди строки: хвост ждет следующего запуска */
+            int cut = content.length() / 2 + 3;
+            Files.writeString(input, content.substring(0, cut));
+            new LineCalc(input.toString(), options).calc();
+            Files.writeString(input, content.toString());
+            int incrementalGroups = new LineCalc(input.toString(), options).calc();
+            String incrementalOutput = Files.readString(Path.of("out.txt"));
+
+            /* Повторный запуск без новых строк выводит то же состояние */
+            assertEquals(incrementalGroups, new LineCalc(input.toString(), options).calc());
+            assertEquals(incrementalOutput, Files.readString(Path.of("out.txt")));
+
+            int fullGroups = new LineCalc(input.toString()).calc();
+            assertEquals(fullGroups, incrementalGroups);
+            assertEquals(Files.readString(Path.of("out.txt")), incrementalOutput);
+
+            /* Измененное начало файла не принимается за дописывание */
+            Files.writeString(input, "\"1\"\n" + content);
+            assertThrows(IllegalArgumentException.class, () -> new LineCalc(input.toString(), options).calc());
+        } finally {
+            try (Stream<Path> files = Files.list(state)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(state);
+        }
+    }
+
+    @Test
+    @DisplayName("**Шарды и слияние частичных результатов дают тот же результат, что и один файл**")
+    void testShardsMatchSingleFile() throws IOException {
+        Random random = new Random(3);
+        Path shards = Files.createTempDirectory("group_sorter_shards");
+        Path partials = Files.createTempDirectory("group_sorter_partials");
+        Path input = Path.of("test_shards_input.txt");
+        StringBuilder content = new StringBuilder();
+        try {
+            for (int shard = 0; shard < 5; shard++) {
+                StringBuilder shardContent = new StringBuilder();
+                for (int i = 0; i < 4_000; i++) {
+                    /* Значения и повторы строк пересекают границы шардов */
+                    shardContent.append('"').append(random.nextInt(8_000)).append("\";\"")
+                            .append(random.nextInt(8_000)).append("\"\n");
+                }
+                Files.writeString(shards.resolve("shard_" + shard + ".txt"), shardContent);
+                content.append(shardContent);
+            }
+            Files.writeString(input, content);
+            int expectedGroups = new LineCalc(input.toString()).calc();
+            String expectedOutput = Files.readString(Path.of("out.txt"));
+
+            CalcOptions options = new CalcOptions().setParallelism(3);
+            assertEquals(expectedGroups, new LineCalc(shards.toString(), options).calc());
+            assertEquals(expectedOutput, Files.readString(Path.of("out.txt")));
+            assertEquals(expectedGroups, new LineCalc(shards + "/shard_*.txt", options).calc());
+            assertEquals(expectedOutput, Files.readString(Path.of("out.txt")));
+
+            assertEquals(5, new LineCalc(shards.toString(), options).calcPartials(partials));
+            assertEquals(expectedGroups, new LineCalc(partials.toString(), options).merge());
+            assertEquals(expectedOutput, Files.readString(Path.of("out.txt")));
+        } finally {
+            Files.deleteIfExists(input);
+            for (Path directory : new Path[]{shards, partials}) {
+                try (Stream<Path> files = Files.list(directory)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Files.delete(file);
+                    }
+                }
+                Files.delete(directory);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("**Счетчики показателей одинаковы во всех режимах обработки**")
+    void testMetricsCounters() throws IOException {
+        Path input = Path.of("test_metrics_input.txt");
+        Path report = Files.createTempFile("group_sorter_metrics", ".json");
+        /* 4 строки, из них 1 некорректная и 1 повтор; строки 1 и 3 объединяются по первому столбцу */
+        Files.writeString(input, "\"1\";\"2\"\n\"3\";\"4\"\nнекорректная\n\"1\";\"5\"\n\"3\";\"4\"\n");
+        try {
+            for (CalcOptions options : new CalcOptions[]{new CalcOptions(), new CalcOptions().setParallelism(2),
+                    new CalcOptions().setExternal(true), new CalcOptions().setExternal(true).setVerifyDuplicates(true),
+                    new CalcOptions().setPipeline(true).setParallelism(2)}) {
+                LineCalc calc = new LineCalc(input.toString(), options.setMetricsFile(report));
+                assertEquals(1, calc.calc());
+                Metrics metrics = calc.getMetrics();
+                assertEquals(5, metrics.getCount(Metrics.Counter.LINES_READ));
+                assertEquals(1, metrics.getCount(Metrics.Counter.INVALID_LINES));
+                assertEquals(1, metrics.getCount(Metrics.Counter.DUPLICATE_LINES));
+                assertEquals(3, metrics.getCount(Metrics.Counter.UNIQUE_LINES));
+                assertEquals(1, metrics.getCount(Metrics.Counter.EFFECTIVE_UNIONS));
+                assertTrue(Files.readString(report).contains("\"linesRead\": 5"));
+            }
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(report);
+        }
+    }
 }
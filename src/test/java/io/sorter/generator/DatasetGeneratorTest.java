@@ -0,0 +1,95 @@
+package io.sorter.generator;
+
+import io.sorter.parser.LineTokenizer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DatasetGeneratorTest {
+
+    private static String[] generate(DatasetGenerator generator) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.generate(out);
+        return out.toString(StandardCharsets.UTF_8).split("\n");
+    }
+
+    @Test
+    @DisplayName("**Одинаковые настройки дают одинаковый файл, другое начальное значение - другой**")
+    void testDeterministic() throws IOException {
+        DatasetGenerator generator = new DatasetGenerator().setLineCount(2_000).setColumnCount(4)
+                .setCardinality(10, 100, 1_000, 10_000).setDuplicateRatio(0.2).setInvalidRatio(0.1)
+                .setZipfExponent(1.2).setSeed(7);
+        String[] first = generate(generator);
+        assertEquals(2_000, first.length);
+        assertArrayEquals(first, generate(generator));
+        assertFalse(Arrays.equals(first, generate(generator.setSeed(8))));
+    }
+
+    @Test
+    @DisplayName("**Доли повторов и некорректных строк соответствуют настройкам**")
+    void testRatios() throws IOException {
+        String[] lines = generate(new DatasetGenerator().setLineCount(20_000).setColumnCount(3)
+                .setCardinality(1_000_000_000L).setEmptyRatio(0.2).setDuplicateRatio(0.1).setInvalidRatio(0.05));
+        LineTokenizer tokenizer = new LineTokenizer();
+        Set<String> seen = new HashSet<>();
+        int duplicates = 0;
+        int invalid = 0;
+        int values = 0;
+        int empty = 0;
+        for (String line : lines) {
+            if (!seen.add(line)) {
+                duplicates++;
+                continue;
+            }
+            if (!tokenizer.tokenize(line)) {
+                invalid++;
+                continue;
+            }
+            assertEquals(3, tokenizer.getColumnCount());
+            for (int column = 0; column < 3; column++) {
+                values++;
+                empty += tokenizer.isEmpty(column) ? 1 : 0;
+            }
+        }
+        /* При миллиарде значений в столбце случайные совпадения строк практически исключены */
+        assertEquals(0.1, duplicates / 20_000.0, 0.01);
+        assertEquals(0.05, invalid / 20_000.0, 0.01);
+        assertEquals(0.2, (double) empty / values, 0.01);
+    }
+
+    @Test
+    @DisplayName("**Частоты значений убывают по закону Ципфа**")
+    void testZipfSkew() {
+        ZipfSampler sampler = new ZipfSampler(1_000, 1.0);
+        SplittableRandom random = new SplittableRandom(3);
+        Map<Long, Integer> counts = new HashMap<>();
+        int samples = 200_000;
+        for (int i = 0; i < samples; i++) {
+            long rank = sampler.sample(random);
+            assertTrue(rank >= 1 && rank <= 1_000);
+            counts.merge(rank, 1, Integer::sum);
+        }
+        /* Нормирующая сумма 1 + 1/2 + ... + 1/1000 */
+        double harmonic = 0;
+        for (int k = 1; k <= 1_000; k++) {
+            harmonic += 1.0 / k;
+        }
+        for (long rank : new long[]{1, 2, 10}) {
+            assertEquals(1.0 / rank / harmonic, counts.get(rank) / (double) samples, 0.01);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.sorter.parser;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LineTokenizerTest {
+    /* Регулярное выражение, которым строки проверялись раньше */
+    private static final Pattern LINE_PATTERN = Pattern.compile("(\"\\d*(\\.\\d)?\")(;(\"\\d*(\\.\\d)?\")?)*");
+
+    private final LineTokenizer tokenizer = new LineTokenizer();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"\"1\"", "\"\"", "\"12.5\";\"\";\"3\"", "\"1\";;\"2\"", "\"1\";", "\".5\"", "\"1\";;;"})
+    @DisplayName("**Корректные строки принимаются**")
+    void testValidLines(String line) {
+        assertTrue(tokenizer.tokenize(line));
+        assertArrayEquals(line.split(";"), LineProcessor.parseLine(line));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", ";\"1\"", "\"1", "\"1.\"", "\"1.23\"", "\"a\"", "\"1\"\"2\"", "\"1\";2", "1", "\"1\";\"١\""})
+    @DisplayName("**Некорректные строки отклоняются**")
+    void testInvalidLines(String line) {
+        assertFalse(tokenizer.tokenize(line));
+        assertNull(LineProcessor.parseLine(line));
+    }
+
+    @Test
+    @DisplayName("**Границы столбцов в диапазоне байтов**")
+    void testByteRange() {
+        byte[] bytes = "xx\"1\";;\"\";\"2.5\"yy".getBytes(StandardCharsets.US_ASCII);
+
+        assertTrue(tokenizer.tokenize(bytes, 2, bytes.length - 2));
+        assertEquals(4, tokenizer.getColumnCount());
+        assertEquals(2, tokenizer.getStart(0));
+        assertEquals(5, tokenizer.getEnd(0));
+        assertFalse(tokenizer.isEmpty(0));
+        assertTrue(tokenizer.isEmpty(1));
+        assertTrue(tokenizer.isEmpty(2));
+        assertEquals(10, tokenizer.getStart(3));
+        assertEquals(15, tokenizer.getEnd(3));
+    }
+
+    @Test
+    @DisplayName("**Совпадение с регулярным выражением на случайных строках**")
+    void testMatchesRegex() {
+        Random random = new Random(42);
+        char[] alphabet = {'"', '"', '"', '1', '0', '.', ';', ';', 'x'};
+        for (int n = 0; n < 200_000; n++) {
+            char[] chars = new char[random.nextInt(12)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String line = new String(chars);
+            boolean expected = LINE_PATTERN.matcher(line).matches();
+
+            assertEquals(expected, tokenizer.tokenize(line), line);
+            byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(expected, tokenizer.tokenize(bytes, 0, bytes.length), line);
+            if (expected) {
+                assertArrayEquals(line.split(";"), LineProcessor.parseLine(line), line);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.sorter.reader;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class MappedLineReaderTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("**Разбиение на строки с разными переводами строк**")
+    void testLineTerminators() throws IOException {
+        Path file = write("a\nbb\r\n\nccc\rd");
+
+        assertEquals(List.of("a", "bb", "", "ccc", "d"), readAll(file, 0, Long.MAX_VALUE, 1 << 20));
+    }
+
+    @Test
+    @DisplayName("**Чтение маленькими окнами совпадает с чтением целиком**")
+    void testSmallWindows() throws IOException {
+        StringBuilder content = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String line = "\"" + "1".repeat(i % 37) + "\"";
+            expected.add(line);
+            content.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        Path file = write(content.toString());
+
+        /* Окна меньше длины строки заставляют читатель расширять окно и перечитывать строки */
+        for (int windowSize = 1; windowSize <= 64; windowSize++) {
+            assertEquals(expected, readAll(file, 0, Long.MAX_VALUE, windowSize));
+        }
+    }
+
+    @Test
+    @DisplayName("**Чтение диапазона файла и смещения строк**")
+    void testRangeAndPositions() throws IOException {
+        Path file = write("first\nsecond\nthird\n");
+
+        try (MappedLineReader reader = new MappedLineReader(file, 6, 13, 4)) {
+            reader.next();
+            assertEquals(6, reader.getPosition());
+            assertEquals("second", text(reader));
+            assertFalse(reader.next());
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = tempDir.resolve("input.txt");
+        Files.writeString(file, content, StandardCharsets.US_ASCII);
+        return file;
+    }
+
+    private static List<String> readAll(Path file, long from, long to, int windowSize) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (MappedLineReader reader = new MappedLineReader(file, from, to, windowSize)) {
+            while (reader.next()) {
+                lines.add(text(reader));
+            }
+        }
+        return lines;
+    }
+
+    private static String text(LineReader reader) {
+        byte[] bytes = new byte[reader.getEnd() - reader.getStart()];
+        reader.getBuffer().get(reader.getStart(), bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,178 @@
+package io.sorter.reader;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamLineReaderTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("**Строки на границах буферов совпадают с чтением через отображение в память**")
+    void testSmallBuffers() throws IOException {
+        String content = content();
+        Path file = tempDir.resolve("plain.txt");
+        Files.writeString(file, content, StandardCharsets.US_ASCII);
+        List<String> expected = readAll(new MappedLineReader(file));
+
+        /* Буферы меньше длины строки и границы внутри "\r\n" */
+        for (int bufferSize = 1; bufferSize <= 40; bufferSize++) {
+            byte[] bytes = content.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(expected, readAll(new StreamLineReader(new ByteArrayInputStream(bytes), bufferSize)));
+        }
+        assertEquals(List.of("a", "bb", "", "ccc", "d"),
+                readAll(new StreamLineReader(new ByteArrayInputStream("a\nbb\r\n\nccc\rd".getBytes()), 3)));
+    }
+
+    @Test
+    @DisplayName("**Сжатые файлы распознаются по сигнатуре, а не по расширению**")
+    void testCompressedFiles() throws IOException {
+        String content = content();
+        byte[] bytes = content.getBytes(StandardCharsets.US_ASCII);
+        Path plain = tempDir.resolve("plain.gz");
+        Files.write(plain, bytes);
+        List<String> expected = readAll(LineReaders.open(plain));
+        assertFalse(LineReaders.isCompressed(plain));
+
+        /* Обычный gzip из двух склеенных членов */
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        gzip.write(gzip(bytes, 0, bytes.length / 2));
+        gzip.write(gzip(bytes, bytes.length / 2, bytes.length));
+        Path gzipFile = tempDir.resolve("gzip.txt");
+        Files.write(gzipFile, gzip.toByteArray());
+        assertTrue(LineReaders.isCompressed(gzipFile));
+        assertEquals(expected, readAll(LineReaders.open(gzipFile, 4)));
+
+        /* BGZF из множества маленьких членов распаковывается параллельно */
+        ByteArrayOutputStream bgzf = new ByteArrayOutputStream();
+        for (int from = 0; from < bytes.length; from += 100) {
+            bgzf.write(bgzfBlock(bytes, from, Math.min(bytes.length, from + 100)));
+        }
+        bgzf.write(bgzfBlock(bytes, 0, 0)); /* Пустой член - признак конца файла BGZF */
+        Path bgzfFile = tempDir.resolve("bgzf.dat");
+        Files.write(bgzfFile, bgzf.toByteArray());
+        assertTrue(LineReaders.isCompressed(bgzfFile));
+        try (LineReader reader = LineReaders.open(bgzfFile, 4)) {
+            assertInstanceOf(StreamLineReader.class, reader);
+        }
+        assertEquals(expected, readAll(LineReaders.open(bgzfFile, 4)));
+        assertEquals(expected, readAll(LineReaders.open(bgzfFile, 1)));
+    }
+
+    @Test
+    @DisplayName("**Смещения строк считаются от начала распакованных данных**")
+    void testPositions() throws IOException {
+        byte[] bytes = "first\r\nsecond\nthird".getBytes(StandardCharsets.US_ASCII);
+        try (StreamLineReader reader = new StreamLineReader(new ByteArrayInputStream(bytes), 4)) {
+            assertTrue(reader.next());
+            assertEquals(0, reader.getPosition());
+            assertTrue(reader.next());
+            assertEquals(7, reader.getPosition());
+            assertTrue(reader.next());
+            assertEquals(14, reader.getPosition());
+            assertFalse(reader.next());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    @DisplayName("**Ошибка потока чтения выбрасывается при разборе, а не оставляет его ждать**")
+    void testReadError() throws IOException {
+        InputStream failing = new InputStream() {
+            private int remaining = 10;
+
+            @Override
+            public int read() {
+                if (remaining-- == 0) {
+                    throw new IllegalStateException("поток сломан");
+                }
+                return '\n';
+            }
+        };
+        try (StreamLineReader reader = new StreamLineReader(failing, 4)) {
+            IllegalStateException error = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> assertThrows(IllegalStateException.class, () -> {
+                        while (reader.next()) {
+                            assertEquals(reader.getStart(), reader.getEnd());
+                        }
+                    }));
+            assertEquals("поток сломан", error.getMessage());
+            assertFalse(reader.next());
+        }
+    }
+
+    private static String content() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            content.append("\"").append("7".repeat(i % 23)).append("\"");
+            content.append(i % 3 == 0 ? "\r\n" : i % 7 == 0 ? "\r" : "\n");
+        }
+        return content.append("\"last\"").toString();
+    }
+
+    private static byte[] gzip(byte[] bytes, int from, int to) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes, from, to - from);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Метод bgzfBlock сжимает диапазон в отдельный член gzip с полем "BC", как это делает bgzip.
+     */
+    private static byte[] bgzfBlock(byte[] bytes, int from, int to) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(bytes, from, to - from);
+        deflater.finish();
+        byte[] compressed = new byte[(to - from) * 2 + 64];
+        int compressedLength = deflater.deflate(compressed);
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, from, to - from);
+
+        int blockSize = 18 + compressedLength + 8;
+        ByteBuffer block = ByteBuffer.allocate(blockSize).order(ByteOrder.LITTLE_ENDIAN);
+        block.put((byte) 0x1F).put((byte) 0x8B).put((byte) 8).put((byte) 4).putInt(0).put((byte) 0).put((byte) 0xFF);
+        block.putShort((short) 6).put((byte) 'B').put((byte) 'C').putShort((short) 2).putShort((short) (blockSize - 1));
+        block.put(compressed, 0, compressedLength);
+        block.putInt((int) crc.getValue()).putInt(to - from);
+        return block.array();
+    }
+
+    private static List<String> readAll(LineReader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (reader) {
+            while (reader.next()) {
+                byte[] bytes = new byte[reader.getEnd() - reader.getStart()];
+                reader.getBuffer().get(reader.getStart(), bytes);
+                lines.add(new String(bytes, StandardCharsets.US_ASCII));
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,71 @@
+package io.sorter.store;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExternalSorterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("**Записи в памяти сортируются без временных файлов**")
+    void testSortInMemory() throws IOException {
+        checkSort(1 << 20, 1000);
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    @DisplayName("**Записи сбрасываются на диск и сливаются в несколько уровней**")
+    void testSortWithSpills() throws IOException {
+        /* Маленький буфер дает больше сотни серий, что требует промежуточного слияния */
+        checkSort(1 << 16, 100_000);
+        assertEquals(0, countFiles());
+    }
+
+    private void checkSort(long memoryLimit, int count) throws IOException {
+        Random random = new Random(count);
+        List<byte[]> expected = new ArrayList<>();
+        try (ExternalSorter sorter = new ExternalSorter(directory, memoryLimit)) {
+            for (int i = 0; i < count; i++) {
+                /* Короткие записи со значениями байтов больше 127 проверяют беззнаковое сравнение */
+                byte[] record = new byte[random.nextInt(12)];
+                for (int j = 0; j < record.length; j++) {
+                    record[j] = random.nextInt(4) == 0 ? (byte) 0xF0 : (byte) random.nextInt(8);
+                }
+                expected.add(record);
+                sorter.add(record, 0, record.length);
+            }
+            expected.sort(Arrays::compareUnsigned);
+
+            RecordCursor cursor = sorter.sort();
+            for (byte[] record : expected) {
+                assertTrue(cursor.next());
+                assertArrayEquals(record, Arrays.copyOfRange(cursor.array(), cursor.start(),
+                        cursor.start() + cursor.length()));
+            }
+            assertFalse(cursor.next());
+        }
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
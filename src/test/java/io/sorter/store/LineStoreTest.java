@@ -0,0 +1,116 @@
+package io.sorter.store;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LineStoreTest {
+
+    @Test
+    @DisplayName("**Строки, пересекающие границы блоков, читаются целиком**")
+    void testLinesSpanBlocks() {
+        /* Блоки по 8 байт заставляют строки переходить из блока в блок */
+        LineStore store = new LineStore(8, true);
+        String[] lines = {"\"12345\"", "\"1\";\"22\";\"333\"", "", "\"0.5\""};
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(i, store.add(bytes(lines[i]), 0, lines[i].length()));
+        }
+
+        assertEquals(lines.length, store.size());
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(lines[i].length(), store.length(i));
+            assertEquals(lines[i], text(store, i));
+            assertTrue(store.matches(i, bytes(lines[i]), 0, lines[i].length()));
+        }
+        assertFalse(store.matches(1, bytes("\"1\";\"22\";\"334\""), 0, 14));
+    }
+
+    @Test
+    @DisplayName("**Копирование по частям в маленький буфер**")
+    void testCopyInParts() {
+        LineStore store = new LineStore(4, false);
+        String line = "\"1234567890\"";
+        store.add(bytes(line), 0, line.length());
+
+        ByteBuffer part = ByteBuffer.allocate(5);
+        StringBuilder copied = new StringBuilder();
+        int offset = 0;
+        while (offset < store.length(0)) {
+            part.clear();
+            offset += store.copyTo(0, offset, part);
+            copied.append(new String(part.array(), 0, part.position(), StandardCharsets.US_ASCII));
+        }
+        assertEquals(line, copied.toString());
+    }
+
+    @Test
+    @DisplayName("**Копирование строки из другого хранилища**")
+    void testAddFromOtherStore() {
+        LineStore source = new LineStore(8, false);
+        LineStore target = new LineStore(16, true);
+        source.add(bytes("\"skip\""), 0, 6);
+        source.add(bytes("\"123456789\""), 0, 11);
+
+        assertEquals(0, target.add(source, 1));
+        assertEquals("\"123456789\"", text(target, 0));
+        assertEquals(11, target.sizeInBytes());
+        assertTrue(target.matches(0, source, 1));
+        assertFalse(target.matches(0, source, 0));
+    }
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    @DisplayName("**Хранилище сохраняется по частям и загружается целиком**")
+    void testWriteAndReadFrom() throws IOException {
+        LineStore store = new LineStore(8, false);
+        String[] lines = {"\"first\"", "\"1\";\"22\"", "\"third line\""};
+        store.add(bytes(lines[0]), 0, lines[0].length());
+        Path data = Files.createTempFile("lines", ".bin");
+        Path ends = Files.createTempFile("ends", ".bin");
+        try {
+            /* Первая строка сохраняется отдельно, остальные дописываются следующим вызовом */
+            try (BinaryWriter dataOut = new BinaryWriter(data); BinaryWriter endsOut = new BinaryWriter(ends)) {
+                store.writeBytesTo(dataOut, 0);
+                store.writeEndsTo(endsOut, 0);
+            }
+            store.add(bytes(lines[1]), 0, lines[1].length());
+            store.add(bytes(lines[2]), 0, lines[2].length());
+            try (BinaryWriter dataOut = new BinaryWriter(data, true);
+                 BinaryWriter endsOut = new BinaryWriter(ends, true)) {
+                store.writeBytesTo(dataOut, 1);
+                store.writeEndsTo(endsOut, 1);
+            }
+
+            LineStore loaded;
+            try (BinaryReader dataIn = new BinaryReader(data); BinaryReader endsIn = new BinaryReader(ends)) {
+                loaded = LineStore.readFrom(dataIn, endsIn, lines.length);
+            }
+            assertEquals(lines.length, loaded.size());
+            assertEquals(store.sizeInBytes(), loaded.sizeInBytes());
+            for (int i = 0; i < lines.length; i++) {
+                assertEquals(lines[i], text(loaded, i));
+            }
+        } finally {
+            Files.delete(data);
+            Files.delete(ends);
+        }
+    }
+
+    private static String text(LineStore store, int line) {
+        ByteBuffer buffer = ByteBuffer.allocate(store.length(line));
+        store.copyTo(line, 0, buffer);
+        return new String(buffer.array(), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,43 @@
+package io.sorter.store;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MappedRegionTest {
+
+    @Test
+    @DisplayName("**Значения на границах сегментов читаются целиком**")
+    void testValuesAcrossSegments() throws IOException {
+        Path path = Files.createTempFile("region", ".bin");
+        try {
+            ByteBuffer content = ByteBuffer.allocate(100);
+            for (int i = 0; i < content.capacity(); i++) {
+                content.put(i, (byte) i);
+            }
+            Files.write(path, content.array());
+
+            /* Сегменты по 16 байт с перекрытием 8 байт; участок начинается со смещения 3 */
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedRegion region = MappedRegion.map(channel, 3, 90, 8, 4);
+                assertEquals(90, region.size());
+                for (int i = 0; i + Long.BYTES <= 90; i++) {
+                    assertEquals(content.getLong(3 + i), region.getLong(i));
+                    assertEquals(content.getInt(3 + i), region.getInt(i));
+                    assertEquals(content.get(3 + i), region.getByte(i));
+                }
+                assertEquals(content.slice(3 + 13, 8), region.slice(13, 8));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
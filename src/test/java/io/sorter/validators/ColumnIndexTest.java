@@ -0,0 +1,96 @@
+package io.sorter.validators;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ColumnIndexTest {
+
+    @Test
+    @DisplayName("**Значение запоминается с номером первой строки**")
+    void testPutIfAbsent() {
+        ColumnIndex index = new ColumnIndex(0);
+
+        assertEquals(-1, put(index, "\"100\"", 0));
+        assertEquals(-1, put(index, "\"200\"", 1));
+        assertEquals(0, put(index, "\"100\"", 2));
+        assertEquals(1, put(index, "\"200\"", 3));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    @DisplayName("**Значения получают плотные номера по порядку первого появления**")
+    void testValueIds() {
+        ColumnIndex index = new ColumnIndex(0);
+        put(index, "\"100\"", 5);
+        put(index, "\"200\"", 7);
+        put(index, "\"100\"", 9);
+
+        ByteBuffer second = bytes("\"200\"");
+        assertEquals(1, index.getValueId(second, 0, second.capacity()));
+        assertEquals(7, index.getFirstLine(1));
+        assertEquals(5, index.getFirstLine(0));
+        ByteBuffer missing = bytes("\"300\"");
+        assertEquals(-1, index.getValueId(missing, 0, missing.capacity()));
+    }
+
+    @Test
+    @DisplayName("**Совпадение отпечатков не объединяет разные значения**")
+    void testFingerprintCollision() {
+        ColumnIndex index = new ColumnIndex(0);
+        ByteBuffer first = bytes("\"1\"");
+        ByteBuffer second = bytes("\"2\"");
+
+        /* Принудительно используем один и тот же ключ-отпечаток (отрицательный) для разных значений */
+        long key = 42L | Long.MIN_VALUE;
+        assertEquals(-1, index.putIfAbsent(key, first, 0, 3, 0));
+        assertEquals(-1, index.putIfAbsent(key, second, 0, 3, 1));
+        assertEquals(0, index.putIfAbsent(key, first, 0, 3, 2));
+        assertEquals(1, index.putIfAbsent(key, second, 0, 3, 3));
+    }
+
+    @Test
+    @DisplayName("**Расширение таблицы сохраняет все значения**")
+    void testRehash() {
+        ColumnIndex index = new ColumnIndex(0);
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(-1, put(index, "\"" + i + "\"", i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, put(index, "\"" + i + "\"", i + 10_000));
+        }
+        assertEquals(10_000, index.size());
+    }
+
+    @Test
+    @DisplayName("**Слияние индексов частей объединяет строки с общими значениями**")
+    void testMerge() {
+        ColumnIndex global = new ColumnIndex(0);
+        ColumnIndex partial = new ColumnIndex(0);
+        UnionFind unionFind = new UnionFind(4);
+        put(global, "\"1\"", 0);
+        put(global, "\"2\"", 1);
+        put(partial, "\"2\"", 0);
+        put(partial, "\"3\"", 1);
+
+        /* Строки части получают в общей нумерации номера 2 и 3 */
+        global.merge(partial, new int[]{2, 3}, unionFind);
+
+        assertEquals(unionFind.get(1), unionFind.get(2));
+        assertEquals(3, unionFind.get(3));
+        assertEquals(3, put(global, "\"3\"", 4));
+    }
+
+    private static int put(ColumnIndex index, String value, int lineNumber) {
+        ByteBuffer buffer = bytes(value);
+        return index.putIfAbsent(buffer, 0, buffer.capacity(), lineNumber);
+    }
+
+    private static ByteBuffer bytes(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
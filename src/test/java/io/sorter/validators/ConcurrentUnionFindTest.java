@@ -0,0 +1,176 @@
+package io.sorter.validators;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentUnionFindTest {
+
+    @Test
+    @DisplayName("**Корнем множества становится наименьший элемент**")
+    void testMinimalRoot() {
+        ConcurrentUnionFind unionFind = new ConcurrentUnionFind(5);
+
+        assertTrue(unionFind.union(4, 3));
+        assertTrue(unionFind.union(3, 1));
+        assertFalse(unionFind.union(1, 4));
+
+        assertEquals(1, unionFind.get(4));
+        assertEquals(1, unionFind.get(3));
+        assertEquals(0, unionFind.get(0));
+    }
+
+    @Test
+    @DisplayName("**Объединение строк из UniqueLineChecker**")
+    void testCheckUnique() {
+        ConcurrentUnionFind unionFind = new ConcurrentUnionFind(3);
+        UniqueLineChecker uniqueLineChecker = new UniqueLineChecker(3);
+
+        uniqueLineChecker.checkUnique(new String[]{"\"1\"", "\"2\""}, 0, unionFind);
+        uniqueLineChecker.checkUnique(new String[]{"\"3\"", "\"2\""}, 1, unionFind);
+        uniqueLineChecker.checkUnique(new String[]{"\"4\"", "\"5\""}, 2, unionFind);
+
+        assertEquals(unionFind.get(0), unionFind.get(1));
+        assertEquals(2, unionFind.get(2));
+    }
+
+    @Test
+    @DisplayName("**Параллельные объединения дают то же разбиение, что и последовательные**")
+    void testStressMatchesSequential() throws Exception {
+        int size = 200_000;
+        int threads = 8;
+        Random random = new Random(7);
+        int[][] edges = new int[size][2];
+        for (int[] edge : edges) {
+            /* Близкие пары дают длинные цепочки, дальние - крупные слияния */
+            edge[0] = random.nextInt(size);
+            edge[1] = random.nextBoolean()
+                    ? Math.min(size - 1, edge[0] + random.nextInt(3))
+                    : random.nextInt(size);
+        }
+
+        UnionFind sequential = new UnionFind(size);
+        for (int[] edge : edges) {
+            sequential.union(edge[0], edge[1]);
+        }
+
+        ConcurrentUnionFind concurrent = new ConcurrentUnionFind(size);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = offset; i < edges.length; i += threads) {
+                        concurrent.union(edges[i][0], edges[i][1]);
+                        concurrent.get(edges[(i * 31) % edges.length][0]); /* Поиски вперемешку с объединениями */
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        /* В последовательной структуре находим наименьший элемент каждого множества */
+        int[] minimal = new int[size];
+        Arrays.fill(minimal, -1);
+        for (int i = 0; i < size; i++) {
+            int root = sequential.get(i);
+            if (minimal[root] < 0) {
+                minimal[root] = i;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            assertEquals(minimal[sequential.get(i)], concurrent.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("**Рост структуры во время параллельных объединений не меняет разбиение**")
+    void testGrowWhileUnion() throws Exception {
+        int size = 300_000;
+        int step = 5_000;
+        int threads = 4;
+        Random random = new Random(11);
+        int[][] edges = new int[size][2];
+        for (int i = 0; i < size; i++) {
+            /* Ребро i связывает элемент i с одним из уже добавленных */
+            edges[i][0] = i;
+            edges[i][1] = random.nextBoolean() ? random.nextInt(i + 1) : Math.max(0, i - 1 - random.nextInt(3));
+        }
+
+        ConcurrentUnionFind concurrent = new ConcurrentUnionFind(0);
+        List<BlockingQueue<Integer>> queues = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                BlockingQueue<Integer> queue = new LinkedBlockingQueue<>();
+                queues.add(queue);
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    int from = 0;
+                    for (int to = queue.take(); to > 0; to = queue.take()) {
+                        for (int i = from + offset; i < to; i += threads) {
+                            concurrent.union(edges[i][0], edges[i][1]);
+                        }
+                        from = to;
+                    }
+                    return null;
+                }));
+            }
+            /* Элементы публикуются через очереди после роста, как в конвейере стадий */
+            for (int to = step; to <= size; to += step) {
+                concurrent.grow(to);
+                for (BlockingQueue<Integer> queue : queues) {
+                    queue.put(to);
+                }
+            }
+            for (BlockingQueue<Integer> queue : queues) {
+                queue.put(0);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        UnionFind sequential = new UnionFind(size);
+        for (int[] edge : edges) {
+            sequential.union(edge[0], edge[1]);
+        }
+        UnionFind transferred = new UnionFind(0);
+        transferred.addFrom(concurrent, 123);
+        assertEquals(size, concurrent.size());
+        assertEquals(size, transferred.size());
+        assertEquals(sequential.getComponentCount(), transferred.getComponentCount());
+        assertEquals(sequential.getGroupCount(), transferred.getGroupCount());
+        assertEquals(123, transferred.getUnionCount());
+        for (int i = 0; i < size; i++) {
+            assertEquals(sequential.get(i) == sequential.get(edges[i][1]), transferred.get(i) == transferred.get(edges[i][1]));
+            assertEquals(sequential.getComponentSize(sequential.get(i)), transferred.getComponentSize(transferred.get(i)));
+        }
+    }
+}
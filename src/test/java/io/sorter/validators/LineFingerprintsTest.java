@@ -0,0 +1,75 @@
+package io.sorter.validators;
+
+import io.sorter.store.LineStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LineFingerprintsTest {
+
+    @Test
+    @DisplayName("**Повторяющаяся строка возвращает номер первой такой строки**")
+    void testFindOrAdd() {
+        LineFingerprints fingerprints = new LineFingerprints(0, null);
+
+        /* Таблица несколько раз расширяется, номера строк сохраняются */
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(-1, find(fingerprints, "\"" + i + "\"", i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, find(fingerprints, "\"" + i + "\"", 1000 + i));
+        }
+        assertEquals(1000, fingerprints.size());
+    }
+
+    @Test
+    @DisplayName("**Точная проверка различает строки с одинаковым отпечатком**")
+    void testVerifyOnCollision() {
+        LineStore store = new LineStore(16, false);
+        LineFingerprints exact = new LineFingerprints(0, store);
+        LineFingerprints approximate = new LineFingerprints(0, null);
+        ByteBuffer first = bytes("\"111\"");
+        ByteBuffer second = bytes("\"222\"");
+
+        /* Обеим строкам намеренно передается один и тот же отпечаток */
+        assertEquals(-1, exact.findOrAdd(7, 9, first, 0, 5, store.add(first, 0, 5)));
+        assertEquals(-1, exact.findOrAdd(7, 9, second, 0, 5, store.add(second, 0, 5)));
+        assertEquals(1, exact.findOrAdd(7, 9, second, 0, 5, 2));
+
+        assertEquals(-1, approximate.findOrAdd(7, 9, first, 0, 5, 0));
+        assertEquals(0, approximate.findOrAdd(7, 9, second, 0, 5, 1));
+    }
+
+    @Test
+    @DisplayName("**Отпечатки возвращаются по порядку номеров строк**")
+    void testFingerprintsByLine() {
+        LineStore store = new LineStore(16, false);
+        LineFingerprints fingerprints = new LineFingerprints(0, store);
+        String[] lines = {"\"1\"", "\"2\";\"3\"", "\"4\""};
+        for (String line : lines) {
+            ByteBuffer buffer = bytes(line);
+            fingerprints.findOrAdd(buffer, 0, line.length(), store.add(buffer, 0, line.length()));
+        }
+
+        long[] byLine = fingerprints.fingerprintsByLine();
+        LineFingerprints copy = new LineFingerprints(0, store);
+        for (int i = lines.length - 1; i >= 0; i--) {
+            assertEquals(-1, copy.findOrAdd(byLine[i * 2], byLine[i * 2 + 1], store, i, i));
+        }
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(i, copy.findOrAdd(bytes(lines[i]), 0, lines[i].length(), lines.length));
+        }
+    }
+
+    private static int find(LineFingerprints fingerprints, String line, int lineNumber) {
+        return fingerprints.findOrAdd(bytes(line), 0, line.length(), lineNumber);
+    }
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
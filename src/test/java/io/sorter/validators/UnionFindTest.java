@@ -5,6 +5,8 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class UnionFindTest {
     private UnionFind unionFind;
@@ -74,4 +76,54 @@ public class UnionFindTest {
         /* Убеждаемся, что родитель не изменился */
         assertEquals(1, unionFind.get(1));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("**Подсчет множеств и их размеров**")
+    void testComponentCounters() {
+        assertEquals(5, unionFind.getComponentCount());
+        assertEquals(0, unionFind.getGroupCount());
+
+        assertTrue(unionFind.union(0, 1));
+        assertTrue(unionFind.union(2, 3));
+        assertFalse(unionFind.union(1, 0));
+
+        assertEquals(3, unionFind.getComponentCount());
+        assertEquals(2, unionFind.getGroupCount());
+        assertEquals(2, unionFind.getComponentSize(unionFind.get(0)));
+
+        /* Объединение двух групп дает одну группу из четырех элементов */
+        unionFind.union(1, 3);
+        assertEquals(2, unionFind.getComponentCount());
+        assertEquals(1, unionFind.getGroupCount());
+        assertEquals(4, unionFind.getComponentSize(unionFind.get(2)));
+        assertEquals(1, unionFind.getComponentSize(unionFind.get(4)));
+    }
+
+    @Test
+    @DisplayName("**Добавление элементов с расширением структуры**")
+    void testAddGrowsCapacity() {
+        UnionFind growing = new UnionFind(0);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, growing.add());
+        }
+        growing.union(0, 99);
+
+        assertEquals(100, growing.size());
+        assertEquals(99, growing.getComponentCount());
+        assertEquals(growing.get(0), growing.get(99));
+    }
+
+    @Test
+    @DisplayName("**Длинная цепочка не приводит к переполнению стека**")
+    void testLongChain() {
+        int size = 1_000_000;
+        UnionFind chain = new UnionFind(size);
+        for (int i = 1; i < size; i++) {
+            chain.union(i, i - 1); /* Каждый раз подвешиваем к растущему множеству */
+        }
+
+        assertEquals(chain.get(0), chain.get(size - 1));
+        assertEquals(size, chain.getComponentSize(chain.get(size / 2)));
+        assertEquals(1, chain.getGroupCount());
+    }
+}
@@ -0,0 +1,50 @@
+package io.sorter.validators;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ValueKeysTest {
+
+    @Test
+    @DisplayName("**Десятичные значения упаковываются в различные точные ключи**")
+    void testPackDecimal() {
+        String[] values = {"\"\"", "\"0\"", "\"00\"", "\"1\"", "\"01\"", "\"10\"", "\"1.0\"", "\".1\"", "\"0.1\"",
+            "\"123456789012345678\"", "\"12345678901234567.8\"", "\"012345678901234567\""};
+        Set<Long> keys = new HashSet<>();
+        for (String value : values) {
+            long key = key(value);
+            assertTrue(ValueKeys.isExact(key), value);
+            assertTrue(keys.add(key), value);
+            assertEquals(key, key(value));
+        }
+    }
+
+    @Test
+    @DisplayName("**Длинные и нечисловые значения получают ключ-отпечаток**")
+    void testFallback() {
+        for (String value : new String[]{"\"1234567890123456789\"", "\"1a\"", "\"1.\"", "\"1.23\"", "\".\"",
+            "строка", "\"1"}) {
+            ByteBuffer buffer = bytes(value);
+            assertEquals(ValueKeys.NOT_DECIMAL, ValueKeys.packDecimal(buffer, 0, buffer.capacity()), value);
+            assertFalse(ValueKeys.isExact(key(value)), value);
+        }
+    }
+
+    private static long key(String value) {
+        ByteBuffer buffer = bytes(value);
+        return ValueKeys.keyOf(buffer, 0, buffer.capacity());
+    }
+
+    private static ByteBuffer bytes(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,67 @@
+package io.sorter.writer;
+
+import io.sorter.validators.UnionFind;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GroupLayoutTest {
+
+    @Test
+    @DisplayName("**Группы упорядочены по убыванию размера, а равные - по первой строке**")
+    void testGroupOrder() {
+        UnionFind unionFind = new UnionFind(9);
+        unionFind.union(1, 4); /* Группа {1, 4} */
+        unionFind.union(7, 2); /* Группа {2, 7, 8} */
+        unionFind.union(8, 7);
+        unionFind.union(6, 0); /* Группа {0, 6} */
+        /* Строки 3 и 5 остаются одиночными и в раскладку не попадают */
+
+        GroupLayout layout = GroupLayout.of(unionFind, 9);
+
+        assertEquals(3, layout.getGroupCount());
+        assertEquals(7, layout.getMemberCount());
+        int[][] expected = {{2, 7, 8}, {0, 6}, {1, 4}};
+        for (int group = 0; group < expected.length; group++) {
+            int start = layout.getGroupStart(group);
+            assertEquals(expected[group].length, layout.getGroupEnd(group) - start);
+            for (int i = 0; i < expected[group].length; i++) {
+                assertEquals(expected[group][i], layout.getMember(start + i));
+                assertEquals(group, layout.findGroup(start + i));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("**Самые большие группы совпадают с началом полной раскладки**")
+    void testTopGroupsMatchFullLayout() {
+        Random random = new Random(4);
+        UnionFind unionFind = new UnionFind(5_000);
+        for (int i = 0; i < 3_000; i++) {
+            unionFind.union(random.nextInt(5_000), random.nextInt(5_000));
+        }
+        GroupLayout full = GroupLayout.of(unionFind, 5_000);
+
+        for (int minSize : new int[]{2, 3}) {
+            for (int maxGroups : new int[]{0, 1, 10, 100}) {
+                GroupLayout top = GroupLayout.of(unionFind, 5_000, maxGroups, minSize);
+                int group = 0;
+                for (int k = 0; k < full.getGroupCount() && group < maxGroups; k++) {
+                    int size = full.getGroupEnd(k) - full.getGroupStart(k);
+                    if (size < minSize) {
+                        continue;
+                    }
+                    assertEquals(size, top.getGroupEnd(group) - top.getGroupStart(group));
+                    for (int i = 0; i < size; i++) {
+                        assertEquals(full.getMember(full.getGroupStart(k) + i), top.getMember(top.getGroupStart(group) + i));
+                    }
+                    group++;
+                }
+                assertEquals(group, top.getGroupCount());
+            }
+        }
+    }
+}
@@ -8,8 +8,11 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class ResultWriterTest {
@@ -70,4 +73,28 @@ public class ResultWriterTest {
 
         assertEquals(1, resultWriter.getGroupCount());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("**Параллельное форматирование дает тот же файл, что и последовательное**")
+    void testParallelWriteMatchesSequential() throws IOException {
+        /* Больше строк в группах, чем в одной пачке: пачки разрезают группы посередине */
+        Random random = new Random(3);
+        List<String> lines = new ArrayList<>();
+        UnionFind unionFind = new UnionFind(0);
+        for (int i = 0; i < 200_000; i++) {
+            lines.add("\"" + i + "\"");
+            unionFind.add();
+            if (i > 0 && random.nextInt(3) > 0) {
+                unionFind.union(i, random.nextInt(i));
+            }
+        }
+
+        resultWriter.writeResults(lines, unionFind);
+        byte[] sequential = Files.readAllBytes(Paths.get(OUTPUT_FILENAME));
+        ResultWriter parallelWriter = new ResultWriter(OUTPUT_FILENAME, 4);
+        parallelWriter.writeResults(lines, unionFind);
+
+        assertArrayEquals(sequential, Files.readAllBytes(Paths.get(OUTPUT_FILENAME)));
+        assertEquals(resultWriter.getGroupCount(), parallelWriter.getGroupCount());
+    }
+}
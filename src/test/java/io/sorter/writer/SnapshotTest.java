@@ -0,0 +1,82 @@
+package io.sorter.writer;
+
+import io.sorter.parser.LineTokenizer;
+import io.sorter.store.LineStore;
+import io.sorter.validators.UnionFind;
+import io.sorter.validators.UniqueLineChecker;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SnapshotTest {
+
+    @Test
+    @DisplayName("**Снимок группировки читается через отображение в память**")
+    void testWriteAndOpen() throws IOException {
+        String[] input = {"\"1\";\"10\"", "\"2\";\"20\"", "\"3\";\"10\"", "\"4\";\"30\"", "\"2\";\"40\"", "\"5\";\"50\""};
+        LineStore lines = new LineStore(8, false);
+        UnionFind unionFind = new UnionFind(0);
+        UniqueLineChecker checker = new UniqueLineChecker(16);
+        LineTokenizer tokenizer = new LineTokenizer();
+        for (String line : input) {
+            ByteBuffer buffer = bytes(line);
+            tokenizer.tokenize(buffer, 0, buffer.limit());
+            lines.add(buffer, 0, buffer.limit());
+            checker.checkUnique(buffer, tokenizer, unionFind.add(), unionFind);
+        }
+
+        Path path = Files.createTempFile("snapshot", ".bin");
+        try {
+            new SnapshotWriter(path).write(lines, unionFind, checker);
+            Snapshot snapshot = Snapshot.open(path);
+
+            assertEquals(input.length, snapshot.getLineCount());
+            assertEquals(2, snapshot.getGroupCount());
+            for (int i = 0; i < input.length; i++) {
+                assertEquals(input[i], StandardCharsets.UTF_8.decode(snapshot.getLine(i)).toString());
+            }
+            /* Номер группы - первая строка группы */
+            int[] groups = {0, 1, 0, 3, 1, 5};
+            for (int i = 0; i < input.length; i++) {
+                assertEquals(groups[i], snapshot.getGroup(i));
+            }
+            /* Две группы из одной строки и две группы из двух строк */
+            assertEquals(2, snapshot.getHistogramLength());
+            assertEquals(1, snapshot.getHistogramSize(0));
+            assertEquals(2, snapshot.getHistogramCount(0));
+            assertEquals(2, snapshot.getHistogramSize(1));
+            assertEquals(2, snapshot.getHistogramCount(1));
+
+            assertEquals(2, snapshot.getColumnCount());
+            assertEquals(1, snapshot.findFirstLine(0, bytes("\"2\""), 0, 3));
+            assertEquals(0, snapshot.findFirstLine(1, bytes("\"10\""), 0, 4));
+            assertEquals(-1, snapshot.findFirstLine(1, bytes("\"99\""), 0, 4));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    @DisplayName("**Файл без сигнатуры снимка не открывается**")
+    void testRejectsForeignFile() throws IOException {
+        Path path = Files.createTempFile("snapshot", ".bin");
+        try {
+            Files.write(path, new byte[SnapshotWriter.HEADER_SIZE]);
+            assertThrows(IOException.class, () -> Snapshot.open(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+}